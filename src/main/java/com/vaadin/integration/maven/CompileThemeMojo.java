@@ -44,6 +44,7 @@ public class CompileThemeMojo extends AbstractThemeMojo {
 
         JavaCommand cmd = createJavaCommand();
         cmd.setMainClass(THEME_COMPILE_CLASS);
+        cmd.setLogQualifier(theme);
 
         if (compressTheme) {
             cmd.arg("-compress:true");
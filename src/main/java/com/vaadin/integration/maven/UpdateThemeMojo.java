@@ -5,6 +5,7 @@ import java.io.File;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.codehaus.mojo.gwt.shell.JavaCommand;
 import org.codehaus.mojo.gwt.shell.JavaCommandException;
@@ -19,6 +20,18 @@ import org.codehaus.mojo.gwt.shell.JavaCommandException;
 public class UpdateThemeMojo extends AbstractThemeMojo {
     public static final String THEME_UPDATE_CLASS = "com.vaadin.server.themeutils.SASSAddonImportFileCreator";
 
+    /**
+     * Run the theme updater in the Maven JVM rather than in a forked JVM.
+     * It is still forked when it needs system properties, such as -D options of extraJvmArgs, that would be
+     * seen by the whole Maven JVM.
+     * <p>
+     * Can be set from command line using '-Dvaadin.updateTheme.inProcess=true'
+     *
+     * @since 7.7
+     */
+    @Parameter(defaultValue = "false", property = "vaadin.updateTheme.inProcess")
+    private boolean inProcess;
+
     @Override
     protected void checkVaadinVersion() throws MojoExecutionException {
         // restrict to Vaadin 7.1 and later, otherwise skip and log
@@ -36,6 +49,8 @@ public class UpdateThemeMojo extends AbstractThemeMojo {
 
         JavaCommand cmd = createJavaCommand();
         cmd.setMainClass(THEME_UPDATE_CLASS);
+        cmd.setInProcess(inProcess);
+        cmd.setLogQualifier(theme);
 
         File themeDir = configureThemeClasspath(cmd, theme);
 
@@ -5,7 +5,12 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.maven.artifact.Artifact;
@@ -17,9 +22,12 @@ import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.codehaus.mojo.gwt.shell.AbstractGwtShellMojo;
+import org.codehaus.mojo.gwt.shell.BuildCache;
 import org.codehaus.mojo.gwt.shell.CompileMojo;
 import org.codehaus.mojo.gwt.shell.JavaCommand;
 import org.codehaus.mojo.gwt.shell.JavaCommandException;
+import org.codehaus.mojo.gwt.utils.DigestUtils;
+import org.codehaus.mojo.gwt.utils.SessionCache;
 import org.codehaus.plexus.util.IOUtil;
 
 import com.vaadin.wscdn.client.AddonInfo;
@@ -221,9 +229,10 @@ public class UpdateWidgetsetMojo extends AbstractGwtShellMojo {
 
         getLog().info("Updating widgetset " + module);
 
-        JavaCommand cmd = new JavaCommand();
+        JavaCommand cmd = createJavaCommand();
         cmd.setMainClass(WIDGETSET_BUILDER_CLASS);
-        cmd.setLog(getLog());
+        // WidgetSetBuilder scans the java.class.path system property
+        cmd.setPathingJarSupported(false);
 
         // if using an auto-generated AppWidgetset, the generated source directory must be first on the classpath
         if (generated) {
@@ -264,12 +273,86 @@ public class UpdateWidgetsetMojo extends AbstractGwtShellMojo {
 
         cmd.addToClasspath(getGwtUserJar()).addToClasspath(getGwtDevJar());
 
+        // the builder updates the first module file on the classpath
+        BuildCache cache = getBuildCache();
+        File moduleFile = cache != null ? findModuleFile(cmd.getClasspath(), module) : null;
+        Map<String, File> outputs = Collections.singletonMap("module", moduleFile);
+        String key = null;
+        if (moduleFile != null) {
+            try {
+                key = getBuildCacheKey(module, moduleFile, cmd.getClasspath());
+                if (cache.restore(key, outputs)) {
+                    getLog().info("Widgetset " + module + " restored from the build cache");
+                    return;
+                }
+            } catch (IOException e) {
+                getLog().warn("Failed to read the build cache: " + e.getMessage());
+                key = null;
+            }
+        }
+
         cmd.arg(module);
         try {
             cmd.execute();
         } catch (JavaCommandException e) {
             throw new MojoExecutionException("Failed to update widgetset", e);
         }
+
+        if (key != null) {
+            try {
+                cache.put(key, outputs);
+            } catch (IOException e) {
+                getLog().warn("Failed to store widgetset " + module + " in the build cache: " + e.getMessage());
+            }
+        }
+    }
+
+    private File findModuleFile(List<File> classpath, String module) {
+        String path = module.replace('.', '/') + GWT_MODULE_EXTENSION;
+        for (File element : classpath) {
+            File file = new File(element, path);
+            if (element.isDirectory() && file.isFile()) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The widgetset depends on the module file and on the modules and manifests of the classpath.
+     */
+    private String getBuildCacheKey(String module, File moduleFile, List<File> classpath) throws IOException {
+        MessageDigest digest = DigestUtils.newDigest();
+        DigestUtils.update(digest, "update-widgetset:" + module + "\n");
+        DigestUtils.update(digest, moduleFile);
+        Map<String, Object> hashes = SessionCache.get(getSession());
+        for (File element : classpath) {
+            if (element.isFile()) {
+                DigestUtils.update(digest, DigestUtils.sha1Hex(element, hashes) + "\n");
+            } else if (element.isDirectory()) {
+                updateWithModules(digest, element, "");
+            }
+        }
+        return DigestUtils.toHex(digest.digest());
+    }
+
+    private void updateWithModules(MessageDigest digest, File directory, String path) throws IOException {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            String name = path + file.getName();
+            if (file.getName().startsWith(".")) {
+                continue;
+            } else if (file.isDirectory()) {
+                updateWithModules(digest, file, name + "/");
+            } else if (name.endsWith(GWT_MODULE_EXTENSION) || "META-INF/MANIFEST.MF".equals(name)) {
+                DigestUtils.update(digest, name + "\n");
+                DigestUtils.update(digest, file);
+            }
+        }
     }
 
     protected File setupGeneratedWidgetsetDirectory() {
@@ -20,30 +20,17 @@ package org.codehaus.mojo.gwt;
  */
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.InputStream;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLClassLoader;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.maven.artifact.Artifact;
-import org.apache.maven.model.Resource;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Parameter;
-import org.codehaus.mojo.gwt.utils.DefaultGwtModuleReader;
 import org.codehaus.mojo.gwt.utils.GwtModuleReaderException;
-import org.codehaus.plexus.util.DirectoryScanner;
-import org.codehaus.plexus.util.ReaderFactory;
-import org.codehaus.plexus.util.xml.Xpp3Dom;
-import org.codehaus.plexus.util.xml.Xpp3DomBuilder;
+import org.codehaus.mojo.gwt.utils.GwtModuleRegistry;
 
 /**
  * Add support for GWT Modules.
@@ -81,7 +68,6 @@ implements GwtModuleReader
      *
      * @return the modules
      */
-    // FIXME move to DefaultGwtModuleReader !
     public String[] getModules()
     {
         // module has higher priority if set by expression
@@ -91,57 +77,8 @@ implements GwtModuleReader
         }
         if ( modules == null )
         {
-            //Use a Set to avoid duplicate when user set src/main/java as <resource>
-            Set<String> mods = new HashSet<String>();
-
-            Collection<String> sourcePaths = getProject().getCompileSourceRoots();
-            for ( String sourcePath : sourcePaths )
-            {
-                File sourceDirectory = new File( sourcePath );
-                if ( sourceDirectory.exists() )
-                {
-                    DirectoryScanner scanner = new DirectoryScanner();
-                    scanner.setBasedir( sourceDirectory.getAbsolutePath() );
-                    scanner.setIncludes( new String[] { "**/*" + DefaultGwtModuleReader.GWT_MODULE_EXTENSION } );
-                    scanner.scan();
-
-                    mods.addAll( Arrays.asList( scanner.getIncludedFiles() ) );
-                }
-            }
-
-            Collection<Resource> resources = getProject().getResources();
-            for ( Resource resource : resources )
-            {
-                File resourceDirectoryFile = new File( resource.getDirectory() );
-                if ( !resourceDirectoryFile.exists() )
-                {
-                    continue;
-                }
-                DirectoryScanner scanner = new DirectoryScanner();
-                scanner.setBasedir( resource.getDirectory() );
-                scanner.setIncludes( new String[] { "**/*" + DefaultGwtModuleReader.GWT_MODULE_EXTENSION } );
-                scanner.scan();
-                mods.addAll( Arrays.asList( scanner.getIncludedFiles() ) );
-            }
-
-            if ( mods.isEmpty() )
-            {
-                getLog().warn( "GWT plugin is configured to detect modules, but none were found." );
-            }
-
-            modules = new String[mods.size()];
-            int i = 0;
-            for ( String fileName : mods )
-            {
-                String path =
-                        fileName.substring( 0, fileName.length() - DefaultGwtModuleReader.GWT_MODULE_EXTENSION.length() );
-                modules[i++] = path.replace( File.separatorChar, '.' );
-            }
-            if ( modules.length > 0 )
-            {
-                getLog().info( "auto discovered modules " + Arrays.asList( modules ) );
-            }
-
+            List<String> mods = getModuleRegistry().getGwtModules();
+            modules = mods.toArray( new String[mods.size()] );
         }
         return modules;
     }
@@ -150,99 +87,36 @@ implements GwtModuleReader
     public GwtModule readModule( String name )
             throws GwtModuleReaderException
     {
-        String modulePath = name.replace( '.', '/' ) + DefaultGwtModuleReader.GWT_MODULE_EXTENSION;
-        Collection<String> sourceRoots = getProject().getCompileSourceRoots();
-        for ( String sourceRoot : sourceRoots )
-        {
-            File root = new File( sourceRoot );
-            File xml = new File( root, modulePath );
-            if ( xml.exists() )
-            {
-                getLog().debug( "GWT module " + name + " found in " + root );
-                return readModule( name, xml );
-            }
-        }
-        Collection<Resource> resources = getProject().getResources();
-        for ( Resource resource : resources )
-        {
-            File root = new File( resource.getDirectory() );
-            File xml = new File( root, modulePath );
-            if ( xml.exists() )
-            {
-                getLog().debug( "GWT module " + name + " found in " + root );
-                return readModule( name, xml );
-            }
-        }
-
-        try
-        {
-            Collection<File> classpath = getClasspath( Artifact.SCOPE_COMPILE );
-            // also use Vaadin client package
-            Collection<File> gwtUserJars = getGwtUserJar();
-
-            URL[] urls = new URL[classpath.size() + gwtUserJars.size()];
-            int i = 0;
-            for ( File file : classpath )
-            {
-                urls[i++] = file.toURI().toURL();
-            }
-            for ( File file : gwtUserJars )
-            {
-                urls[i++] = file.toURI().toURL();
-            }
-
-
-            InputStream stream = new URLClassLoader( urls ).getResourceAsStream( modulePath );
-            if ( stream != null )
-            {
-                return readModule( name, stream );
-            }
-        }
-        catch ( MalformedURLException e )
-        {
-            // ignored;
-        } catch (MojoExecutionException e)
-        {
-            throw new GwtModuleReaderException(e.getMessage(), e);
-        }
-
-        throw new GwtModuleReaderException( "GWT Module " + name + " not found in project sources or resources." );
-    }
-
-    private GwtModule readModule( String name, File file )
-            throws GwtModuleReaderException
-
-    {
-        try
-        {
-            GwtModule module = readModule( name, new FileInputStream( file ) );
-            module.setSourceFile(file);
-            return module;
-        }
-        catch ( FileNotFoundException e )
-        {
-            throw new GwtModuleReaderException( "Failed to read module file " + file );
-        }
+        return getModuleRegistry().readModule( name );
     }
 
     /**
-     * @param module2
-     * @return
+     * @return the modules of the project, shared by the mojos of the build with the same classpath
      */
-    private GwtModule readModule( String name, InputStream xml )
-            throws GwtModuleReaderException
+    protected GwtModuleRegistry getModuleRegistry()
     {
-        try
-        {
-            Xpp3Dom dom = Xpp3DomBuilder.build( ReaderFactory.newXmlReader( xml ) );
-            return new GwtModule( name, dom, this );
-        }
-        catch ( Exception e )
+        // the generator dependencies are only in the classpath of some mojos
+        String classpathKind = isGenerator() ? "mojo-generator" : "mojo";
+        return GwtModuleRegistry.get( getSession(), getProject(), getLog(), classpathKind,
+                                      new GwtModuleRegistry.ClasspathProvider()
         {
-            String error = "Failed to read module XML file " + xml;
-            getLog().error( error );
-            throw new GwtModuleReaderException( error, e );
-        }
+            public Collection<File> getClasspath()
+                throws GwtModuleReaderException
+            {
+                try
+                {
+                    Collection<File> classpath =
+                        new ArrayList<File>( AbstractGwtModuleMojo.this.getClasspath( Artifact.SCOPE_COMPILE ) );
+                    // also use Vaadin client package
+                    classpath.addAll( getGwtUserJar() );
+                    return classpath;
+                }
+                catch ( MojoExecutionException e )
+                {
+                    throw new GwtModuleReaderException( e.getMessage(), e );
+                }
+            }
+        }, getClasspathIndexDirectory() );
     }
 
 }
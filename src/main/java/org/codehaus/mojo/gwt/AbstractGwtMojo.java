@@ -36,8 +36,10 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.ArtifactUtils;
 import org.apache.maven.artifact.factory.ArtifactFactory;
 import org.apache.maven.artifact.metadata.ArtifactMetadataRetrievalException;
 import org.apache.maven.artifact.metadata.ArtifactMetadataSource;
@@ -49,6 +51,7 @@ import org.apache.maven.artifact.resolver.ArtifactResolutionResult;
 import org.apache.maven.artifact.resolver.ArtifactResolver;
 import org.apache.maven.artifact.versioning.ArtifactVersion;
 import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.model.Dependency;
 import org.apache.maven.model.Resource;
 import org.apache.maven.plugin.AbstractMojo;
@@ -59,6 +62,9 @@ import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.MavenProjectBuilder;
 import org.apache.maven.project.ProjectBuildingException;
 import org.apache.maven.project.artifact.MavenMetadataSource;
+import org.codehaus.mojo.gwt.utils.DigestUtils;
+import org.codehaus.mojo.gwt.utils.ParallelArtifactResolver;
+import org.codehaus.mojo.gwt.utils.SessionCache;
 import org.codehaus.plexus.util.StringUtils;
 
 /**
@@ -80,6 +86,8 @@ extends AbstractMojo
     public static final String GWT_GROUP_ID = "com.google.gwt";
     public static final String VAADIN_GROUP_ID = "com.vaadin";
 
+    private static final String SDK_CLASSPATH = "sdk-classpath:";
+
     // --- Some Maven tools ----------------------------------------------------
 
     @Parameter(defaultValue = "${plugin.artifactMap}", required = true, readonly = true)
@@ -114,6 +122,12 @@ extends AbstractMojo
     @Parameter(defaultValue = "${project}", required = true, readonly = true)
     private MavenProject project;
 
+    /**
+     * The current build session
+     */
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private MavenSession session;
+
     // --- Plugin parameters ---------------------------------------------------
 
     /**
@@ -161,6 +175,35 @@ extends AbstractMojo
     @Parameter(defaultValue = "false", property = "gwt.gwtSdkFirstInClasspath")
     protected boolean gwtSdkFirstInClasspath;
 
+    /**
+     * Where the resolved classpath of the Vaadin client and client compiler is cached between builds, so that a build
+     * doesn't resolve their dependencies again. Snapshots are only cached for the duration of the build.
+     *
+     * @since 7.7
+     */
+    @Parameter(defaultValue = "${user.home}/.m2/vaadin-maven-plugin/sdk-classpath", property = "gwt.sdkClasspathCache")
+    private File sdkClasspathCache;
+
+    /**
+     * Maximum number of artifacts downloaded at the same time when resolving the Vaadin client compiler dependencies
+     * and the sources of <code>compileSourcesArtifacts</code>. Use 1 to download them one at a time.
+     * <p>
+     * Can be set from command line using '-Dgwt.resolver.threads=n'.
+     *
+     * @since 7.7
+     */
+    @Parameter(defaultValue = "4", property = "gwt.resolver.threads")
+    private int resolverThreads;
+
+    /**
+     * Where the entries of the classpath jars are stored between builds, so that GWT modules and client resources are
+     * found without reading the jars again.
+     *
+     * @since 7.7
+     */
+    @Parameter(defaultValue = "${user.home}/.m2/vaadin-maven-plugin/classpath-index", property = "gwt.classpathIndex")
+    private File classpathIndexDirectory;
+
     /**
      * List of requested artifacts for which there was no version information
      * available. This is used to prevent duplicate messages about the same
@@ -277,6 +320,28 @@ extends AbstractMojo
         // return getJarFiles( GWT_USER );
     }
 
+    /**
+     * @return hash of the content of the SDK jars, that changes with any of them, even rebuilt under the same version
+     * @since 7.7
+     */
+    protected String getGwtUserJarHash() throws MojoExecutionException
+    {
+        Map<String, Object> cache = SessionCache.get( getSession() );
+        StringBuilder hashes = new StringBuilder();
+        for ( File jar : getGwtUserJar() )
+        {
+            try
+            {
+                hashes.append( DigestUtils.sha1Hex( jar, cache ) ).append( '\n' );
+            }
+            catch ( IOException e )
+            {
+                throw new MojoExecutionException( "Failed to read " + jar, e );
+            }
+        }
+        return DigestUtils.sha1Hex( hashes.toString() );
+    }
+
     private Collection<File> getJarFiles(String artifactId) throws MojoExecutionException
     {
         // disabled for Vaadin: checkGwtUserVersion();
@@ -319,6 +384,62 @@ extends AbstractMojo
             throws MojoExecutionException {
 
         Artifact rootArtifact = getArtifact(VAADIN_GROUP_ID, artifactId, null);
+        String version;
+        boolean logVersion = false;
+
+        if (rootArtifact != null) {
+            version = rootArtifact.getVersion();
+        } else {
+            // only log implicit version checks once per artifact
+            logVersion = artifactsWithoutVersion.add(artifactId);
+
+            if (logVersion) {
+                getLog().debug(
+                        "Trying to resolve the version of "
+                                + VAADIN_GROUP_ID
+                                + ":"
+                                + artifactId
+                                + " based on the version of vaadin-shared in the project POM");
+            }
+
+            // assume that artifact is not in project - try to resolve with
+            // version number from vaadin-shared
+            Artifact vaadinSharedArtifact = getArtifact(VAADIN_GROUP_ID,
+                    "vaadin-shared", null);
+            if (vaadinSharedArtifact == null) {
+                // No vaadin-shared found, this is possibly when running clean and artifacts have not been resolved
+                // https://maven.apache.org/ref/3.2.3/apidocs/org/apache/maven/project/MavenProject.html#getArtifacts()
+                return Collections.emptyList();
+            }
+            version = vaadinSharedArtifact.getBaseVersion();
+        }
+
+        // the resolved classpath only depends on the artifact, cache it for the build and on disk
+        String key = VAADIN_GROUP_ID + ":" + artifactId + ":" + version;
+        Map<String, Object> cache = SessionCache.get(getSession());
+        @SuppressWarnings("unchecked")
+        List<File> files = (List<File>) cache.get(SDK_CLASSPATH + key);
+        if (files == null) {
+            files = readSdkClasspath(key);
+            if (files == null) {
+                files = resolveJarAndDependencies(rootArtifact, artifactId, version);
+                writeSdkClasspath(key, files);
+            } else {
+                getLog().debug("Using cached classpath of " + key);
+            }
+            cache.put(SDK_CLASSPATH + key, files);
+        }
+
+        if (logVersion) {
+            getLog().info(
+                    "Using " + VAADIN_GROUP_ID + ":" + artifactId
+                            + " version " + version);
+        }
+        return new ArrayList<File>(files);
+    }
+
+    private List<File> resolveJarAndDependencies(Artifact rootArtifact,
+            String artifactId, String version) throws MojoExecutionException {
 
         ArtifactResolutionResult result = null;
 
@@ -327,39 +448,11 @@ extends AbstractMojo
 
             // TODO can these branches be unified/cleaned up?
             if (rootArtifact == null) {
-                // only log implicit version checks once per artifact
-                boolean logVersion = artifactsWithoutVersion.add(artifactId);
-
-                if (logVersion) {
-                    getLog().debug(
-                            "Trying to resolve the version of "
-                                    + VAADIN_GROUP_ID
-                                    + ":"
-                                    + artifactId
-                                    + " based on the version of vaadin-shared in the project POM");
-                }
-
-                // assume that artifact is not in project - try to resolve with
-                // version number from vaadin-shared
-                Artifact vaadinSharedArtifact = getArtifact(VAADIN_GROUP_ID,
-                        "vaadin-shared", null);
-                if (vaadinSharedArtifact == null) {
-                    // No vaadin-shared found, this is possibly when running clean and artifacts have not been resolved
-                    // https://maven.apache.org/ref/3.2.3/apidocs/org/apache/maven/project/MavenProject.html#getArtifacts()
-                    return Collections.emptyList();
-                }
-
-                rootArtifact = artifactFactory.createArtifact( VAADIN_GROUP_ID, artifactId, vaadinSharedArtifact.getBaseVersion(), "provided", "jar" );
-                resolver.resolveAlways(rootArtifact, remoteRepositories,
+                rootArtifact = artifactFactory.createArtifact( VAADIN_GROUP_ID, artifactId, version, "provided", "jar" );
+                // local repository first, remote repositories are only checked for missing artifacts
+                resolver.resolve(rootArtifact, remoteRepositories,
                         localRepository);
 
-                if (logVersion) {
-                    getLog().info(
-                            "Using " + rootArtifact.getGroupId() + ":"
-                                    + rootArtifact.getArtifactId()
-                                    + " version " + rootArtifact.getVersion());
-                }
-
                 // metadata (POM) for rootArtifact not in memory in this case => need this to resolve transitive dependencies!
                 ResolutionGroup resolutionGroup = artifactMetadataSource.retrieve(rootArtifact, localRepository, remoteRepositories);
                 dependencyArtifacts.addAll(resolutionGroup.getArtifacts());
@@ -374,6 +467,8 @@ extends AbstractMojo
                 dependencyArtifacts.add(rootProject.getArtifact());
             }
 
+            // download the dependencies concurrently, the sequential resolution then finds them locally
+            getParallelResolver().prefetch(dependencyArtifacts);
             result = resolver.resolveTransitively(dependencyArtifacts,
                     rootArtifact, Collections.EMPTY_MAP, localRepository,
                     remoteRepositories, artifactMetadataSource, null,
@@ -398,14 +493,68 @@ extends AbstractMojo
         @SuppressWarnings("unchecked")
         Collection<Artifact> resolved = result.getArtifacts();
 
-        Collection<File> files = new ArrayList<File>(resolved.size() + 1 );
+        List<File> files = new ArrayList<File>(resolved.size() + 1 );
         files.add( rootArtifact.getFile() );
         for ( Artifact artifact : resolved )
         {
             files.add( artifact.getFile() );
         }
 
-        return files;
+        return Collections.unmodifiableList(files);
+    }
+
+    /**
+     * @return the classpath of the artifact resolved by a previous build, <code>null</code> if unknown, for a
+     *         snapshot or if some files have been removed from the local repository
+     */
+    private List<File> readSdkClasspath(String key) {
+        File file = getSdkClasspathFile(key);
+        if (file == null || !file.isFile()) {
+            return null;
+        }
+        try {
+            List<File> files = new ArrayList<File>();
+            for (String line : FileUtils.readLines(file, "UTF-8")) {
+                File entry = new File(line);
+                if (!entry.isFile()) {
+                    return null;
+                }
+                files.add(entry);
+            }
+            return files.isEmpty() ? null : Collections.unmodifiableList(files);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void writeSdkClasspath(String key, List<File> files) {
+        File file = getSdkClasspathFile(key);
+        if (file == null) {
+            return;
+        }
+        List<String> lines = new ArrayList<String>(files.size());
+        for (File entry : files) {
+            lines.add(entry.getAbsolutePath());
+        }
+        try {
+            file.getParentFile().mkdirs();
+            File tmp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+            FileUtils.writeLines(tmp, "UTF-8", lines);
+            file.delete();
+            if (!tmp.renameTo(file)) {
+                tmp.delete();
+            }
+        } catch (IOException e) {
+            getLog().debug("Failed to cache the classpath of " + key + " : " + e.getMessage());
+        }
+    }
+
+    private File getSdkClasspathFile(String key) {
+        // the dependencies of a snapshot may change
+        if (sdkClasspathCache == null || ArtifactUtils.isSnapshot(key.substring(key.lastIndexOf(':') + 1))) {
+            return null;
+        }
+        return new File(sdkClasspathCache, key.replace(':', '_') + ".classpath");
     }
 
     protected Artifact getArtifact( String groupId, String artifactId, String classifier )
@@ -485,6 +634,23 @@ extends AbstractMojo
         return artifact;
     }
 
+    /**
+     * @return where the entries of the classpath jars are stored between builds
+     */
+    protected File getClasspathIndexDirectory()
+    {
+        return classpathIndexDirectory;
+    }
+
+    /**
+     * @return a resolver downloading up to <code>resolverThreads</code> artifacts at the same time
+     */
+    protected ParallelArtifactResolver getParallelResolver()
+    {
+        return new ParallelArtifactResolver( resolver, artifactFactory, artifactMetadataSource, localRepository,
+                                             remoteRepositories, resolverThreads, getLog() );
+    }
+
     /**
      * @param path file to add to the project compile directories
      */
@@ -501,6 +667,14 @@ extends AbstractMojo
         return project;
     }
 
+    /**
+     * @return the current build session, <code>null</code> when the mojo is not run by Maven
+     */
+    public MavenSession getSession()
+    {
+        return session;
+    }
+
 
     public ArtifactRepository getLocalRepository()
     {
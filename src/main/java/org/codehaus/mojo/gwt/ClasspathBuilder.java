@@ -26,11 +26,17 @@ import static org.apache.maven.artifact.Artifact.SCOPE_SYSTEM;
 import static org.apache.maven.artifact.Artifact.SCOPE_TEST;
 
 import java.io.File;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.model.Resource;
@@ -49,6 +55,11 @@ import org.codehaus.plexus.logging.AbstractLogEnabled;
 public class ClasspathBuilder
     extends AbstractLogEnabled
 {
+    /**
+     * classpath lists already built for a project, by scope
+     */
+    private final Map<MavenProject, Map<String, CachedClasspath>> cache =
+        new WeakHashMap<MavenProject, Map<String, CachedClasspath>>();
 
     /**
      * Build classpath list using either gwtHome (if present) or using *project* dependencies. Note that this is ONLY
@@ -61,12 +72,67 @@ public class ClasspathBuilder
      * @param artifacts the project artifacts (all scopes)
      * @param scope artifact scope to use
      * @param isGenerator whether to use processed resources and compiled classes (false), or raw resources (true).
-     * @return file collection for classpath
+     * @return file collection for classpath, unmodifiable. The same list is returned as long as the project source
+     *         roots, resources and artifacts don't change.
      * @throws MojoExecutionException 
      */
     public Collection<File> buildClasspathList( final MavenProject project, final String scope,
                                                 Set<Artifact> artifacts, boolean isGenerator )
         throws ClasspathBuilderException
+    {
+        String key = scope + ":" + isGenerator;
+        List<Object> inputs = getInputs( project );
+        synchronized ( cache )
+        {
+            Map<String, CachedClasspath> projectCache = cache.get( project );
+            CachedClasspath cached = projectCache != null ? projectCache.get( key ) : null;
+            if ( cached != null && cached.project.get() == project && cached.artifacts == artifacts
+                && cached.artifactCount == artifacts.size() && cached.inputs.equals( inputs ) )
+            {
+                return cached.classpath;
+            }
+        }
+
+        Collection<File> classpath =
+            Collections.unmodifiableCollection( createClasspathList( project, scope, artifacts, isGenerator ) );
+        synchronized ( cache )
+        {
+            Map<String, CachedClasspath> projectCache = cache.get( project );
+            if ( projectCache == null )
+            {
+                projectCache = new HashMap<String, CachedClasspath>();
+                cache.put( project, projectCache );
+            }
+            projectCache.put( key, new CachedClasspath( project, artifacts, inputs, classpath ) );
+        }
+        return classpath;
+    }
+
+    /**
+     * @return the project directories the classpath is built from
+     */
+    private List<Object> getInputs( MavenProject project )
+    {
+        List<Object> inputs = new ArrayList<Object>();
+        inputs.add( project.getBuild().getOutputDirectory() );
+        inputs.add( project.getBuild().getTestOutputDirectory() );
+        inputs.add( new ArrayList<String>( project.getCompileSourceRoots() ) );
+        inputs.add( new ArrayList<String>( project.getTestCompileSourceRoots() ) );
+        for ( List<Resource> resources : Arrays.asList( project.getResources(), project.getTestResources() ) )
+        {
+            List<String> directories = new ArrayList<String>( resources.size() );
+            for ( Resource resource : resources )
+            {
+                directories.add( resource.getDirectory() );
+            }
+            inputs.add( directories );
+        }
+        return inputs;
+    }
+
+    private Collection<File> createClasspathList( final MavenProject project, final String scope,
+                                                  Set<Artifact> artifacts, boolean isGenerator )
+        throws ClasspathBuilderException
     {
         getLogger().debug( "establishing classpath list (scope = " + scope + ")" );
 
@@ -305,4 +371,28 @@ public class ClasspathBuilder
     {
         return groupId + ":" + artifactId + ":" + version;
     }
+
+    private static class CachedClasspath
+    {
+        // MavenProject equality only compares the coordinates ; weak, as a value of the weak map must not hold its key
+        final WeakReference<MavenProject> project;
+
+        final Set<Artifact> artifacts;
+
+        final int artifactCount;
+
+        final List<Object> inputs;
+
+        final Collection<File> classpath;
+
+        CachedClasspath( MavenProject project, Set<Artifact> artifacts, List<Object> inputs,
+                         Collection<File> classpath )
+        {
+            this.project = new WeakReference<MavenProject>( project );
+            this.artifacts = artifacts;
+            this.artifactCount = artifacts.size();
+            this.inputs = inputs;
+            this.classpath = classpath;
+        }
+    }
 }
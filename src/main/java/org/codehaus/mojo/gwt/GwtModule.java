@@ -41,69 +41,66 @@ import org.codehaus.plexus.util.xml.Xpp3Dom;
  */
 public class GwtModule
 {
-    private Xpp3Dom xml;
+    private ModuleDescriptor descriptor;
 
     private String name;
 
-    private Set<GwtModule> inherits;
+    private volatile Set<GwtModule> inherits;
 
     private GwtModuleReader reader;
     
     private File sourceFile;
 
+    private File location;
+
     public GwtModule( String name, Xpp3Dom xml, GwtModuleReader reader )
+    {
+        this( name, ModuleDescriptor.of( xml ), reader );
+    }
+
+    /**
+     * @since 7.7
+     */
+    public GwtModule( String name, ModuleDescriptor descriptor, GwtModuleReader reader )
     {
         this.name = name;
-        this.xml = xml;
+        this.descriptor = descriptor;
         this.reader = reader;
     }
 
+    /**
+     * @since 7.7
+     */
+    public ModuleDescriptor getDescriptor()
+    {
+        return descriptor;
+    }
+
     private String getRenameTo()
     {
-        return xml.getAttribute( "rename-to" );
+        return descriptor.getRenameTo();
     }
 
     public String getPublic()
     {
-        Xpp3Dom node = xml.getChild( "public" );
-        return ( node == null ? "public" : node.getAttribute( "path" ) );
+        List<String> paths = descriptor.getPublicPaths();
+        return ( paths.isEmpty() ? "public" : paths.get( 0 ) );
     }
 
     public String[] getSuperSources()
     {
-        Xpp3Dom nodes[] = xml.getChildren( "super-source" );
-        if ( nodes == null )
-        {
-            return new String[0];
-        }
-        String[] superSources = new String[nodes.length];
-        int i = 0;
-        for ( Xpp3Dom node : nodes )
-        {
-            String path = node.getAttribute( "path" );
-            if ( path == null )
-            {
-                path = "";
-            }
-            superSources[i++] = path;
-        }
-        return superSources;
+        List<String> superSources = descriptor.getSuperSources();
+        return superSources.toArray( new String[superSources.size()] );
     }
 
     public String[] getSources()
     {
-        Xpp3Dom nodes[] = xml.getChildren( "source" );
-        if ( nodes == null || nodes.length == 0 )
+        List<String> sources = descriptor.getSources();
+        if ( sources.isEmpty() )
         {
             return new String[] { "client" };
         }
-        String[] sources = new String[nodes.length];
-        int i = 0;
-        for ( Xpp3Dom node : nodes )
-        {
-            sources[i++] = node.getAttribute( "path" );
-        }
-        return sources;
+        return sources.toArray( new String[sources.size()] );
     }
 
     public List<String> getEntryPoints()
@@ -120,35 +117,28 @@ public class GwtModule
 
     private List<String> getLocalEntryPoints()
     {
-        Xpp3Dom nodes[] = xml.getChildren( "entry-point" );
-        if ( nodes == null )
-        {
-            return Collections.emptyList();
-        }
-        List<String> entryPoints = new ArrayList<String>( nodes.length );
-        for ( Xpp3Dom node : nodes )
-        {
-            entryPoints.add( node.getAttribute( "class" ) );
-        }
-        return entryPoints;
+        return descriptor.getEntryPoints();
     }
 
     /**
      * Build the set of inhertied modules. Due to xml inheritence mecanism, there may be cicles in the inheritence
-     * graph, so we build a set of inherited modules
+     * graph, so we build a set of inherited modules. No lock is held while the inherited modules are read : threads
+     * resolving the same module at once compute the same set.
      */
     public Set<GwtModule> getInherits()
 		throws GwtModuleReaderException
     {
-        if ( inherits != null )
+        Set<GwtModule> result = inherits;
+        if ( result != null )
         {
-            return inherits;
+            return result;
         }
 
-        inherits = new HashSet<GwtModule>();
-        addInheritedModules( inherits, getLocalInherits() );
+        result = new HashSet<GwtModule>();
+        addInheritedModules( result, getLocalInherits() );
+        inherits = result;
 
-        return inherits;
+        return result;
     }
 
     /**
@@ -174,15 +164,14 @@ public class GwtModule
     private Set<GwtModule> getLocalInherits()
         throws GwtModuleReaderException
     {
-        Xpp3Dom nodes[] = xml.getChildren( "inherits" );
-        if ( nodes == null )
+        List<String> names = descriptor.getInherits();
+        if ( names.isEmpty() )
         {
             return Collections.emptySet();
         }
         Set<GwtModule> modules = new HashSet<GwtModule>();
-        for ( Xpp3Dom node : nodes )
+        for ( String moduleName : names )
         {
-            String moduleName = node.getAttribute( "name" );
             // exclude modules from gwt-dev/gwt-user
             if ( !moduleName.startsWith( "com.google.gwt." ) )
             {
@@ -212,14 +201,10 @@ public class GwtModule
     private Map<String, String> getLocalServlets( String path )
     {
         Map<String, String> servlets = new HashMap<String, String>();
-        Xpp3Dom nodes[] = xml.getChildren( "servlet" );
-        if ( nodes != null )
+        for ( Map.Entry<String, String> servlet : descriptor.getServlets().entrySet() )
         {
-            for ( Xpp3Dom node : nodes )
-            {
-                servlets.put( StringUtils.isBlank( path ) ? node.getAttribute( "path" ) : path + node.getAttribute( "path" ),
-                              node.getAttribute( "class" ) );
-            }
+            servlets.put( StringUtils.isBlank( path ) ? servlet.getKey() : path + servlet.getKey(),
+                          servlet.getValue() );
         }
         return servlets;
     }
@@ -251,6 +236,19 @@ public class GwtModule
     public void setSourceFile(File file) {
 		this.sourceFile = file;
 	}
+
+    /**
+     * @return the directory or jar the module was read from, <code>null</code> if unknown
+     */
+    public File getLocation()
+    {
+        return location;
+    }
+
+    public void setLocation( File location )
+    {
+        this.location = location;
+    }
 	
     @Override
     public boolean equals( Object obj )
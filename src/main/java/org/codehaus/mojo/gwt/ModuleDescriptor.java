@@ -0,0 +1,288 @@
+package org.codehaus.mojo.gwt;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.plexus.util.StringUtils;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.codehaus.plexus.util.xml.pull.MXParser;
+import org.codehaus.plexus.util.xml.pull.XmlPullParser;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+/**
+ * What the plugin uses of a <code>.gwt.xml</code> module descriptor : the inherited modules, the source, super-source
+ * and public paths, the entry points, the servlets, the rename-to attribute and the properties. Read with a pull
+ * parser, the other elements such as deferred binding rules are skipped and not kept in memory.
+ *
+ * @since 7.7
+ */
+public final class ModuleDescriptor
+{
+    private String renameTo;
+
+    private List<String> inherits = new ArrayList<String>();
+
+    private List<String> sources = new ArrayList<String>();
+
+    private List<String> superSources = new ArrayList<String>();
+
+    private List<String> publicPaths = new ArrayList<String>();
+
+    private List<String> entryPoints = new ArrayList<String>();
+
+    /** servlet path to class, in declaration order */
+    private Map<String, String> servlets = new LinkedHashMap<String, String>();
+
+    /** property name to the values set or added */
+    private Map<String, List<String>> properties = new LinkedHashMap<String, List<String>>();
+
+    private ModuleDescriptor()
+    {
+        // use read()
+    }
+
+    /**
+     * Read the descriptor, the reader is closed by the caller
+     */
+    public static ModuleDescriptor read( Reader reader )
+        throws IOException, XmlPullParserException
+    {
+        ModuleDescriptor descriptor = new ModuleDescriptor();
+        XmlPullParser parser = new MXParser();
+        parser.setInput( reader );
+        int event = parser.getEventType();
+        while ( event != XmlPullParser.END_DOCUMENT )
+        {
+            if ( event == XmlPullParser.START_TAG )
+            {
+                if ( parser.getDepth() == 1 )
+                {
+                    descriptor.renameTo = parser.getAttributeValue( null, "rename-to" );
+                }
+                else if ( parser.getDepth() == 2 )
+                {
+                    descriptor.add( parser.getName(), new Attributes( parser ) );
+                }
+            }
+            event = parser.next();
+        }
+        return descriptor.freeze();
+    }
+
+    /**
+     * @param xml the <code>module</code> element
+     */
+    public static ModuleDescriptor of( Xpp3Dom xml )
+    {
+        ModuleDescriptor descriptor = new ModuleDescriptor();
+        descriptor.renameTo = xml.getAttribute( "rename-to" );
+        for ( Xpp3Dom child : xml.getChildren() )
+        {
+            descriptor.add( child.getName(), new Attributes( child ) );
+        }
+        return descriptor.freeze();
+    }
+
+    private void add( String element, Attributes attributes )
+    {
+        if ( "inherits".equals( element ) )
+        {
+            inherits.add( attributes.get( "name" ) );
+        }
+        else if ( "source".equals( element ) )
+        {
+            sources.add( attributes.get( "path" ) );
+        }
+        else if ( "super-source".equals( element ) )
+        {
+            String path = attributes.get( "path" );
+            superSources.add( path != null ? path : "" );
+        }
+        else if ( "public".equals( element ) )
+        {
+            publicPaths.add( attributes.get( "path" ) );
+        }
+        else if ( "entry-point".equals( element ) )
+        {
+            entryPoints.add( attributes.get( "class" ) );
+        }
+        else if ( "servlet".equals( element ) )
+        {
+            servlets.put( attributes.get( "path" ), attributes.get( "class" ) );
+        }
+        else if ( "set-property".equals( element ) )
+        {
+            List<String> values = new ArrayList<String>();
+            addValues( values, attributes.get( "value" ) );
+            properties.put( attributes.get( "name" ), values );
+        }
+        else if ( "extend-property".equals( element ) )
+        {
+            List<String> values = properties.get( attributes.get( "name" ) );
+            if ( values == null )
+            {
+                values = new ArrayList<String>();
+                properties.put( attributes.get( "name" ), values );
+            }
+            addValues( values, attributes.get( "values" ) );
+        }
+    }
+
+    private static void addValues( List<String> values, String list )
+    {
+        if ( list != null )
+        {
+            for ( String value : StringUtils.split( list, "," ) )
+            {
+                values.add( value.trim() );
+            }
+        }
+    }
+
+    private ModuleDescriptor freeze()
+    {
+        inherits = freeze( inherits );
+        sources = freeze( sources );
+        superSources = freeze( superSources );
+        publicPaths = freeze( publicPaths );
+        entryPoints = freeze( entryPoints );
+        servlets = servlets.isEmpty() ? Collections.<String, String>emptyMap()
+                        : Collections.unmodifiableMap( servlets );
+        if ( properties.isEmpty() )
+        {
+            properties = Collections.emptyMap();
+        }
+        else
+        {
+            for ( Map.Entry<String, List<String>> entry : properties.entrySet() )
+            {
+                entry.setValue( freeze( entry.getValue() ) );
+            }
+            properties = Collections.unmodifiableMap( properties );
+        }
+        return this;
+    }
+
+    private static List<String> freeze( List<String> list )
+    {
+        switch ( list.size() )
+        {
+            case 0:
+                return Collections.emptyList();
+            case 1:
+                return Collections.singletonList( list.get( 0 ) );
+            default:
+                ((ArrayList<String>) list).trimToSize();
+                return Collections.unmodifiableList( list );
+        }
+    }
+
+    public String getRenameTo()
+    {
+        return renameTo;
+    }
+
+    /**
+     * @return the names of the inherited modules
+     */
+    public List<String> getInherits()
+    {
+        return inherits;
+    }
+
+    /**
+     * @return the paths of the <code>source</code> elements, <code>null</code> for a path not set
+     */
+    public List<String> getSources()
+    {
+        return sources;
+    }
+
+    /**
+     * @return the paths of the <code>super-source</code> elements, empty for a path not set
+     */
+    public List<String> getSuperSources()
+    {
+        return superSources;
+    }
+
+    /**
+     * @return the paths of the <code>public</code> elements, <code>null</code> for a path not set
+     */
+    public List<String> getPublicPaths()
+    {
+        return publicPaths;
+    }
+
+    public List<String> getEntryPoints()
+    {
+        return entryPoints;
+    }
+
+    /**
+     * @return the servlet classes by path
+     */
+    public Map<String, String> getServlets()
+    {
+        return servlets;
+    }
+
+    /**
+     * @return the values of the properties set or extended by the module
+     */
+    public Map<String, List<String>> getProperties()
+    {
+        return properties;
+    }
+
+    /**
+     * The attributes of an element, from the parser or from a DOM
+     */
+    private static class Attributes
+    {
+        private final XmlPullParser parser;
+
+        private final Xpp3Dom dom;
+
+        Attributes( XmlPullParser parser )
+        {
+            this.parser = parser;
+            this.dom = null;
+        }
+
+        Attributes( Xpp3Dom dom )
+        {
+            this.parser = null;
+            this.dom = dom;
+        }
+
+        String get( String name )
+        {
+            return parser != null ? parser.getAttributeValue( null, name ) : dom.getAttribute( name );
+        }
+    }
+}
@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.Locale;
 
 import org.apache.maven.doxia.siterenderer.Renderer;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
@@ -89,6 +90,14 @@ public class CompileReport
     @Parameter(defaultValue = "${project}", required = true, readonly = true)
     protected MavenProject project;
 
+    /**
+     * The current build session, the parsed GWT modules are shared with the other goals.
+     *
+     * @since 7.7
+     */
+    @Parameter(defaultValue = "${session}", readonly = true)
+    protected MavenSession session;
+
     /**
      * @since 2.1.0-1
      */
@@ -247,7 +256,7 @@ public class CompileReport
         try
         {
 
-            GwtModuleReader gwtModuleReader = new DefaultGwtModuleReader( this.project, getLog(), classpathBuilder );
+            GwtModuleReader gwtModuleReader = new DefaultGwtModuleReader( this.project, getLog(), classpathBuilder, session );
 
             List<GwtModule> gwtModules = new ArrayList<GwtModule>();
             List<String> moduleNames = gwtModuleReader.getGwtModules();
@@ -34,9 +34,14 @@ import java.util.Set;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.artifact.resolver.ArtifactNotFoundException;
+import org.apache.maven.artifact.resolver.ArtifactResolutionException;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
 import org.codehaus.mojo.gwt.AbstractGwtModuleMojo;
 import org.codehaus.plexus.util.StringUtils;
 import org.codehaus.plexus.util.cli.CommandLineUtils;
@@ -167,6 +172,178 @@ extends AbstractGwtModuleMojo
     @Parameter(defaultValue = "local", property = "vaadin.widgetset.mode")
     protected String widgetsetMode;
 
+    /**
+     * Run the GWT/Vaadin tools in a persistent worker JVM that is reused by the next executions of the build having the
+     * same JVM, JVM arguments and classpath, rather than forking a new JVM each time. Long-running tools (dev mode,
+     * super dev mode, tests) always use a dedicated JVM.
+     * <p>
+     * Can be set from command line using '-Dgwt.daemon=true'
+     *
+     * @since 7.7
+     */
+    @Parameter(defaultValue = "false", property = "gwt.daemon")
+    private boolean daemon;
+
+    /**
+     * How the classpath is passed to forked JVMs, once duplicate entries are removed : "inline" on the command line,
+     * "argfile" through a JVM argument file (Java 9+, inline otherwise), "jar" through a manifest-only pathing jar, or
+     * "auto" (argument file when supported by the JVM). Argument files and pathing jars are written to
+     * target/gwt-classpath and reused for the same classpath. Use "argfile" or "jar" when the command line gets too
+     * long for the OS.
+     * <p>
+     * Can be set from command line using '-Dgwt.classpathMode=...'
+     *
+     * @since 7.7
+     */
+    @Parameter(defaultValue = "auto", property = "gwt.classpathMode")
+    private String classpathMode;
+
+    /**
+     * Write the full output of the GWT tools to target/gwt-log/&lt;tool&gt;-&lt;modules, theme or test&gt;.log.gz and
+     * forward it to the Maven log from a dedicated thread, so that a verbose tool is never slowed down by the console.
+     * TRACE, DEBUG and SPAM lines are then only logged in Maven debug mode. Set to false to log every line
+     * synchronously.
+     * <p>
+     * Can be set from command line using '-Dgwt.logFile=false'
+     *
+     * @since 7.7
+     */
+    @Parameter(defaultValue = "true", property = "gwt.logFile")
+    private boolean logFile;
+
+    /**
+     * Maximum number of lines per second logged by a GWT tool when {@link #logFile} is enabled, warnings and errors
+     * excepted. The other lines are only written to the log file. 0 for no limit.
+     * <p>
+     * Can be set from command line using '-Dgwt.logRate=...'
+     *
+     * @since 7.7
+     */
+    @Parameter(defaultValue = "1000", property = "gwt.logRate")
+    private int logRate;
+
+    /**
+     * Use a class data sharing archive to start the forked JVMs faster (Java 11 or later). The first fork for a JVM
+     * and classpath records the loaded classes and creates the archive, next forks load the classes of the jars at the
+     * start of the classpath from it. Set gwtSdkFirstInClasspath to share the GWT SDK classes.
+     * <p>
+     * Can be set from command line using '-Dgwt.cds=true'
+     *
+     * @since 7.7
+     */
+    @Parameter(defaultValue = "false", property = "gwt.cds")
+    private boolean cds;
+
+    /**
+     * Where the class data sharing archives are stored, shared by all projects.
+     * <p>
+     * Can be set from command line using '-Dgwt.cds.directory=...'
+     *
+     * @since 7.7
+     */
+    @Parameter(defaultValue = "${user.home}/.m2/vaadin-maven-plugin/cds", property = "gwt.cds.directory")
+    private File cdsDirectory;
+
+    /**
+     * Maximum number of GWT tools forked at the same time by a parallel build (mvn -T). Running forks share the CPUs
+     * and {@link #forksMemory}, their number of threads and max heap size are reduced to their share. Defaults to
+     * the number of build threads, or of modules using this plugin if fewer. Forks are not limited when a single one
+     * can run at a time.
+     * <p>
+     * Can be set from command line using '-Dgwt.forks.max=...'
+     *
+     * @since 7.7
+     */
+    @Parameter(defaultValue = "0", property = "gwt.forks.max")
+    private int forksMax;
+
+    /**
+     * Memory (in MB) shared by the heaps of the concurrent forks of a build. Defaults to 75% of the physical memory,
+     * minus the Maven heap.
+     * <p>
+     * Can be set from command line using '-Dgwt.forks.memory=...'
+     *
+     * @since 7.7
+     */
+    @Parameter(defaultValue = "0", property = "gwt.forks.memory")
+    private int forksMemory;
+
+    @Parameter(defaultValue = "${plugin}", readonly = true)
+    private PluginDescriptor plugin;
+
+    /**
+     * Heap usage (in MB) after a tool execution above which the worker JVM is discarded rather than reused. Defaults
+     * to 75% of the worker JVM max heap.
+     * <p>
+     * Can be set from command line using '-Dgwt.daemon.recycleHeap=...'
+     *
+     * @since 7.7
+     */
+    @Parameter(defaultValue = "-1", property = "gwt.daemon.recycleHeap")
+    private int daemonRecycleHeap;
+
+    /**
+     * Time (in seconds) an idle worker JVM is kept for reuse.
+     * <p>
+     * Can be set from command line using '-Dgwt.daemon.idleTimeout=...'
+     *
+     * @since 7.7
+     */
+    @Parameter(defaultValue = "300", property = "gwt.daemon.idleTimeout")
+    private int daemonIdleTimeout;
+
+    /**
+     * Restore the output of a GWT tool from a local store when the same inputs were processed before, in another
+     * workspace or on another branch, instead of running it : the modules compiled by the compile goal, addressed by
+     * the hash of the inputs recorded by its <code>fingerprint</code>, and the widgetsets updated by the
+     * update-widgetset goal, addressed by the hash of the module and of the classpath.
+     * <p>
+     * Can be set from command line using '-Dgwt.buildCache=true'
+     *
+     * @since 7.7
+     */
+    @Parameter(defaultValue = "false", property = "gwt.buildCache")
+    private boolean buildCache;
+
+    /**
+     * Where the outputs are stored by <code>buildCache</code>.
+     *
+     * @since 7.7
+     */
+    @Parameter(defaultValue = "${user.home}/.m2/vaadin-build-cache", property = "gwt.buildCache.directory")
+    private File buildCacheDirectory;
+
+    /**
+     * Maximum size of the <code>buildCache</code> store in MB, the least recently used outputs are removed beyond.
+     *
+     * @since 7.7
+     */
+    @Parameter(defaultValue = "2048", property = "gwt.buildCache.maxSize")
+    private int buildCacheMaxSize;
+
+    /**
+     * URL of a build cache shared by several machines, for the outputs missing from the local
+     * <code>buildCache</code> : <code>http(s)://</code> URL of a server supporting GET and PUT, or path of a shared
+     * directory. Implies <code>buildCache</code>.
+     * <p>
+     * Can be set from command line using '-Dgwt.sharedCache=...'
+     *
+     * @since 7.7
+     */
+    @Parameter(property = "gwt.sharedCache")
+    private String sharedCache;
+
+    /**
+     * <code>read</code> to only restore outputs from the <code>sharedCache</code>, as for developers, or
+     * <code>read-write</code> to also store the new ones, as for continuous integration.
+     * <p>
+     * Can be set from command line using '-Dgwt.sharedCache.mode=...'
+     *
+     * @since 7.7
+     */
+    @Parameter(defaultValue = "read", property = "gwt.sharedCache.mode")
+    private String sharedCacheMode;
+
 
     // methods
 
@@ -214,6 +391,41 @@ extends AbstractGwtModuleMojo
         // Nothing to do in most case
     }
 
+    /**
+     * @param clazz class to check for classpath resolution
+     * @return The classpath element this class was loaded from
+     */
+    protected File getClassPathElementFor( Class<?> clazz )
+    {
+        String classFile = clazz.getName().replace( '.', '/' ) + ".class";
+        ClassLoader cl = Thread.currentThread().getContextClassLoader();
+        if ( cl == null )
+        {
+            cl = getClass().getClassLoader();
+        }
+        URL url = cl.getResource( classFile );
+        getLog().debug( "getClassPathElementFor " + clazz.getName() + " file " + url.toString() );
+        String path = url.toString();
+
+        if ( path.startsWith( "jar:" ) )
+        {
+            path = path.substring( 4, path.indexOf( "!" ) );
+        }
+        else
+        {
+            path = path.substring( 0, path.length() - classFile.length() );
+        }
+        if ( path.startsWith( "file:" ) )
+        {
+            path = path.substring( 5 );
+            // windauze hack with maven 3 we get those !
+            path = path.replace( "%20", " " );
+        }
+        File file = new File( path );
+        getLog().debug( "getClassPathElementFor " + clazz.getName() + " file " + file.getPath() );
+        return file;
+    }
+
     private List<String> getJvmArgs()
     {
         List<String> extra = new ArrayList<String>();
@@ -252,12 +464,83 @@ extends AbstractGwtModuleMojo
         this.timeOut = timeOut;
     }
 
+    /**
+     * hook for tools that must run in a dedicated JVM, even if {@link #daemon} is set
+     */
+    protected boolean isDaemonSupported()
+    {
+        return true;
+    }
+
+    /**
+     * hook for long-running tools, that would prevent other forks of the build to run
+     */
+    protected boolean isForkGoverned()
+    {
+        return true;
+    }
+
+    /**
+     * @return <code>null</code> if a single fork can run at a time
+     */
+    private ForkGovernor getForkGovernor()
+    {
+        MavenSession session = getSession();
+        int slots = forksMax;
+        if ( slots <= 0 )
+        {
+            slots = session != null && session.isParallel() ? getBuildThreads( session ) : 1;
+            if ( slots > 1 && plugin != null )
+            {
+                int modules = 0;
+                for ( MavenProject project : session.getProjects() )
+                {
+                    modules += project.getBuild().getPluginsAsMap().containsKey( plugin.getPluginLookupKey() ) ? 1 : 0;
+                }
+                slots = Math.max( 1, Math.min( slots, modules ) );
+            }
+        }
+        return slots > 1 ? ForkGovernor.forSession( session, slots, forksMemory ) : null;
+    }
+
+    private static int getBuildThreads( MavenSession session )
+    {
+        String threads = session.getRequest().getThreadCount();
+        int cores = Runtime.getRuntime().availableProcessors();
+        try
+        {
+            if ( threads == null )
+            {
+                return cores;
+            }
+            if ( threads.endsWith( "C" ) || threads.endsWith( "c" ) )
+            {
+                float perCore = Float.parseFloat( threads.substring( 0, threads.length() - 1 ) );
+                return Math.max( 1, (int) ( perCore * cores ) );
+            }
+            return Math.max( 1, Integer.parseInt( threads ) );
+        }
+        catch ( NumberFormatException e )
+        {
+            return cores;
+        }
+    }
+
     protected JavaCommand createJavaCommand() {
         return new JavaCommand()
         .setLog( getLog() )
         .setJvm( getJvm() )
         .setJvmArgs( getJvmArgs() )
         .setTimeOut( timeOut )
+        .setDaemon( daemon && isDaemonSupported() )
+        .setDaemonRecycleHeap( daemonRecycleHeap )
+        .setDaemonIdleTimeout( daemonIdleTimeout )
+        .setClasspathMode( classpathMode )
+        .setClasspathDirectory( getProject() != null ? new File( getProject().getBuild().getDirectory(), "gwt-classpath" ) : null )
+        .setLogDirectory( logFile && getProject() != null ? new File( getProject().getBuild().getDirectory(), "gwt-log" ) : null )
+        .setLogRate( logRate )
+        .setClassDataSharingDirectory( cds ? cdsDirectory : null )
+        .setForkGovernor( isForkGoverned() ? getForkGovernor() : null )
         .addClassPathProcessors( new ClassPathProcessor()
         {
             @Override
@@ -283,6 +566,7 @@ extends AbstractGwtModuleMojo
         {
             return;
         }
+        List<Artifact> sourcesArtifacts = new ArrayList<Artifact>();
         for ( String include : compileSourcesArtifacts )
         {
             List<String> parts = new ArrayList<String>();
@@ -301,10 +585,8 @@ extends AbstractGwtModuleMojo
                 if ( artifact.getDependencyConflictId().equals( dependencyId ) )
                 {
                     getLog().debug( "Add " + dependencyId + " sources.jar artifact to compile classpath" );
-                    Artifact sources =
-                            resolve( artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion(),
-                                    "jar", "sources" );
-                    cmd.addToClasspath( sources.getFile() );
+                    sourcesArtifacts.add( artifactFactory.createArtifactWithClassifier( artifact.getGroupId(),
+                            artifact.getArtifactId(), artifact.getVersion(), "jar", "sources" ) );
                     found = true;
                     break;
                 }
@@ -314,6 +596,65 @@ extends AbstractGwtModuleMojo
                         "Declared compileSourcesArtifact was not found in project dependencies " + dependencyId );
             }
         }
+
+        // download the sources jars concurrently, the classpath keeps the declaration order
+        try
+        {
+            getParallelResolver().resolve( sourcesArtifacts );
+        }
+        catch ( ArtifactNotFoundException e )
+        {
+            throw new MojoExecutionException( "artifact not found - " + e.getMessage(), e );
+        }
+        catch ( ArtifactResolutionException e )
+        {
+            throw new MojoExecutionException( "artifact resolver problem - " + e.getMessage(), e );
+        }
+        for ( Artifact sources : sourcesArtifacts )
+        {
+            cmd.addToClasspath( sources.getFile() );
+        }
+    }
+
+    /**
+     * @return the build cache, <code>null</code> if disabled
+     * @since 7.7
+     */
+    protected BuildCache getBuildCache()
+        throws MojoExecutionException
+    {
+        if ( !buildCache && StringUtils.isEmpty( sharedCache ) )
+        {
+            return null;
+        }
+        BuildCacheBackend shared = null;
+        if ( StringUtils.isNotEmpty( sharedCache ) )
+        {
+            if ( !"read".equals( sharedCacheMode ) && !"read-write".equals( sharedCacheMode ) )
+            {
+                throw new MojoExecutionException( "Invalid sharedCacheMode " + sharedCacheMode
+                    + ", expected read or read-write" );
+            }
+            try
+            {
+                shared = BuildCache.createBackend( sharedCache );
+            }
+            catch ( MalformedURLException e )
+            {
+                throw new MojoExecutionException( "Invalid sharedCache " + sharedCache, e );
+            }
+        }
+        return new BuildCache( buildCacheDirectory, buildCacheMaxSize * 1024L * 1024L, shared,
+                               "read-write".equals( sharedCacheMode ), getLog() );
+    }
+
+    /**
+     * @return the deploy directory, <code>null</code> for the compiler default
+     * @since 7.7
+     */
+    protected File getDeploy()
+    {
+        return deploy;
     }
 
     protected void addArgumentDeploy(JavaCommand cmd) {
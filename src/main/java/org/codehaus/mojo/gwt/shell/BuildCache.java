@@ -0,0 +1,432 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Local store of compiled modules, addressed by the hash of the compile inputs. Each entry is a zip of the output
+ * directories of a module, published by renaming a complete file so that concurrent builds never read a partial one.
+ * Entries are touched when used, and the least recently used ones are removed when the store grows over its maximum
+ * size.
+ * <p>
+ * The store can be backed by a {@link BuildCacheBackend} shared by several machines : entries missing locally are
+ * downloaded from it, and the new ones are uploaded when it is writable.
+ *
+ * @since 7.7
+ */
+public class BuildCache
+{
+    private static final String EXTENSION = ".zip";
+
+    /** age of the unused lock files removed on eviction, one day */
+    private static final long LOCK_AGE = 24L * 60 * 60 * 1000;
+
+    private final File directory;
+
+    private final long maxSize;
+
+    private final BuildCacheBackend shared;
+
+    private final boolean sharedWritable;
+
+    private final Log log;
+
+    /**
+     * @param maxSize maximum size of the store, in bytes
+     */
+    public BuildCache( File directory, long maxSize, Log log )
+    {
+        this( directory, maxSize, null, false, log );
+    }
+
+    /**
+     * @param maxSize maximum size of the store, in bytes
+     * @param shared the shared store, may be <code>null</code>
+     * @param sharedWritable if the new entries are uploaded to the shared store
+     */
+    public BuildCache( File directory, long maxSize, BuildCacheBackend shared, boolean sharedWritable, Log log )
+    {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.shared = shared;
+        this.sharedWritable = sharedWritable;
+        this.log = log;
+    }
+
+    /**
+     * @param location URL of an HTTP store, or <code>file:</code> URL or path of a shared directory
+     */
+    public static BuildCacheBackend createBackend( String location )
+        throws MalformedURLException
+    {
+        if ( location.startsWith( "http://" ) || location.startsWith( "https://" ) )
+        {
+            return new HttpBuildCacheBackend( new URL( location ) );
+        }
+        if ( location.startsWith( "file:" ) )
+        {
+            return new FileBuildCacheBackend( FileUtils.toFile( new URL( location ) ) );
+        }
+        return new FileBuildCacheBackend( new File( location ) );
+    }
+
+    private File getEntry( String key )
+    {
+        return new File( directory, key.substring( 0, 2 ) + "/" + key + EXTENSION );
+    }
+
+    /**
+     * @return the file locked by the build producing the entry, see {@link BuildLock}
+     */
+    public File getLockFile( String key )
+    {
+        return new File( directory, "locks/" + key + ".lock" );
+    }
+
+    /**
+     * @return the archive of the outputs, <code>null</code> if not in the store
+     */
+    public File get( String key )
+    {
+        File entry = getEntry( key );
+        if ( !entry.isFile() )
+        {
+            return null;
+        }
+        // most recently used
+        entry.setLastModified( System.currentTimeMillis() );
+        return entry;
+    }
+
+    /**
+     * Replace the output directories with the ones stored in the entry
+     *
+     * @param roots the output directories by name
+     * @return <code>false</code> if the entry is not in the store
+     */
+    public boolean restore( String key, Map<String, File> roots )
+        throws IOException
+    {
+        File entry = get( key );
+        if ( entry == null && shared != null )
+        {
+            entry = download( key );
+        }
+        if ( entry == null )
+        {
+            return false;
+        }
+        unpack( entry, roots );
+        return true;
+    }
+
+    /**
+     * @return the entry downloaded from the shared store, <code>null</code> if not found
+     */
+    private File download( String key )
+    {
+        File entry = getEntry( key );
+        try
+        {
+            entry.getParentFile().mkdirs();
+            File tmp = File.createTempFile( entry.getName(), ".tmp", entry.getParentFile() );
+            try
+            {
+                long start = System.currentTimeMillis();
+                if ( !shared.get( key, tmp ) )
+                {
+                    return null;
+                }
+                if ( !tmp.renameTo( entry ) && !entry.isFile() )
+                {
+                    throw new IOException( "Failed to rename " + tmp + " to " + entry );
+                }
+                log.info( "Downloaded " + entry.length() / 1024 + " KB from the shared build cache " + shared + " in "
+                    + ( System.currentTimeMillis() - start ) + " ms" );
+            }
+            finally
+            {
+                tmp.delete();
+            }
+            evict();
+            return entry.isFile() ? entry : null;
+        }
+        catch ( IOException e )
+        {
+            log.warn( "Failed to read the shared build cache " + shared + " : " + e.getMessage() );
+            return null;
+        }
+    }
+
+    /**
+     * Store the outputs of a compilation
+     *
+     * @param roots the output directories by name, the ones that don't exist are left out
+     * @return <code>false</code> if there was no output to store
+     */
+    public boolean put( String key, Map<String, File> roots )
+        throws IOException
+    {
+        File entry = getEntry( key );
+        entry.getParentFile().mkdirs();
+        // written aside and renamed, for concurrent builds
+        File tmp = File.createTempFile( entry.getName(), ".tmp", entry.getParentFile() );
+        try
+        {
+            if ( pack( roots, tmp ) == 0 )
+            {
+                return false;
+            }
+            if ( !tmp.renameTo( entry ) && !entry.isFile() )
+            {
+                throw new IOException( "Failed to rename " + tmp + " to " + entry );
+            }
+        }
+        finally
+        {
+            tmp.delete();
+        }
+        if ( shared != null && sharedWritable )
+        {
+            try
+            {
+                shared.put( key, entry );
+            }
+            catch ( IOException e )
+            {
+                log.warn( "Failed to write to the shared build cache " + shared + " : " + e.getMessage() );
+            }
+        }
+        evict();
+        return true;
+    }
+
+    /**
+     * Remove the least recently used entries until the store is smaller than its maximum size
+     */
+    void evict()
+    {
+        BuildLock.clean( new File( directory, "locks" ), LOCK_AGE );
+        List<File> entries = new ArrayList<File>();
+        long size = 0;
+        File[] subdirectories = directory.listFiles();
+        if ( subdirectories == null )
+        {
+            return;
+        }
+        for ( File subdirectory : subdirectories )
+        {
+            File[] files = subdirectory.listFiles();
+            if ( files == null )
+            {
+                continue;
+            }
+            for ( File file : files )
+            {
+                if ( file.getName().endsWith( EXTENSION ) )
+                {
+                    entries.add( file );
+                    size += file.length();
+                }
+            }
+        }
+        if ( size <= maxSize )
+        {
+            return;
+        }
+        Collections.sort( entries, new Comparator<File>()
+        {
+            public int compare( File f1, File f2 )
+            {
+                long t1 = f1.lastModified();
+                long t2 = f2.lastModified();
+                return t1 < t2 ? -1 : t1 == t2 ? 0 : 1;
+            }
+        } );
+        for ( File file : entries )
+        {
+            if ( size <= maxSize )
+            {
+                break;
+            }
+            long length = file.length();
+            if ( file.delete() )
+            {
+                size -= length;
+                log.debug( "Removed " + file + " from the build cache" );
+            }
+        }
+    }
+
+    /**
+     * Zip the files of the directories under their name, and the files named by their name
+     *
+     * @return the number of files
+     */
+    static int pack( Map<String, File> roots, File archive )
+        throws IOException
+    {
+        ZipOutputStream out = new ZipOutputStream( new FileOutputStream( archive ) );
+        int count = 0;
+        try
+        {
+            for ( Map.Entry<String, File> root : roots.entrySet() )
+            {
+                if ( root.getValue().isFile() )
+                {
+                    add( out, root.getKey(), root.getValue() );
+                    count++;
+                }
+                else
+                {
+                    count += pack( out, root.getKey() + "/", root.getValue() );
+                }
+            }
+            if ( count == 0 )
+            {
+                // a zip needs one entry
+                out.putNextEntry( new ZipEntry( "META-INF/" ) );
+                out.closeEntry();
+            }
+        }
+        finally
+        {
+            IOUtil.close( out );
+        }
+        return count;
+    }
+
+    private static int pack( ZipOutputStream out, String prefix, File directory )
+        throws IOException
+    {
+        File[] files = directory.listFiles();
+        if ( files == null )
+        {
+            return 0;
+        }
+        int count = 0;
+        for ( File file : files )
+        {
+            String name = prefix + file.getName();
+            if ( file.isDirectory() )
+            {
+                count += pack( out, name + "/", file );
+                continue;
+            }
+            add( out, name, file );
+            count++;
+        }
+        return count;
+    }
+
+    private static void add( ZipOutputStream out, String name, File file )
+        throws IOException
+    {
+        out.putNextEntry( new ZipEntry( name ) );
+        InputStream in = new FileInputStream( file );
+        try
+        {
+            IOUtil.copy( in, out );
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+        out.closeEntry();
+    }
+
+    /**
+     * Replace the content of the directories, and the files, with the ones of the archive
+     */
+    static void unpack( File archive, Map<String, File> roots )
+        throws IOException
+    {
+        for ( File root : roots.values() )
+        {
+            if ( root.isDirectory() )
+            {
+                FileUtils.deleteDirectory( root );
+            }
+        }
+        ZipFile zip = new ZipFile( archive );
+        try
+        {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while ( entries.hasMoreElements() )
+            {
+                ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+                int index = name.indexOf( '/' );
+                File file;
+                if ( index < 0 )
+                {
+                    file = roots.get( name );
+                }
+                else
+                {
+                    File root = index > 0 ? roots.get( name.substring( 0, index ) ) : null;
+                    file = root != null ? new File( root, name.substring( index + 1 ) ) : null;
+                }
+                if ( file == null || entry.isDirectory() || name.contains( ".." ) )
+                {
+                    continue;
+                }
+                file.getParentFile().mkdirs();
+                InputStream in = zip.getInputStream( entry );
+                OutputStream out = null;
+                try
+                {
+                    out = new FileOutputStream( file );
+                    IOUtil.copy( in, out );
+                }
+                finally
+                {
+                    IOUtil.close( out );
+                    IOUtil.close( in );
+                }
+            }
+        }
+        finally
+        {
+            zip.close();
+        }
+    }
+}
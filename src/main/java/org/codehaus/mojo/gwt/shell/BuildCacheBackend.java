@@ -0,0 +1,46 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Shared store of the {@link BuildCache} entries, such as a directory on a network drive or an HTTP server, so that
+ * the modules compiled by a build are restored by the others.
+ *
+ * @since 7.7
+ */
+public interface BuildCacheBackend
+{
+    /**
+     * Download an entry
+     *
+     * @param archive where to write the entry
+     * @return <code>false</code> if the entry is not in the store
+     */
+    boolean get( String key, File archive )
+        throws IOException;
+
+    /**
+     * Upload an entry
+     */
+    void put( String key, File archive )
+        throws IOException;
+}
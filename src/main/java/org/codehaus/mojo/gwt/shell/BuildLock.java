@@ -0,0 +1,266 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.Date;
+
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Lock taken by the build producing a {@link BuildCache} entry, so that the other builds of the machine wait for the
+ * entry instead of running the same compilation. The lock is a lock of the operating system on a file, released when
+ * the process dies : the lock of a crashed build is stale as soon as the file can be locked, and it is taken over.
+ * <p>
+ * The file holds the owner of the lock, the process and the time, and is emptied when the lock is released. Files
+ * left unused are removed by {@link #clean(File, long)}. A build may have opened a file just before it is removed, and
+ * lock it once removed : the owner is read back from the path, and the lock taken again if the file was replaced.
+ *
+ * @since 7.7
+ */
+public final class BuildLock
+{
+    private static final long POLL_INTERVAL = 1000;
+
+    private final RandomAccessFile raf;
+
+    private final FileLock lock;
+
+    private final String staleOwner;
+
+    private BuildLock( RandomAccessFile raf, FileLock lock, String staleOwner )
+    {
+        this.raf = raf;
+        this.lock = lock;
+        this.staleOwner = staleOwner;
+    }
+
+    /**
+     * @return the lock, <code>null</code> if held by another build
+     */
+    public static BuildLock tryAcquire( File file )
+        throws IOException
+    {
+        while ( true )
+        {
+            file.getParentFile().mkdirs();
+            RandomAccessFile raf = new RandomAccessFile( file, "rw" );
+            FileLock lock = null;
+            try
+            {
+                lock = raf.getChannel().tryLock();
+            }
+            catch ( OverlappingFileLockException e )
+            {
+                // held by another thread of this process
+            }
+            if ( lock == null )
+            {
+                raf.close();
+                return null;
+            }
+            try
+            {
+                // not emptied by the previous owner, it died
+                String staleOwner = null;
+                if ( raf.length() > 0 )
+                {
+                    byte[] bytes = new byte[(int) raf.length()];
+                    raf.readFully( bytes );
+                    staleOwner = new String( bytes, "UTF-8" );
+                }
+                String owner = ManagementFactory.getRuntimeMXBean().getName() + " " + new Date();
+                raf.setLength( 0 );
+                raf.getChannel().write( ByteBuffer.wrap( owner.getBytes( "UTF-8" ) ), 0 );
+                if ( isLockedFile( file, owner ) )
+                {
+                    return new BuildLock( raf, lock, staleOwner );
+                }
+            }
+            catch ( IOException e )
+            {
+                lock.release();
+                raf.close();
+                throw e;
+            }
+            // removed by clean, another build may lock the new file
+            lock.release();
+            raf.close();
+        }
+    }
+
+    /**
+     * @param owner the owner written to the locked file
+     * @return <code>false</code> if the path no longer leads to the locked file
+     */
+    static boolean isLockedFile( File file, String owner )
+    {
+        if ( !file.isFile() )
+        {
+            return false;
+        }
+        InputStream in = null;
+        try
+        {
+            in = new FileInputStream( file );
+            return owner.equals( IOUtil.toString( in, "UTF-8" ) );
+        }
+        catch ( IOException e )
+        {
+            // locked files can't be read on Windows, where open files can't be removed either
+            return true;
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+    }
+
+    /**
+     * @return the owner of the stale lock this one replaced, <code>null</code> if none
+     */
+    public String getStaleOwner()
+    {
+        return staleOwner;
+    }
+
+    /**
+     * Wait for the lock
+     *
+     * @param timeout maximum wait, in milliseconds
+     * @return the lock, <code>null</code> if still held by another build after the timeout
+     */
+    public static BuildLock acquire( File file, long timeout )
+        throws IOException, InterruptedException
+    {
+        long end = System.currentTimeMillis() + timeout;
+        while ( true )
+        {
+            BuildLock lock = tryAcquire( file );
+            if ( lock != null || System.currentTimeMillis() >= end )
+            {
+                return lock;
+            }
+            Thread.sleep( POLL_INTERVAL );
+        }
+    }
+
+    /**
+     * @return the owner recorded in the lock file, <code>null</code> if none or if the file can't be read while locked
+     */
+    public static String getOwner( File file )
+    {
+        InputStream in = null;
+        try
+        {
+            in = new FileInputStream( file );
+            String owner = IOUtil.toString( in, "UTF-8" );
+            return owner.length() > 0 ? owner : null;
+        }
+        catch ( IOException e )
+        {
+            return null;
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+    }
+
+    /**
+     * Remove the lock files unused for the given time, in milliseconds
+     */
+    public static void clean( File directory, long age )
+    {
+        File[] files = directory.listFiles();
+        if ( files == null )
+        {
+            return;
+        }
+        long limit = System.currentTimeMillis() - age;
+        for ( File file : files )
+        {
+            if ( file.lastModified() >= limit )
+            {
+                continue;
+            }
+            RandomAccessFile raf = null;
+            try
+            {
+                raf = new RandomAccessFile( file, "rw" );
+                FileLock lock = raf.getChannel().tryLock();
+                if ( lock != null )
+                {
+                    file.delete();
+                    lock.release();
+                }
+            }
+            catch ( IOException e )
+            {
+                // in use
+            }
+            catch ( OverlappingFileLockException e )
+            {
+                // in use by this process
+            }
+            finally
+            {
+                close( raf );
+            }
+        }
+    }
+
+    private static void close( RandomAccessFile raf )
+    {
+        if ( raf != null )
+        {
+            try
+            {
+                raf.close();
+            }
+            catch ( IOException e )
+            {
+                // ignore
+            }
+        }
+    }
+
+    public void release()
+    {
+        try
+        {
+            raf.setLength( 0 );
+            lock.release();
+        }
+        catch ( IOException e )
+        {
+            // released on close
+        }
+        close( raf );
+    }
+}
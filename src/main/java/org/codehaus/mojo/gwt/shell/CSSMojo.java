@@ -29,14 +29,22 @@ import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
+import org.codehaus.mojo.gwt.utils.DigestUtils;
+import org.codehaus.mojo.gwt.utils.GenerationState;
 import org.codehaus.plexus.util.IOUtil;
 import org.codehaus.plexus.util.cli.StreamConsumer;
 import org.sonatype.plexus.build.incremental.BuildContext;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Creates CSS interfaces for css files.
@@ -66,6 +74,30 @@ public class CSSMojo
     @Parameter(property = "project.build.sourceEncoding")
     private String encoding;
 
+    /**
+     * Run the CSS interface generator in the Maven JVM rather than in a forked JVM.
+     * It is still forked when it needs system properties, such as -D options of extraJvmArgs, that would be
+     * seen by the whole Maven JVM.
+     * <p>
+     * Can be set from command line using '-Dgwt.css.inProcess=true'
+     *
+     * @since 7.7
+     */
+    @Parameter(defaultValue = "false", property = "gwt.css.inProcess")
+    private boolean inProcess;
+
+    /**
+     * Generate all the interfaces with a single command, stylesheets being processed in parallel, rather than one
+     * command per stylesheet. The batch uses internals of the GWT InterfaceGenerator, it falls back to one command
+     * per stylesheet when they don't match the GWT version.
+     * <p>
+     * Can be set from command line using '-Dgwt.css.batch=true'
+     *
+     * @since 7.7
+     */
+    @Parameter(defaultValue = "false", property = "gwt.css.batch")
+    private boolean batch;
+
     @Component
     private BuildContext buildContext;
 
@@ -78,79 +110,229 @@ public class CSSMojo
         throws MojoExecutionException, MojoFailureException
     {
         setup();
+        if ( cssFiles == null )
+        {
+            return;
+        }
 
-        // java -cp gwt-dev.jar:gwt-user.jar
-        // com.google.gwt.resources.css.InterfaceGenerator -standalone -typeName some.package.MyCssResource -css
-        // input.css
-        if ( cssFiles != null )
+        // content hashes rather than timestamps, that a checkout or a clean copy would change
+        GenerationState state =
+            new GenerationState( new File( getProject().getBuild().getDirectory(), "gwt-css.hashes" ) );
+        String sdk = getGwtUserJarHash();
+        List<CssInterface> outdated = new ArrayList<CssInterface>();
+        for ( String file : cssFiles )
         {
-            for ( String file : cssFiles )
+            final String typeName = FilenameUtils.separatorsToSystem( file ).
+                substring( 0, file.lastIndexOf( '.' ) ).replace( File.separatorChar, '.' );
+            final File javaOutput =
+                new File( getGenerateDirectory(), typeName.replace( '.', File.separatorChar ) + ".java" );
+            for ( Resource resource : getProject().getResources() )
             {
-                final String typeName = FilenameUtils.separatorsToSystem( file ).
-                    substring( 0, file.lastIndexOf( '.' ) ).replace( File.separatorChar, '.' );
-                final File javaOutput =
-                    new File( getGenerateDirectory(), typeName.replace( '.', File.separatorChar ) + ".java" );
-                for ( Resource resource : getProject().getResources() )
+                final File candidate = new File( resource.getDirectory(), file );
+                if ( candidate.exists() )
                 {
-                    final File candidate = new File( resource.getDirectory(), file );
-                    if ( candidate.exists() )
+                    String inputHash = getInputHash( candidate, sdk );
+                    if ( state.isUpToDate( typeName, inputHash, javaOutput ) )
                     {
-                        if ( buildContext.isUptodate( javaOutput, candidate ) )
-                        {
-                            getLog().debug( javaOutput.getAbsolutePath() + " is up to date. Generation skipped" );
-                            break;
-                        }
+                        getLog().debug( javaOutput.getAbsolutePath() + " is up to date. Generation skipped" );
+                        break;
+                    }
+                    outdated.add( new CssInterface( file, typeName, candidate, javaOutput, inputHash ) );
+                    break;
+                }
+            }
+        }
+        if ( outdated.isEmpty() )
+        {
+            return;
+        }
 
-                        getLog().info( "Generating " + javaOutput + " with typeName " + typeName );
-                        ensureTargetPackageExists( getGenerateDirectory(), typeName );
+        try
+        {
+            if ( !batch || !generateInBatch( outdated, state ) )
+            {
+                for ( CssInterface css : outdated )
+                {
+                    generate( css, state );
+                }
+            }
+        }
+        finally
+        {
+            try
+            {
+                state.save();
+            }
+            catch ( IOException e )
+            {
+                getLog().warn( "Failed to save CSS generation state : " + e.getMessage() );
+            }
+        }
+    }
 
-                        
-                        try
-                        {
-                            final StringBuilder content = new StringBuilder();
-                            createJavaCommand()
-                                .setMainClass( "com.google.gwt.resources.css.InterfaceGenerator" )
-                                .addToClasspath( getClasspath( Artifact.SCOPE_COMPILE ) )
-                                .arg( "-standalone" )
-                                .arg( "-typeName" )
-                                .arg( typeName )
-                                .arg( "-css" )
-                                .arg( candidate.getAbsolutePath() )
-                                .addToClasspath( getGwtDevJar() )
-                                .addToClasspath( getGwtUserJar() )
-                                .setOut( new StreamConsumer()
-                                    {
-                                        public void consumeLine( String line )
-                                        {
-                                            content.append( line ).append( SystemUtils.LINE_SEPARATOR );
-                                        }
-                                    } )
-                                .execute();
-                            if ( content.length() == 0 )
-                            {
-                                throw new MojoExecutionException( "cannot generate java source from file " + file + "." );
-                            }
-                            final OutputStreamWriter outputWriter =
-                                new OutputStreamWriter( buildContext.newFileOutputStream( javaOutput ) , encoding );
-                            try {
-                                outputWriter.write( content.toString() );
-                            } finally {
-                                IOUtil.close( outputWriter );
-                            }
-                        }
-                        catch ( IOException e )
-                        {
-                            throw new MojoExecutionException( "Failed to write to file: " + javaOutput, e );
-                        }
-                        catch ( JavaCommandException e )
+    /**
+     * Generate the interface in a dedicated command, reading its source from the command output
+     */
+    private void generate( CssInterface css, GenerationState state )
+        throws MojoExecutionException
+    {
+        getLog().info( "Generating " + css.javaOutput + " with typeName " + css.typeName );
+        ensureTargetPackageExists( getGenerateDirectory(), css.typeName );
+
+        try
+        {
+            final StringBuilder content = new StringBuilder();
+            createJavaCommand()
+                .setMainClass( "com.google.gwt.resources.css.InterfaceGenerator" )
+                .setInProcess( inProcess )
+                .addToClasspath( getClasspath( Artifact.SCOPE_COMPILE ) )
+                .arg( "-standalone" )
+                .arg( "-typeName" )
+                .arg( css.typeName )
+                .arg( "-css" )
+                .arg( css.candidate.getAbsolutePath() )
+                .setLogQualifier( css.typeName )
+                .addToClasspath( getGwtDevJar() )
+                .addToClasspath( getGwtUserJar() )
+                .setOut( new StreamConsumer()
+                    {
+                        public void consumeLine( String line )
                         {
-                            throw new MojoExecutionException( e.getMessage(), e );
+                            content.append( line ).append( SystemUtils.LINE_SEPARATOR );
                         }
-                        break;
-                    }
-                }
+                    } )
+                .execute();
+            if ( content.length() == 0 )
+            {
+                throw new MojoExecutionException( "cannot generate java source from file " + css.file + "." );
+            }
+            writeSource( css, content.toString(), state );
+        }
+        catch ( JavaCommandException e )
+        {
+            throw new MojoExecutionException( e.getMessage(), e );
+        }
+    }
+
+    /**
+     * Generate all the interfaces with a single command, {@link CssInterfaceBatch} writing each source to its own
+     * file.
+     *
+     * @return <code>false</code> if the GWT version doesn't support batch generation
+     */
+    private boolean generateInBatch( List<CssInterface> outdated, GenerationState state )
+        throws MojoExecutionException
+    {
+        File resultDir = new File( getProject().getBuild().getDirectory(), "gwt-css" );
+        JavaCommand cmd = createJavaCommand()
+            .setMainClass( CssInterfaceBatch.class.getName() )
+            .setInProcess( inProcess )
+            .addToClasspath( getClasspath( Artifact.SCOPE_COMPILE ) )
+            .addToClasspath( getGwtDevJar() )
+            .addToClasspath( getGwtUserJar() )
+            .addToClasspath( getClassPathElementFor( CssInterfaceBatch.class ) )
+            .arg( resultDir.getAbsolutePath() );
+        new File( resultDir, CssInterfaceBatch.UNSUPPORTED ).delete();
+        for ( CssInterface css : outdated )
+        {
+            getLog().info( "Generating " + css.javaOutput + " with typeName " + css.typeName );
+            ensureTargetPackageExists( getGenerateDirectory(), css.typeName );
+            css.result = new File( resultDir, css.typeName + ".java" );
+            css.result.delete();
+            cmd.arg( css.typeName, css.candidate.getAbsolutePath() );
+        }
+
+        JavaCommandException failure = null;
+        try
+        {
+            cmd.execute();
+        }
+        catch ( JavaCommandException e )
+        {
+            // keep the interfaces that have been generated
+            failure = e;
+        }
+        if ( new File( resultDir, CssInterfaceBatch.UNSUPPORTED ).exists() )
+        {
+            return false;
+        }
+
+        for ( CssInterface css : outdated )
+        {
+            if ( css.result.isFile() )
+            {
+                writeSource( css, readSource( css.result ), state );
+            }
+            else if ( failure == null )
+            {
+                throw new MojoExecutionException( "cannot generate java source from file " + css.file + "." );
             }
         }
+        if ( failure != null )
+        {
+            throw new MojoExecutionException( failure.getMessage(), failure );
+        }
+        return true;
+    }
+
+    private String readSource( File result )
+        throws MojoExecutionException
+    {
+        StringBuilder content = new StringBuilder();
+        BufferedReader reader = null;
+        try
+        {
+            reader = new BufferedReader( new InputStreamReader( new FileInputStream( result ), "UTF-8" ) );
+            String line;
+            while ( ( line = reader.readLine() ) != null )
+            {
+                content.append( line ).append( SystemUtils.LINE_SEPARATOR );
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Failed to read file: " + result, e );
+        }
+        finally
+        {
+            IOUtil.close( reader );
+        }
+        return content.toString();
+    }
+
+    private void writeSource( CssInterface css, String content, GenerationState state )
+        throws MojoExecutionException
+    {
+        try
+        {
+            final OutputStreamWriter outputWriter =
+                new OutputStreamWriter( buildContext.newFileOutputStream( css.javaOutput ) , encoding );
+            try {
+                outputWriter.write( content );
+            } finally {
+                IOUtil.close( outputWriter );
+            }
+            state.generated( css.typeName, css.inputHash, css.javaOutput );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Failed to write to file: " + css.javaOutput, e );
+        }
+    }
+
+    private String getInputHash( File css, String sdk )
+    {
+        MessageDigest digest = DigestUtils.newDigest();
+        DigestUtils.update( digest, sdk + "\n" + encoding + "\n" );
+        try
+        {
+            DigestUtils.update( digest, css );
+        }
+        catch ( IOException e )
+        {
+            return null;
+        }
+        return DigestUtils.toHex( digest.digest() );
     }
 
     private void setup()
@@ -181,4 +363,27 @@ public class CSSMojo
         }
     }
 
+    private static class CssInterface
+    {
+        private final String file;
+
+        private final String typeName;
+
+        private final File candidate;
+
+        private final File javaOutput;
+
+        private final String inputHash;
+
+        private File result;
+
+        CssInterface( String file, String typeName, File candidate, File javaOutput, String inputHash )
+        {
+            this.file = file;
+            this.typeName = typeName;
+            this.candidate = candidate;
+            this.javaOutput = javaOutput;
+            this.inputHash = inputHash;
+        }
+    }
 }
@@ -0,0 +1,285 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.mojo.gwt.utils.DigestUtils;
+import org.codehaus.plexus.util.Os;
+import org.codehaus.plexus.util.cli.CommandLineException;
+import org.codehaus.plexus.util.cli.CommandLineUtils;
+import org.codehaus.plexus.util.cli.Commandline;
+import org.codehaus.plexus.util.cli.StreamConsumer;
+
+/**
+ * Application class-data sharing archive for a forked JVM, so that the classes of the tool are mapped from an archive
+ * rather than loaded and verified again by every fork.
+ * <p>
+ * The first fork for a classpath records the classes it loads, then an archive is dumped from this list. Later forks
+ * with the same JVM and classpath use it. The JVM can't archive classes loaded from a non-empty directory, so the
+ * archive only covers the jars at the start of the classpath, before the first directory. When the archive doesn't
+ * match, the JVM silently runs without it.
+ * <p>
+ * Archives are named after a hash of the JVM and of these jars (path, size and date) and only the most recently used
+ * ones are kept.
+ *
+ * @since 7.7
+ */
+class ClassDataSharing
+{
+    /**
+     * application classes can be archived without commercial features since Java 11
+     */
+    static final int MINIMUM_JAVA_VERSION = 11;
+
+    private static final int MAX_ARCHIVES = 8;
+
+    private static final String ARCHIVE = ".jsa";
+
+    private static final String FAILED = ".failed";
+
+    private final File directory;
+
+    private final String java;
+
+    private final int javaVersion;
+
+    private final List<File> jars;
+
+    private final Log log;
+
+    private final String key;
+
+    private File classList;
+
+    private ClassDataSharing( File directory, String java, int javaVersion, List<File> jars, Log log, String key )
+    {
+        this.directory = directory;
+        this.java = java;
+        this.javaVersion = javaVersion;
+        this.jars = jars;
+        this.log = log;
+        this.key = key;
+    }
+
+    /**
+     * @param directory where archives are stored
+     * @param java the java executable of the fork
+     * @param javaVersion feature version of the fork JVM
+     * @param classpath the fork classpath
+     * @return <code>null</code> if the fork can't use an archive
+     */
+    static ClassDataSharing create( File directory, String java, int javaVersion, List<File> classpath, Log log )
+    {
+        if ( javaVersion < MINIMUM_JAVA_VERSION )
+        {
+            return null;
+        }
+        List<File> jars = new ArrayList<File>();
+        for ( File entry : classpath )
+        {
+            if ( !entry.isFile() )
+            {
+                break;
+            }
+            jars.add( entry );
+        }
+        if ( jars.isEmpty() )
+        {
+            log.debug( "No class data sharing, the classpath doesn't start with a jar" );
+            return null;
+        }
+        return new ClassDataSharing( directory, java, javaVersion, jars, log, getKey( java, javaVersion, jars ) );
+    }
+
+    private static String getKey( String java, int javaVersion, List<File> jars )
+    {
+        MessageDigest digest = DigestUtils.newDigest();
+        File executable = new File( java );
+        DigestUtils.update( digest, executable.getAbsolutePath() + " " + executable.lastModified() + " " + javaVersion );
+        File home = executable.getAbsoluteFile().getParentFile().getParentFile();
+        if ( home != null )
+        {
+            File modules = new File( home, "lib/modules" );
+            DigestUtils.update( digest, modules.length() + " " + modules.lastModified() );
+        }
+        for ( File jar : jars )
+        {
+            DigestUtils.update( digest, jar.getAbsolutePath() + " " + jar.length() + " " + jar.lastModified() );
+        }
+        return DigestUtils.toHex( digest.digest() );
+    }
+
+    File getArchive()
+    {
+        return new File( directory, key + ARCHIVE );
+    }
+
+    /**
+     * @return the JVM arguments to use the archive, or to record the loaded classes if it doesn't exist yet
+     */
+    List<String> getJvmArguments()
+    {
+        File archive = getArchive();
+        if ( archive.isFile() )
+        {
+            archive.setLastModified( System.currentTimeMillis() );
+            log.debug( "Use class data sharing archive " + archive );
+            return Arrays.asList( "-XX:SharedArchiveFile=" + archive.getAbsolutePath(), "-Xshare:auto" );
+        }
+        if ( new File( directory, key + FAILED ).isFile() )
+        {
+            return Collections.emptyList();
+        }
+        try
+        {
+            directory.mkdirs();
+            classList = File.createTempFile( key, ".classlist", directory );
+        }
+        catch ( IOException e )
+        {
+            log.debug( "Failed to create class list in " + directory + " : " + e.getMessage() );
+            return Collections.emptyList();
+        }
+        return Arrays.asList( "-XX:DumpLoadedClassList=" + classList.getAbsolutePath() );
+    }
+
+    /**
+     * Dump the archive from the classes recorded by a successful fork
+     *
+     * @param success the fork exit status was 0
+     */
+    void completed( boolean success )
+    {
+        if ( classList == null )
+        {
+            return;
+        }
+        try
+        {
+            if ( success && classList.length() > 0 && !getArchive().isFile() )
+            {
+                dump();
+            }
+        }
+        finally
+        {
+            classList.delete();
+            classList = null;
+        }
+    }
+
+    private void dump()
+    {
+        File archive = getArchive();
+        long start = System.currentTimeMillis();
+        final StringBuilder output = new StringBuilder();
+        StreamConsumer consumer = new StreamConsumer()
+        {
+            public void consumeLine( String line )
+            {
+                output.append( line ).append( '\n' );
+            }
+        };
+        File tmp = null;
+        try
+        {
+            tmp = File.createTempFile( key, ARCHIVE + ".tmp", directory );
+            Commandline cmd = Os.isFamily( Os.FAMILY_WINDOWS ) ? new Commandline( new JavaShell() ) : new Commandline();
+            cmd.setExecutable( java );
+            cmd.addArguments( new String[] { "-Xshare:dump", "-XX:SharedClassListFile=" + classList.getAbsolutePath(),
+                "-XX:SharedArchiveFile=" + tmp.getAbsolutePath() } );
+            List<String> classpath = LaunchClasspath.arguments( jars, LaunchClasspath.AUTO, javaVersion, directory );
+            cmd.addArguments( classpath.toArray( new String[classpath.size()] ) );
+            log.debug( "Dump class data sharing archive :\n" + cmd );
+            int status = CommandLineUtils.executeCommandLine( cmd, consumer, consumer );
+            if ( status == 0 && tmp.length() > 0 && ( tmp.renameTo( archive ) || archive.isFile() ) )
+            {
+                log.info( "Created class data sharing archive " + archive.getName() + " in "
+                    + ( System.currentTimeMillis() - start ) + " ms, next forks with the same classpath will start faster" );
+                prune();
+                return;
+            }
+            log.debug( "Failed to dump class data sharing archive, status " + status + " :\n" + output );
+        }
+        catch ( IOException e )
+        {
+            log.debug( "Failed to dump class data sharing archive : " + e.getMessage() );
+        }
+        catch ( CommandLineException e )
+        {
+            log.debug( "Failed to dump class data sharing archive : " + e.getMessage() );
+        }
+        finally
+        {
+            if ( tmp != null )
+            {
+                tmp.delete();
+            }
+        }
+        // don't record the classes again for this classpath
+        try
+        {
+            new File( directory, key + FAILED ).createNewFile();
+        }
+        catch ( IOException e )
+        {
+            // try again next time
+        }
+    }
+
+    private void prune()
+    {
+        File[] archives = directory.listFiles();
+        if ( archives == null )
+        {
+            return;
+        }
+        List<File> files = new ArrayList<File>();
+        for ( File file : archives )
+        {
+            if ( file.getName().endsWith( ARCHIVE ) )
+            {
+                files.add( file );
+            }
+        }
+        Collections.sort( files, new Comparator<File>()
+        {
+            public int compare( File a, File b )
+            {
+                long diff = b.lastModified() - a.lastModified();
+                return diff > 0 ? 1 : diff < 0 ? -1 : 0;
+            }
+        } );
+        for ( int i = MAX_ARCHIVES; i < files.size(); i++ )
+        {
+            log.debug( "Delete class data sharing archive " + files.get( i ) );
+            files.get( i ).delete();
+        }
+    }
+}
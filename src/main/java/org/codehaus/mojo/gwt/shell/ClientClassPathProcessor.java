@@ -0,0 +1,265 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.mojo.gwt.GwtModule;
+import org.codehaus.mojo.gwt.utils.ClasspathIndex;
+import org.codehaus.mojo.gwt.utils.DefaultGwtModuleReader;
+import org.codehaus.mojo.gwt.utils.GwtModuleReaderException;
+import org.codehaus.plexus.util.SelectorUtils;
+
+/**
+ * Remove from the GWT compiler classpath the dependency jars it has no use for : jars without the descriptor, sources
+ * or public resources of the compiled modules or of the modules they inherit, typically server side libraries.
+ * Directories are always kept.
+ * <p>
+ * The content of each jar is read from its {@link ClasspathIndex} entries, once per build. Modules of the GWT SDK
+ * are not followed, so jars containing <code>com.google.gwt</code> modules are kept.
+ *
+ * @since 7.7
+ */
+public class ClientClassPathProcessor
+    implements ClassPathProcessor
+{
+    private static final String INDEX = "jar-index:";
+
+    private static final String GWT_PACKAGE = "com/google/gwt/";
+
+    private final Set<File> candidates;
+
+    private final Collection<String> keep;
+
+    private final Map<String, Object> cache;
+
+    private final File indexDirectory;
+
+    private final Log log;
+
+    private final Set<String> descriptors = new HashSet<String>();
+
+    private final Set<String> prefixes = new TreeSet<String>();
+
+    /**
+     * @param candidates the classpath entries that may be removed, the project dependencies
+     * @param modules the compiled modules
+     * @param keep patterns of jar file names never removed
+     * @param cache where jar indexes are kept, shared by the executions of the build
+     * @param indexDirectory where jar entries are stored across builds, <code>null</code> to only keep them for the
+     *            build
+     */
+    public ClientClassPathProcessor( Collection<File> candidates, Collection<GwtModule> modules,
+                                     Collection<String> keep, Map<String, Object> cache, File indexDirectory,
+                                     Log log )
+        throws GwtModuleReaderException
+    {
+        this.candidates = new HashSet<File>( candidates );
+        this.keep = keep;
+        this.cache = cache;
+        this.indexDirectory = indexDirectory;
+        this.log = log;
+        collectClientPaths( modules, descriptors, prefixes );
+    }
+
+    /**
+     * Collect the descriptors and the source, super-source and public path prefixes of the modules and of the modules
+     * they inherit
+     */
+    static void collectClientPaths( Collection<GwtModule> modules, Set<String> descriptors, Set<String> prefixes )
+        throws GwtModuleReaderException
+    {
+        Set<GwtModule> reachable = new HashSet<GwtModule>();
+        for ( GwtModule module : modules )
+        {
+            reachable.add( module );
+            reachable.addAll( module.getInherits() );
+        }
+        for ( GwtModule module : reachable )
+        {
+            descriptors.add( module.getName().replace( '.', '/' ) + DefaultGwtModuleReader.GWT_MODULE_EXTENSION );
+            String base = module.getPackage().length() == 0 ? "" : module.getPackage().replace( '.', '/' ) + "/";
+            for ( String path : module.getSources() )
+            {
+                prefixes.add( getPrefix( base, path ) );
+            }
+            for ( String path : module.getSuperSources() )
+            {
+                prefixes.add( getPrefix( base, path ) );
+            }
+            prefixes.add( getPrefix( base, module.getPublic() ) );
+        }
+    }
+
+    public void postProcessClassPath( List<File> files )
+    {
+        int removed = 0;
+        for ( Iterator<File> it = files.iterator(); it.hasNext(); )
+        {
+            File file = it.next();
+            if ( !candidates.contains( file ) || !file.isFile() || isKept( file ) )
+            {
+                continue;
+            }
+            String reason = getRemovalReason( file );
+            if ( reason != null )
+            {
+                log.info( "Removed " + file.getName() + " from the compiler classpath : " + reason );
+                it.remove();
+                removed++;
+            }
+        }
+        if ( removed > 0 )
+        {
+            log.info( "Removed " + removed + " dependencies unused by the GWT compiler, "
+                + "use pruneClasspathKeep to keep some of them" );
+        }
+    }
+
+    private static String getPrefix( String base, String path )
+    {
+        if ( path == null || path.length() == 0 || ".".equals( path ) )
+        {
+            return base;
+        }
+        String prefix = base + path.replace( '\\', '/' );
+        return prefix.endsWith( "/" ) ? prefix : prefix + "/";
+    }
+
+    private boolean isKept( File file )
+    {
+        if ( keep != null )
+        {
+            for ( String pattern : keep )
+            {
+                if ( SelectorUtils.match( pattern, file.getName() ) )
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return why the jar isn't needed by the compiler, <code>null</code> if it is
+     */
+    private String getRemovalReason( File jar )
+    {
+        JarIndex index = getIndex( jar );
+        if ( index == null )
+        {
+            // let the compiler report it
+            return null;
+        }
+        for ( String module : index.modules )
+        {
+            if ( descriptors.contains( module ) || module.startsWith( GWT_PACKAGE ) )
+            {
+                return null;
+            }
+        }
+        for ( String prefix : prefixes )
+        {
+            for ( String directory : index.directories )
+            {
+                if ( directory.startsWith( prefix ) )
+                {
+                    return null;
+                }
+            }
+        }
+        if ( index.modules.isEmpty() )
+        {
+            return "no GWT module, client source or public resource";
+        }
+        return "its GWT modules " + index.getModuleNames() + " are not inherited by the compiled modules";
+    }
+
+    private JarIndex getIndex( File jar )
+    {
+        String key = INDEX + jar.getAbsolutePath() + ":" + jar.length() + ":" + jar.lastModified();
+        JarIndex index = (JarIndex) cache.get( key );
+        if ( index == null )
+        {
+            List<String> entries = ClasspathIndex.getEntries( jar, cache, indexDirectory );
+            if ( entries.isEmpty() )
+            {
+                log.debug( "Failed to read " + jar );
+                return null;
+            }
+            index = JarIndex.of( entries );
+            cache.put( key, index );
+        }
+        return index;
+    }
+
+    /**
+     * The GWT modules and the directories of a jar
+     */
+    static class JarIndex
+    {
+        final Set<String> modules;
+
+        final Set<String> directories;
+
+        JarIndex( Set<String> modules, Set<String> directories )
+        {
+            this.modules = modules;
+            this.directories = directories;
+        }
+
+        static JarIndex of( List<String> entries )
+        {
+            Set<String> modules = new HashSet<String>();
+            Set<String> directories = new HashSet<String>();
+            for ( String name : entries )
+            {
+                if ( name.endsWith( DefaultGwtModuleReader.GWT_MODULE_EXTENSION ) )
+                {
+                    modules.add( name );
+                }
+                int slash = name.lastIndexOf( '/' );
+                directories.add( slash < 0 ? "" : name.substring( 0, slash + 1 ) );
+            }
+            return new JarIndex( Collections.unmodifiableSet( modules ), Collections.unmodifiableSet( directories ) );
+        }
+
+        Set<String> getModuleNames()
+        {
+            Set<String> names = new TreeSet<String>();
+            for ( String module : modules )
+            {
+                names.add( module.substring( 0, module.length() - DefaultGwtModuleReader.GWT_MODULE_EXTENSION.length() )
+                    .replace( '/', '.' ) );
+            }
+            return names;
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.mojo.gwt.GwtModule;
+import org.codehaus.mojo.gwt.utils.DefaultGwtModuleReader;
+import org.codehaus.mojo.gwt.utils.DigestUtils;
+import org.codehaus.mojo.gwt.utils.GwtModuleReaderException;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Replace the dependency jars on the GWT compiler classpath with "client views" : jars with only the GWT module
+ * descriptors, the classes and the entries under the source, super-source and public paths of the compiled modules and
+ * of the modules they inherit. Server side sources, test resources and unrelated packages are left out, so the compiler
+ * scans a fraction of the jar.
+ * <p>
+ * Classes are kept whatever their package, as generators and linkers are loaded from the classpath. Jars containing
+ * <code>com.google.gwt</code> modules are not replaced, the modules of the GWT SDK are not followed.
+ * <p>
+ * Views are named by the content hash of the jar and of the client paths, so they are reused across builds and
+ * projects. The least recently used views are removed once they exceed {@link #MAX_SIZE}.
+ *
+ * @since 7.7
+ */
+public class ClientJarViews
+    implements ClassPathProcessor
+{
+    private static final String GWT_PACKAGE = "com/google/gwt/";
+
+    private static final String EXTENSION = ".jar";
+
+    private static final String NO_VIEW = ".none";
+
+    /** maximum size of the stored views, 512 MB */
+    static final long MAX_SIZE = 512L * 1024 * 1024;
+
+    /** how often the last use of a view is recorded, one hour */
+    private static final long TOUCH_PERIOD = 60L * 60 * 1000;
+
+    private final Set<File> candidates;
+
+    private final File directory;
+
+    private final Map<String, Object> cache;
+
+    private final Log log;
+
+    private final Set<String> prefixes = new TreeSet<String>();
+
+    private final String pathsHash;
+
+    /**
+     * @param candidates the classpath entries that may be replaced, the project dependencies
+     * @param modules the compiled modules
+     * @param directory where the views are stored
+     * @param cache where jar hashes are kept, shared by the executions of the build
+     */
+    public ClientJarViews( Collection<File> candidates, Collection<GwtModule> modules, File directory,
+                           Map<String, Object> cache, Log log )
+        throws GwtModuleReaderException
+    {
+        this.candidates = new HashSet<File>( candidates );
+        this.directory = directory;
+        this.cache = cache;
+        this.log = log;
+        ClientClassPathProcessor.collectClientPaths( modules, new HashSet<String>(), prefixes );
+        pathsHash = DigestUtils.sha1Hex( prefixes.toString() );
+    }
+
+    public void postProcessClassPath( List<File> files )
+    {
+        long original = 0;
+        long views = 0;
+        boolean created = false;
+        for ( ListIterator<File> it = files.listIterator(); it.hasNext(); )
+        {
+            File file = it.next();
+            if ( !candidates.contains( file ) || !file.isFile() )
+            {
+                continue;
+            }
+            try
+            {
+                File view = getExistingView( file );
+                if ( view == null )
+                {
+                    view = createView( file );
+                    created = true;
+                }
+                if ( view.getName().endsWith( EXTENSION ) )
+                {
+                    it.set( view );
+                    original += file.length();
+                    views += view.length();
+                }
+            }
+            catch ( IOException e )
+            {
+                log.warn( "Failed to create the client view of " + file.getName() + ", using the jar : "
+                    + e.getMessage() );
+            }
+        }
+        if ( created )
+        {
+            evict( MAX_SIZE );
+        }
+        if ( original > 0 )
+        {
+            log.info( "Compiling with client views of the dependencies, " + views / 1024 + " KB instead of "
+                + original / 1024 + " KB" );
+        }
+    }
+
+    private File getViewFile( File jar )
+        throws IOException
+    {
+        String hash = DigestUtils.sha1Hex( jar, cache );
+        return new File( directory, hash.substring( 0, 2 ) + "/" + hash + "-" + pathsHash + EXTENSION );
+    }
+
+    /**
+     * @return the stored client view of the jar, or its marker if the jar must be used as is, <code>null</code> if
+     *         it is not created yet
+     */
+    private File getExistingView( File jar )
+        throws IOException
+    {
+        File view = getViewFile( jar );
+        if ( !view.isFile() )
+        {
+            view = new File( view.getPath() + NO_VIEW );
+            if ( !view.isFile() )
+            {
+                return null;
+            }
+        }
+        long now = System.currentTimeMillis();
+        if ( view.lastModified() < now - TOUCH_PERIOD )
+        {
+            // recently used, for the eviction
+            view.setLastModified( now );
+        }
+        return view;
+    }
+
+    /**
+     * @return the client view of the jar, or its marker if the jar must be used as is
+     */
+    private File createView( File jar )
+        throws IOException
+    {
+        File view = getViewFile( jar );
+        File noView = new File( view.getPath() + NO_VIEW );
+        view.getParentFile().mkdirs();
+        // written aside and renamed, for concurrent builds
+        File tmp = File.createTempFile( view.getName(), ".tmp", view.getParentFile() );
+        try
+        {
+            if ( !write( jar, tmp ) )
+            {
+                noView.createNewFile();
+                return noView;
+            }
+            if ( !tmp.renameTo( view ) && !view.isFile() )
+            {
+                throw new IOException( "Failed to rename " + tmp + " to " + view );
+            }
+            log.debug( "Created client view " + view + " of " + jar );
+            return view;
+        }
+        finally
+        {
+            tmp.delete();
+        }
+    }
+
+    /**
+     * @return <code>false</code> if the jar has no view, as it contains GWT SDK modules
+     */
+    private boolean write( File jar, File view )
+        throws IOException
+    {
+        ZipFile zip = new ZipFile( jar );
+        ZipOutputStream out = null;
+        try
+        {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while ( entries.hasMoreElements() )
+            {
+                String name = entries.nextElement().getName();
+                if ( name.startsWith( GWT_PACKAGE ) && name.endsWith( DefaultGwtModuleReader.GWT_MODULE_EXTENSION ) )
+                {
+                    return false;
+                }
+            }
+            out = new ZipOutputStream( new FileOutputStream( view ) );
+            ZipEntry manifestEntry = zip.getEntry( JarFile.MANIFEST_NAME );
+            if ( manifestEntry != null )
+            {
+                // first, for the jar readers, without the jars it references next to the original one
+                InputStream in = zip.getInputStream( manifestEntry );
+                Manifest manifest;
+                try
+                {
+                    manifest = new Manifest( in );
+                }
+                finally
+                {
+                    IOUtil.close( in );
+                }
+                manifest.getMainAttributes().remove( Attributes.Name.CLASS_PATH );
+                ZipEntry copy = new ZipEntry( JarFile.MANIFEST_NAME );
+                copy.setTime( manifestEntry.getTime() );
+                out.putNextEntry( copy );
+                manifest.write( out );
+                out.closeEntry();
+            }
+            entries = zip.entries();
+            byte[] buffer = new byte[8192];
+            int count = 0;
+            while ( entries.hasMoreElements() )
+            {
+                ZipEntry entry = entries.nextElement();
+                if ( entry.isDirectory() || !isClient( entry.getName() )
+                    || JarFile.MANIFEST_NAME.equals( entry.getName() ) )
+                {
+                    continue;
+                }
+                ZipEntry copy = new ZipEntry( entry.getName() );
+                copy.setTime( entry.getTime() );
+                out.putNextEntry( copy );
+                InputStream in = zip.getInputStream( entry );
+                try
+                {
+                    int read;
+                    while ( ( read = in.read( buffer ) ) >= 0 )
+                    {
+                        out.write( buffer, 0, read );
+                    }
+                }
+                finally
+                {
+                    IOUtil.close( in );
+                }
+                out.closeEntry();
+                count++;
+            }
+            if ( count == 0 && manifestEntry == null )
+            {
+                // a zip needs one entry
+                out.putNextEntry( new ZipEntry( "META-INF/" ) );
+                out.closeEntry();
+            }
+            return true;
+        }
+        finally
+        {
+            IOUtil.close( out );
+            zip.close();
+        }
+    }
+
+    boolean isClient( String name )
+    {
+        if ( name.endsWith( DefaultGwtModuleReader.GWT_MODULE_EXTENSION ) || name.endsWith( ".class" )
+            || name.startsWith( "META-INF/services/" ) )
+        {
+            return true;
+        }
+        for ( String prefix : prefixes )
+        {
+            if ( name.startsWith( prefix ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Remove the least recently used views until they are smaller than the maximum size
+     */
+    void evict( long maxSize )
+    {
+        List<File> views = new ArrayList<File>();
+        long size = 0;
+        File[] subdirectories = directory.listFiles();
+        if ( subdirectories == null )
+        {
+            return;
+        }
+        for ( File subdirectory : subdirectories )
+        {
+            File[] files = subdirectory.listFiles();
+            if ( files == null )
+            {
+                continue;
+            }
+            for ( File file : files )
+            {
+                if ( file.getName().endsWith( EXTENSION ) || file.getName().endsWith( NO_VIEW ) )
+                {
+                    views.add( file );
+                    size += file.length();
+                }
+            }
+        }
+        if ( size <= maxSize )
+        {
+            return;
+        }
+        Collections.sort( views, new Comparator<File>()
+        {
+            public int compare( File f1, File f2 )
+            {
+                long t1 = f1.lastModified();
+                long t2 = f2.lastModified();
+                return t1 < t2 ? -1 : t1 == t2 ? 0 : 1;
+            }
+        } );
+        for ( File file : views )
+        {
+            if ( size <= maxSize )
+            {
+                break;
+            }
+            long length = file.length();
+            if ( file.delete() )
+            {
+                size -= length;
+                log.debug( "Removed client view " + file );
+            }
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.codehaus.mojo.gwt.utils.DigestUtils;
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.StringUtils;
+
+/**
+ * Content hashes of the inputs of a module compilation : module graph, client source and public files, classpath
+ * jars, compiler arguments and GWT SDK. The fingerprint of the last compilation is stored with the output, the module
+ * is up to date if the new one is the same.
+ * <p>
+ * Files are only hashed again when their size or last modification time changed since the previous fingerprint.
+ *
+ * @since 7.7
+ */
+public class CompileFingerprint
+{
+    /** prefix of the keys of the modules of the {@link ModuleGraph} */
+    public static final String MODULE = "module:";
+
+    /** prefix of the keys of the classpath jars */
+    public static final String JAR = "jar:";
+
+    /** prefix of the keys of the client files */
+    public static final String FILE = "file:";
+
+    public static final String ARGUMENTS = "arguments";
+
+    public static final String JVM = "jvm";
+
+    private final SortedMap<String, String> hashes = new TreeMap<String, String>();
+
+    /** size and last modification time of the hashed files */
+    private final Map<String, String> stamps = new TreeMap<String, String>();
+
+    /** inputs known by their value, kept to tell what changed */
+    private final Map<String, String> values = new TreeMap<String, String>();
+
+    private final CompileFingerprint previous;
+
+    /**
+     * @param previous the fingerprint of the last compilation, to reuse the hashes of unchanged files, may be
+     *            <code>null</code>
+     */
+    public CompileFingerprint( CompileFingerprint previous )
+    {
+        this.previous = previous;
+    }
+
+    /**
+     * Add an input known by its value, such as the compiler arguments
+     */
+    public void addValue( String key, String value )
+    {
+        hashes.put( key, DigestUtils.sha1Hex( value ) );
+        values.put( key, value );
+    }
+
+    /**
+     * @return the value of an input added with {@link #addValue(String, String)}, <code>null</code> for a file
+     */
+    public String getValue( String key )
+    {
+        return values.get( key );
+    }
+
+    /**
+     * Add the content of a file
+     */
+    public void addFile( String key, File file )
+        throws IOException
+    {
+        String stamp = file.length() + " " + file.lastModified();
+        String hash = null;
+        if ( previous != null && stamp.equals( previous.stamps.get( key ) ) )
+        {
+            hash = previous.hashes.get( key );
+        }
+        if ( hash == null )
+        {
+            hash = DigestUtils.sha1Hex( file );
+        }
+        hashes.put( key, hash );
+        stamps.put( key, stamp );
+    }
+
+    /**
+     * Add the files of a directory and of its sub-directories, hidden ones excepted
+     *
+     * @param prefix prefix of the keys of the files, followed by their relative path
+     */
+    public void addDirectory( String prefix, File directory )
+        throws IOException
+    {
+        File[] files = directory.listFiles();
+        if ( files == null )
+        {
+            return;
+        }
+        for ( File file : files )
+        {
+            if ( file.getName().startsWith( "." ) )
+            {
+                continue;
+            }
+            String key = prefix + file.getName();
+            if ( file.isDirectory() )
+            {
+                addDirectory( key + "/", file );
+            }
+            else
+            {
+                addFile( key, file );
+            }
+        }
+    }
+
+    /**
+     * @return the hashes of the inputs, by key
+     */
+    public SortedMap<String, String> getHashes()
+    {
+        return Collections.unmodifiableSortedMap( hashes );
+    }
+
+    /**
+     * @return the hash of all inputs
+     */
+    public String getHash()
+    {
+        return getHash( Collections.<String, String>emptyMap() );
+    }
+
+    /**
+     * @param replacements paths replaced in the keys and in the values, such as the project directory, for a hash
+     *            that doesn't depend on where the project is built
+     * @return the hash of all inputs
+     */
+    public String getHash( Map<String, String> replacements )
+    {
+        MessageDigest digest = DigestUtils.newDigest();
+        for ( Map.Entry<String, String> entry : hashes.entrySet() )
+        {
+            String key = entry.getKey();
+            String hash = entry.getValue();
+            if ( values.containsKey( key ) )
+            {
+                hash = DigestUtils.sha1Hex( replace( values.get( key ), replacements ) );
+            }
+            DigestUtils.update( digest, replace( key, replacements ) + "=" + hash + "\n" );
+        }
+        return DigestUtils.toHex( digest.digest() );
+    }
+
+    private static String replace( String text, Map<String, String> replacements )
+    {
+        for ( Map.Entry<String, String> replacement : replacements.entrySet() )
+        {
+            text = StringUtils.replace( text, replacement.getKey(), replacement.getValue() );
+        }
+        return text;
+    }
+
+    /**
+     * @return the keys of the inputs added, removed or changed since the other fingerprint, empty if none
+     */
+    public List<String> getChangedInputs( CompileFingerprint other )
+    {
+        TreeSet<String> keys = new TreeSet<String>( hashes.keySet() );
+        keys.addAll( other.hashes.keySet() );
+        List<String> changed = new ArrayList<String>();
+        for ( String key : keys )
+        {
+            String hash = hashes.get( key );
+            if ( hash == null || !hash.equals( other.hashes.get( key ) ) )
+            {
+                changed.add( key );
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @return the fingerprint stored in the file, <code>null</code> if it can't be read
+     */
+    public static CompileFingerprint load( File file )
+    {
+        if ( !file.isFile() )
+        {
+            return null;
+        }
+        Properties properties = new Properties();
+        InputStream in = null;
+        try
+        {
+            in = new FileInputStream( file );
+            properties.load( in );
+        }
+        catch ( IOException e )
+        {
+            return null;
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+        CompileFingerprint fingerprint = new CompileFingerprint( null );
+        for ( String key : properties.stringPropertyNames() )
+        {
+            // hash size lastModified, or hash=value
+            String value = properties.getProperty( key );
+            int index = 0;
+            while ( index < value.length() && value.charAt( index ) != ' ' && value.charAt( index ) != '=' )
+            {
+                index++;
+            }
+            fingerprint.hashes.put( key, value.substring( 0, index ) );
+            if ( index == value.length() )
+            {
+                continue;
+            }
+            if ( value.charAt( index ) == ' ' )
+            {
+                fingerprint.stamps.put( key, value.substring( index + 1 ) );
+            }
+            else
+            {
+                fingerprint.values.put( key, value.substring( index + 1 ) );
+            }
+        }
+        return fingerprint;
+    }
+
+    public void store( File file )
+        throws IOException
+    {
+        Properties properties = new Properties();
+        for ( Map.Entry<String, String> entry : hashes.entrySet() )
+        {
+            String key = entry.getKey();
+            String value = entry.getValue();
+            if ( stamps.containsKey( key ) )
+            {
+                value += " " + stamps.get( key );
+            }
+            else if ( values.containsKey( key ) )
+            {
+                value += "=" + values.get( key );
+            }
+            properties.setProperty( key, value );
+        }
+        file.getParentFile().mkdirs();
+        File tmp = File.createTempFile( file.getName(), ".tmp", file.getParentFile() );
+        OutputStream out = new FileOutputStream( tmp );
+        try
+        {
+            properties.store( out, "Inputs of the last GWT compilation" );
+        }
+        finally
+        {
+            IOUtil.close( out );
+        }
+        if ( !tmp.renameTo( file ) )
+        {
+            file.delete();
+            if ( !tmp.renameTo( file ) )
+            {
+                tmp.delete();
+                throw new IOException( "Failed to write " + file );
+            }
+        }
+    }
+}
@@ -26,12 +26,24 @@ package org.codehaus.mojo.gwt.shell;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.maven.artifact.Artifact;
+import org.apache.maven.model.Resource;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
@@ -39,7 +51,9 @@ import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.codehaus.mojo.gwt.GwtModule;
+import org.codehaus.mojo.gwt.utils.DigestUtils;
 import org.codehaus.mojo.gwt.utils.GwtModuleReaderException;
+import org.codehaus.mojo.gwt.utils.SessionCache;
 import org.codehaus.plexus.compiler.util.scan.InclusionScanException;
 import org.codehaus.plexus.compiler.util.scan.StaleSourceScanner;
 import org.codehaus.plexus.compiler.util.scan.mapping.SingleTargetSourceMapping;
@@ -413,6 +427,143 @@ public class CompileMojo
     @Parameter(defaultValue = "${project.build.directory}/wscdn-widgetset")
     private File lastWidgetset;
 
+    /**
+     * Write the timeline of the compiler phases (precompile, permutations, link) and of each permutation to
+     * <code>target/gwt-compile-timeline.json</code>, extracted from the compiler output.
+     * <p>
+     * Can be set from the command line using '-Dgwt.compiler.timeline=false'
+     * </p>
+     *
+     * @since 7.7
+     */
+    @Parameter(defaultValue = "true", property = "gwt.compiler.timeline")
+    private boolean timeline;
+
+    /**
+     * Size the compiler max heap and local workers from the resources used by the previous compilation of the same
+     * modules : twice the live heap, more after an OutOfMemoryError or when garbage collection took more than 10% of
+     * the time, and no more workers than permutations. The localWorkers parameter and {@link #adaptiveMaxHeap} are
+     * the upper limits. Only forked compilations are measured, not the ones run in a worker JVM.
+     * <p>
+     * Can be set from the command line using '-Dgwt.compiler.adaptive=true'
+     * </p>
+     *
+     * @since 7.7
+     */
+    @Parameter(defaultValue = "false", property = "gwt.compiler.adaptive")
+    private boolean adaptive;
+
+    /**
+     * Maximum heap size (in MB) of an adaptive compilation. Defaults to the -Xmx of <code>extraJvmArgs</code>, or
+     * without one to a fourth of the physical memory, like the JVM default max heap.
+     * <p>
+     * Can be set from the command line using '-Dgwt.compiler.adaptive.maxHeap=...'
+     * </p>
+     *
+     * @since 7.7
+     */
+    @Parameter(defaultValue = "0", property = "gwt.compiler.adaptive.maxHeap")
+    private int adaptiveMaxHeap;
+
+    /**
+     * Where the resources used by the compilation of each module are recorded, shared by all projects.
+     *
+     * @since 7.7
+     */
+    @Parameter(defaultValue = "${user.home}/.m2/vaadin-maven-plugin/compile-history.properties", property = "gwt.compiler.history")
+    private File history;
+
+    /**
+     * Remove from the compiler classpath the jars without GWT module, client sources or public resources of the
+     * compiled modules and of the modules they inherit, such as server side libraries, so that the compiler doesn't
+     * index them. Each removed jar is logged.
+     * <p>
+     * Can be set from the command line using '-Dgwt.compiler.pruneClasspath=true'
+     * </p>
+     *
+     * @since 7.7
+     */
+    @Parameter(defaultValue = "false", property = "gwt.compiler.pruneClasspath")
+    private boolean pruneClasspath;
+
+    /**
+     * Patterns of jar file names kept by <code>pruneClasspath</code>, for the libraries used by generators, e.g.
+     * <code>&lt;pruneClasspathKeep&gt;&lt;keep&gt;validation-api-*.jar&lt;/keep&gt;&lt;/pruneClasspathKeep&gt;</code>
+     *
+     * @since 7.7
+     */
+    @Parameter
+    private String[] pruneClasspathKeep;
+
+    /**
+     * Compile with client views of the dependency jars : copies holding only the GWT module descriptors, the classes
+     * and the content of the source, super-source and public paths of the compiled modules and of the modules they
+     * inherit. Views are stored in <code>clientViewsDirectory</code> by content hash, and reused across builds and
+     * projects.
+     * <p>
+     * Can be set from the command line using '-Dgwt.compiler.clientViews=true'
+     * </p>
+     *
+     * @since 7.7
+     */
+    @Parameter(defaultValue = "false", property = "gwt.compiler.clientViews")
+    private boolean clientViews;
+
+    /**
+     * Where the client views of the dependency jars are stored.
+     *
+     * @since 7.7
+     */
+    @Parameter(defaultValue = "${user.home}/.m2/vaadin-maven-plugin/client-views", property = "gwt.compiler.clientViewsDirectory")
+    private File clientViewsDirectory;
+
+    /**
+     * Decide if a module is up to date from the content hashes of the inputs of its last compilation, recorded in
+     * <code>target/gwt-fingerprint</code> : module graph, client sources and public resources, classpath jars, GWT SDK
+     * and compiler arguments. The module is compiled again exactly when one of them changed. Without a record of the
+     * last compilation, the modification times of the sources are compared with the output.
+     * <p>
+     * Can be set from the command line using '-Dgwt.compiler.fingerprint=false'
+     * </p>
+     *
+     * @since 7.7
+     */
+    @Parameter(defaultValue = "true", property = "gwt.compiler.fingerprint")
+    private boolean fingerprint;
+
+    /**
+     * Maximum time in seconds to wait for another build of the machine compiling a module with the same inputs, when
+     * the <code>buildCache</code> is used. The first build compiles the module and the others restore its outputs from
+     * the cache. After this time the module is compiled anyway.
+     * <p>
+     * Can be set from the command line using '-Dgwt.buildCache.wait=...'
+     * </p>
+     *
+     * @since 7.7
+     */
+    @Parameter(defaultValue = "1800", property = "gwt.buildCache.wait")
+    private int buildCacheWait;
+
+    /**
+     * Module graphs of the modules to compile, recorded once compiled
+     */
+    private final Map<String, ModuleGraph> moduleGraphs = new HashMap<String, ModuleGraph>();
+
+    /**
+     * Fingerprints of the inputs of the modules to compile, recorded once compiled
+     */
+    private final Map<String, CompileFingerprint> fingerprints = new HashMap<String, CompileFingerprint>();
+
+    /**
+     * Why the modules are not up to date, reported once looked up in the build cache
+     */
+    private final Map<String, RecompileReport> recompileReports = new LinkedHashMap<String, RecompileReport>();
+
+    /**
+     * Locks of the build cache entries of the modules to compile, released once stored
+     */
+    private final List<BuildLock> buildLocks = new ArrayList<BuildLock>();
+
 
     @Override
     public void doExecute( )
@@ -480,7 +631,7 @@ public class CompileMojo
         cmd.arg( "-logLevel", getLogLevel() )
             .arg( "-style", getStyle() )
             .arg( "-war", getOutputDirectory().getAbsolutePath() )
-            .arg( "-localWorkers", String.valueOf( getLocalWorkers() ) )
+            .setParallelism( "-localWorkers", getLocalWorkers() )
             // optional advanced arguments
             .arg( checkAssertions, "-checkAssertions" )
             .arg( draftCompile, "-draftCompile" )
@@ -552,6 +703,10 @@ public class CompileMojo
             getLog().debug( "NOT create extra directory " );
         }
 
+        if ( pruneClasspath || clientViews )
+        {
+            addClientClassPathProcessors( cmd, modules );
+        }
         addCompileSourceArtifacts( cmd );
         addArgumentDeploy(cmd);
         addArgumentGen( cmd );
@@ -562,25 +717,509 @@ public class CompileMojo
             cmd.arg( "-workDir" ).arg( String.valueOf( workDir ) );
         }
 
-        for ( String target : modules )
+        // the arguments without the modules, for the fingerprints
+        List<String> arguments = new ArrayList<String>( cmd.getArgs() );
+        List<String> required = new ArrayList<String>();
+        try
+        {
+            for ( String target : modules )
+            {
+                if ( compilationRequired( target, getOutputDirectory(), cmd, arguments ) && !restoreOutput( target ) )
+                {
+                    required.add( target );
+                }
+            }
+            // locked in the order of their keys, so that builds locking the same modules never wait for each other
+            Map<String, String> byKey = new TreeMap<String, String>();
+            for ( String target : required )
+            {
+                CompileFingerprint inputs = fingerprints.get( target );
+                byKey.put( inputs != null ? getBuildCacheKey( target, inputs ) : target, target );
+            }
+            for ( String target : byKey.values() )
+            {
+                if ( awaitOutput( target ) )
+                {
+                    required.remove( target );
+                }
+            }
+        }
+        catch ( MojoExecutionException e )
         {
-            if ( !compilationRequired( target, getOutputDirectory() ) )
+            releaseBuildLocks();
+            recompileReports.clear();
+            throw e;
+        }
+        for ( RecompileReport report : recompileReports.values() )
+        {
+            if ( !required.contains( report.getModule() ) )
             {
-                continue;
+                report.setOutcome( RecompileReport.RESTORED );
             }
+            report( report );
+        }
+        recompileReports.clear();
+        for ( String target : required )
+        {
             cmd.arg( target );
             upToDate = false;
         }
+        cmd.setLogQualifier( StringUtils.join( required.iterator(), "_" ) );
         if ( !upToDate )
         {
+            if ( timeline )
+            {
+                cmd.addOutputParser( new CompilerTimeline( new File( getProject().getBuild().getDirectory(),
+                                                                     "gwt-compile-timeline.json" ),
+                                                           cmd, getLog() ) );
+            }
+            ForkHistory forkHistory = null;
+            String historyKey = null;
+            int workers = getLocalWorkers();
+            HistoryParser parser = new HistoryParser();
+            if ( adaptive )
+            {
+                forkHistory = new ForkHistory( history );
+                historyKey = getProject().getGroupId() + ":" + getProject().getArtifactId() + ":"
+                    + StringUtils.join( modules, "," );
+                ForkHistory.Record previous = forkHistory.get( historyKey );
+                if ( previous != null )
+                {
+                    int heapCap = getAdaptiveMaxHeap( cmd );
+                    workers = previous.recommendWorkers( workers, heapCap );
+                    int heap = previous.recommendHeap( heapCap );
+                    cmd.setParallelism( "-localWorkers", workers ).setMaxHeap( heap );
+                    getLog().info( "Compiling with -Xmx" + heap + "m and " + workers + " local workers, sized from "
+                        + "the previous compilation (" + previous.liveHeap + " MB live heap, " + previous.gcTime * 100
+                        / Math.max( 1, previous.duration ) + "% GC time" + ( previous.outOfMemory ? ", out of memory" : "" )
+                        + ")" );
+                }
+                cmd.setStatsFile( new File( getProject().getBuild().getDirectory(), "gwt-compile-stats.properties" ) )
+                    .addOutputParser( parser );
+            }
             try
             {
                 cmd.execute();
+                storeModuleGraphs();
+                storeOutputs();
+                storeFingerprints();
             }
             catch ( JavaCommandException e )
             {
                 throw new MojoExecutionException( e.getMessage(), e );
             }
+            finally
+            {
+                releaseBuildLocks();
+                if ( forkHistory != null )
+                {
+                    recordHistory( forkHistory, historyKey, workers, parser );
+                }
+            }
+        }
+    }
+
+    private File getModuleGraphFile( String module )
+    {
+        return new File( getProject().getBuild().getDirectory(), "gwt-module-graph/" + module + ".properties" );
+    }
+
+    /**
+     * Record the module graphs of the compiled modules, for the next build
+     */
+    private void storeModuleGraphs()
+    {
+        for ( Map.Entry<String, ModuleGraph> entry : moduleGraphs.entrySet() )
+        {
+            storeModuleGraph( entry.getKey(), entry.getValue() );
+        }
+        moduleGraphs.clear();
+    }
+
+    private void storeModuleGraph( String module, ModuleGraph graph )
+    {
+        try
+        {
+            graph.store( getModuleGraphFile( module ) );
+        }
+        catch ( IOException e )
+        {
+            getLog().debug( "Failed to record the module graph of " + module + " : " + e.getMessage() );
+        }
+    }
+
+    private File getFingerprintFile( String module )
+    {
+        return new File( getProject().getBuild().getDirectory(), "gwt-fingerprint/" + module + ".properties" );
+    }
+
+    /**
+     * Record the fingerprints of the compiled modules, for the next build
+     */
+    private void storeFingerprints()
+    {
+        for ( Map.Entry<String, CompileFingerprint> entry : fingerprints.entrySet() )
+        {
+            storeFingerprint( entry.getKey(), entry.getValue() );
+        }
+        fingerprints.clear();
+    }
+
+    private void storeFingerprint( String module, CompileFingerprint compileFingerprint )
+    {
+        try
+        {
+            compileFingerprint.store( getFingerprintFile( module ) );
+        }
+        catch ( IOException e )
+        {
+            getLog().debug( "Failed to record the inputs of " + module + " : " + e.getMessage() );
+        }
+    }
+
+    /**
+     * Hash the inputs of the compilation of a module, the files unchanged since the previous compilation are not read
+     * again
+     *
+     * @param arguments the compiler arguments, without the modules
+     */
+    private CompileFingerprint buildFingerprint( ModuleGraph graph, JavaCommand cmd, List<String> arguments,
+                                                 CompileFingerprint previous )
+        throws IOException
+    {
+        CompileFingerprint inputs = new CompileFingerprint( previous );
+        for ( Map.Entry<String, String> node : graph.getNodes().entrySet() )
+        {
+            inputs.addValue( CompileFingerprint.MODULE + node.getKey(), node.getValue() );
+        }
+        inputs.addValue( CompileFingerprint.ARGUMENTS, StringUtils.join( arguments.iterator(), " " ) );
+        List<String> jvmArgs = new ArrayList<String>();
+        for ( String jvmArg : cmd.getJvmArgs() )
+        {
+            // the heap is sized by the plugin, it doesn't change the output
+            if ( !jvmArg.startsWith( "-Xmx" ) && !jvmArg.startsWith( "-Xms" ) )
+            {
+                jvmArgs.add( jvmArg );
+            }
+        }
+        inputs.addValue( CompileFingerprint.JVM, StringUtils.join( jvmArgs.iterator(), " " ) );
+
+        Set<File> roots = new LinkedHashSet<File>();
+        for ( File element : cmd.getClasspath() )
+        {
+            if ( element.isFile() )
+            {
+                // dependencies and GWT SDK
+                inputs.addFile( CompileFingerprint.JAR + element.getAbsolutePath(), element );
+            }
+            else if ( element.isDirectory() )
+            {
+                roots.add( element.getAbsoluteFile() );
+            }
+        }
+        roots.addAll( graph.getDirectories() );
+        for ( File root : roots )
+        {
+            for ( String path : graph.getClientPaths() )
+            {
+                File file = new File( root, path );
+                String key = CompileFingerprint.FILE + root.getPath() + "/" + path;
+                if ( file.isDirectory() )
+                {
+                    inputs.addDirectory( key + "/", file );
+                }
+                else if ( file.isFile() )
+                {
+                    inputs.addFile( key, file );
+                }
+            }
+        }
+        return inputs;
+    }
+
+    /**
+     * @return the key of the compiled module in the build cache, the paths of the project and of the local
+     *         repository being left out of the hash
+     */
+    private String getBuildCacheKey( String module, CompileFingerprint inputs )
+    {
+        Map<String, String> replacements = new LinkedHashMap<String, String>();
+        replacements.put( new File( localRepository.getBasedir() ).getAbsolutePath(), "${localRepository}" );
+        replacements.put( getProject().getBasedir().getAbsolutePath(), "${basedir}" );
+        return DigestUtils.sha1Hex( module + "=" + inputs.getHash( replacements ) );
+    }
+
+    /**
+     * @return the directories the compiler writes the module to, by name
+     */
+    private Map<String, File> getModuleOutputs( String module )
+        throws GwtModuleReaderException
+    {
+        String path = readModule( module ).getPath();
+        Map<String, File> outputs = new LinkedHashMap<String, File>();
+        outputs.put( "war", new File( getOutputDirectory(), path ) );
+        outputs.put( "deploy", getDeploy() != null ? new File( getDeploy(), path )
+                        : new File( getOutputDirectory(), "WEB-INF/deploy/" + path ) );
+        if ( extraParam || compileReport || ( saveSource && saveSourceOutput == null ) )
+        {
+            outputs.put( "extra", new File( extra, path ) );
+        }
+        return outputs;
+    }
+
+    /**
+     * Restore the output of the module from the build cache
+     *
+     * @return <code>true</code> if the module doesn't need to be compiled
+     */
+    private boolean restoreOutput( String module )
+        throws MojoExecutionException
+    {
+        CompileFingerprint inputs = fingerprints.get( module );
+        BuildCache cache = getBuildCache();
+        if ( cache == null || force || inputs == null )
+        {
+            return false;
+        }
+        String key = getBuildCacheKey( module, inputs );
+        try
+        {
+            if ( !cache.restore( key, getModuleOutputs( module ) ) )
+            {
+                getLog().debug( module + " not found in the build cache, key " + key );
+                return false;
+            }
+        }
+        catch ( IOException e )
+        {
+            getLog().warn( "Failed to restore " + module + " from the build cache : " + e.getMessage() );
+            return false;
+        }
+        catch ( GwtModuleReaderException e )
+        {
+            getLog().warn( "Failed to restore " + module + " from the build cache : " + e.getMessage() );
+            return false;
+        }
+        getLog().debug( module + " restored from the build cache, key " + key );
+        storeFingerprint( module, fingerprints.remove( module ) );
+        ModuleGraph graph = moduleGraphs.remove( module );
+        if ( graph != null )
+        {
+            storeModuleGraph( module, graph );
+        }
+        return true;
+    }
+
+    /**
+     * Lock the build cache entry of a module to compile, so that the other builds of the machine compiling the same
+     * inputs wait for this one. If another build holds the lock, wait for it to store the outputs and restore them.
+     * The locks of the modules of a build are taken in the order of their keys, as the locks already taken are held
+     * while waiting.
+     *
+     * @return <code>true</code> if the outputs were restored
+     */
+    private boolean awaitOutput( String module )
+        throws MojoExecutionException
+    {
+        CompileFingerprint inputs = fingerprints.get( module );
+        BuildCache cache = getBuildCache();
+        if ( cache == null || force || inputs == null )
+        {
+            return false;
+        }
+        String key = getBuildCacheKey( module, inputs );
+        File file = cache.getLockFile( key );
+        BuildLock lock;
+        boolean waited = false;
+        try
+        {
+            lock = BuildLock.tryAcquire( file );
+            if ( lock == null )
+            {
+                waited = true;
+                String owner = BuildLock.getOwner( file );
+                getLog().info( module + " is compiled with the same inputs by another build"
+                    + ( owner != null ? " (" + owner + ")" : "" ) + ", waiting for its outputs" );
+                lock = BuildLock.acquire( file, buildCacheWait * 1000L );
+                if ( lock == null )
+                {
+                    getLog().warn( module + " still locked by another build after " + buildCacheWait
+                        + " s, compiling it" );
+                    return false;
+                }
+            }
+            else if ( lock.getStaleOwner() != null )
+            {
+                getLog().info( "Replaced the stale build cache lock of " + module + " left by "
+                    + lock.getStaleOwner() );
+            }
+        }
+        catch ( IOException e )
+        {
+            getLog().warn( "Failed to lock " + module + " in the build cache : " + e.getMessage() );
+            return false;
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException( "Interrupted while waiting for " + module, e );
+        }
+        // stored by the previous owner, unless it failed
+        if ( ( waited || cache.get( key ) != null ) && restoreOutput( module ) )
+        {
+            lock.release();
+            return true;
+        }
+        buildLocks.add( lock );
+        return false;
+    }
+
+    private void releaseBuildLocks()
+    {
+        for ( BuildLock lock : buildLocks )
+        {
+            lock.release();
+        }
+        buildLocks.clear();
+    }
+
+    /**
+     * Store the outputs of the compiled modules in the build cache
+     */
+    private void storeOutputs()
+        throws MojoExecutionException
+    {
+        BuildCache cache = getBuildCache();
+        if ( cache == null )
+        {
+            return;
+        }
+        for ( Map.Entry<String, CompileFingerprint> entry : fingerprints.entrySet() )
+        {
+            String module = entry.getKey();
+            try
+            {
+                if ( cache.put( getBuildCacheKey( module, entry.getValue() ), getModuleOutputs( module ) ) )
+                {
+                    getLog().debug( module + " stored in the build cache" );
+                }
+            }
+            catch ( IOException e )
+            {
+                getLog().warn( "Failed to store " + module + " in the build cache : " + e.getMessage() );
+            }
+            catch ( GwtModuleReaderException e )
+            {
+                getLog().warn( "Failed to store " + module + " in the build cache : " + e.getMessage() );
+            }
+        }
+    }
+
+    private void addClientClassPathProcessors( JavaCommand cmd, String[] modules )
+        throws MojoExecutionException
+    {
+        // only the project dependencies, the compiler needs all of its own
+        Set<File> candidates = new HashSet<File>( getClasspath( Artifact.SCOPE_COMPILE ) );
+        candidates.removeAll( getGwtUserJar() );
+        candidates.removeAll( getGwtDevJar() );
+        try
+        {
+            List<GwtModule> compiled = new ArrayList<GwtModule>( modules.length );
+            for ( String module : modules )
+            {
+                compiled.add( readModule( module ) );
+            }
+            if ( pruneClasspath )
+            {
+                List<String> keep = pruneClasspathKeep != null ? Arrays.asList( pruneClasspathKeep ) : null;
+                cmd.addClassPathProcessors( new ClientClassPathProcessor( candidates, compiled, keep,
+                                                                          SessionCache.get( getSession() ),
+                                                                          getClasspathIndexDirectory(), getLog() ) );
+            }
+            if ( clientViews )
+            {
+                cmd.addClassPathProcessors( new ClientJarViews( candidates, compiled, clientViewsDirectory,
+                                                                SessionCache.get( getSession() ), getLog() ) );
+            }
+        }
+        catch ( GwtModuleReaderException e )
+        {
+            getLog().warn( "Compiler classpath not reduced, failed to read the GWT modules : " + e.getMessage() );
+        }
+    }
+
+    /**
+     * @return the upper limit of the heap of an adaptive compilation (in MB)
+     */
+    private int getAdaptiveMaxHeap( JavaCommand cmd )
+    {
+        if ( adaptiveMaxHeap > 0 )
+        {
+            return adaptiveMaxHeap;
+        }
+        // never more than the user asked for
+        int configured = JavaCommand.getMaxHeap( cmd.getJvmArgs() );
+        if ( configured > 0 )
+        {
+            return configured;
+        }
+        long physical = ForkGovernor.getPhysicalMemory();
+        return physical > 0 ? (int) ( physical / 4 / 1024 / 1024 ) : 1024;
+    }
+
+    private void recordHistory( ForkHistory forkHistory, String key, int workers, HistoryParser parser )
+    {
+        File stats = new File( getProject().getBuild().getDirectory(), "gwt-compile-stats.properties" );
+        ForkHistory.Record record = ForkHistory.Record.fromStats( stats );
+        if ( record == null )
+        {
+            // not forked, or the JVM crashed
+            return;
+        }
+        record.workers = workers;
+        record.permutations = parser.permutations;
+        record.outOfMemory = parser.outOfMemory;
+        try
+        {
+            forkHistory.put( key, record );
+        }
+        catch ( IOException e )
+        {
+            getLog().debug( "Failed to record the compilation resources : " + e.getMessage() );
+        }
+    }
+
+    /**
+     * Extract from the compiler output what the stats of the JVM don't tell
+     */
+    private static class HistoryParser
+        implements OutputParser
+    {
+        private static final Pattern PERMUTATIONS = Pattern.compile( "Compiling (\\d+) permutations?" );
+
+        private int permutations;
+
+        private boolean outOfMemory;
+
+        public void started()
+        {
+            permutations = 0;
+            outOfMemory = false;
+        }
+
+        public synchronized void consumeLine( String line )
+        {
+            Matcher matcher = PERMUTATIONS.matcher( line );
+            if ( matcher.find() )
+            {
+                permutations += Integer.parseInt( matcher.group( 1 ) );
+            }
+            outOfMemory |= line.contains( "OutOfMemoryError" );
+        }
+
+        public void finished( boolean success )
+        {
+            // nothing to do
         }
     }
 
@@ -594,17 +1233,19 @@ public class CompileMojo
     }
 
     /**
-     * Try to find out, if there are stale sources. If aren't some, we don't have to compile... ...this heuristic
-     * doesn't take into account, that there could be updated dependencies. But for this case, as 'clean compile' could
-     * be executed which would force a compilation.
+     * Try to find out, if there are stale sources. If aren't some, we don't have to compile... Updated dependencies
+     * are found comparing the {@link ModuleGraph} with the one of the previous compilation. When the
+     * {@link CompileFingerprint} of the previous compilation is known, it decides alone.
      *
      * @param module Name of the GWT module to compile
      * @param output Output path
+     * @param cmd the compiler command
+     * @param arguments the compiler arguments, without the modules
      * @return true if compilation is required (i.e. stale sources are found)
      * @throws MojoExecutionException When sources scanning fails
      * @author Alexander Gordt
      */
-    private boolean compilationRequired( String module, File output )
+    private boolean compilationRequired( String module, File output, JavaCommand cmd, List<String> arguments )
         throws MojoExecutionException
     {
         getLog().debug( "**Checking if compilation is required for " + module );
@@ -621,9 +1262,36 @@ public class CompileMojo
             }
             getLog().debug( "Module has an entrypoint" );
 
+            ModuleGraph graph = null;
+            try
+            {
+                graph = ModuleGraph.build( gwtModule, SessionCache.get( getSession() ) );
+                moduleGraphs.put( module, graph );
+            }
+            catch ( IOException e )
+            {
+                getLog().debug( "Failed to build the module graph of " + module + " : " + e.getMessage() );
+            }
+
+            CompileFingerprint previousFingerprint = null;
+            CompileFingerprint currentFingerprint = null;
+            if ( fingerprint && graph != null )
+            {
+                previousFingerprint = CompileFingerprint.load( getFingerprintFile( module ) );
+                try
+                {
+                    currentFingerprint = buildFingerprint( graph, cmd, arguments, previousFingerprint );
+                    fingerprints.put( module, currentFingerprint );
+                }
+                catch ( IOException e )
+                {
+                    getLog().debug( "Failed to hash the inputs of " + module + " : " + e.getMessage() );
+                }
+            }
+
             if ( force )
             {
-                return true;
+                return recompile( new RecompileReport( module, "compilation forced" ) );
             }
             getLog().debug( "Compilation not forced");
             
@@ -634,21 +1302,46 @@ public class CompileMojo
             // Require compilation if no js file present in target.
             if ( !outputTargetFile.exists() )
             {
-                return true;
+                return recompile( new RecompileReport( module, "no output " + outputTargetFile ) );
             }
             getLog().debug( "Output file exists");
-            
+
+            if ( currentFingerprint != null && previousFingerprint != null )
+            {
+                List<String> changed = currentFingerprint.getChangedInputs( previousFingerprint );
+                if ( changed.isEmpty() )
+                {
+                    fingerprints.remove( module );
+                    getLog().info( module + " is up to date. GWT compilation skipped" );
+                    return false;
+                }
+                return recompile( RecompileReport.compare( module, previousFingerprint, currentFingerprint ) );
+            }
+
+            ModuleGraph previous = ModuleGraph.load( getModuleGraphFile( module ) );
+            if ( graph != null && previous != null )
+            {
+                List<String> changes = graph.getChanges( previous );
+                if ( !changes.isEmpty() )
+                {
+                    return recompile( new RecompileReport( module, "modules changed " + changes ) );
+                }
+            }
+
             File moduleFile = gwtModule.getSourceFile();
-            if(moduleFile == null) {
-                return true; //the module was read from something like an InputStream; always recompile this because we can't make any other choice
+            if ( moduleFile == null && ( graph == null || previous == null ) )
+            {
+                //the module was read from something like an InputStream; always recompile this because we can't make any other choice
+                return recompile( new RecompileReport( module,
+                                                       "module read from a jar, no record of its last compilation" ) );
             }
-            getLog().debug( "There is a module source file (not an input stream");
-            
+            getLog().debug( "There is a module source file or a module graph" );
+
             //If input is newer than target, recompile
-            if(moduleFile.lastModified() > outputTargetFile.lastModified()) 
+            if ( moduleFile != null && moduleFile.lastModified() > outputTargetFile.lastModified() )
             {
-                getLog().debug( "Module file has been modified since the output file was created; recompiling" );
-                return true;
+                return recompile( new RecompileReport( module, "module file " + moduleFile
+                    + " modified since the output file was created" ) );
             }
             getLog().debug( "The module XML hasn't been updated");
 
@@ -661,38 +1354,55 @@ public class CompileMojo
             scanner.addSourceMapping( uiBinderMapping );
 
             Collection<File> compileSourceRoots = new HashSet<File>();
-            for (String sourceRoot : getProject().getCompileSourceRoots()) {
-                for (String sourcePackage : gwtModule.getSources()) {
-                    String packagePath = gwtModule.getPackage().replace( '.', File.separatorChar );
-                    File sourceDirectory = new File (sourceRoot + File.separatorChar + packagePath + File.separator + sourcePackage);
-                    if(sourceDirectory.exists()) {
-                        getLog().debug(" Looking in a source directory "+sourceDirectory.getAbsolutePath() + " for possible changes");
-                        compileSourceRoots.add(sourceDirectory);                                        
+            if ( graph != null )
+            {
+                // sources of the module and of the inherited modules, in the project roots or in reactor modules
+                List<File> projectRoots = getProjectRoots();
+                compileSourceRoots.addAll( graph.getSourceDirectories( projectRoots ) );
+                StaleSourceScanner publicScanner = new StaleSourceScanner();
+                publicScanner.addSourceMapping( new SingleTargetSourceMapping( "", outputTarget ) );
+                for ( File publicDirectory : graph.getPublicDirectories( projectRoots ) )
+                {
+                    if ( isStale( publicScanner, publicDirectory, output ) )
+                    {
+                        return recompile( new RecompileReport( module, "public resources of " + publicDirectory
+                            + " modified since the output file was created" ) );
                     }
                 }
             }
-
-            for ( File sourceRoot : compileSourceRoots )
+            else
             {
-                if ( !sourceRoot.isDirectory() )
-                {
-                    continue;
-                }
-                try
-                {
-                    // TODO only look into client side code!
-                    if ( !scanner.getIncludedSources( sourceRoot, output ).isEmpty() )
-                    {
-                        getLog().debug( "found stale source in " + sourceRoot + " compared with " + output );
-                        return true;
+                for (String sourceRoot : getProject().getCompileSourceRoots()) {
+                    for (String sourcePackage : gwtModule.getSources()) {
+                        String packagePath = gwtModule.getPackage().replace( '.', File.separatorChar );
+                        File sourceDirectory = new File (sourceRoot + File.separatorChar + packagePath + File.separator + sourcePackage);
+                        if(sourceDirectory.exists()) {
+                            getLog().debug(" Looking in a source directory "+sourceDirectory.getAbsolutePath() + " for possible changes");
+                            compileSourceRoots.add(sourceDirectory);
+                        }
                     }
                 }
-                catch ( InclusionScanException e )
+            }
+
+            for ( File sourceRoot : compileSourceRoots )
+            {
+                // TODO only look into client side code!
+                if ( isStale( scanner, sourceRoot, output ) )
                 {
-                    throw new MojoExecutionException( "Error scanning source root: \'" + sourceRoot + "\' "
-                        + "for stale files to recompile.", e );
+                    return recompile( new RecompileReport( module, "sources of " + sourceRoot
+                        + " modified since the output file was created" ) );
                 }
             }
+            if ( graph != null && previous == null )
+            {
+                // up to date, the graph is the reference for the next build
+                storeModuleGraph( module, moduleGraphs.remove( module ) );
+            }
+            if ( currentFingerprint != null )
+            {
+                // up to date, the fingerprint is the reference for the next build
+                storeFingerprint( module, fingerprints.remove( module ) );
+            }
             getLog().info( module + " is up to date. GWT compilation skipped" );
             return false;
         }
@@ -702,6 +1412,85 @@ public class CompileMojo
         }
     }
 
+    /**
+     * @return the compile source roots and the resource directories of the project
+     */
+    private List<File> getProjectRoots()
+    {
+        List<File> roots = new ArrayList<File>();
+        for ( String sourceRoot : getProject().getCompileSourceRoots() )
+        {
+            roots.add( new File( sourceRoot ) );
+        }
+        for ( Resource resource : getProject().getResources() )
+        {
+            roots.add( new File( resource.getDirectory() ) );
+        }
+        return roots;
+    }
+
+    /**
+     * Record why the module is not up to date, to report it once it is compiled or restored from the build cache
+     *
+     * @return <code>true</code>
+     */
+    private boolean recompile( RecompileReport report )
+    {
+        recompileReports.put( report.getModule(), report );
+        return true;
+    }
+
+    /**
+     * Log why the module is compiled or restored, and write the report in <code>target/gwt-recompile-report</code>
+     */
+    private void report( RecompileReport report )
+    {
+        List<String> lines = report.getLines();
+        getLog().info( lines.get( 0 ) );
+        int max = 20;
+        for ( int i = 1; i < lines.size() && i <= max; i++ )
+        {
+            getLog().info( lines.get( i ) );
+        }
+        File directory = new File( getProject().getBuild().getDirectory(), "gwt-recompile-report" );
+        if ( lines.size() > max + 1 )
+        {
+            getLog().info( "  ... " + ( lines.size() - max - 1 ) + " more changes in " + directory );
+        }
+        try
+        {
+            report.write( directory );
+        }
+        catch ( IOException e )
+        {
+            getLog().debug( "Failed to write the recompile report of " + report.getModule() + " : "
+                + e.getMessage() );
+        }
+    }
+
+    private boolean isStale( StaleSourceScanner scanner, File sourceRoot, File output )
+        throws MojoExecutionException
+    {
+        if ( !sourceRoot.isDirectory() )
+        {
+            return false;
+        }
+        try
+        {
+            if ( !scanner.getIncludedSources( sourceRoot, output ).isEmpty() )
+            {
+                getLog().debug( "found stale source in " + sourceRoot + " compared with " + output );
+                return true;
+            }
+            return false;
+        }
+        catch ( InclusionScanException e )
+        {
+            throw new MojoExecutionException( "Error scanning source root: \'" + sourceRoot + "\' "
+                + "for stale files to recompile.", e );
+        }
+    }
+
     private void fetchWidgetset() throws MojoExecutionException, MojoFailureException {
         WidgetSetRequest wsReq = createWidgetsetRequest();
 
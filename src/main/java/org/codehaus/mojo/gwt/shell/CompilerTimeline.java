@@ -0,0 +1,338 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.maven.plugin.logging.Log;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Extract the phases of the GWT compiler from its output, and write them as a JSON timeline : per module, the wall
+ * time of precompile, permutations compile and link, and of each permutation.
+ * <p>
+ * The compiler only logs the start of a permutation, so its end is estimated : the end of the permutations phase, or
+ * when a new permutation starts while all local workers are busy (the oldest running permutation is considered
+ * done). Durations the compiler reports itself ("Compilation succeeded -- 12.3s", "... took 123 ms") are recorded
+ * as they are. Times are in milliseconds, relative to the start of the command.
+ *
+ * @since 7.7
+ */
+public class CompilerTimeline
+    implements OutputParser
+{
+    private static final Pattern MODULE = Pattern.compile( "^\\s*Compiling module (\\S+)" );
+
+    private static final Pattern PERMUTATIONS = Pattern.compile( "^\\s*Compiling (\\d+) permutations?" );
+
+    private static final Pattern PERMUTATION = Pattern.compile( "^\\s*Compiling permutation (\\d+)\\.\\.\\." );
+
+    private static final Pattern PERMUTATIONS_DONE = Pattern.compile( "^\\s*Compile of permutations (succeeded|failed)" );
+
+    private static final Pattern LINK = Pattern.compile( "^\\s*Linking into " );
+
+    private static final Pattern LINK_DONE = Pattern.compile( "^\\s*Link succeeded|^\\s*Link failed" );
+
+    private static final Pattern REPORTED =
+        Pattern.compile( "^\\s*(Compilation|Linking) (?:succeeded|failed) -- ([\\d.]+)\\s*s" );
+
+    private static final Pattern TOOK = Pattern.compile( "^\\s*(\\S.*?)\\s+took\\s+(\\d+)\\s*ms\\b" );
+
+    static final String PRECOMPILE = "precompile";
+
+    static final String PERMUTATIONS_PHASE = "permutations";
+
+    static final String LINK_PHASE = "link";
+
+    private final File file;
+
+    private int localWorkers;
+
+    private final JavaCommand command;
+
+    private final Log log;
+
+    private long start;
+
+    private final List<Module> modules = new ArrayList<Module>();
+
+    private Module module;
+
+    /**
+     * @param file where the JSON timeline is written
+     * @param localWorkers number of permutations compiled in parallel
+     * @param log where to report a failure to write the timeline
+     */
+    public CompilerTimeline( File file, int localWorkers, Log log )
+    {
+        this.file = file;
+        this.localWorkers = Math.max( 1, localWorkers );
+        this.command = null;
+        this.log = log;
+    }
+
+    /**
+     * @param file where the JSON timeline is written
+     * @param command the compiler command, giving the number of local workers it is launched with
+     * @param log where to report a failure to write the timeline
+     */
+    public CompilerTimeline( File file, JavaCommand command, Log log )
+    {
+        this.file = file;
+        this.command = command;
+        this.log = log;
+    }
+
+    public synchronized void started()
+    {
+        if ( command != null )
+        {
+            // as sized by the fork governor
+            localWorkers = Math.max( 1, command.getParallelism() );
+        }
+        start = now();
+        modules.clear();
+        module = null;
+    }
+
+    public synchronized void consumeLine( String line )
+    {
+        long time = now() - start;
+        Matcher matcher;
+        if ( ( matcher = MODULE.matcher( line ) ).find() )
+        {
+            if ( module != null )
+            {
+                module.end( time );
+            }
+            module = new Module( matcher.group( 1 ), time );
+            modules.add( module );
+            module.startPhase( PRECOMPILE, time );
+            return;
+        }
+        if ( module == null )
+        {
+            return;
+        }
+        if ( ( matcher = PERMUTATION.matcher( line ) ).find() )
+        {
+            if ( module.running.size() >= localWorkers )
+            {
+                module.running.removeFirst().end = time;
+            }
+            Permutation permutation = new Permutation( Integer.parseInt( matcher.group( 1 ) ), time );
+            module.permutations.add( permutation );
+            module.running.add( permutation );
+        }
+        else if ( ( matcher = PERMUTATIONS.matcher( line ) ).find() )
+        {
+            module.permutationCount = Integer.parseInt( matcher.group( 1 ) );
+            module.startPhase( PERMUTATIONS_PHASE, time );
+        }
+        else if ( PERMUTATIONS_DONE.matcher( line ).find() )
+        {
+            module.endPermutations( time );
+            module.endPhase( time );
+        }
+        else if ( LINK.matcher( line ).find() )
+        {
+            module.endPermutations( time );
+            module.startPhase( LINK_PHASE, time );
+        }
+        else if ( LINK_DONE.matcher( line ).find() )
+        {
+            module.endPhase( time );
+        }
+        else if ( ( matcher = REPORTED.matcher( line ) ).find() )
+        {
+            module.reported.put( matcher.group( 1 ).toLowerCase(),
+                                 Long.valueOf( Math.round( Double.parseDouble( matcher.group( 2 ) ) * 1000 ) ) );
+        }
+        else if ( ( matcher = TOOK.matcher( line ) ).find() )
+        {
+            module.reported.put( matcher.group( 1 ), Long.valueOf( matcher.group( 2 ) ) );
+        }
+    }
+
+    public synchronized void finished( boolean success )
+    {
+        long wallTime = now() - start;
+        if ( module != null )
+        {
+            module.end( wallTime );
+        }
+        Map<String, Object> timeline = new LinkedHashMap<String, Object>();
+        timeline.put( "startTime", Long.valueOf( start ) );
+        timeline.put( "wallTime", Long.valueOf( wallTime ) );
+        timeline.put( "success", Boolean.valueOf( success ) );
+        timeline.put( "localWorkers", Integer.valueOf( localWorkers ) );
+        List<Object> json = new ArrayList<Object>();
+        for ( Module m : modules )
+        {
+            json.add( m.toJson() );
+        }
+        timeline.put( "modules", json );
+        try
+        {
+            file.getParentFile().mkdirs();
+            new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue( file, timeline );
+            log.debug( "GWT compiler timeline written to " + file );
+        }
+        catch ( IOException e )
+        {
+            log.warn( "Failed to write GWT compiler timeline " + file + " : " + e.getMessage() );
+        }
+    }
+
+    /**
+     * @return current time, in milliseconds
+     */
+    protected long now()
+    {
+        return System.currentTimeMillis();
+    }
+
+    private static Map<String, Object> span( long start, long end )
+    {
+        Map<String, Object> json = new LinkedHashMap<String, Object>();
+        json.put( "start", Long.valueOf( start ) );
+        json.put( "duration", Long.valueOf( end - start ) );
+        return json;
+    }
+
+    private static class Phase
+    {
+        final String name;
+
+        final long start;
+
+        long end = -1;
+
+        Phase( String name, long start )
+        {
+            this.name = name;
+            this.start = start;
+        }
+    }
+
+    private static class Permutation
+    {
+        final int index;
+
+        final long start;
+
+        long end = -1;
+
+        Permutation( int index, long start )
+        {
+            this.index = index;
+            this.start = start;
+        }
+    }
+
+    private static class Module
+    {
+        final String name;
+
+        final long start;
+
+        long end = -1;
+
+        int permutationCount;
+
+        final List<Phase> phases = new ArrayList<Phase>();
+
+        final List<Permutation> permutations = new ArrayList<Permutation>();
+
+        final LinkedList<Permutation> running = new LinkedList<Permutation>();
+
+        final Map<String, Long> reported = new LinkedHashMap<String, Long>();
+
+        Module( String name, long start )
+        {
+            this.name = name;
+            this.start = start;
+        }
+
+        void startPhase( String phase, long time )
+        {
+            endPhase( time );
+            phases.add( new Phase( phase, time ) );
+        }
+
+        void endPhase( long time )
+        {
+            if ( !phases.isEmpty() && phases.get( phases.size() - 1 ).end < 0 )
+            {
+                phases.get( phases.size() - 1 ).end = time;
+            }
+        }
+
+        void endPermutations( long time )
+        {
+            for ( Permutation permutation : running )
+            {
+                permutation.end = time;
+            }
+            running.clear();
+        }
+
+        void end( long time )
+        {
+            endPermutations( time );
+            endPhase( time );
+            end = time;
+        }
+
+        Map<String, Object> toJson()
+        {
+            Map<String, Object> json = span( start, end );
+            json.put( "name", name );
+            List<Object> phaseList = new ArrayList<Object>();
+            for ( Phase phase : phases )
+            {
+                Map<String, Object> p = span( phase.start, phase.end );
+                p.put( "name", phase.name );
+                phaseList.add( p );
+            }
+            json.put( "phases", phaseList );
+            json.put( "permutationCount", Integer.valueOf( permutationCount ) );
+            List<Object> permutationList = new ArrayList<Object>();
+            for ( Permutation permutation : permutations )
+            {
+                Map<String, Object> p = span( permutation.start, permutation.end );
+                p.put( "index", Integer.valueOf( permutation.index ) );
+                permutationList.add( p );
+            }
+            json.put( "permutations", permutationList );
+            json.put( "reported", reported );
+            return json;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generate several CssResource interfaces with <code>com.google.gwt.resources.css.InterfaceGenerator</code> in a
+ * single JVM, stylesheets being processed in parallel. Each interface source is written UTF-8 encoded to
+ * <code>resultDir/typeName.java</code> ; the generator log is only printed when it fails.
+ * <p>
+ * InterfaceGenerator only has a command line entry point that writes to System.out and calls System.exit, so its
+ * internals are used through reflection. When they don't match this GWT version, the file
+ * <code>resultDir/unsupported</code> is created and nothing is generated.
+ * <p>
+ * Usage : <code>CssInterfaceBatch resultDir typeName cssFile [typeName cssFile ...]</code>
+ * <p>
+ * This class runs in the forked JVM and must only depend on the JDK.
+ *
+ * @since 7.7
+ */
+public class CssInterfaceBatch
+{
+    static final String UNSUPPORTED = "unsupported";
+
+    private Constructor<?> constructor;
+
+    private Field loggerField;
+
+    private Method processArgs;
+
+    private Method process;
+
+    private Constructor<?> loggerConstructor;
+
+    private Method setMaxDetail;
+
+    private Object maxDetail;
+
+    public static void main( String[] args )
+        throws Exception
+    {
+        if ( args.length < 3 || args.length % 2 == 0 )
+        {
+            System.err.println( "Usage : CssInterfaceBatch resultDir typeName cssFile [typeName cssFile ...]" );
+            System.exit( 1 );
+        }
+        final File resultDir = new File( args[0] );
+        resultDir.mkdirs();
+
+        final CssInterfaceBatch batch = new CssInterfaceBatch();
+        try
+        {
+            batch.init();
+        }
+        catch ( Exception e )
+        {
+            unsupported( resultDir, e );
+        }
+        catch ( LinkageError e )
+        {
+            unsupported( resultDir, e );
+        }
+
+        int count = ( args.length - 1 ) / 2;
+        ExecutorService executor =
+            Executors.newFixedThreadPool( Math.max( 1, Math.min( count, Runtime.getRuntime().availableProcessors() ) ) );
+        List<Future<String>> results = new ArrayList<Future<String>>();
+        for ( int i = 1; i < args.length; i += 2 )
+        {
+            final String typeName = args[i];
+            final String css = args[i + 1];
+            results.add( executor.submit( new Callable<String>()
+            {
+                public String call()
+                {
+                    return batch.generate( typeName, css, new File( resultDir, typeName + ".java" ) );
+                }
+            } ) );
+        }
+        executor.shutdown();
+
+        int failures = 0;
+        for ( int i = 0; i < count; i++ )
+        {
+            String failure = results.get( i ).get();
+            if ( failure != null )
+            {
+                failures++;
+                System.err.println( "Failed to generate " + args[2 * i + 1] + " from " + args[2 * i + 2] );
+                System.err.println( failure );
+            }
+        }
+        // don't leave pool threads running in a worker JVM
+        executor.awaitTermination( 1, TimeUnit.MINUTES );
+        System.exit( failures == 0 ? 0 : 1 );
+    }
+
+    private static void unsupported( File resultDir, Throwable t )
+        throws IOException
+    {
+        new File( resultDir, UNSUPPORTED ).createNewFile();
+        System.err.println( "CssResource interfaces can't be generated in batch with this GWT version : " + t );
+        System.exit( 0 );
+    }
+
+    private void init()
+        throws Exception
+    {
+        Class<?> generator = Class.forName( "com.google.gwt.resources.css.InterfaceGenerator" );
+        constructor = generator.getDeclaredConstructor();
+        constructor.setAccessible( true );
+        loggerField = generator.getDeclaredField( "logger" );
+        loggerField.setAccessible( true );
+        process = generator.getDeclaredMethod( "process" );
+        process.setAccessible( true );
+        for ( Class<?> c = generator; c != null && processArgs == null; c = c.getSuperclass() )
+        {
+            try
+            {
+                processArgs = c.getDeclaredMethod( "processArgs", String[].class );
+                processArgs.setAccessible( true );
+            }
+            catch ( NoSuchMethodException e )
+            {
+                // look in the super class
+            }
+        }
+        if ( processArgs == null )
+        {
+            throw new NoSuchMethodException( "processArgs" );
+        }
+
+        Class<?> logger = Class.forName( "com.google.gwt.dev.util.log.PrintWriterTreeLogger" );
+        loggerConstructor = logger.getConstructor( PrintWriter.class );
+        Class<?> type = Class.forName( "com.google.gwt.core.ext.TreeLogger$Type" );
+        setMaxDetail = logger.getMethod( "setMaxDetail", type );
+        maxDetail = type.getField( "WARN" ).get( null );
+    }
+
+    /**
+     * @return the generator log if it failed, <code>null</code> otherwise
+     */
+    private String generate( String typeName, String css, File result )
+    {
+        StringWriter log = new StringWriter();
+        PrintWriter logWriter = new PrintWriter( log );
+        try
+        {
+            // the logger is used by the argument handlers
+            Object instance = constructor.newInstance();
+            Object logger = loggerConstructor.newInstance( logWriter );
+            setMaxDetail.invoke( logger, maxDetail );
+            loggerField.set( instance, logger );
+
+            String[] args = { "-standalone", "-typeName", typeName, "-css", css };
+            if ( !Boolean.TRUE.equals( processArgs.invoke( instance, (Object) args ) ) )
+            {
+                logWriter.println( "Invalid arguments" );
+                return log.toString();
+            }
+            String source = (String) process.invoke( instance );
+            write( source, result );
+            return null;
+        }
+        catch ( InvocationTargetException e )
+        {
+            e.getCause().printStackTrace( logWriter );
+        }
+        catch ( Exception e )
+        {
+            e.printStackTrace( logWriter );
+        }
+        logWriter.flush();
+        return log.toString();
+    }
+
+    private static void write( String source, File result )
+        throws IOException
+    {
+        File tmp = new File( result.getPath() + ".tmp" );
+        Writer writer = new OutputStreamWriter( new FileOutputStream( tmp ), "UTF-8" );
+        try
+        {
+            writer.write( source );
+        }
+        finally
+        {
+            writer.close();
+        }
+        result.delete();
+        if ( !tmp.renameTo( result ) )
+        {
+            throw new IOException( "Failed to write " + result );
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.security.Permission;
+
+import org.codehaus.mojo.gwt.shell.WorkerMain.ExitTrappedException;
+
+/**
+ * Security manager trapping the calls to <code>System.exit</code> of the tools run in the Maven JVM or in a worker
+ * JVM, and allowing anything else the previous security manager allows.
+ * <p>
+ * The security manager is deprecated for removal : it can be installed at runtime up to JDK 17, and up to JDK 23 when
+ * the JVM is started with <code>-Djava.security.manager=allow</code>. All the uses of the API are kept in this class.
+ * <p>
+ * This class runs in the worker JVM and must only depend on the JDK.
+ *
+ * @since 7.7
+ */
+@SuppressWarnings( "removal" )
+abstract class ExitTrap
+    extends SecurityManager
+{
+    private SecurityManager previous;
+
+    /**
+     * @return <code>true</code> if the calls to System.exit of the current thread must be trapped
+     */
+    protected abstract boolean isTrapping();
+
+    /**
+     * @return <code>true</code> if this JVM allows to install a security manager at runtime
+     */
+    static boolean isSupported()
+    {
+        String version = System.getProperty( "java.specification.version", "" );
+        if ( version.startsWith( "1." ) )
+        {
+            return true;
+        }
+        int feature;
+        try
+        {
+            feature = Integer.parseInt( version );
+        }
+        catch ( NumberFormatException e )
+        {
+            return false;
+        }
+        return feature < 18 || ( feature < 24 && "allow".equals( System.getProperty( "java.security.manager" ) ) );
+    }
+
+    /**
+     * Replace the security manager of the JVM by this one
+     *
+     * @return <code>false</code> if the JVM doesn't allow it
+     */
+    boolean install()
+    {
+        if ( !isSupported() )
+        {
+            return false;
+        }
+        previous = System.getSecurityManager();
+        try
+        {
+            System.setSecurityManager( this );
+            return true;
+        }
+        catch ( SecurityException e )
+        {
+            // not allowed by the previous security manager
+            return false;
+        }
+    }
+
+    /**
+     * Restore the security manager replaced by {@link #install()}
+     */
+    void uninstall()
+    {
+        System.setSecurityManager( previous );
+    }
+
+    @Override
+    public void checkExit( int status )
+    {
+        if ( isTrapping() )
+        {
+            throw new ExitTrappedException( status );
+        }
+        if ( previous != null )
+        {
+            previous.checkExit( status );
+        }
+    }
+
+    @Override
+    public void checkPermission( Permission perm )
+    {
+        if ( previous != null )
+        {
+            previous.checkPermission( perm );
+        }
+    }
+
+    @Override
+    public void checkPermission( Permission perm, Object context )
+    {
+        if ( previous != null )
+        {
+            previous.checkPermission( perm, context );
+        }
+    }
+}
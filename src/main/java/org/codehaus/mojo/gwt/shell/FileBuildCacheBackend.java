@@ -0,0 +1,89 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+import java.io.File;
+import java.io.IOException;
+
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * {@link BuildCacheBackend} in a shared directory, with the layout of the local {@link BuildCache}. Entries are copied
+ * aside and renamed, so that the builds reading the directory never see a partial one.
+ *
+ * @since 7.7
+ */
+public class FileBuildCacheBackend
+    implements BuildCacheBackend
+{
+    private final File directory;
+
+    public FileBuildCacheBackend( File directory )
+    {
+        this.directory = directory;
+    }
+
+    private File getEntry( String key )
+    {
+        return new File( directory, key.substring( 0, 2 ) + "/" + key + ".zip" );
+    }
+
+    public boolean get( String key, File archive )
+        throws IOException
+    {
+        File entry = getEntry( key );
+        if ( !entry.isFile() )
+        {
+            return false;
+        }
+        FileUtils.copyFile( entry, archive );
+        return true;
+    }
+
+    public void put( String key, File archive )
+        throws IOException
+    {
+        File entry = getEntry( key );
+        if ( entry.isFile() )
+        {
+            // same inputs, same output
+            return;
+        }
+        entry.getParentFile().mkdirs();
+        File tmp = File.createTempFile( entry.getName(), ".tmp", entry.getParentFile() );
+        try
+        {
+            FileUtils.copyFile( archive, tmp );
+            if ( !tmp.renameTo( entry ) && !entry.isFile() )
+            {
+                throw new IOException( "Failed to rename " + tmp + " to " + entry );
+            }
+        }
+        finally
+        {
+            tmp.delete();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return directory.getPath();
+    }
+}
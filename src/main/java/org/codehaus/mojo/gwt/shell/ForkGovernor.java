@@ -0,0 +1,247 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Limit the number of GWT tools forked at the same time by a parallel build, and split the CPUs and memory of the
+ * machine between them. A fork gets its share of what is left over by the running forks : the number of threads it
+ * may use and its maximum heap size. A fork starting while no other one runs keeps the heap it asked for.
+ * <p>
+ * A single governor is shared by all the mojos of a Maven session.
+ *
+ * @since 7.7
+ */
+public class ForkGovernor
+{
+    /**
+     * a fork waits rather than starting with less heap (in MB)
+     */
+    static final int MIN_HEAP = 256;
+
+    private static final Map<Object, ForkGovernor> governors = new WeakHashMap<Object, ForkGovernor>();
+
+    private final int slots;
+
+    private final int cpus;
+
+    private final int heap;
+
+    private int running;
+
+    private int freeCpus;
+
+    private int freeHeap;
+
+    /**
+     * @param slots maximum number of concurrent forks
+     * @param cpus number of CPUs shared by the forks
+     * @param heap memory shared by the forks heaps (in MB), 0 or less if unknown
+     */
+    ForkGovernor( int slots, int cpus, int heap )
+    {
+        this.slots = Math.max( 1, slots );
+        this.cpus = Math.max( 1, cpus );
+        this.heap = heap > 0 ? heap : Integer.MAX_VALUE;
+        this.freeCpus = this.cpus;
+        this.freeHeap = this.heap;
+    }
+
+    /**
+     * @param session the Maven session, the governor is created by the first mojo that forks a tool
+     * @param slots maximum number of concurrent forks
+     * @param heap memory shared by the forks heaps (in MB), 0 or less for 75% of the physical memory not used by Maven
+     */
+    public static synchronized ForkGovernor forSession( Object session, int slots, int heap )
+    {
+        ForkGovernor governor = governors.get( session );
+        if ( governor == null )
+        {
+            governor = new ForkGovernor( slots, Runtime.getRuntime().availableProcessors(),
+                                         heap > 0 ? heap : getDefaultHeap() );
+            governors.put( session, governor );
+        }
+        return governor;
+    }
+
+    private static int getDefaultHeap()
+    {
+        long physical = getPhysicalMemory();
+        if ( physical <= 0 )
+        {
+            return 0;
+        }
+        long available = physical / 4 * 3 - Runtime.getRuntime().maxMemory();
+        return (int) Math.max( MIN_HEAP, available / 1024 / 1024 );
+    }
+
+    /**
+     * @return physical memory (in bytes), 0 if unknown
+     */
+    static long getPhysicalMemory()
+    {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        try
+        {
+            Class<?> extension = Class.forName( "com.sun.management.OperatingSystemMXBean" );
+            if ( !extension.isInstance( os ) )
+            {
+                return 0;
+            }
+            Method method = extension.getMethod( "getTotalPhysicalMemorySize" );
+            return ( (Number) method.invoke( os ) ).longValue();
+        }
+        catch ( Exception e )
+        {
+            return 0;
+        }
+    }
+
+    /**
+     * Wait until a fork can start
+     *
+     * @param threads number of threads the tool would use
+     * @param maxHeap maximum heap size of the tool (in MB), 0 or less for the JVM default
+     * @return the CPUs and heap the fork may use, to be released once it has completed
+     */
+    public Lease acquire( int threads, int maxHeap, Log log )
+        throws InterruptedException
+    {
+        int requestedCpus = Math.max( 1, threads );
+        int requestedHeap = maxHeap > 0 ? maxHeap : getDefaultJvmHeap();
+        long start = System.currentTimeMillis();
+        Lease lease;
+        int concurrent;
+        synchronized ( this )
+        {
+            while ( running >= slots || freeHeap < Math.min( requestedHeap, MIN_HEAP ) )
+            {
+                wait();
+            }
+            int remainingSlots = slots - running;
+            int leasedCpus = Math.min( requestedCpus, Math.max( 1, freeCpus / remainingSlots ) );
+            // a fork running alone keeps the heap it asked for
+            int leasedHeap = running == 0 ? requestedHeap
+                            : Math.min( requestedHeap,
+                                        Math.max( freeHeap / remainingSlots, Math.min( MIN_HEAP, freeHeap ) ) );
+            running++;
+            freeCpus -= leasedCpus;
+            freeHeap -= leasedHeap;
+            concurrent = running;
+            lease = new Lease( leasedCpus, leasedHeap, leasedHeap < requestedHeap );
+        }
+
+        long waited = System.currentTimeMillis() - start;
+        if ( waited > 1000 )
+        {
+            log.info( "Waited " + waited / 1000 + "s for other GWT forks of the build to complete" );
+        }
+        if ( lease.isHeapLimited() && maxHeap > 0 )
+        {
+            log.warn( "Fork limited to " + lease.getCpus() + " threads and " + lease.getHeap()
+                + " MB heap instead of -Xmx" + maxHeap + "m, " + concurrent
+                + " GWT forks running. Set gwt.forks.max or gwt.forks.memory to change it" );
+        }
+        else if ( lease.getCpus() < requestedCpus || lease.isHeapLimited() )
+        {
+            log.info( "Fork limited to " + lease.getCpus() + " threads and " + lease.getHeap() + " MB heap, "
+                + concurrent + " GWT forks running" );
+        }
+        return lease;
+    }
+
+    private synchronized void release( Lease lease )
+    {
+        running--;
+        freeCpus += lease.getCpus();
+        freeHeap += lease.getHeap();
+        notifyAll();
+    }
+
+    /**
+     * @return the max heap (in MB) a JVM uses without -Xmx, a fourth of the physical memory
+     */
+    private int getDefaultJvmHeap()
+    {
+        long physical = getPhysicalMemory();
+        return physical > 0 ? (int) ( physical / 4 / 1024 / 1024 ) : Math.min( heap, 1024 );
+    }
+
+    /**
+     * CPUs and heap granted to a fork
+     */
+    public class Lease
+    {
+        private final int cpus;
+
+        private final int heap;
+
+        private final boolean heapLimited;
+
+        private boolean released;
+
+        private Lease( int cpus, int heap, boolean heapLimited )
+        {
+            this.cpus = cpus;
+            this.heap = heap;
+            this.heapLimited = heapLimited;
+        }
+
+        /**
+         * @return number of threads the fork may use
+         */
+        public int getCpus()
+        {
+            return cpus;
+        }
+
+        /**
+         * @return maximum heap size of the fork (in MB)
+         */
+        public int getHeap()
+        {
+            return heap;
+        }
+
+        /**
+         * @return <code>true</code> if the heap is less than the fork asked for, and must be set with -Xmx
+         */
+        public boolean isHeapLimited()
+        {
+            return heapLimited;
+        }
+
+        public void release()
+        {
+            if ( !released )
+            {
+                released = true;
+                ForkGovernor.this.release( this );
+            }
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Resources used by the last compilation of each module, to size the heap and number of workers of the next one.
+ * <p>
+ * The history is a properties file shared by all builds of the user, one line per module. It is read and written
+ * again for each update, so that concurrent builds only lose their own update in the worst case.
+ *
+ * @since 7.7
+ */
+public class ForkHistory
+{
+    /**
+     * garbage collection time ratio above which the heap is considered too small
+     */
+    static final double GC_PRESSURE = 0.1;
+
+    static final int MIN_HEAP = 256;
+
+    private static final int MB = 1024 * 1024;
+
+    private final File file;
+
+    public ForkHistory( File file )
+    {
+        this.file = file;
+    }
+
+    /**
+     * @return the last record for the key, <code>null</code> if none
+     */
+    public synchronized Record get( String key )
+    {
+        return Record.parse( load().getProperty( key ) );
+    }
+
+    public synchronized void put( String key, Record record )
+        throws IOException
+    {
+        Properties history = load();
+        history.setProperty( key, record.toString() );
+        file.getParentFile().mkdirs();
+        File tmp = File.createTempFile( file.getName(), ".tmp", file.getParentFile() );
+        OutputStream out = new FileOutputStream( tmp );
+        try
+        {
+            history.store( out, "Resources used by the last GWT compilation of each module" );
+        }
+        finally
+        {
+            IOUtil.close( out );
+        }
+        file.delete();
+        if ( !tmp.renameTo( file ) )
+        {
+            tmp.delete();
+            throw new IOException( "Failed to write " + file );
+        }
+    }
+
+    private Properties load()
+    {
+        Properties history = new Properties();
+        if ( file.isFile() )
+        {
+            InputStream in = null;
+            try
+            {
+                in = new FileInputStream( file );
+                history.load( in );
+            }
+            catch ( IOException e )
+            {
+                history.clear();
+            }
+            finally
+            {
+                IOUtil.close( in );
+            }
+        }
+        return history;
+    }
+
+    /**
+     * Resources used by a compilation, sizes in MB and times in milliseconds
+     */
+    public static class Record
+    {
+        int maxHeap;
+
+        int peakHeap;
+
+        int liveHeap;
+
+        long gcTime;
+
+        long duration;
+
+        int workers;
+
+        int permutations;
+
+        boolean outOfMemory;
+
+        /**
+         * @param stats the file written by {@link ForkStats}
+         * @return <code>null</code> if the stats file can't be read
+         */
+        static Record fromStats( File stats )
+        {
+            if ( !stats.isFile() )
+            {
+                return null;
+            }
+            Properties properties = new Properties();
+            InputStream in = null;
+            try
+            {
+                in = new FileInputStream( stats );
+                properties.load( in );
+                Record record = new Record();
+                record.maxHeap = (int) ( Long.parseLong( properties.getProperty( ForkStats.MAX_HEAP ) ) / MB );
+                record.peakHeap = (int) ( Long.parseLong( properties.getProperty( ForkStats.PEAK_HEAP ) ) / MB );
+                record.liveHeap = (int) ( Long.parseLong( properties.getProperty( ForkStats.LIVE_HEAP ) ) / MB );
+                record.gcTime = Long.parseLong( properties.getProperty( ForkStats.GC_TIME ) );
+                record.duration = Long.parseLong( properties.getProperty( ForkStats.DURATION ) );
+                return record;
+            }
+            catch ( IOException e )
+            {
+                return null;
+            }
+            catch ( RuntimeException e )
+            {
+                return null;
+            }
+            finally
+            {
+                IOUtil.close( in );
+            }
+        }
+
+        static Record parse( String value )
+        {
+            if ( value == null )
+            {
+                return null;
+            }
+            String[] fields = value.trim().split( " " );
+            if ( fields.length != 8 )
+            {
+                return null;
+            }
+            try
+            {
+                Record record = new Record();
+                record.maxHeap = Integer.parseInt( fields[0] );
+                record.peakHeap = Integer.parseInt( fields[1] );
+                record.liveHeap = Integer.parseInt( fields[2] );
+                record.gcTime = Long.parseLong( fields[3] );
+                record.duration = Long.parseLong( fields[4] );
+                record.workers = Integer.parseInt( fields[5] );
+                record.permutations = Integer.parseInt( fields[6] );
+                record.outOfMemory = Boolean.parseBoolean( fields[7] );
+                return record;
+            }
+            catch ( NumberFormatException e )
+            {
+                return null;
+            }
+        }
+
+        boolean isUnderGcPressure()
+        {
+            return duration > 0 && gcTime > duration * GC_PRESSURE;
+        }
+
+        /**
+         * @param cap maximum heap (in MB)
+         * @return the max heap for the next compilation (in MB) : twice the live heap, more if the compilation ran
+         *         out of memory or spent too much time collecting garbage
+         */
+        int recommendHeap( int cap )
+        {
+            int heap;
+            if ( liveHeap > 0 )
+            {
+                heap = liveHeap * 2;
+            }
+            else if ( peakHeap > 0 )
+            {
+                // no full collection, the peak usage was enough
+                heap = peakHeap + peakHeap / 4;
+            }
+            else
+            {
+                // not sampled, the tool ended too soon
+                heap = maxHeap;
+            }
+            if ( outOfMemory )
+            {
+                heap = Math.max( heap, maxHeap * 2 );
+            }
+            else if ( isUnderGcPressure() )
+            {
+                heap = Math.max( heap, maxHeap + maxHeap / 2 );
+            }
+            // round up to 64 MB
+            heap = ( heap + 63 ) / 64 * 64;
+            return Math.max( Math.min( MIN_HEAP, cap ), Math.min( heap, cap ) );
+        }
+
+        /**
+         * @param cap maximum number of workers
+         * @param heapCap maximum heap (in MB)
+         * @return the number of workers for the next compilation : no more than permutations, fewer if the heap can't
+         *         grow enough
+         */
+        int recommendWorkers( int cap, int heapCap )
+        {
+            int recommended = cap;
+            if ( permutations > 0 )
+            {
+                recommended = Math.min( recommended, permutations );
+            }
+            // the max memory reported by the JVM is a bit lower than -Xmx
+            boolean heapBound = ( outOfMemory || isUnderGcPressure() ) && maxHeap >= heapCap / 10 * 9;
+            if ( heapBound && workers > 0 )
+            {
+                recommended = Math.min( recommended, Math.max( 1, workers / 2 ) );
+            }
+            return Math.max( 1, recommended );
+        }
+
+        @Override
+        public String toString()
+        {
+            return maxHeap + " " + peakHeap + " " + liveHeap + " " + gcTime + " " + duration + " " + workers + " "
+                + permutations + " " + outOfMemory;
+        }
+    }
+}
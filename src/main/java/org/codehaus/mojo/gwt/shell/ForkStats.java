@@ -0,0 +1,217 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Run the main class of a tool and write the resources it used to a properties file when the JVM exits : heap
+ * usage peak, live heap (max heap used after a garbage collection), GC time and duration. Sizes are in bytes, times in
+ * milliseconds.
+ * <p>
+ * The heap usage is sampled as a whole : the peaks of the heap pools are reached at different times, their sum would
+ * exceed the heap ever used.
+ * <p>
+ * Usage : <code>ForkStats statsFile mainClass [args...]</code>
+ * <p>
+ * This class runs in the forked JVM and must only depend on the JDK.
+ *
+ * @since 7.7
+ */
+public class ForkStats
+{
+    static final String MAX_HEAP = "maxHeap";
+
+    static final String PEAK_HEAP = "peakHeap";
+
+    static final String LIVE_HEAP = "liveHeap";
+
+    static final String GC_TIME = "gcTime";
+
+    static final String DURATION = "duration";
+
+    private final File file;
+
+    private final long start = System.currentTimeMillis();
+
+    private final long gcStart = getGcTime();
+
+    private volatile long liveHeap;
+
+    private volatile long peakHeap;
+
+    private boolean written;
+
+    private ForkStats( File file )
+    {
+        this.file = file;
+    }
+
+    public static void main( String[] args )
+        throws Throwable
+    {
+        if ( args.length < 2 )
+        {
+            System.err.println( "Usage : ForkStats statsFile mainClass [args...]" );
+            System.exit( 1 );
+        }
+        final ForkStats stats = new ForkStats( new File( args[0] ) );
+        Thread sampler = new Thread( "fork stats" )
+        {
+            @Override
+            public void run()
+            {
+                stats.sample();
+            }
+        };
+        sampler.setDaemon( true );
+        sampler.start();
+        Thread hook = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                stats.write();
+            }
+        };
+        // tools usually end with System.exit
+        Runtime.getRuntime().addShutdownHook( hook );
+        try
+        {
+            Class<?> mainClass = Class.forName( args[1], true, Thread.currentThread().getContextClassLoader() );
+            String[] toolArgs = Arrays.copyOfRange( args, 2, args.length );
+            mainClass.getMethod( "main", String[].class ).invoke( null, (Object) toolArgs );
+        }
+        catch ( InvocationTargetException e )
+        {
+            throw e.getCause();
+        }
+        finally
+        {
+            sampler.interrupt();
+            try
+            {
+                Runtime.getRuntime().removeShutdownHook( hook );
+                stats.write();
+            }
+            catch ( IllegalStateException e )
+            {
+                // the JVM is exiting, the hook writes the stats
+            }
+        }
+    }
+
+    private void sample()
+    {
+        try
+        {
+            while ( true )
+            {
+                long live = 0;
+                for ( MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() )
+                {
+                    MemoryUsage usage = pool.getType() == MemoryType.HEAP ? pool.getCollectionUsage() : null;
+                    if ( usage != null )
+                    {
+                        live += usage.getUsed();
+                    }
+                }
+                liveHeap = Math.max( liveHeap, live );
+                samplePeakHeap();
+                Thread.sleep( 200 );
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            // the tool has completed
+        }
+    }
+
+    private void samplePeakHeap()
+    {
+        long used = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        synchronized ( this )
+        {
+            peakHeap = Math.max( peakHeap, used );
+        }
+    }
+
+    private static long getGcTime()
+    {
+        long time = 0;
+        for ( GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans() )
+        {
+            time += Math.max( 0, gc.getCollectionTime() );
+        }
+        return time;
+    }
+
+    private synchronized void write()
+    {
+        if ( written )
+        {
+            return;
+        }
+        written = true;
+        samplePeakHeap();
+        Properties properties = new Properties();
+        properties.setProperty( MAX_HEAP, String.valueOf( Runtime.getRuntime().maxMemory() ) );
+        properties.setProperty( PEAK_HEAP, String.valueOf( peakHeap ) );
+        properties.setProperty( LIVE_HEAP, String.valueOf( liveHeap ) );
+        properties.setProperty( GC_TIME, String.valueOf( getGcTime() - gcStart ) );
+        properties.setProperty( DURATION, String.valueOf( System.currentTimeMillis() - start ) );
+        OutputStream out = null;
+        try
+        {
+            file.getParentFile().mkdirs();
+            out = new FileOutputStream( file );
+            properties.store( out, null );
+        }
+        catch ( IOException e )
+        {
+            System.err.println( "Failed to write " + file + " : " + e );
+        }
+        finally
+        {
+            if ( out != null )
+            {
+                try
+                {
+                    out.close();
+                }
+                catch ( IOException e )
+                {
+                    // ignore
+                }
+            }
+        }
+    }
+}
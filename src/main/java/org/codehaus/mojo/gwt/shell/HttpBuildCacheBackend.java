@@ -0,0 +1,206 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import org.codehaus.plexus.util.Base64;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * {@link BuildCacheBackend} on an HTTP server : entries are read with <code>GET &lt;url&gt;/&lt;key&gt;.zip</code> and
+ * written with <code>PUT</code>, as supported by most WebDAV servers and artifact repositories. The user and password
+ * of the URL, if any, are sent with basic authentication, percent-decoded.
+ *
+ * @since 7.7
+ */
+public class HttpBuildCacheBackend
+    implements BuildCacheBackend
+{
+    private static final int CONNECT_TIMEOUT = 10000;
+
+    private static final int READ_TIMEOUT = 60000;
+
+    private final String url;
+
+    private final String authorization;
+
+    public HttpBuildCacheBackend( URL url )
+    {
+        String base = url.toExternalForm();
+        String userInfo = url.getUserInfo();
+        if ( userInfo != null )
+        {
+            base = base.replace( userInfo + "@", "" );
+            try
+            {
+                authorization =
+                    "Basic " + new String( Base64.encodeBase64( decode( userInfo ).getBytes( "UTF-8" ) ), "US-ASCII" );
+            }
+            catch ( UnsupportedEncodingException e )
+            {
+                throw new IllegalStateException( e );
+            }
+        }
+        else
+        {
+            authorization = null;
+        }
+        this.url = base.endsWith( "/" ) ? base : base + "/";
+    }
+
+    /**
+     * Decode the %XX escapes of the UTF-8 bytes of an URL component. Unlike <code>URLDecoder</code>, '+' is kept.
+     */
+    static String decode( String component )
+        throws UnsupportedEncodingException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for ( int i = 0; i < component.length(); i++ )
+        {
+            char c = component.charAt( i );
+            if ( c == '%' && i + 2 < component.length() && isHex( component.charAt( i + 1 ) )
+                && isHex( component.charAt( i + 2 ) ) )
+            {
+                bytes.write( Integer.parseInt( component.substring( i + 1, i + 3 ), 16 ) );
+                i += 2;
+            }
+            else
+            {
+                int end = Character.isHighSurrogate( c ) && i + 1 < component.length() ? i + 2 : i + 1;
+                byte[] encoded = component.substring( i, end ).getBytes( "UTF-8" );
+                bytes.write( encoded, 0, encoded.length );
+                i = end - 1;
+            }
+        }
+        return new String( bytes.toByteArray(), "UTF-8" );
+    }
+
+    private static boolean isHex( char c )
+    {
+        return Character.digit( c, 16 ) >= 0;
+    }
+
+    private HttpURLConnection open( String key, String method )
+        throws IOException
+    {
+        HttpURLConnection connection = (HttpURLConnection) new URL( url + key + ".zip" ).openConnection();
+        connection.setRequestMethod( method );
+        connection.setConnectTimeout( CONNECT_TIMEOUT );
+        connection.setReadTimeout( READ_TIMEOUT );
+        connection.setUseCaches( false );
+        if ( authorization != null )
+        {
+            connection.setRequestProperty( "Authorization", authorization );
+        }
+        return connection;
+    }
+
+    public boolean get( String key, File archive )
+        throws IOException
+    {
+        HttpURLConnection connection = open( key, "GET" );
+        try
+        {
+            int status = connection.getResponseCode();
+            if ( status == HttpURLConnection.HTTP_NOT_FOUND )
+            {
+                return false;
+            }
+            if ( status != HttpURLConnection.HTTP_OK )
+            {
+                throw new IOException( "GET " + connection.getURL() + " returned " + status );
+            }
+            InputStream in = connection.getInputStream();
+            OutputStream out = null;
+            try
+            {
+                out = new FileOutputStream( archive );
+                IOUtil.copy( in, out );
+            }
+            finally
+            {
+                IOUtil.close( out );
+                IOUtil.close( in );
+            }
+            return true;
+        }
+        finally
+        {
+            connection.disconnect();
+        }
+    }
+
+    public void put( String key, File archive )
+        throws IOException
+    {
+        HttpURLConnection connection = open( key, "PUT" );
+        try
+        {
+            connection.setDoOutput( true );
+            long length = archive.length();
+            if ( length <= Integer.MAX_VALUE )
+            {
+                connection.setFixedLengthStreamingMode( (int) length );
+            }
+            else
+            {
+                // the length can't be given to HttpURLConnection before Java 7
+                connection.setChunkedStreamingMode( 0 );
+            }
+            connection.setRequestProperty( "Content-Type", "application/zip" );
+            InputStream in = new FileInputStream( archive );
+            OutputStream out = null;
+            try
+            {
+                out = connection.getOutputStream();
+                IOUtil.copy( in, out );
+            }
+            finally
+            {
+                IOUtil.close( out );
+                IOUtil.close( in );
+            }
+            int status = connection.getResponseCode();
+            if ( status / 100 != 2 )
+            {
+                throw new IOException( "PUT " + connection.getURL() + " returned " + status );
+            }
+        }
+        finally
+        {
+            connection.disconnect();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return url;
+    }
+}
@@ -22,14 +22,21 @@ package org.codehaus.mojo.gwt.shell;
  */
 
 import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.maven.artifact.Artifact;
+import org.apache.maven.model.Resource;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.codehaus.mojo.gwt.utils.DigestUtils;
+import org.codehaus.mojo.gwt.utils.GenerationState;
 
 /**
  * Creates I18N interfaces for constants and messages files.
@@ -78,6 +85,18 @@ public class I18NMojo
     @Parameter
     private String i18nConstantsWithLookupBundle;
 
+    /**
+     * Run the I18N interfaces generator in the Maven JVM rather than in a forked JVM.
+     * It is still forked when it needs system properties, such as -D options of extraJvmArgs, that would be
+     * seen by the whole Maven JVM.
+     * <p>
+     * Can be set from command line using '-Dgwt.i18n.inProcess=true'
+     *
+     * @since 7.7
+     */
+    @Parameter(defaultValue = "false", property = "gwt.i18n.inProcess")
+    private boolean inProcess;
+
     
     @Override
     protected boolean isGenerator() {
@@ -89,66 +108,151 @@ public class I18NMojo
     {
         setup();
 
-        try {
-            // constants with lookup
-            if ( i18nConstantsWithLookupBundles != null )
+        // bundles in the order of the former executions : constants with lookup, constants, messages
+        List<String[]> bundles = new ArrayList<String[]>();
+        addBundles( bundles, I18NSyncBatch.CONSTANTS_WITH_LOOKUP, i18nConstantsWithLookupBundles );
+        addBundles( bundles, I18NSyncBatch.CONSTANTS, i18nConstantsBundles );
+        addBundles( bundles, I18NSyncBatch.MESSAGES, i18nMessagesBundles );
+
+        GenerationState state =
+            new GenerationState( new File( getProject().getBuild().getDirectory(), "gwt-i18n.hashes" ) );
+        String sdk = getGwtUserJarHash();
+        List<String[]> outdated = new ArrayList<String[]>();
+        List<String> inputHashes = new ArrayList<String>();
+        for ( String[] bundle : bundles )
+        {
+            String inputHash = getInputHash( bundle[0], bundle[1], sdk );
+            if ( state.isUpToDate( bundle[1], inputHash, getOutputFile( bundle[1] ) ) )
             {
-                for ( String target : i18nConstantsWithLookupBundles )
-                {
-                    ensureTargetPackageExists( getGenerateDirectory(), target );
-                    createJavaCommand()
-                        .setMainClass( "com.google.gwt.i18n.tools.I18NSync" )
-                        .addToClasspath( getClasspath( Artifact.SCOPE_COMPILE ) )
-                        .addToClasspath( getGwtUserJar() )
-                        .addToClasspath( getGwtDevJar() )
-                        .arg( "-out", getGenerateDirectory().getAbsolutePath() )
-                        .arg( "-createConstantsWithLookup" )
-                        .arg( target )
-                        .execute();
-                }
+                getLog().debug( bundle[1] + " is up to date. Generation skipped" );
+                continue;
             }
+            outdated.add( bundle );
+            inputHashes.add( inputHash );
+        }
+        if ( outdated.isEmpty() )
+        {
+            getLog().info( "I18N interfaces are up to date" );
+            return;
+        }
+        getLog().info( "Generating " + outdated.size() + " I18N interface(s), " + ( bundles.size() - outdated.size() )
+            + " up to date" );
+
+        JavaCommand cmd = createJavaCommand()
+            .setMainClass( I18NSyncBatch.class.getName() )
+            .setInProcess( inProcess )
+            .addToClasspath( getClasspath( Artifact.SCOPE_COMPILE ) )
+            .addToClasspath( getGwtUserJar() )
+            .addToClasspath( getGwtDevJar() )
+            .addToClasspath( getClassPathElementFor( I18NSyncBatch.class ) )
+            .arg( "-out", getGenerateDirectory().getAbsolutePath() );
+        for ( String[] bundle : outdated )
+        {
+            ensureTargetPackageExists( getGenerateDirectory(), bundle[1] );
+            cmd.arg( bundle[0], bundle[1] );
+        }
+
+        boolean generated = false;
+        try
+        {
+            cmd.execute();
+            generated = true;
+        }
+        catch ( JavaCommandException e )
+        {
+            throw new MojoExecutionException( e.getMessage(), e );
+        }
+        finally
+        {
+            saveState( state, outdated, inputHashes, generated );
+        }
+    }
 
-            // constants
-            if ( i18nConstantsBundles != null )
+    private void saveState( GenerationState state, List<String[]> generatedBundles, List<String> inputHashes,
+                            boolean generated )
+    {
+        try
+        {
+            for ( int i = 0; i < generatedBundles.size(); i++ )
             {
-                for ( String target : i18nConstantsBundles )
+                String target = generatedBundles.get( i )[1];
+                if ( generated )
                 {
-                    ensureTargetPackageExists( getGenerateDirectory(), target );
-                    createJavaCommand()
-                        .setMainClass( "com.google.gwt.i18n.tools.I18NSync" )
-                        .addToClasspath( getClasspath( Artifact.SCOPE_COMPILE ) )
-                        .addToClasspath( getGwtUserJar() )
-                        .addToClasspath( getGwtDevJar() )
-                        .arg( "-out", getGenerateDirectory().getAbsolutePath() )
-                        .arg( target )
-                        .execute();
+                    state.generated( target, inputHashes.get( i ), getOutputFile( target ) );
+                }
+                else
+                {
+                    // some bundles may have been generated, but they can't be told apart
+                    state.forget( target );
                 }
             }
+            state.save();
+        }
+        catch ( IOException e )
+        {
+            getLog().warn( "Failed to save I18N generation state : " + e.getMessage() );
+        }
+    }
 
-            // messages
-            if ( i18nMessagesBundles != null )
+    private void addBundles( List<String[]> bundles, String kind, String[] targets )
+    {
+        if ( targets != null )
+        {
+            for ( String target : targets )
             {
-                for ( String target : i18nMessagesBundles )
-                {
-                    ensureTargetPackageExists( getGenerateDirectory(), target );
-                    createJavaCommand()
-                        .setMainClass( "com.google.gwt.i18n.tools.I18NSync" )
-                        .addToClasspath( getClasspath( Artifact.SCOPE_COMPILE ) )
-                        .addToClasspath( getGwtUserJar() )
-                        .addToClasspath( getGwtDevJar() )
-                        .arg( "-out", getGenerateDirectory().getAbsolutePath() )
-                        .arg( "-createMessages" )
-                        .arg( target )
-                        .execute();
-                }
+                bundles.add( new String[] { kind, target } );
             }
         }
-        catch (JavaCommandException e)
+    }
+
+    private File getOutputFile( String target )
+    {
+        return new File( getGenerateDirectory(), target.replace( '.', File.separatorChar ) + ".java" );
+    }
+
+    /**
+     * @return hash of the bundle properties and generation settings, <code>null</code> if the bundle is not part of
+     *         the project sources
+     */
+    private String getInputHash( String kind, String target, String sdk )
+    {
+        File properties = findBundle( target );
+        if ( properties == null )
         {
-            throw new MojoExecutionException( e.getMessage(), e );
+            return null;
+        }
+        MessageDigest digest = DigestUtils.newDigest();
+        DigestUtils.update( digest, kind + "\n" + sdk + "\n" );
+        try
+        {
+            DigestUtils.update( digest, properties );
         }
+        catch ( IOException e )
+        {
+            return null;
+        }
+        return DigestUtils.toHex( digest.digest() );
     }
 
+    private File findBundle( String target )
+    {
+        String path = target.replace( '.', File.separatorChar ) + ".properties";
+        List<String> roots = new ArrayList<String>();
+        for ( Resource resource : getProject().getResources() )
+        {
+            roots.add( resource.getDirectory() );
+        }
+        roots.addAll( getProject().getCompileSourceRoots() );
+        for ( String root : roots )
+        {
+            File file = new File( root, path );
+            if ( file.isFile() )
+            {
+                return file;
+            }
+        }
+        return null;
+    }
 
     private void setup()
         throws MojoExecutionException
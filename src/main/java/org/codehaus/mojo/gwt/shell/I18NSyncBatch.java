@@ -0,0 +1,148 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generate several I18N interfaces with <code>com.google.gwt.i18n.tools.I18NSync</code> in a single JVM, bundles
+ * being processed in parallel.
+ * <p>
+ * Usage : <code>I18NSyncBatch -out dir [-threads n] (-createConstants|-createConstantsWithLookup|-createMessages)
+ * className ...</code>
+ * <p>
+ * This class runs in the forked JVM and must only depend on the JDK.
+ *
+ * @since 7.7
+ */
+public class I18NSyncBatch
+{
+    static final String CONSTANTS = "-createConstants";
+
+    static final String CONSTANTS_WITH_LOOKUP = "-createConstantsWithLookup";
+
+    static final String MESSAGES = "-createMessages";
+
+    private static final String I18N_SYNC = "com.google.gwt.i18n.tools.I18NSync";
+
+    public static void main( String[] args )
+        throws Exception
+    {
+        File out = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        final List<String[]> bundles = new ArrayList<String[]>();
+        for ( int i = 0; i < args.length - 1; i += 2 )
+        {
+            if ( "-out".equals( args[i] ) )
+            {
+                out = new File( args[i + 1] );
+            }
+            else if ( "-threads".equals( args[i] ) )
+            {
+                threads = Integer.parseInt( args[i + 1] );
+            }
+            else
+            {
+                bundles.add( new String[] { args[i], args[i + 1] } );
+            }
+        }
+        if ( out == null || bundles.isEmpty() )
+        {
+            System.err.println( "Usage : I18NSyncBatch -out dir [-threads n] "
+                + "(-createConstants|-createConstantsWithLookup|-createMessages) className ..." );
+            System.exit( 1 );
+        }
+
+        Class<?> sync = Class.forName( I18N_SYNC );
+        ExecutorService executor = Executors.newFixedThreadPool( Math.max( 1, Math.min( threads, bundles.size() ) ) );
+        List<Future<Throwable>> results = new ArrayList<Future<Throwable>>();
+        for ( String[] bundle : bundles )
+        {
+            final Method method = sync.getMethod( methodName( bundle[0] ), String.class, File.class );
+            final String className = bundle[1];
+            final File outDir = out;
+            results.add( executor.submit( new Callable<Throwable>()
+            {
+                public Throwable call()
+                {
+                    try
+                    {
+                        method.invoke( null, className, outDir );
+                        return null;
+                    }
+                    catch ( InvocationTargetException e )
+                    {
+                        return e.getCause();
+                    }
+                    catch ( Exception e )
+                    {
+                        return e;
+                    }
+                }
+            } ) );
+        }
+        executor.shutdown();
+
+        int failures = 0;
+        for ( int i = 0; i < bundles.size(); i++ )
+        {
+            Throwable failure = results.get( i ).get();
+            if ( failure == null )
+            {
+                System.out.println( "Generated " + bundles.get( i )[1] );
+            }
+            else
+            {
+                failures++;
+                System.err.println( "Failed to generate " + bundles.get( i )[1] );
+                failure.printStackTrace();
+            }
+        }
+        // don't leave pool threads running in a worker JVM
+        executor.awaitTermination( 1, TimeUnit.MINUTES );
+        System.exit( failures == 0 ? 0 : 1 );
+    }
+
+    private static String methodName( String kind )
+    {
+        if ( CONSTANTS.equals( kind ) )
+        {
+            return "createConstantsInterfaceFromClassName";
+        }
+        if ( CONSTANTS_WITH_LOOKUP.equals( kind ) )
+        {
+            return "createConstantsWithLookupInterfaceFromClassName";
+        }
+        if ( MESSAGES.equals( kind ) )
+        {
+            return "createMessagesInterfaceFromClassName";
+        }
+        throw new IllegalArgumentException( "Unknown option " + kind );
+    }
+}
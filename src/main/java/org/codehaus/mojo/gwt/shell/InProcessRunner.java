@@ -0,0 +1,397 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.mojo.gwt.shell.WorkerMain.ExitTrappedException;
+import org.codehaus.plexus.util.cli.StreamConsumer;
+
+/**
+ * Run the main class of short-lived GWT/Vaadin tools inside the Maven JVM, with an isolated child-first class loader
+ * that is cached for the next executions having the same classpath. Output of the tool is sent to the command
+ * consumers, and calls to <code>System.exit</code> are trapped and reported as the exit status of the tool.
+ * <p>
+ * Executions are serialized, as System.out/err and the security manager are JVM-wide. Commands setting system
+ * properties are forked, as other threads of the build would see them.
+ *
+ * @since 7.7
+ */
+final class InProcessRunner
+{
+    private static final int MAX_CLASS_LOADERS = 4;
+
+    private static final InProcessRunner INSTANCE = new InProcessRunner();
+
+    /** class loaders by classpath, least recently used first */
+    private final Map<String, ClassLoader> classLoaders = new LinkedHashMap<String, ClassLoader>( 16, 0.75f, true )
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<String, ClassLoader> eldest )
+        {
+            if ( size() <= MAX_CLASS_LOADERS )
+            {
+                return false;
+            }
+            close( eldest.getValue() );
+            return true;
+        }
+    };
+
+    /** consumers of the tool output, set for the threads of the running tool */
+    private final InheritableThreadLocal<StreamConsumer[]> consumers = new InheritableThreadLocal<StreamConsumer[]>();
+
+    private InProcessRunner()
+    {
+        // singleton
+    }
+
+    static InProcessRunner getInstance()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * Run the command in the Maven JVM.
+     *
+     * @param command the command to run
+     * @param classpath the command classpath
+     * @return the exit status of the command, or <code>null</code> if the command must be forked : it sets system
+     *         properties or the JVM doesn't allow to trap <code>System.exit</code>
+     */
+    synchronized Integer execute( JavaCommand command, List<File> classpath )
+    {
+        // system properties are JVM-wide, they would be seen and changed by the other threads of a parallel build
+        Map<String, String> properties = getChangedSystemProperties( command );
+        if ( !properties.isEmpty() )
+        {
+            command.getLog().debug( "Can't run in the Maven JVM, setting system properties " + properties.keySet() );
+            return null;
+        }
+
+        ExitTrap exitTrap = new ExitTrap()
+        {
+            @Override
+            protected boolean isTrapping()
+            {
+                // the threads of the running tool
+                return consumers.get() != null;
+            }
+        };
+        if ( !exitTrap.install() )
+        {
+            command.getLog().debug( "Can't trap System.exit in the Maven JVM, Java " + JavaVersion.current() );
+            return null;
+        }
+
+        ClassLoader loader = getClassLoader( classpath );
+        PrintStream previousOut = System.out;
+        PrintStream previousErr = System.err;
+        RoutingOutputStream out = new RoutingOutputStream( previousOut, 0 );
+        RoutingOutputStream err = new RoutingOutputStream( previousErr, 1 );
+        System.setOut( new PrintStream( out, true ) );
+        System.setErr( new PrintStream( err, true ) );
+        Thread thread = Thread.currentThread();
+        ClassLoader previousContextClassLoader = thread.getContextClassLoader();
+        thread.setContextClassLoader( loader );
+        consumers.set( new StreamConsumer[] { command.getOut(), command.getErr() } );
+
+        int status = 0;
+        try
+        {
+            Method main = Class.forName( command.getMainClass(), true, loader ).getMethod( "main", String[].class );
+            main.invoke( null, (Object) command.getArgs().toArray( new String[command.getArgs().size()] ) );
+        }
+        catch ( InvocationTargetException e )
+        {
+            status = statusOf( e.getCause() );
+        }
+        catch ( ExitTrappedException e )
+        {
+            status = e.getStatus();
+        }
+        catch ( ClassNotFoundException e )
+        {
+            System.err.println( "Error: Could not find or load main class " + command.getMainClass() );
+            status = 1;
+        }
+        catch ( Exception e )
+        {
+            e.printStackTrace();
+            status = 1;
+        }
+        finally
+        {
+            System.out.flush();
+            System.err.flush();
+            out.sendPendingLine();
+            err.sendPendingLine();
+            consumers.remove();
+            thread.setContextClassLoader( previousContextClassLoader );
+            System.setOut( previousOut );
+            System.setErr( previousErr );
+            exitTrap.uninstall();
+        }
+        return status;
+    }
+
+    private int statusOf( Throwable t )
+    {
+        for ( Throwable cause = t; cause != null; cause = cause.getCause() )
+        {
+            if ( cause instanceof ExitTrappedException )
+            {
+                return ( (ExitTrappedException) cause ).getStatus();
+            }
+        }
+        System.err.print( "Exception in thread \"main\" " );
+        t.printStackTrace();
+        return 1;
+    }
+
+    private ClassLoader getClassLoader( List<File> classpath )
+    {
+        // jar content may change between builds when Maven runs in a long-lived JVM
+        String key = LaunchClasspath.stamps( classpath );
+        URL[] urls = new URL[classpath.size()];
+        for ( int i = 0; i < urls.length; i++ )
+        {
+            File file = classpath.get( i );
+            try
+            {
+                urls[i] = file.toURI().toURL();
+            }
+            catch ( MalformedURLException e )
+            {
+                throw new IllegalArgumentException( "Invalid classpath element " + file, e );
+            }
+        }
+        ClassLoader loader = classLoaders.get( key );
+        if ( loader == null )
+        {
+            loader = new ChildFirstClassLoader( urls, ClassLoader.getSystemClassLoader() );
+            classLoaders.put( key, loader );
+        }
+        return loader;
+    }
+
+    /**
+     * Release the jars opened by an evicted class loader, that would otherwise stay open, and locked on Windows, until
+     * the loader is garbage collected
+     */
+    private static void close( ClassLoader loader )
+    {
+        // URLClassLoader is Closeable from Java 7
+        if ( loader instanceof Closeable )
+        {
+            try
+            {
+                ( (Closeable) loader ).close();
+            }
+            catch ( IOException e )
+            {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * @return the system properties of the command (-D JVM arguments included) that differ from the ones of the Maven
+     *         JVM
+     */
+    private static Map<String, String> getChangedSystemProperties( JavaCommand command )
+    {
+        Map<String, String> properties = new HashMap<String, String>();
+        for ( String jvmArg : command.getJvmArgs() )
+        {
+            if ( jvmArg.startsWith( "-D" ) )
+            {
+                int eq = jvmArg.indexOf( '=' );
+                properties.put( eq > 0 ? jvmArg.substring( 2, eq ) : jvmArg.substring( 2 ),
+                                eq > 0 ? jvmArg.substring( eq + 1 ) : "" );
+            }
+        }
+        if ( command.getSystemProperties() != null )
+        {
+            for ( Map.Entry<Object, Object> entry : command.getSystemProperties().entrySet() )
+            {
+                properties.put( String.valueOf( entry.getKey() ), String.valueOf( entry.getValue() ) );
+            }
+        }
+        for ( Iterator<Map.Entry<String, String>> iterator = properties.entrySet().iterator(); iterator.hasNext(); )
+        {
+            Map.Entry<String, String> entry = iterator.next();
+            // such as the license properties passed from the Maven JVM
+            if ( entry.getValue().equals( System.getProperty( entry.getKey() ) ) )
+            {
+                iterator.remove();
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * Send lines written by the threads of the running tool to the command consumers, anything else to the original
+     * stream
+     */
+    private class RoutingOutputStream
+        extends OutputStream
+    {
+        private final PrintStream original;
+
+        private final int index;
+
+        private final ThreadLocal<ByteArrayOutputStream> lines = new ThreadLocal<ByteArrayOutputStream>()
+        {
+            @Override
+            protected ByteArrayOutputStream initialValue()
+            {
+                return new ByteArrayOutputStream();
+            }
+        };
+
+        /** set while a line is sent to a consumer, that may itself log to System.out */
+        private final ThreadLocal<Boolean> dispatching = new ThreadLocal<Boolean>();
+
+        RoutingOutputStream( PrintStream original, int index )
+        {
+            this.original = original;
+            this.index = index;
+        }
+
+        @Override
+        public void write( int b )
+            throws IOException
+        {
+            StreamConsumer[] targets = consumers.get();
+            if ( targets == null || dispatching.get() != null )
+            {
+                original.write( b );
+                return;
+            }
+            ByteArrayOutputStream line = lines.get();
+            if ( b == '\n' )
+            {
+                sendLine( targets[index], line );
+            }
+            else if ( b != '\r' )
+            {
+                line.write( b );
+            }
+        }
+
+        @Override
+        public void flush()
+        {
+            if ( consumers.get() == null || dispatching.get() != null )
+            {
+                original.flush();
+            }
+        }
+
+        void sendPendingLine()
+        {
+            ByteArrayOutputStream line = lines.get();
+            StreamConsumer[] targets = consumers.get();
+            if ( line.size() > 0 && targets != null )
+            {
+                sendLine( targets[index], line );
+            }
+        }
+
+        private void sendLine( StreamConsumer consumer, ByteArrayOutputStream line )
+        {
+            String content = line.toString();
+            line.reset();
+            dispatching.set( Boolean.TRUE );
+            try
+            {
+                consumer.consumeLine( content );
+            }
+            finally
+            {
+                dispatching.remove();
+            }
+        }
+    }
+
+    /**
+     * Load classes from the tool classpath first, so that classes of the Maven JVM don't leak into the tool
+     */
+    private static class ChildFirstClassLoader
+        extends URLClassLoader
+    {
+        ChildFirstClassLoader( URL[] urls, ClassLoader parent )
+        {
+            super( urls, parent );
+        }
+
+        @Override
+        protected synchronized Class<?> loadClass( String name, boolean resolve )
+            throws ClassNotFoundException
+        {
+            Class<?> c = findLoadedClass( name );
+            if ( c == null && !name.startsWith( "java." ) )
+            {
+                try
+                {
+                    c = findClass( name );
+                }
+                catch ( ClassNotFoundException e )
+                {
+                    // not in the tool classpath
+                }
+            }
+            if ( c == null )
+            {
+                return super.loadClass( name, resolve );
+            }
+            if ( resolve )
+            {
+                resolveClass( c );
+            }
+            return c;
+        }
+
+        @Override
+        public URL getResource( String name )
+        {
+            URL url = findResource( name );
+            return url != null ? url : super.getResource( name );
+        }
+    }
+}
@@ -29,10 +29,13 @@ import org.codehaus.plexus.util.cli.Commandline;
 import org.codehaus.plexus.util.cli.StreamConsumer;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 
@@ -62,6 +65,45 @@ public class JavaCommand
 
     private List<ClassPathProcessor> classPathProcessors = new ArrayList<ClassPathProcessor>();
 
+    private String classpathMode = LaunchClasspath.AUTO;
+
+    private File classpathDirectory;
+
+    private boolean pathingJarSupported = true;
+
+    private List<OutputParser> outputParsers = new ArrayList<OutputParser>();
+
+    private File logDirectory;
+
+    private String logQualifier;
+
+    private int logRate;
+
+    private boolean defaultOut = true;
+
+    private LogForwarder forwarder;
+
+    private File classDataSharingDirectory;
+
+    private ForkGovernor governor;
+
+    private String parallelismArgument;
+
+    private int parallelism = 1;
+
+    /** the number of threads of the running command, 0 when not running */
+    private volatile int runningParallelism;
+
+    private File statsFile;
+
+    private boolean inProcess;
+
+    private boolean daemon;
+
+    private int daemonRecycleHeap;
+
+    private int daemonIdleTimeout = 300;
+
     /**
      * A plexus-util StreamConsumer to redirect messages to plugin log
      */
@@ -207,6 +249,253 @@ public class JavaCommand
     public JavaCommand setOut( StreamConsumer out )
     {
         this.out = out;
+        this.defaultOut = false;
+        return this;
+    }
+
+    /**
+     * @param logDirectory where the full output of the command is written, gzipped, and forwarded asynchronously to
+     *            the plugin log. <code>null</code> to log each line synchronously.
+     */
+    public JavaCommand setLogDirectory( File logDirectory )
+    {
+        this.logDirectory = logDirectory;
+        return this;
+    }
+
+    /**
+     * @param logQualifier what tells this command apart from the other commands running the same tool in the build,
+     *            as the compiled modules or the theme, appended to the name of its log file. <code>null</code> for
+     *            none.
+     */
+    public JavaCommand setLogQualifier( String logQualifier )
+    {
+        this.logQualifier = logQualifier;
+        return this;
+    }
+
+    /**
+     * @return the log file of this command, named after its tool and {@link #setLogQualifier(String) qualifier}
+     */
+    File getLogFile()
+    {
+        String name = mainClass.substring( mainClass.lastIndexOf( '.' ) + 1 );
+        if ( logQualifier != null && logQualifier.length() > 0 )
+        {
+            String qualifier = logQualifier.replaceAll( "[^A-Za-z0-9._-]", "_" );
+            if ( qualifier.length() > 100 )
+            {
+                // keep the name under the file system limits, still unique
+                qualifier = qualifier.substring( 0, 90 ) + "-" + Integer.toHexString( logQualifier.hashCode() );
+            }
+            name += "-" + qualifier;
+        }
+        return new File( logDirectory, name + ".log.gz" );
+    }
+
+    /**
+     * @param logRate maximum number of lines per second logged when the output is forwarded asynchronously, 0 or less
+     *            for no limit
+     */
+    public JavaCommand setLogRate( int logRate )
+    {
+        this.logRate = logRate;
+        return this;
+    }
+
+    /**
+     * @param parser parser to receive the command output, in addition to the out and err consumers
+     */
+    public JavaCommand addOutputParser( OutputParser parser )
+    {
+        outputParsers.add( parser );
+        return this;
+    }
+
+    StreamConsumer getOut()
+    {
+        return withParsers( forwarder != null ? forwarder.getOut() : out );
+    }
+
+    StreamConsumer getErr()
+    {
+        return withParsers( forwarder != null ? forwarder.getErr() : err );
+    }
+
+    private StreamConsumer withParsers( final StreamConsumer consumer )
+    {
+        if ( outputParsers.isEmpty() )
+        {
+            return consumer;
+        }
+        return new StreamConsumer()
+        {
+            public void consumeLine( String line )
+            {
+                for ( OutputParser parser : outputParsers )
+                {
+                    parser.consumeLine( line );
+                }
+                consumer.consumeLine( line );
+            }
+        };
+    }
+
+    public String getClasspathMode()
+    {
+        return classpathMode;
+    }
+
+    /**
+     * @param classpathMode how the classpath is passed to the forked JVM : "inline" on the command line, "argfile"
+     *            through a JVM argument file (Java 9+), "jar" through a pathing jar, or "auto"
+     */
+    public JavaCommand setClasspathMode( String classpathMode )
+    {
+        this.classpathMode = classpathMode;
+        return this;
+    }
+
+    /**
+     * @param classpathDirectory where argument files and pathing jars are written
+     */
+    public JavaCommand setClasspathDirectory( File classpathDirectory )
+    {
+        this.classpathDirectory = classpathDirectory;
+        return this;
+    }
+
+    /**
+     * @param pathingJarSupported <code>false</code> for tools that read the <code>java.class.path</code> system
+     *            property, which only contains the pathing jar
+     */
+    public JavaCommand setPathingJarSupported( boolean pathingJarSupported )
+    {
+        this.pathingJarSupported = pathingJarSupported;
+        return this;
+    }
+
+    /**
+     * @param classDataSharingDirectory where class data sharing archives of forked JVMs are stored, <code>null</code>
+     *            to disable class data sharing
+     */
+    public JavaCommand setClassDataSharingDirectory( File classDataSharingDirectory )
+    {
+        this.classDataSharingDirectory = classDataSharingDirectory;
+        return this;
+    }
+
+    /**
+     * @param governor limits the concurrent forks of a parallel build and the resources they use, <code>null</code>
+     *            for no limit
+     */
+    public JavaCommand setForkGovernor( ForkGovernor governor )
+    {
+        this.governor = governor;
+        return this;
+    }
+
+    /**
+     * @param argument the tool argument that sets its number of threads
+     * @param threads number of threads the tool should use, reduced if the fork governor doesn't grant as many CPUs
+     */
+    public JavaCommand setParallelism( String argument, int threads )
+    {
+        this.parallelismArgument = argument;
+        this.parallelism = threads;
+        return this;
+    }
+
+    /**
+     * @return the number of threads the running command was launched with, after the fork governor lease, or the
+     *         configured one when not running
+     */
+    public int getParallelism()
+    {
+        int running = runningParallelism;
+        return running > 0 ? running : parallelism;
+    }
+
+    /**
+     * @param maxHeap max heap size of the forked JVM (in MB), replaces the -Xmx JVM argument
+     */
+    public JavaCommand setMaxHeap( int maxHeap )
+    {
+        for ( Iterator<String> iterator = getJvmArgs().iterator(); iterator.hasNext(); )
+        {
+            if ( iterator.next().startsWith( "-Xmx" ) )
+            {
+                iterator.remove();
+            }
+        }
+        jvmArgs.add( "-Xmx" + maxHeap + "m" );
+        return this;
+    }
+
+    /**
+     * @param statsFile where the resources used by a forked JVM are written, see {@link ForkStats}. Not written when
+     *            the tool runs in process or in a worker JVM.
+     */
+    public JavaCommand setStatsFile( File statsFile )
+    {
+        this.statsFile = statsFile;
+        return this;
+    }
+
+    public boolean isInProcess()
+    {
+        return inProcess;
+    }
+
+    /**
+     * @param inProcess run the command in the Maven JVM rather than in a forked JVM. Only relevant for short-lived tools
+     *            that don't need a specific JVM or environment.
+     */
+    public JavaCommand setInProcess( boolean inProcess )
+    {
+        this.inProcess = inProcess;
+        return this;
+    }
+
+    public boolean isDaemon()
+    {
+        return daemon;
+    }
+
+    /**
+     * @param daemon run the command in a persistent worker JVM rather than in a new forked JVM
+     */
+    public JavaCommand setDaemon( boolean daemon )
+    {
+        this.daemon = daemon;
+        return this;
+    }
+
+    public int getDaemonRecycleHeap()
+    {
+        return daemonRecycleHeap;
+    }
+
+    /**
+     * @param daemonRecycleHeap heap usage (MB) above which a worker JVM is discarded, 0 or less for the default
+     */
+    public JavaCommand setDaemonRecycleHeap( int daemonRecycleHeap )
+    {
+        this.daemonRecycleHeap = daemonRecycleHeap;
+        return this;
+    }
+
+    public int getDaemonIdleTimeout()
+    {
+        return daemonIdleTimeout;
+    }
+
+    /**
+     * @param daemonIdleTimeout seconds an idle worker JVM is kept for reuse
+     */
+    public JavaCommand setDaemonIdleTimeout( int daemonIdleTimeout )
+    {
+        this.daemonIdleTimeout = daemonIdleTimeout;
         return this;
     }
 
@@ -263,24 +552,118 @@ public class JavaCommand
 
     public void execute()
         throws JavaCommandException
+    {
+        List<String> toolArgs = args;
+        List<String> toolJvmArgs = jvmArgs;
+        ForkGovernor.Lease lease = null;
+        try
+        {
+            int threads = parallelism;
+            // tools run in the Maven JVM use its resources
+            if ( governor != null && !( inProcess && jvm == null && ( env == null || env.isEmpty() ) ) )
+            {
+                try
+                {
+                    lease = governor.acquire( parallelism, getMaxHeap( getJvmArgs() ), log );
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                    throw new JavaCommandException( "Interrupted while waiting to fork " + mainClass, e );
+                }
+                threads = lease.getCpus();
+                if ( lease.isHeapLimited() )
+                {
+                    // otherwise the JVM default or the configured -Xmx is kept
+                    jvmArgs = toolJvmArgs != null ? new ArrayList<String>( toolJvmArgs ) : null;
+                    setMaxHeap( lease.getHeap() );
+                }
+            }
+            if ( parallelismArgument != null )
+            {
+                args = new ArrayList<String>( toolArgs.size() + 2 );
+                args.add( parallelismArgument );
+                args.add( String.valueOf( threads ) );
+                args.addAll( toolArgs );
+            }
+            runningParallelism = threads;
+            run();
+        }
+        finally
+        {
+            runningParallelism = 0;
+            args = toolArgs;
+            jvmArgs = toolJvmArgs;
+            if ( lease != null )
+            {
+                lease.release();
+            }
+        }
+    }
+
+    /**
+     * @return the last -Xmx of the JVM arguments (in MB), 0 if not set
+     */
+    static int getMaxHeap( List<String> jvmArgs )
+    {
+        int maxHeap = 0;
+        for ( String jvmArg : jvmArgs )
+        {
+            if ( !jvmArg.startsWith( "-Xmx" ) || jvmArg.length() < 5 )
+            {
+                continue;
+            }
+            String size = jvmArg.substring( 4 ).toLowerCase( Locale.ENGLISH );
+            long unit = 1;
+            char last = size.charAt( size.length() - 1 );
+            if ( last == 'k' || last == 'm' || last == 'g' || last == 't' )
+            {
+                unit = last == 'k' ? 1L << 10 : last == 'm' ? 1L << 20 : last == 'g' ? 1L << 30 : 1L << 40;
+                size = size.substring( 0, size.length() - 1 );
+            }
+            try
+            {
+                maxHeap = (int) Math.min( Integer.MAX_VALUE, Long.parseLong( size ) * unit / ( 1L << 20 ) );
+            }
+            catch ( NumberFormatException e )
+            {
+                // let the JVM complain
+            }
+        }
+        return maxHeap;
+    }
+
+    private void run()
+        throws JavaCommandException
     {
         for (ClassPathProcessor classPathProcessor : classPathProcessors )
         {
             classPathProcessor.postProcessClassPath( classpath );
         }
 
+        // GWT SDK jars are often already part of the project classpath
+        List<File> launchClasspath = LaunchClasspath.dedupe( classpath );
+
         List<String> command = new ArrayList<String>();
         if (this.jvmArgs != null)
         {
             command.addAll( this.jvmArgs );
         }
-        command.add( "-classpath" );
-        List<String> path = new ArrayList<String>( classpath.size() );
-        for ( File file : classpath )
+        List<File> forkClasspath = launchClasspath;
+        if ( statsFile != null )
         {
-            path.add( file.getAbsolutePath() );
+            statsFile.delete();
+            forkClasspath = new ArrayList<File>( launchClasspath );
+            try
+            {
+                forkClasspath.add( WorkerPool.getClassPathElement() );
+            }
+            catch ( CommandLineException e )
+            {
+                throw new JavaCommandException( e.getMessage(), e );
+            }
         }
-        command.add( StringUtils.join( path.iterator(), File.pathSeparator ) );
+        command.addAll( getClasspathArguments( forkClasspath ) );
         if ( systemProperties != null )
         {
             for ( Map.Entry<?, ?> entry : systemProperties.entrySet() )
@@ -288,45 +671,105 @@ public class JavaCommand
                 command.add( "-D" + entry.getKey() + "=" + entry.getValue() );
             }
         }
+        if ( statsFile != null )
+        {
+            command.add( ForkStats.class.getName() );
+            command.add( statsFile.getAbsolutePath() );
+        }
         command.add( mainClass );
         command.addAll( args );
 
+        for ( OutputParser parser : outputParsers )
+        {
+            parser.started();
+        }
+        // custom consumers need every line, in order
+        if ( logDirectory != null && defaultOut )
+        {
+            File logFile = getLogFile();
+            try
+            {
+                forwarder = new LogForwarder( logFile, 8192, logRate, log, out, err );
+            }
+            catch ( IOException e )
+            {
+                log.warn( "Failed to create " + logFile + ", output is logged synchronously : " + e.getMessage() );
+            }
+        }
+        ClassDataSharing classDataSharing = null;
+        boolean success = false;
         try
         {
-            String[] arguments = command.toArray( new String[command.size()] );
-
-            // On windows, the default Shell will fall into command line length limitation issue
-            // On Unixes, not using a Shell breaks the classpath (NoClassDefFoundError:
-            // com/google/gwt/dev/Compiler).
-            Commandline cmd =
-                Os.isFamily( Os.FAMILY_WINDOWS ) ? new Commandline( new JavaShell() ) : new Commandline();
+            int status;
+            String description;
+            Integer inProcessStatus = null;
+            Integer workerStatus = null;
+            // environment can't be changed for a running JVM
+            if ( inProcess && jvm == null && ( env == null || env.isEmpty() ) )
+            {
+                inProcessStatus = InProcessRunner.getInstance().execute( this, launchClasspath );
+            }
+            if ( inProcessStatus == null && daemon && ( env == null || env.isEmpty() ) )
+            {
+                List<File> workerClasspath = new ArrayList<File>( launchClasspath );
+                workerClasspath.add( WorkerPool.getClassPathElement() );
+                workerStatus = WorkerPool.getInstance().execute( this, getJavaCommand(), workerClasspath,
+                                                                 getClasspathArguments( workerClasspath ) );
+            }
 
-            cmd.setExecutable( this.getJavaCommand() );
-            cmd.addArguments( arguments );
-            if ( env != null )
+            if ( inProcessStatus != null )
             {
-                for ( Map.Entry<?, ?> entry : env.entrySet() )
-                {
-                    log.debug( "add env " + (String) entry.getKey() + " with value " + (String) entry.getValue() );
-                    cmd.addEnvironment( (String) entry.getKey(), (String) entry.getValue() );
-                }
+                status = inProcessStatus.intValue();
+                description = "in process : " + mainClass + " " + StringUtils.join( args.iterator(), " " );
             }
-            log.debug( "Execute command :\n" + cmd.toString() );
-            int status;
-            if ( timeOut > 0 )
+            else if ( workerStatus != null )
             {
-                status = CommandLineUtils.executeCommandLine( cmd, out, err, timeOut );
+                status = workerStatus.intValue();
+                description = "worker JVM : " + mainClass + " " + StringUtils.join( args.iterator(), " " );
             }
             else
             {
-                status = CommandLineUtils.executeCommandLine( cmd, out, err );
+                classDataSharing = getClassDataSharing( launchClasspath );
+                if ( classDataSharing != null )
+                {
+                    command.addAll( 0, classDataSharing.getJvmArguments() );
+                }
+                String[] arguments = command.toArray( new String[command.size()] );
+
+                // On windows, the default Shell will fall into command line length limitation issue
+                // On Unixes, not using a Shell breaks the classpath (NoClassDefFoundError:
+                // com/google/gwt/dev/Compiler).
+                Commandline cmd =
+                    Os.isFamily( Os.FAMILY_WINDOWS ) ? new Commandline( new JavaShell() ) : new Commandline();
+
+                cmd.setExecutable( this.getJavaCommand() );
+                cmd.addArguments( arguments );
+                if ( env != null )
+                {
+                    for ( Map.Entry<?, ?> entry : env.entrySet() )
+                    {
+                        log.debug( "add env " + (String) entry.getKey() + " with value " + (String) entry.getValue() );
+                        cmd.addEnvironment( (String) entry.getKey(), (String) entry.getValue() );
+                    }
+                }
+                log.debug( "Execute command :\n" + cmd.toString() );
+                description = cmd.toString();
+                if ( timeOut > 0 )
+                {
+                    status = CommandLineUtils.executeCommandLine( cmd, getOut(), getErr(), timeOut );
+                }
+                else
+                {
+                    status = CommandLineUtils.executeCommandLine( cmd, getOut(), getErr() );
+                }
             }
 
             if ( status != 0 )
             {
-                throw new JavaCommandException( "Command [[\n" + cmd.toString()
+                throw new JavaCommandException( "Command [[\n" + description
                     + "\n]] failed with status " + status );
             }
+            success = true;
         }
         catch ( CommandLineTimeOutException e )
         {
@@ -341,6 +784,66 @@ public class JavaCommand
         {
             throw new JavaCommandException( "Failed to execute command line :\n" + command, e );
         }
+        finally
+        {
+            if ( forwarder != null )
+            {
+                forwarder.close();
+                forwarder = null;
+            }
+            for ( OutputParser parser : outputParsers )
+            {
+                parser.finished( success );
+            }
+            if ( classDataSharing != null )
+            {
+                classDataSharing.completed( success );
+            }
+        }
+    }
+
+    private ClassDataSharing getClassDataSharing( List<File> launchClasspath )
+        throws JavaCommandException
+    {
+        // a pathing jar hides the classpath entries
+        if ( classDataSharingDirectory == null
+            || ( LaunchClasspath.JAR.equalsIgnoreCase( classpathMode ) && pathingJarSupported ) )
+        {
+            return null;
+        }
+        String java = getJavaCommand();
+        return ClassDataSharing.create( classDataSharingDirectory, java, JavaVersion.of( java ), launchClasspath, log );
+    }
+
+    private List<String> getClasspathArguments( List<File> launchClasspath )
+        throws JavaCommandException
+    {
+        String mode = classpathMode == null ? LaunchClasspath.AUTO : classpathMode.toLowerCase( Locale.ENGLISH );
+        if ( !LaunchClasspath.MODES.contains( mode ) )
+        {
+            throw new JavaCommandException( "Unsupported classpath mode " + classpathMode + ", expected one of "
+                + LaunchClasspath.MODES );
+        }
+        if ( LaunchClasspath.JAR.equals( mode ) && !pathingJarSupported )
+        {
+            mode = LaunchClasspath.AUTO;
+        }
+        File directory = classpathDirectory != null ? classpathDirectory
+                        : new File( System.getProperty( "java.io.tmpdir" ), "gwt-classpath" );
+        try
+        {
+            List<String> arguments =
+                LaunchClasspath.arguments( launchClasspath, mode, JavaVersion.of( getJavaCommand() ), directory );
+            if ( log != null && ( arguments.size() == 1 || LaunchClasspath.JAR.equals( mode ) ) )
+            {
+                log.debug( "Classpath " + arguments + " :\n" + LaunchClasspath.join( launchClasspath ) );
+            }
+            return arguments;
+        }
+        catch ( IOException e )
+        {
+            throw new JavaCommandException( "Failed to write the classpath in " + directory, e );
+        }
     }
 
     private String getJavaCommand()
@@ -0,0 +1,147 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Detect the feature version (6, 7, 8, ... 17) of the JVM used to run forked tools, so that launch options only
+ * supported by recent JVMs are not passed to older ones.
+ *
+ * @since 7.7
+ */
+public final class JavaVersion
+{
+    /** the version is unknown */
+    public static final int UNKNOWN = -1;
+
+    private static final Map<String, Integer> versions = new HashMap<String, Integer>();
+
+    private JavaVersion()
+    {
+        // utility class
+    }
+
+    /**
+     * @param javaExecutable absolute path to the <code>java</code> executable
+     * @return feature version of the JVM, or {@link #UNKNOWN}
+     */
+    public static synchronized int of( String javaExecutable )
+    {
+        Integer version = versions.get( javaExecutable );
+        if ( version == null )
+        {
+            version = detect( new File( javaExecutable ).getAbsoluteFile() );
+            versions.put( javaExecutable, version );
+        }
+        return version;
+    }
+
+    /**
+     * @return feature version of the JVM running Maven
+     */
+    public static int current()
+    {
+        return parse( System.getProperty( "java.specification.version" ) );
+    }
+
+    private static int detect( File javaExecutable )
+    {
+        File bin = javaExecutable.getParentFile();
+        File home = bin != null ? bin.getParentFile() : null;
+        if ( home == null )
+        {
+            return UNKNOWN;
+        }
+        if ( isSameFile( home, new File( System.getProperty( "java.home" ) ) ) )
+        {
+            return current();
+        }
+        // JDK 8 ships the "release" file in the JDK home, not in the embedded jre
+        File[] candidates = { new File( home, "release" ), new File( home.getParentFile(), "release" ) };
+        for ( File release : candidates )
+        {
+            if ( release.isFile() )
+            {
+                return parse( readJavaVersion( release ) );
+            }
+        }
+        return UNKNOWN;
+    }
+
+    private static String readJavaVersion( File release )
+    {
+        Properties properties = new Properties();
+        InputStream in = null;
+        try
+        {
+            in = new FileInputStream( release );
+            properties.load( in );
+        }
+        catch ( IOException e )
+        {
+            return null;
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+        String version = properties.getProperty( "JAVA_VERSION" );
+        return version == null ? null : version.replace( "\"", "" );
+    }
+
+    static int parse( String version )
+    {
+        if ( version == null || version.length() == 0 )
+        {
+            return UNKNOWN;
+        }
+        if ( version.startsWith( "1." ) )
+        {
+            version = version.substring( 2 );
+        }
+        int end = 0;
+        while ( end < version.length() && Character.isDigit( version.charAt( end ) ) )
+        {
+            end++;
+        }
+        return end == 0 ? UNKNOWN : Integer.parseInt( version.substring( 0, end ) );
+    }
+
+    private static boolean isSameFile( File a, File b )
+    {
+        try
+        {
+            return a.getCanonicalFile().equals( b.getCanonicalFile() );
+        }
+        catch ( IOException e )
+        {
+            return a.getAbsoluteFile().equals( b.getAbsoluteFile() );
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.codehaus.mojo.gwt.utils.DigestUtils;
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.StringUtils;
+
+/**
+ * Build the classpath arguments of a forked JVM : either inline (<code>-classpath a.jar:b.jar</code>), through a JVM
+ * argument file (<code>@file</code>, Java 9+) or through a manifest-only "pathing" jar. Argument files and pathing
+ * jars are named after a hash of the classpath, so that they are reused by the next forks with the same classpath.
+ *
+ * @since 7.7
+ */
+final class LaunchClasspath
+{
+    /** classpath passed on the command line */
+    static final String INLINE = "inline";
+
+    /** classpath passed through a JVM argument file, when supported by the JVM */
+    static final String ARGFILE = "argfile";
+
+    /** classpath passed through the manifest of a pathing jar */
+    static final String JAR = "jar";
+
+    /** argument file when supported by the JVM, inline otherwise */
+    static final String AUTO = "auto";
+
+    static final List<String> MODES = Arrays.asList( INLINE, ARGFILE, JAR, AUTO );
+
+    private LaunchClasspath()
+    {
+        // utility class
+    }
+
+    /**
+     * @return the classpath without duplicate entries, first occurrence wins
+     */
+    static List<File> dedupe( List<File> classpath )
+    {
+        Set<File> files = new LinkedHashSet<File>();
+        for ( File file : classpath )
+        {
+            files.add( file.getAbsoluteFile() );
+        }
+        return new ArrayList<File>( files );
+    }
+
+    /**
+     * @param classpath the deduplicated classpath
+     * @param mode one of {@link #MODES}
+     * @param javaVersion feature version of the forked JVM
+     * @param directory where argument files and pathing jars are written
+     * @return the JVM arguments that set the classpath
+     */
+    static List<String> arguments( List<File> classpath, String mode, int javaVersion, File directory )
+        throws IOException
+    {
+        String path = join( classpath );
+        // the JVM only reads argument files since Java 9
+        boolean argfile = ( ARGFILE.equals( mode ) || AUTO.equals( mode ) ) && javaVersion >= 9;
+        if ( argfile )
+        {
+            return Arrays.asList( "@" + writeArgumentFile( path, directory ).getAbsolutePath() );
+        }
+        if ( JAR.equals( mode ) )
+        {
+            return Arrays.asList( "-classpath", writePathingJar( classpath, path, directory ).getAbsolutePath() );
+        }
+        return Arrays.asList( "-classpath", path );
+    }
+
+    static String join( List<File> classpath )
+    {
+        List<String> path = new ArrayList<String>( classpath.size() );
+        for ( File file : classpath )
+        {
+            path.add( file.getAbsolutePath() );
+        }
+        return StringUtils.join( path.iterator(), File.pathSeparator );
+    }
+
+    /**
+     * @return the classpath with the date and size of each entry, that changes when a jar is rebuilt in place
+     */
+    static String stamps( List<File> classpath )
+    {
+        StringBuilder stamps = new StringBuilder();
+        for ( File file : classpath )
+        {
+            stamps.append( file.getAbsolutePath() ).append( ':' ).append( file.lastModified() ).append( ':' )
+                  .append( file.length() ).append( File.pathSeparatorChar );
+        }
+        return stamps.toString();
+    }
+
+    private static File writeArgumentFile( String path, File directory )
+        throws IOException
+    {
+        File file = new File( directory, DigestUtils.sha1Hex( path ) + ".args" );
+        if ( file.isFile() )
+        {
+            return file;
+        }
+        File tmp = createTempFile( file );
+        Writer writer = new OutputStreamWriter( new FileOutputStream( tmp ), "UTF-8" );
+        try
+        {
+            writer.write( "-classpath\n" );
+            writer.write( quote( path ) );
+            writer.write( '\n' );
+        }
+        finally
+        {
+            IOUtil.close( writer );
+        }
+        return rename( tmp, file );
+    }
+
+    /**
+     * Quote an argument file token : backslash is the escape character within quotes
+     */
+    static String quote( String token )
+    {
+        return '"' + token.replace( "\\", "\\\\" ).replace( "\"", "\\\"" ) + '"';
+    }
+
+    private static File writePathingJar( List<File> classpath, String path, File directory )
+        throws IOException
+    {
+        File file = new File( directory, DigestUtils.sha1Hex( path ) + ".jar" );
+        if ( file.isFile() )
+        {
+            return file;
+        }
+        List<String> urls = new ArrayList<String>( classpath.size() );
+        for ( File entry : classpath )
+        {
+            urls.add( toClassPathUrl( entry ) );
+        }
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put( Attributes.Name.MANIFEST_VERSION, "1.0" );
+        manifest.getMainAttributes().put( Attributes.Name.CLASS_PATH, StringUtils.join( urls.iterator(), " " ) );
+
+        File tmp = createTempFile( file );
+        OutputStream out = new JarOutputStream( new FileOutputStream( tmp ), manifest );
+        IOUtil.close( out );
+        return rename( tmp, file );
+    }
+
+    /**
+     * @return absolute URL of the classpath entry, directories must end with a slash
+     */
+    static String toClassPathUrl( File entry )
+        throws MalformedURLException
+    {
+        String url = entry.toURI().toURL().toExternalForm();
+        if ( !entry.isFile() && !url.endsWith( "/" ) )
+        {
+            url += "/";
+        }
+        return url;
+    }
+
+    private static File createTempFile( File file )
+        throws IOException
+    {
+        File directory = file.getParentFile();
+        if ( !directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory() )
+        {
+            throw new IOException( "Failed to create directory " + directory );
+        }
+        return File.createTempFile( file.getName(), ".tmp", directory );
+    }
+
+    /**
+     * concurrent forks may write the same file, content only depends on the name
+     */
+    private static File rename( File tmp, File file )
+        throws IOException
+    {
+        if ( !tmp.renameTo( file ) )
+        {
+            tmp.delete();
+            if ( !file.isFile() )
+            {
+                throw new IOException( "Failed to write " + file );
+            }
+        }
+        return file;
+    }
+}
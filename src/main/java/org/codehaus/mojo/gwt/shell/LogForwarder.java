@@ -0,0 +1,354 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.cli.StreamConsumer;
+
+/**
+ * Forward the output of a tool to the Maven log without slowing the tool down. The stream readers only write each line
+ * to a gzipped log file and put it in a bounded ring buffer ; a dedicated thread forwards the buffered lines to the
+ * console in batches.
+ * <p>
+ * Only a subset reaches the console : GWT TRACE, DEBUG and SPAM lines are only logged in Maven debug mode, and other
+ * lines are limited to a number per second, warnings and errors excepted. When the console can't keep up, the oldest
+ * buffered lines are dropped, but never a warning, an error or a line of the error output : the buffer grows if it
+ * only holds those. The log file always has the full output.
+ *
+ * @since 7.7
+ */
+public class LogForwarder
+{
+    private static final Pattern DETAIL = Pattern.compile( "^\\s*\\[(TRACE|DEBUG|SPAM|ALL)\\]" );
+
+    private static final Pattern PROBLEM = Pattern.compile( "^\\s*\\[(ERROR|WARN)\\]" );
+
+    private final File file;
+
+    private final int linesPerSecond;
+
+    private final Log log;
+
+    private final StreamConsumer out;
+
+    private final StreamConsumer err;
+
+    private Writer writer;
+
+    private String[] lines;
+
+    private boolean[] errors;
+
+    /** warnings, errors and error output lines, never dropped */
+    private boolean[] problems;
+
+    private int head;
+
+    private int size;
+
+    private boolean closed;
+
+    private final Thread thread;
+
+    // only accessed by the forwarding thread until it is joined
+
+    private long window;
+
+    private int windowCount;
+
+    private int skipped;
+
+    private int filtered;
+
+    private int dropped;
+
+    /**
+     * @param file the log file, gzipped
+     * @param capacity maximum number of lines waiting to be forwarded
+     * @param linesPerSecond maximum number of lines forwarded per second, 0 or less for no limit
+     * @param log the Maven log
+     * @param out receives the forwarded standard output lines
+     * @param err receives the forwarded error output lines
+     */
+    public LogForwarder( File file, int capacity, int linesPerSecond, Log log, StreamConsumer out, StreamConsumer err )
+        throws IOException
+    {
+        this.file = file;
+        this.linesPerSecond = linesPerSecond;
+        this.log = log;
+        this.out = out;
+        this.err = err;
+        this.lines = new String[capacity];
+        this.errors = new boolean[capacity];
+        this.problems = new boolean[capacity];
+
+        file.getParentFile().mkdirs();
+        writer =
+            new BufferedWriter( new OutputStreamWriter( new GZIPOutputStream( new FileOutputStream( file ), 65536 ),
+                                                        "UTF-8" ), 65536 );
+        thread = new Thread( "GWT log forwarder" )
+        {
+            @Override
+            public void run()
+            {
+                forward();
+            }
+        };
+        thread.setDaemon( true );
+        thread.start();
+    }
+
+    /**
+     * @return consumer for the tool standard output
+     */
+    public StreamConsumer getOut()
+    {
+        return new StreamConsumer()
+        {
+            public void consumeLine( String line )
+            {
+                add( line, false );
+            }
+        };
+    }
+
+    /**
+     * @return consumer for the tool error output
+     */
+    public StreamConsumer getErr()
+    {
+        return new StreamConsumer()
+        {
+            public void consumeLine( String line )
+            {
+                add( line, true );
+            }
+        };
+    }
+
+    public File getFile()
+    {
+        return file;
+    }
+
+    private synchronized void add( String line, boolean error )
+    {
+        if ( closed )
+        {
+            return;
+        }
+        if ( writer != null )
+        {
+            try
+            {
+                writer.write( line );
+                writer.write( '\n' );
+            }
+            catch ( IOException e )
+            {
+                log.warn( "Failed to write " + file + " : " + e.getMessage() );
+                IOUtil.close( writer );
+                writer = null;
+            }
+        }
+        if ( size == lines.length && !dropOldest() )
+        {
+            grow();
+        }
+        int tail = ( head + size ) % lines.length;
+        lines[tail] = line;
+        errors[tail] = error;
+        problems[tail] = error || PROBLEM.matcher( line ).find();
+        size++;
+        notifyAll();
+    }
+
+    /**
+     * Drop the oldest buffered line that is not a problem, the stream reader is never blocked
+     *
+     * @return <code>false</code> if all the buffered lines are problems
+     */
+    private boolean dropOldest()
+    {
+        for ( int i = 0; i < size; i++ )
+        {
+            if ( problems[( head + i ) % lines.length] )
+            {
+                continue;
+            }
+            // move the older problems by one over the dropped line
+            for ( int j = i; j > 0; j-- )
+            {
+                int to = ( head + j ) % lines.length;
+                int from = ( head + j - 1 ) % lines.length;
+                lines[to] = lines[from];
+                errors[to] = errors[from];
+                problems[to] = problems[from];
+            }
+            lines[head] = null;
+            head = ( head + 1 ) % lines.length;
+            size--;
+            dropped++;
+            return true;
+        }
+        return false;
+    }
+
+    private void grow()
+    {
+        int capacity = lines.length * 2;
+        String[] newLines = new String[capacity];
+        boolean[] newErrors = new boolean[capacity];
+        boolean[] newProblems = new boolean[capacity];
+        for ( int i = 0; i < size; i++ )
+        {
+            int index = ( head + i ) % lines.length;
+            newLines[i] = lines[index];
+            newErrors[i] = errors[index];
+            newProblems[i] = problems[index];
+        }
+        lines = newLines;
+        errors = newErrors;
+        problems = newProblems;
+        head = 0;
+    }
+
+    private void forward()
+    {
+        String[] batch = new String[0];
+        boolean[] batchErrors = new boolean[0];
+        while ( true )
+        {
+            int count;
+            synchronized ( this )
+            {
+                while ( size == 0 && !closed )
+                {
+                    try
+                    {
+                        wait();
+                    }
+                    catch ( InterruptedException e )
+                    {
+                        return;
+                    }
+                }
+                if ( size == 0 )
+                {
+                    return;
+                }
+                count = size;
+                if ( batch.length < count )
+                {
+                    batch = new String[lines.length];
+                    batchErrors = new boolean[lines.length];
+                }
+                for ( int i = 0; i < count; i++ )
+                {
+                    int index = ( head + i ) % lines.length;
+                    batch[i] = lines[index];
+                    batchErrors[i] = errors[index];
+                    lines[index] = null;
+                }
+                head = ( head + count ) % lines.length;
+                size = 0;
+            }
+            for ( int i = 0; i < count; i++ )
+            {
+                forward( batch[i], batchErrors[i] );
+                batch[i] = null;
+            }
+        }
+    }
+
+    private void forward( String line, boolean error )
+    {
+        if ( DETAIL.matcher( line ).find() )
+        {
+            if ( log.isDebugEnabled() )
+            {
+                log.debug( line );
+            }
+            else
+            {
+                filtered++;
+            }
+            return;
+        }
+        if ( !error && linesPerSecond > 0 && !PROBLEM.matcher( line ).find() )
+        {
+            long now = System.currentTimeMillis();
+            if ( now - window >= 1000 )
+            {
+                window = now;
+                windowCount = 0;
+            }
+            if ( ++windowCount > linesPerSecond )
+            {
+                skipped++;
+                return;
+            }
+        }
+        ( error ? err : out ).consumeLine( line );
+    }
+
+    /**
+     * Forward the remaining lines, close the log file and report the lines that have not been forwarded
+     */
+    public void close()
+    {
+        synchronized ( this )
+        {
+            closed = true;
+            notifyAll();
+        }
+        try
+        {
+            thread.join();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+        synchronized ( this )
+        {
+            IOUtil.close( writer );
+            writer = null;
+        }
+        if ( skipped + dropped > 0 )
+        {
+            log.info( ( skipped + dropped ) + " lines have not been logged to limit the output, see " + file );
+        }
+        if ( filtered > 0 )
+        {
+            log.debug( filtered + " TRACE, DEBUG or SPAM lines have been written to " + file );
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.codehaus.mojo.gwt.GwtModule;
+import org.codehaus.mojo.gwt.utils.DigestUtils;
+import org.codehaus.mojo.gwt.utils.GwtModuleReaderException;
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.StringUtils;
+
+/**
+ * The modules a compiled module is made of : itself and the modules it inherits, with the directory or jar each one
+ * was read from and the source, super-source and public paths it contributes. Jars are recorded with their content
+ * hash, so the graph of the last compilation tells which modules a dependency upgrade affects.
+ *
+ * @since 7.7
+ */
+public class ModuleGraph
+{
+    private static final String LOCATION = ".location";
+
+    private static final String HASH = ".hash";
+
+    private static final String SOURCE = ".source";
+
+    private static final String SUPER_SOURCE = ".super-source";
+
+    private static final String PUBLIC = ".public";
+
+    private final Map<String, Node> nodes = new TreeMap<String, Node>();
+
+    /**
+     * @param cache where jar hashes are kept for the build
+     */
+    public static ModuleGraph build( GwtModule module, Map<String, Object> cache )
+        throws GwtModuleReaderException, IOException
+    {
+        ModuleGraph graph = new ModuleGraph();
+        graph.add( module, cache );
+        for ( GwtModule inherited : module.getInherits() )
+        {
+            graph.add( inherited, cache );
+        }
+        return graph;
+    }
+
+    private void add( GwtModule module, Map<String, Object> cache )
+        throws IOException
+    {
+        Node node = new Node();
+        File location = module.getLocation();
+        node.location = location != null ? location.getAbsolutePath() : "";
+        node.hash = location != null && location.isFile() ? DigestUtils.sha1Hex( location, cache ) : "";
+        node.sources = paths( module.getSources() );
+        node.superSources = paths( module.getSuperSources() );
+        node.publicPath = module.getPublic() != null ? module.getPublic() : "";
+        nodes.put( module.getName(), node );
+    }
+
+    private static List<String> paths( String[] paths )
+    {
+        List<String> list = new ArrayList<String>( paths.length );
+        for ( String path : paths )
+        {
+            list.add( path != null ? path : "" );
+        }
+        return list;
+    }
+
+    /**
+     * @return the graph recorded in the file, <code>null</code> if none could be read
+     */
+    public static ModuleGraph load( File file )
+    {
+        if ( !file.isFile() )
+        {
+            return null;
+        }
+        Properties properties = new Properties();
+        InputStream in = null;
+        try
+        {
+            in = new FileInputStream( file );
+            properties.load( in );
+        }
+        catch ( IOException e )
+        {
+            return null;
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+        ModuleGraph graph = new ModuleGraph();
+        for ( String key : properties.stringPropertyNames() )
+        {
+            if ( !key.endsWith( LOCATION ) )
+            {
+                continue;
+            }
+            String name = key.substring( 0, key.length() - LOCATION.length() );
+            Node node = new Node();
+            node.location = properties.getProperty( key );
+            node.hash = properties.getProperty( name + HASH, "" );
+            node.sources = split( properties.getProperty( name + SOURCE ) );
+            node.superSources = split( properties.getProperty( name + SUPER_SOURCE ) );
+            node.publicPath = properties.getProperty( name + PUBLIC, "" );
+            graph.nodes.put( name, node );
+        }
+        return graph;
+    }
+
+    private static List<String> split( String paths )
+    {
+        // an empty path is the module package
+        return paths == null ? Collections.<String>emptyList() : Arrays.asList( paths.split( ",", -1 ) );
+    }
+
+    private static void join( Properties properties, String key, List<String> paths )
+    {
+        if ( !paths.isEmpty() )
+        {
+            properties.setProperty( key, StringUtils.join( paths.iterator(), "," ) );
+        }
+    }
+
+    public void store( File file )
+        throws IOException
+    {
+        Properties properties = new Properties();
+        for ( Map.Entry<String, Node> entry : nodes.entrySet() )
+        {
+            String name = entry.getKey();
+            Node node = entry.getValue();
+            properties.setProperty( name + LOCATION, node.location );
+            properties.setProperty( name + HASH, node.hash );
+            join( properties, name + SOURCE, node.sources );
+            join( properties, name + SUPER_SOURCE, node.superSources );
+            properties.setProperty( name + PUBLIC, node.publicPath );
+        }
+        file.getParentFile().mkdirs();
+        OutputStream out = new FileOutputStream( file );
+        try
+        {
+            properties.store( out, "Modules of the last GWT compilation" );
+        }
+        finally
+        {
+            IOUtil.close( out );
+        }
+    }
+
+    /**
+     * @return the names of the modules of the graph
+     */
+    public Set<String> getModules()
+    {
+        return Collections.unmodifiableSet( nodes.keySet() );
+    }
+
+    /**
+     * @return the location, jar hash and paths of each module, by name
+     */
+    public Map<String, String> getNodes()
+    {
+        Map<String, String> descriptions = new TreeMap<String, String>();
+        for ( Map.Entry<String, Node> entry : nodes.entrySet() )
+        {
+            Node node = entry.getValue();
+            descriptions.put( entry.getKey(), node.location + "|" + node.hash + "|" + node.sources + "|"
+                + node.superSources + "|" + node.publicPath );
+        }
+        return descriptions;
+    }
+
+    /**
+     * @return the directories the modules were read from
+     */
+    public Set<File> getDirectories()
+    {
+        Set<File> directories = new TreeSet<File>();
+        for ( Node node : nodes.values() )
+        {
+            if ( node.hash.length() == 0 && node.location.length() > 0 )
+            {
+                directories.add( new File( node.location ) );
+            }
+        }
+        return directories;
+    }
+
+    /**
+     * @return the differences with the graph of the previous compilation, empty if the modules are the same
+     */
+    public List<String> getChanges( ModuleGraph previous )
+    {
+        List<String> changes = new ArrayList<String>();
+        Set<String> names = new TreeSet<String>( nodes.keySet() );
+        names.addAll( previous.nodes.keySet() );
+        for ( String name : names )
+        {
+            Node node = nodes.get( name );
+            Node old = previous.nodes.get( name );
+            if ( old == null )
+            {
+                changes.add( "module " + name + " added" );
+            }
+            else if ( node == null )
+            {
+                changes.add( "module " + name + " removed" );
+            }
+            else if ( !node.location.equals( old.location ) )
+            {
+                changes.add( "module " + name + " moved from " + old.location + " to " + node.location );
+            }
+            else if ( !node.hash.equals( old.hash ) )
+            {
+                changes.add( "module " + name + " jar " + node.location + " changed from " + old.hash + " to "
+                    + node.hash );
+            }
+            else if ( !node.sources.equals( old.sources ) || !node.superSources.equals( old.superSources )
+                || !node.publicPath.equals( old.publicPath ) )
+            {
+                changes.add( "module " + name + " paths changed" );
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * @param roots the source and resource roots of the project, a module descriptor and its sources are often in
+     *            different roots
+     * @return the existing source and super-source directories of the modules, under the directory each module was
+     *         read from and under the roots
+     */
+    public List<File> getSourceDirectories( Collection<File> roots )
+    {
+        Set<File> directories = new LinkedHashSet<File>();
+        for ( Map.Entry<String, Node> entry : nodes.entrySet() )
+        {
+            for ( String path : entry.getValue().sources )
+            {
+                addDirectories( directories, roots, entry.getKey(), entry.getValue(), path );
+            }
+            for ( String path : entry.getValue().superSources )
+            {
+                addDirectories( directories, roots, entry.getKey(), entry.getValue(), path );
+            }
+        }
+        return new ArrayList<File>( directories );
+    }
+
+    /**
+     * @param roots the source and resource roots of the project
+     * @return the existing public directories of the modules, under the directory each module was read from and under
+     *         the roots
+     */
+    public List<File> getPublicDirectories( Collection<File> roots )
+    {
+        Set<File> directories = new LinkedHashSet<File>();
+        for ( Map.Entry<String, Node> entry : nodes.entrySet() )
+        {
+            addDirectories( directories, roots, entry.getKey(), entry.getValue(), entry.getValue().publicPath );
+        }
+        return new ArrayList<File>( directories );
+    }
+
+    /**
+     * @return the paths relative to a classpath root of the descriptors and of the source, super-source and public
+     *         directories of all the modules, separated by <code>/</code>
+     */
+    public Set<String> getClientPaths()
+    {
+        Set<String> paths = new TreeSet<String>();
+        for ( Map.Entry<String, Node> entry : nodes.entrySet() )
+        {
+            String name = entry.getKey();
+            Node node = entry.getValue();
+            String packagePath = getPackagePath( name, '/' );
+            String prefix = packagePath.length() > 0 ? packagePath + "/" : "";
+            paths.add( prefix + name.substring( name.lastIndexOf( '.' ) + 1 ) + ".gwt.xml" );
+            for ( String path : node.sources )
+            {
+                paths.add( path.length() > 0 ? prefix + path : packagePath );
+            }
+            for ( String path : node.superSources )
+            {
+                paths.add( path.length() > 0 ? prefix + path : packagePath );
+            }
+            paths.add( node.publicPath.length() > 0 ? prefix + node.publicPath : packagePath );
+        }
+        return paths;
+    }
+
+    private static String getPackagePath( String name, char separator )
+    {
+        int index = name.lastIndexOf( '.' );
+        return index < 0 ? "" : name.substring( 0, index ).replace( '.', separator );
+    }
+
+    private void addDirectories( Set<File> directories, Collection<File> roots, String name, Node node, String path )
+    {
+        String packagePath = getPackagePath( name, File.separatorChar );
+        if ( node.hash.length() == 0 && node.location.length() > 0 )
+        {
+            // read from a directory
+            addDirectory( directories, new File( new File( node.location, packagePath ), path ) );
+        }
+        for ( File root : roots )
+        {
+            addDirectory( directories, new File( new File( root, packagePath ), path ) );
+        }
+    }
+
+    private static void addDirectory( Set<File> directories, File directory )
+    {
+        if ( directory.isDirectory() )
+        {
+            directories.add( directory.getAbsoluteFile() );
+        }
+    }
+
+    /**
+     * Where a module comes from
+     */
+    private static class Node
+    {
+        String location;
+
+        String hash;
+
+        List<String> sources;
+
+        List<String> superSources;
+
+        String publicPath;
+    }
+}
@@ -0,0 +1,44 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.codehaus.plexus.util.cli.StreamConsumer;
+
+/**
+ * Receives every line of the standard and error output of a {@link JavaCommand}, in addition to the command
+ * consumers, to extract information from the tool output. Lines may be received from several threads.
+ *
+ * @since 7.7
+ */
+public interface OutputParser
+    extends StreamConsumer
+{
+    /**
+     * The command is about to run
+     */
+    void started();
+
+    /**
+     * The command has completed
+     *
+     * @param success <code>false</code> if the command failed or has been killed on time-out
+     */
+    void finished( boolean success );
+}
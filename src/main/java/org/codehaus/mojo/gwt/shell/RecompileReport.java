@@ -0,0 +1,295 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.plexus.util.FileUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Why a module is compiled again : the inputs that changed since its last compilation, as found comparing the
+ * {@link CompileFingerprint}s, or the reason the staleness check gave when no fingerprint was recorded, and whether it
+ * was then compiled or restored from the build cache. Written as text and as JSON, to find the causes of unexpected
+ * compilations.
+ *
+ * @since 7.7
+ */
+public class RecompileReport
+{
+    static final String COMPILED = "compiled";
+
+    static final String RESTORED = "restored from the build cache";
+
+    private final String module;
+
+    private String outcome = COMPILED;
+
+    private final String reason;
+
+    private final List<String> addedModules = new ArrayList<String>();
+
+    private final List<String> removedModules = new ArrayList<String>();
+
+    private final List<Change> changedModules = new ArrayList<Change>();
+
+    private final List<Change> jars = new ArrayList<Change>();
+
+    private final List<String> addedFiles = new ArrayList<String>();
+
+    private final List<String> removedFiles = new ArrayList<String>();
+
+    private final List<String> changedFiles = new ArrayList<String>();
+
+    private final List<Change> flags = new ArrayList<Change>();
+
+    public RecompileReport( String module, String reason )
+    {
+        this.module = module;
+        this.reason = reason;
+    }
+
+    /**
+     * @return the differences of the inputs of the two compilations
+     */
+    public static RecompileReport compare( String module, CompileFingerprint previous, CompileFingerprint current )
+    {
+        RecompileReport report = new RecompileReport( module, "inputs changed" );
+        Map<String, String> oldHashes = previous.getHashes();
+        Map<String, String> newHashes = current.getHashes();
+        for ( String key : current.getChangedInputs( previous ) )
+        {
+            String oldHash = oldHashes.get( key );
+            String newHash = newHashes.get( key );
+            if ( key.startsWith( CompileFingerprint.MODULE ) )
+            {
+                String name = key.substring( CompileFingerprint.MODULE.length() );
+                if ( oldHash == null )
+                {
+                    report.addedModules.add( name );
+                }
+                else if ( newHash == null )
+                {
+                    report.removedModules.add( name );
+                }
+                else
+                {
+                    report.changedModules.add( new Change( name, previous.getValue( key ), current.getValue( key ) ) );
+                }
+            }
+            else if ( key.startsWith( CompileFingerprint.JAR ) )
+            {
+                report.jars.add( new Change( key.substring( CompileFingerprint.JAR.length() ), oldHash, newHash ) );
+            }
+            else if ( key.startsWith( CompileFingerprint.FILE ) )
+            {
+                String path = key.substring( CompileFingerprint.FILE.length() );
+                ( oldHash == null ? report.addedFiles : newHash == null ? report.removedFiles
+                                : report.changedFiles ).add( path );
+            }
+            else
+            {
+                report.flags.add( new Change( key, previous.getValue( key ), current.getValue( key ) ) );
+            }
+        }
+        return report;
+    }
+
+    public String getModule()
+    {
+        return module;
+    }
+
+    /**
+     * @param outcome what was done for the module, {@link #COMPILED} by default
+     */
+    public void setOutcome( String outcome )
+    {
+        this.outcome = outcome;
+    }
+
+    /**
+     * @return the human readable report, one line per change
+     */
+    public List<String> getLines()
+    {
+        List<String> lines = new ArrayList<String>();
+        lines.add( module + " " + outcome + " : " + reason );
+        for ( String name : addedModules )
+        {
+            lines.add( "  inherited module added : " + name );
+        }
+        for ( String name : removedModules )
+        {
+            lines.add( "  inherited module removed : " + name );
+        }
+        for ( Change change : changedModules )
+        {
+            lines.add( "  module changed : " + change.name + " " + change.oldValue + " -> " + change.newValue );
+        }
+        for ( Change change : jars )
+        {
+            lines.add( "  jar " + ( change.oldValue == null ? "added" : change.newValue == null ? "removed" : "changed" )
+                + " : " + change.name + " " + change.oldValue + " -> " + change.newValue );
+        }
+        for ( Change change : flags )
+        {
+            lines.add( "  " + change.name + " changed : removed " + change.getRemoved() + ", added "
+                + change.getAdded() );
+        }
+        for ( String path : addedFiles )
+        {
+            lines.add( "  file added : " + path );
+        }
+        for ( String path : removedFiles )
+        {
+            lines.add( "  file removed : " + path );
+        }
+        for ( String path : changedFiles )
+        {
+            lines.add( "  file changed : " + path );
+        }
+        return lines;
+    }
+
+    public Map<String, Object> toJson()
+    {
+        Map<String, Object> json = new LinkedHashMap<String, Object>();
+        json.put( "module", module );
+        json.put( "reason", reason );
+        json.put( "outcome", outcome );
+        Map<String, Object> modules = new LinkedHashMap<String, Object>();
+        modules.put( "added", addedModules );
+        modules.put( "removed", removedModules );
+        modules.put( "changed", toJson( changedModules ) );
+        json.put( "modules", modules );
+        json.put( "jars", toJson( jars ) );
+        List<Object> flagList = new ArrayList<Object>( flags.size() );
+        for ( Change change : flags )
+        {
+            Map<String, Object> flag = change.toJson();
+            flag.put( "removed", change.getRemoved() );
+            flag.put( "added", change.getAdded() );
+            flagList.add( flag );
+        }
+        json.put( "flags", flagList );
+        Map<String, Object> files = new LinkedHashMap<String, Object>();
+        files.put( "added", addedFiles );
+        files.put( "removed", removedFiles );
+        files.put( "changed", changedFiles );
+        json.put( "files", files );
+        return json;
+    }
+
+    private static List<Object> toJson( List<Change> changes )
+    {
+        List<Object> json = new ArrayList<Object>( changes.size() );
+        for ( Change change : changes )
+        {
+            json.add( change.toJson() );
+        }
+        return json;
+    }
+
+    /**
+     * Write the report in <code>&lt;module&gt;.txt</code> and <code>&lt;module&gt;.json</code>
+     */
+    public void write( File directory )
+        throws IOException
+    {
+        directory.mkdirs();
+        StringBuilder text = new StringBuilder();
+        for ( String line : getLines() )
+        {
+            text.append( line ).append( '\n' );
+        }
+        FileUtils.fileWrite( new File( directory, module + ".txt" ).getPath(), "UTF-8", text.toString() );
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue( new File( directory, module + ".json" ),
+                                                                        toJson() );
+    }
+
+    /**
+     * An input with its old and new hash or value, <code>null</code> when added or removed
+     */
+    private static class Change
+    {
+        final String name;
+
+        final String oldValue;
+
+        final String newValue;
+
+        Change( String name, String oldValue, String newValue )
+        {
+            this.name = name;
+            this.oldValue = oldValue;
+            this.newValue = newValue;
+        }
+
+        /**
+         * @return the words of the old value not in the new one
+         */
+        List<String> getRemoved()
+        {
+            return difference( oldValue, newValue );
+        }
+
+        List<String> getAdded()
+        {
+            return difference( newValue, oldValue );
+        }
+
+        private static List<String> difference( String value, String other )
+        {
+            List<String> words = split( value );
+            for ( String word : split( other ) )
+            {
+                words.remove( word );
+            }
+            return words;
+        }
+
+        private static List<String> split( String value )
+        {
+            List<String> words = new ArrayList<String>();
+            if ( value != null && value.length() > 0 )
+            {
+                words.addAll( Arrays.asList( value.split( " " ) ) );
+            }
+            return words;
+        }
+
+        Map<String, Object> toJson()
+        {
+            Map<String, Object> json = new LinkedHashMap<String, Object>();
+            json.put( "name", name );
+            json.put( "old", oldValue );
+            json.put( "new", newValue );
+            return json;
+        }
+    }
+}
@@ -421,6 +421,20 @@ public class RunMojo
         }
     }
 
+    @Override
+    protected boolean isDaemonSupported()
+    {
+        // dev mode runs until the user stops it
+        return false;
+    }
+
+    @Override
+    protected boolean isForkGoverned()
+    {
+        // dev mode would hold its share of the build resources until the user stops it
+        return false;
+    }
+
     @Override
     protected void postProcessClassPath( Collection<File> classPath )
     {
@@ -138,6 +138,20 @@ public class SuperDevModeMojo extends AbstractGwtShellMojo
     @Parameter(defaultValue = "${executedProject}")
     private MavenProject executedProject;
 
+    @Override
+    protected boolean isDaemonSupported()
+    {
+        // the code server runs until the user stops it
+        return false;
+    }
+
+    @Override
+    protected boolean isForkGoverned()
+    {
+        // the code server would hold its share of the build resources until the user stops it
+        return false;
+    }
+
     @Override
     public void doExecute()
         throws MojoExecutionException, MojoFailureException
@@ -20,7 +20,6 @@ package org.codehaus.mojo.gwt.shell;
  */
 
 import java.io.File;
-import java.net.URL;
 import java.util.Collection;
 
 import org.apache.maven.artifact.Artifact;
@@ -460,7 +459,7 @@ extends AbstractGwtShellMojo
 
                 addCompileSourceArtifacts( cmd );
 
-                cmd.arg( test );
+                cmd.arg( test ).setLogQualifier( test );
                 cmd.systemProperty( "surefire.reports", reportsDirectory.getAbsolutePath() );
                 cmd.systemProperty( "gwt.args", getGwtArgs() );
 
@@ -559,6 +558,13 @@ extends AbstractGwtShellMojo
         return StringUtils.quoteAndEscape( arg, '"', new char[] { '"', ' ', '\t', '\r', '\n' } );
     }
 
+    @Override
+    protected boolean isDaemonSupported()
+    {
+        // tests run with their own system properties and reporters
+        return false;
+    }
+
     @Override
     protected void postProcessClassPath( Collection<File> classpath )
     {
@@ -573,41 +579,6 @@ extends AbstractGwtShellMojo
         }
     }
 
-    /**
-     * @param clazz class to check for classpath resolution
-     * @return The classpath element this class was loaded from
-     */
-    private File getClassPathElementFor( Class<?> clazz )
-    {
-        String classFile = clazz.getName().replace( '.', '/' ) + ".class";
-        ClassLoader cl = Thread.currentThread().getContextClassLoader();
-        if ( cl == null )
-        {
-            cl = getClass().getClassLoader();
-        }
-        URL url = cl.getResource( classFile );
-        getLog().debug( "getClassPathElementFor " + clazz.getName() + " file " + url.toString() );
-        String path = url.toString();
-
-        if ( path.startsWith( "jar:" ) )
-        {
-            path = path.substring( 4, path.indexOf( "!" ) );
-        }
-        else
-        {
-            path = path.substring( 0, path.length() - classFile.length() );
-        }
-        if ( path.startsWith( "file:" ) )
-        {
-            path = path.substring( 5 );
-            // windauze hack with maven 3 we get those !
-            path = path.replace( "%20", " " );
-        }
-        File file = new File( path );
-        getLog().debug( "getClassPathElementFor " + clazz.getName() + " file " + file.getPath() );
-        return file;
-    }
-
     /**
      * @param testTimeOut the testTimeOut to set
      */
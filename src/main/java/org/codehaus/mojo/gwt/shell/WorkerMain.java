@@ -0,0 +1,412 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Entry point of a persistent worker JVM. Runs the main class of GWT/Vaadin tools on request, as if each of them was
+ * launched in its own JVM : output is sent back line by line, and calls to <code>System.exit</code> are trapped and
+ * reported as the exit status of the request.
+ * <p>
+ * This class runs in the forked JVM and must only depend on the JDK.
+ *
+ * @see WorkerPool
+ */
+public class WorkerMain
+{
+    static final int RUN = 1;
+
+    static final int SHUTDOWN = 0;
+
+    /** frame prefixes of the lines written to the real standard output */
+    static final char READY = 'R';
+
+    static final char OUT = 'O';
+
+    static final char ERR = 'E';
+
+    static final char EXIT = 'X';
+
+    private final OutputStream channel;
+
+    private final DataInputStream requests;
+
+    private volatile boolean trapExit;
+
+    private volatile boolean busy;
+
+    private volatile long lastActivity = System.currentTimeMillis();
+
+    private final FramedOutputStream out = new FramedOutputStream( OUT );
+
+    private final FramedOutputStream err = new FramedOutputStream( ERR );
+
+    WorkerMain( OutputStream channel, DataInputStream requests )
+    {
+        this.channel = channel;
+        this.requests = requests;
+    }
+
+    /** entry point for the worker in a dedicated JVM */
+    public static void main( String[] args )
+        throws IOException
+    {
+        OutputStream channel = new BufferedOutputStream( new FileOutputStream( FileDescriptor.out ) );
+        DataInputStream requests = new DataInputStream( new FileInputStream( FileDescriptor.in ) );
+        WorkerMain worker = new WorkerMain( channel, requests );
+
+        System.setOut( new PrintStream( worker.out, true ) );
+        System.setErr( new PrintStream( worker.err, true ) );
+
+        boolean exitTrap = worker.installExitTrap();
+        worker.send( READY, exitTrap ? "1" : "0" );
+        if ( !exitTrap )
+        {
+            return;
+        }
+        if ( args.length > 0 )
+        {
+            worker.watchIdleTime( Long.parseLong( args[0] ) * 1000L );
+        }
+        worker.serve();
+        Runtime.getRuntime().halt( 0 );
+    }
+
+    private boolean installExitTrap()
+    {
+        return new ExitTrap()
+        {
+            @Override
+            protected boolean isTrapping()
+            {
+                return trapExit;
+            }
+        }.install();
+    }
+
+    private void watchIdleTime( final long idleTimeout )
+    {
+        Thread watchdog = new Thread( "worker-idle-watchdog" )
+        {
+            @Override
+            public void run()
+            {
+                while ( true )
+                {
+                    try
+                    {
+                        Thread.sleep( 1000 );
+                    }
+                    catch ( InterruptedException e )
+                    {
+                        return;
+                    }
+                    if ( !busy && System.currentTimeMillis() - lastActivity > idleTimeout )
+                    {
+                        Runtime.getRuntime().halt( 0 );
+                    }
+                }
+            }
+        };
+        watchdog.setDaemon( true );
+        watchdog.start();
+    }
+
+    private void serve()
+        throws IOException
+    {
+        while ( true )
+        {
+            int op;
+            try
+            {
+                op = requests.readInt();
+            }
+            catch ( EOFException e )
+            {
+                // Maven is gone
+                return;
+            }
+            if ( op != RUN )
+            {
+                return;
+            }
+            String mainClass = readString();
+            Properties properties = new Properties();
+            int count = requests.readInt();
+            for ( int i = 0; i < count; i++ )
+            {
+                properties.setProperty( readString(), readString() );
+            }
+            String[] args = new String[requests.readInt()];
+            for ( int i = 0; i < args.length; i++ )
+            {
+                args[i] = readString();
+            }
+
+            busy = true;
+            try
+            {
+                run( mainClass, properties, args );
+            }
+            finally
+            {
+                busy = false;
+                lastActivity = System.currentTimeMillis();
+            }
+        }
+    }
+
+    private void run( String mainClass, Properties properties, String[] args )
+    {
+        Properties saved = (Properties) System.getProperties().clone();
+        Set<Thread> threads = liveThreads();
+        int status = 0;
+        for ( Map.Entry<Object, Object> entry : properties.entrySet() )
+        {
+            System.setProperty( (String) entry.getKey(), (String) entry.getValue() );
+        }
+        ClassLoader loader = ClassLoader.getSystemClassLoader();
+        Thread.currentThread().setContextClassLoader( loader );
+        trapExit = true;
+        try
+        {
+            Method main = Class.forName( mainClass, true, loader ).getMethod( "main", String[].class );
+            main.invoke( null, (Object) args );
+        }
+        catch ( InvocationTargetException e )
+        {
+            status = statusOf( e.getCause() );
+        }
+        catch ( ExitTrappedException e )
+        {
+            status = e.getStatus();
+        }
+        catch ( ClassNotFoundException e )
+        {
+            System.err.println( "Error: Could not find or load main class " + mainClass );
+            status = 1;
+        }
+        catch ( Exception e )
+        {
+            e.printStackTrace();
+            status = 1;
+        }
+        finally
+        {
+            trapExit = false;
+            System.out.flush();
+            System.err.flush();
+            out.sendPendingLine();
+            err.sendPendingLine();
+            System.setProperties( saved );
+        }
+
+        // a tool that leaves threads running or fills the heap would affect the next requests
+        boolean dirty = false;
+        for ( Thread thread : liveThreads() )
+        {
+            if ( !threads.contains( thread ) && !thread.isDaemon() )
+            {
+                dirty = true;
+                break;
+            }
+        }
+        send( EXIT, status + " " + heapUsedAfterGc() + " " + heapMax() + " " + ( dirty ? "1" : "0" ) );
+    }
+
+    private int statusOf( Throwable t )
+    {
+        for ( Throwable cause = t; cause != null; cause = cause.getCause() )
+        {
+            if ( cause instanceof ExitTrappedException )
+            {
+                return ( (ExitTrappedException) cause ).getStatus();
+            }
+        }
+        System.err.print( "Exception in thread \"main\" " );
+        t.printStackTrace();
+        return 1;
+    }
+
+    private static Set<Thread> liveThreads()
+    {
+        Thread[] threads = new Thread[Thread.activeCount() * 2 + 16];
+        int count = Thread.enumerate( threads );
+        Set<Thread> live = new HashSet<Thread>();
+        for ( int i = 0; i < count; i++ )
+        {
+            live.add( threads[i] );
+        }
+        return live;
+    }
+
+    private static long heapUsedAfterGc()
+    {
+        long used = 0;
+        for ( MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() )
+        {
+            if ( pool.getType() != MemoryType.HEAP )
+            {
+                continue;
+            }
+            MemoryUsage usage = pool.getCollectionUsage();
+            used += usage != null ? usage.getUsed() : pool.getUsage().getUsed();
+        }
+        return used;
+    }
+
+    private static long heapMax()
+    {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getMax();
+    }
+
+    private String readString()
+        throws IOException
+    {
+        byte[] bytes = new byte[requests.readInt()];
+        requests.readFully( bytes );
+        return new String( bytes, "UTF-8" );
+    }
+
+    private void send( char frame, String line )
+    {
+        try
+        {
+            byte[] bytes = line.getBytes();
+            send( frame, bytes, bytes.length );
+        }
+        catch ( IOException e )
+        {
+            // Maven is gone
+            Runtime.getRuntime().halt( 1 );
+        }
+    }
+
+    private void send( char frame, byte[] line, int length )
+        throws IOException
+    {
+        synchronized ( channel )
+        {
+            channel.write( frame );
+            channel.write( ' ' );
+            channel.write( line, 0, length );
+            channel.write( '\n' );
+            channel.flush();
+        }
+    }
+
+    /**
+     * Send each line written to System.out/err as a frame on the real standard output
+     */
+    private class FramedOutputStream
+        extends OutputStream
+    {
+        private final char frame;
+
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        FramedOutputStream( char frame )
+        {
+            this.frame = frame;
+        }
+
+        @Override
+        public synchronized void write( int b )
+            throws IOException
+        {
+            if ( b == '\n' )
+            {
+                sendLine();
+            }
+            else if ( b != '\r' )
+            {
+                line.write( b );
+            }
+        }
+
+        /**
+         * Only complete lines are sent, but don't hold a pending line when the tool is done
+         */
+        synchronized void sendPendingLine()
+        {
+            if ( line.size() > 0 )
+            {
+                try
+                {
+                    sendLine();
+                }
+                catch ( IOException e )
+                {
+                    Runtime.getRuntime().halt( 1 );
+                }
+            }
+        }
+
+        private void sendLine()
+            throws IOException
+        {
+            send( frame, line.toByteArray(), line.size() );
+            line.reset();
+        }
+    }
+
+    /**
+     * Thrown instead of terminating the worker JVM when the tool calls <code>System.exit</code>.
+     */
+    static class ExitTrappedException
+        extends SecurityException
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        ExitTrappedException( int status )
+        {
+            super( "System.exit(" + status + ")" );
+            this.status = status;
+        }
+
+        public int getStatus()
+        {
+            return status;
+        }
+    }
+}
@@ -0,0 +1,428 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.StringUtils;
+import org.codehaus.plexus.util.cli.CommandLineException;
+import org.codehaus.plexus.util.cli.CommandLineTimeOutException;
+import org.codehaus.plexus.util.cli.StreamConsumer;
+
+/**
+ * Persistent worker JVMs running {@link WorkerMain}, shared by all mojo executions of the build. Workers are reused
+ * for commands with the same JVM, JVM arguments and classpath, as long as no jar of the classpath has been rebuilt ;
+ * a worker is discarded when its heap gets large or when the tool left some threads running.
+ *
+ * @since 7.7
+ */
+final class WorkerPool
+{
+    private static final WorkerPool INSTANCE = new WorkerPool();
+
+    /** idle workers by launch command */
+    private final Map<String, LinkedList<Worker>> idle = new HashMap<String, LinkedList<Worker>>();
+
+    /** launch commands for which the worker JVM can't trap System.exit */
+    private final Set<String> unsupported = new HashSet<String>();
+
+    private final Set<Worker> workers = new HashSet<Worker>();
+
+    private final Timer timer = new Timer( "gwt-worker-timeout", true );
+
+    private WorkerPool()
+    {
+        Runtime.getRuntime().addShutdownHook( new Thread( "gwt-worker-shutdown" )
+        {
+            @Override
+            public void run()
+            {
+                shutdown();
+            }
+        } );
+    }
+
+    static WorkerPool getInstance()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * Run the command in a worker JVM.
+     *
+     * @param command the command to run
+     * @param java path to the java executable
+     * @param classpath the command classpath, with the plugin jar
+     * @param classpathArguments the JVM arguments setting this classpath
+     * @return the exit status of the command, or <code>null</code> if it can't be run by a worker and must be forked
+     * @throws CommandLineException the worker JVM failed or has been killed on time-out
+     */
+    Integer execute( JavaCommand command, String java, List<File> classpath, List<String> classpathArguments )
+        throws CommandLineException
+    {
+        List<String> launch = new ArrayList<String>();
+        launch.add( java );
+        launch.addAll( command.getJvmArgs() );
+        if ( JavaVersion.of( java ) >= 18 )
+        {
+            // System.setSecurityManager is disabled by default from JDK 18, allow the worker to trap System.exit
+            launch.add( "-Djava.security.manager=allow" );
+        }
+        launch.addAll( classpathArguments );
+        launch.add( WorkerMain.class.getName() );
+        launch.add( String.valueOf( command.getDaemonIdleTimeout() + 60 ) );
+        // the loaded classes of a worker are stale once a jar is rebuilt in place, as in a long-lived Maven JVM
+        String key = StringUtils.join( launch.iterator(), "\n" ) + "\n" + LaunchClasspath.stamps( classpath );
+
+        Log log = command.getLog();
+        Worker worker = borrow( key, command.getDaemonIdleTimeout() * 1000L );
+        if ( worker == null )
+        {
+            try
+            {
+                log.debug( "Start worker JVM :\n" + launch );
+                worker = new Worker( launch );
+            }
+            catch ( IOException e )
+            {
+                throw new CommandLineException( "Failed to start worker JVM", e );
+            }
+            if ( !worker.awaitReady( log ) )
+            {
+                worker.close();
+                synchronized ( this )
+                {
+                    unsupported.add( key );
+                }
+                log.info( "The JVM " + java + " doesn't allow to run GWT tools in a worker JVM, forking instead" );
+                return null;
+            }
+        }
+        else
+        {
+            log.debug( "Reuse worker JVM for " + command.getMainClass() );
+        }
+
+        Result result = worker.run( command );
+        long recycleHeap = command.getDaemonRecycleHeap() > 0
+                        ? command.getDaemonRecycleHeap() * 1024L * 1024L : result.heapMax / 4 * 3;
+        if ( result.dirty || result.heapUsed > recycleHeap )
+        {
+            log.debug( "Discard worker JVM (heap used " + ( result.heapUsed >> 20 ) + "MB, threads left running : "
+                + result.dirty + ")" );
+            worker.close();
+        }
+        else
+        {
+            release( key, worker );
+        }
+        return result.status;
+    }
+
+    private synchronized Worker borrow( String key, long idleTimeout )
+    {
+        if ( unsupported.contains( key ) )
+        {
+            return null;
+        }
+        LinkedList<Worker> candidates = idle.get( key );
+        while ( candidates != null && !candidates.isEmpty() )
+        {
+            Worker worker = candidates.removeFirst();
+            if ( worker.isAlive() && System.currentTimeMillis() - worker.idleSince < idleTimeout )
+            {
+                return worker;
+            }
+            worker.close();
+        }
+        return null;
+    }
+
+    private synchronized void release( String key, Worker worker )
+    {
+        LinkedList<Worker> candidates = idle.get( key );
+        if ( candidates == null )
+        {
+            candidates = new LinkedList<Worker>();
+            idle.put( key, candidates );
+        }
+        worker.idleSince = System.currentTimeMillis();
+        candidates.addFirst( worker );
+    }
+
+    private synchronized void shutdown()
+    {
+        for ( Worker worker : new ArrayList<Worker>( workers ) )
+        {
+            worker.close();
+        }
+        idle.clear();
+    }
+
+    /**
+     * @return the classpath element (plugin jar) that provides {@link WorkerMain}
+     */
+    static File getClassPathElement()
+        throws CommandLineException
+    {
+        try
+        {
+            return new File( WorkerMain.class.getProtectionDomain().getCodeSource().getLocation().toURI() );
+        }
+        catch ( URISyntaxException e )
+        {
+            throw new CommandLineException( "Failed to locate the worker classes", e );
+        }
+    }
+
+    private static class Result
+    {
+        int status;
+
+        long heapUsed;
+
+        long heapMax;
+
+        boolean dirty;
+    }
+
+    private class Worker
+    {
+        private final Process process;
+
+        private final DataOutputStream requests;
+
+        private final BufferedReader frames;
+
+        private volatile StreamConsumer err;
+
+        private long idleSince;
+
+        Worker( List<String> launch )
+            throws IOException
+        {
+            process = new ProcessBuilder( launch ).start();
+            requests = new DataOutputStream( new BufferedOutputStream( process.getOutputStream() ) );
+            frames = new BufferedReader( new InputStreamReader( process.getInputStream() ) );
+            synchronized ( WorkerPool.this )
+            {
+                workers.add( this );
+            }
+
+            // messages from the JVM itself (crash, warnings) are not framed
+            Thread pump = new Thread( "gwt-worker-stderr" )
+            {
+                @Override
+                public void run()
+                {
+                    BufferedReader reader = new BufferedReader( new InputStreamReader( process.getErrorStream() ) );
+                    try
+                    {
+                        String line;
+                        while ( ( line = reader.readLine() ) != null )
+                        {
+                            StreamConsumer consumer = err;
+                            if ( consumer != null )
+                            {
+                                consumer.consumeLine( line );
+                            }
+                        }
+                    }
+                    catch ( IOException e )
+                    {
+                        // worker is gone
+                    }
+                }
+            };
+            pump.setDaemon( true );
+            pump.start();
+        }
+
+        boolean awaitReady( Log log )
+        {
+            try
+            {
+                String line;
+                while ( ( line = frames.readLine() ) != null )
+                {
+                    if ( line.length() > 1 && line.charAt( 0 ) == WorkerMain.READY )
+                    {
+                        return line.endsWith( "1" );
+                    }
+                    log.debug( line );
+                }
+            }
+            catch ( IOException e )
+            {
+                log.debug( "Failed to start worker JVM", e );
+            }
+            return false;
+        }
+
+        Result run( JavaCommand command )
+            throws CommandLineException
+        {
+            StreamConsumer out = command.getOut();
+            err = command.getErr();
+            TimerTask timeout = null;
+            final boolean[] timedOut = new boolean[1];
+            if ( command.getTimeOut() > 0 )
+            {
+                timeout = new TimerTask()
+                {
+                    @Override
+                    public void run()
+                    {
+                        timedOut[0] = true;
+                        close();
+                    }
+                };
+                timer.schedule( timeout, command.getTimeOut() * 1000L );
+            }
+            try
+            {
+                requests.writeInt( WorkerMain.RUN );
+                writeString( command.getMainClass() );
+                Properties properties = command.getSystemProperties();
+                requests.writeInt( properties == null ? 0 : properties.size() );
+                if ( properties != null )
+                {
+                    for ( Map.Entry<Object, Object> entry : properties.entrySet() )
+                    {
+                        writeString( String.valueOf( entry.getKey() ) );
+                        writeString( String.valueOf( entry.getValue() ) );
+                    }
+                }
+                requests.writeInt( command.getArgs().size() );
+                for ( String arg : command.getArgs() )
+                {
+                    writeString( arg );
+                }
+                requests.flush();
+
+                String line;
+                while ( ( line = frames.readLine() ) != null )
+                {
+                    char frame = line.length() > 1 ? line.charAt( 0 ) : 0;
+                    String content = line.length() > 1 ? line.substring( 2 ) : "";
+                    if ( frame == WorkerMain.OUT )
+                    {
+                        out.consumeLine( content );
+                    }
+                    else if ( frame == WorkerMain.ERR )
+                    {
+                        err.consumeLine( content );
+                    }
+                    else if ( frame == WorkerMain.EXIT )
+                    {
+                        String[] values = content.split( " " );
+                        Result result = new Result();
+                        result.status = Integer.parseInt( values[0] );
+                        result.heapUsed = Long.parseLong( values[1] );
+                        result.heapMax = Long.parseLong( values[2] );
+                        result.dirty = "1".equals( values[3] );
+                        return result;
+                    }
+                    else
+                    {
+                        out.consumeLine( line );
+                    }
+                }
+            }
+            catch ( IOException e )
+            {
+                close();
+                if ( !timedOut[0] )
+                {
+                    throw new CommandLineException( "Lost connection to worker JVM", e );
+                }
+            }
+            finally
+            {
+                if ( timeout != null )
+                {
+                    timeout.cancel();
+                }
+            }
+            close();
+            if ( timedOut[0] )
+            {
+                throw new CommandLineTimeOutException( "Worker JVM has been killed on time-out" );
+            }
+            throw new CommandLineException( "Worker JVM terminated unexpectedly" );
+        }
+
+        private void writeString( String value )
+            throws IOException
+        {
+            byte[] bytes = value.getBytes( "UTF-8" );
+            requests.writeInt( bytes.length );
+            requests.write( bytes );
+        }
+
+        boolean isAlive()
+        {
+            try
+            {
+                process.exitValue();
+                return false;
+            }
+            catch ( IllegalThreadStateException e )
+            {
+                return true;
+            }
+        }
+
+        void close()
+        {
+            synchronized ( WorkerPool.this )
+            {
+                workers.remove( this );
+            }
+            try
+            {
+                requests.writeInt( WorkerMain.SHUTDOWN );
+                requests.flush();
+            }
+            catch ( IOException e )
+            {
+                // already gone
+            }
+            process.destroy();
+        }
+    }
+}
@@ -0,0 +1,443 @@
+package org.codehaus.mojo.gwt.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Index of the resources of a classpath, to find the entry holding a resource with a hash lookup instead of probing
+ * every jar as a class loader does.
+ * <p>
+ * The entry names of a jar are read from its ZIP central directory only, without inflating anything.
+ * They are kept for the build and on disk, by jar path, size and last modification time, the least recently used
+ * indexes being removed once they exceed {@link #MAX_SIZE}. Directories are not indexed, their content changes during
+ * the build : resources are probed in them at lookup.
+ *
+ * @since 7.7
+ */
+public class ClasspathIndex
+{
+    private static final String ENTRIES = "jar-entries:";
+
+    private static final int END_SIGNATURE = 0x06054b50;
+
+    private static final int CENTRAL_SIGNATURE = 0x02014b50;
+
+    private static final int END_SIZE = 22;
+
+    private static final int CENTRAL_SIZE = 46;
+
+    /** general purpose flag of the entries whose name is encoded in UTF-8 */
+    private static final int UTF_8_FLAG = 1 << 11;
+
+    private static final String UTF_8 = "UTF-8";
+
+    private static final String EXTENSION = ".idx";
+
+    /** maximum size of the indexes stored on disk, 64 MB */
+    static final long MAX_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * Where jar indexes are stored by default
+     */
+    public static final File DEFAULT_DIRECTORY =
+        new File( System.getProperty( "user.home" ), ".m2/vaadin-maven-plugin/classpath-index" );
+
+    private final List<File> classpath;
+
+    /** resource name to the position in the classpath of the first jar holding it */
+    private final Map<String, Integer> jarResources = new HashMap<String, Integer>();
+
+    private final List<Integer> directories = new ArrayList<Integer>();
+
+    /**
+     * @param classpath the classpath, in lookup order
+     * @param cache where jar entries are kept for the build
+     * @param directory where jar entries are stored across builds, <code>null</code> to only keep them for the build
+     */
+    public ClasspathIndex( Collection<File> classpath, Map<String, Object> cache, File directory )
+    {
+        this.classpath = new ArrayList<File>( classpath );
+        for ( int i = 0; i < this.classpath.size(); i++ )
+        {
+            File file = this.classpath.get( i );
+            if ( file.isDirectory() )
+            {
+                directories.add( i );
+            }
+            else if ( file.isFile() )
+            {
+                for ( String name : getEntries( file, cache, directory ) )
+                {
+                    if ( !jarResources.containsKey( name ) )
+                    {
+                        jarResources.put( name, i );
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param name the resource name, '/' separated
+     * @return the classpath entry holding the resource, <code>null</code> if none does
+     */
+    public File find( String name )
+    {
+        Integer jar = jarResources.get( name );
+        for ( int i : directories )
+        {
+            if ( jar != null && i > jar )
+            {
+                break;
+            }
+            File directory = classpath.get( i );
+            if ( new File( directory, name ).isFile() )
+            {
+                return directory;
+            }
+        }
+        return jar != null ? classpath.get( jar ) : null;
+    }
+
+    /**
+     * @return the names of the entries of a jar, directories excluded, empty if it can't be read
+     */
+    public static List<String> getEntries( File jar, Map<String, Object> cache, File directory )
+    {
+        String key = ENTRIES + jar.getAbsolutePath() + ":" + jar.length() + ":" + jar.lastModified();
+        @SuppressWarnings( "unchecked" )
+        List<String> entries = (List<String>) cache.get( key );
+        if ( entries == null )
+        {
+            File stored = directory != null
+                            ? new File( directory, DigestUtils.sha1Hex( jar.getAbsolutePath() ) + EXTENSION ) : null;
+            String header = jar.length() + " " + jar.lastModified();
+            entries = stored != null ? load( stored, header ) : null;
+            if ( entries == null )
+            {
+                try
+                {
+                    entries = Collections.unmodifiableList( readEntries( jar ) );
+                }
+                catch ( IOException e )
+                {
+                    return Collections.emptyList();
+                }
+                catch ( RuntimeException e )
+                {
+                    // malformed entry names
+                    return Collections.emptyList();
+                }
+                if ( stored != null )
+                {
+                    store( stored, header, entries );
+                    evict( directory, MAX_SIZE );
+                }
+            }
+            cache.put( key, entries );
+        }
+        return entries;
+    }
+
+    /**
+     * Read the entry names of the ZIP central directory. The file is read rather than memory-mapped : a mapping lasts
+     * until garbage collection, and keeps the jar locked on Windows. The JDK reads the archives it can't be sure to
+     * decode as it does : zip64, prefixed, inconsistent, or with names in another encoding than UTF-8.
+     */
+    static List<String> readEntries( File jar )
+        throws IOException
+    {
+        try
+        {
+            List<String> entries = readCentralDirectory( jar );
+            if ( entries != null )
+            {
+                return entries;
+            }
+        }
+        catch ( RuntimeException e )
+        {
+            // a record pointing out of the central directory
+        }
+        return readEntriesWithZipFile( jar );
+    }
+
+    /**
+     * @return the entry names, <code>null</code> if the central directory has to be read by the JDK
+     */
+    private static List<String> readCentralDirectory( File jar )
+        throws IOException
+    {
+        RandomAccessFile file = new RandomAccessFile( jar, "r" );
+        try
+        {
+            long size = file.length();
+            if ( size < END_SIZE )
+            {
+                throw new IOException( "Not a zip file " + jar );
+            }
+            // the end record is followed by a comment of at most 64k
+            int tail = (int) Math.min( size, END_SIZE + 0xffff );
+            ByteBuffer end = read( file, size - tail, tail );
+            int position = -1;
+            for ( int i = tail - END_SIZE; i >= 0; i-- )
+            {
+                if ( end.getInt( i ) == END_SIGNATURE )
+                {
+                    position = i;
+                    break;
+                }
+            }
+            if ( position < 0 )
+            {
+                throw new IOException( "No zip central directory in " + jar );
+            }
+            long centralSize = end.getInt( position + 12 ) & 0xffffffffL;
+            long centralOffset = end.getInt( position + 16 ) & 0xffffffffL;
+            if ( centralOffset == 0xffffffffL || centralOffset != size - tail + position - centralSize
+                || centralSize > Integer.MAX_VALUE )
+            {
+                // zip64 or prefixed archive
+                return null;
+            }
+            ByteBuffer central = read( file, centralOffset, (int) centralSize );
+            List<String> entries = new ArrayList<String>();
+            byte[] buffer = new byte[256];
+            int i = 0;
+            while ( i + CENTRAL_SIZE <= centralSize && central.getInt( i ) == CENTRAL_SIGNATURE )
+            {
+                int flags = central.getShort( i + 8 ) & 0xffff;
+                int nameLength = central.getShort( i + 28 ) & 0xffff;
+                int extraLength = central.getShort( i + 30 ) & 0xffff;
+                int commentLength = central.getShort( i + 32 ) & 0xffff;
+                if ( buffer.length < nameLength )
+                {
+                    buffer = new byte[nameLength];
+                }
+                central.position( i + CENTRAL_SIZE );
+                central.get( buffer, 0, nameLength );
+                if ( ( flags & UTF_8_FLAG ) == 0 && !isAscii( buffer, nameLength ) )
+                {
+                    // legacy encoding, CP437 or the platform one
+                    return null;
+                }
+                String name = new String( buffer, 0, nameLength, UTF_8 );
+                if ( !name.endsWith( "/" ) )
+                {
+                    entries.add( name );
+                }
+                i += CENTRAL_SIZE + nameLength + extraLength + commentLength;
+            }
+            return entries;
+        }
+        finally
+        {
+            file.close();
+        }
+    }
+
+    private static boolean isAscii( byte[] bytes, int length )
+    {
+        for ( int i = 0; i < length; i++ )
+        {
+            if ( bytes[i] < 0 )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static ByteBuffer read( RandomAccessFile file, long offset, int length )
+        throws IOException
+    {
+        byte[] bytes = new byte[length];
+        file.seek( offset );
+        file.readFully( bytes );
+        return ByteBuffer.wrap( bytes ).order( ByteOrder.LITTLE_ENDIAN );
+    }
+
+    private static List<String> readEntriesWithZipFile( File jar )
+        throws IOException
+    {
+        List<String> entries = new ArrayList<String>();
+        ZipFile zip = new ZipFile( jar );
+        try
+        {
+            Enumeration<? extends ZipEntry> e = zip.entries();
+            while ( e.hasMoreElements() )
+            {
+                ZipEntry entry = e.nextElement();
+                if ( !entry.isDirectory() )
+                {
+                    entries.add( entry.getName() );
+                }
+            }
+        }
+        finally
+        {
+            zip.close();
+        }
+        return entries;
+    }
+
+    private static List<String> load( File stored, String header )
+    {
+        if ( !stored.isFile() )
+        {
+            return null;
+        }
+        BufferedReader reader = null;
+        try
+        {
+            reader = new BufferedReader( new InputStreamReader( new FileInputStream( stored ), UTF_8 ) );
+            if ( !header.equals( reader.readLine() ) )
+            {
+                return null;
+            }
+            // recently used, for the eviction
+            stored.setLastModified( System.currentTimeMillis() );
+            List<String> entries = new ArrayList<String>();
+            String line;
+            while ( ( line = reader.readLine() ) != null )
+            {
+                entries.add( line );
+            }
+            return Collections.unmodifiableList( entries );
+        }
+        catch ( IOException e )
+        {
+            return null;
+        }
+        finally
+        {
+            IOUtil.close( reader );
+        }
+    }
+
+    private static void store( File stored, String header, List<String> entries )
+    {
+        stored.getParentFile().mkdirs();
+        Writer writer = null;
+        File tmp = null;
+        try
+        {
+            // written aside and renamed, for concurrent builds
+            tmp = File.createTempFile( stored.getName(), ".tmp", stored.getParentFile() );
+            writer = new OutputStreamWriter( new FileOutputStream( tmp ), UTF_8 );
+            writer.write( header );
+            writer.write( '\n' );
+            for ( String entry : entries )
+            {
+                writer.write( entry );
+                writer.write( '\n' );
+            }
+            writer.close();
+            writer = null;
+            if ( !tmp.renameTo( stored ) )
+            {
+                stored.delete();
+                tmp.renameTo( stored );
+            }
+        }
+        catch ( IOException e )
+        {
+            // only a cache
+        }
+        finally
+        {
+            IOUtil.close( writer );
+            if ( tmp != null )
+            {
+                tmp.delete();
+            }
+        }
+    }
+
+    /**
+     * Remove the least recently used indexes until they are smaller than the maximum size
+     */
+    static void evict( File directory, long maxSize )
+    {
+        File[] files = directory.listFiles();
+        if ( files == null )
+        {
+            return;
+        }
+        List<File> indexes = new ArrayList<File>();
+        long size = 0;
+        for ( File file : files )
+        {
+            if ( file.getName().endsWith( EXTENSION ) )
+            {
+                indexes.add( file );
+                size += file.length();
+            }
+        }
+        if ( size <= maxSize )
+        {
+            return;
+        }
+        Collections.sort( indexes, new Comparator<File>()
+        {
+            public int compare( File f1, File f2 )
+            {
+                long t1 = f1.lastModified();
+                long t2 = f2.lastModified();
+                return t1 < t2 ? -1 : t1 == t2 ? 0 : 1;
+            }
+        } );
+        for ( File file : indexes )
+        {
+            if ( size <= maxSize )
+            {
+                break;
+            }
+            long length = file.length();
+            if ( file.delete() )
+            {
+                size -= length;
+            }
+        }
+    }
+}
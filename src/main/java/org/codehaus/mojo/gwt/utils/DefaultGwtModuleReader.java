@@ -16,32 +16,16 @@ package org.codehaus.mojo.gwt.utils;
  */
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.InputStream;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLClassLoader;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 import org.apache.maven.artifact.Artifact;
-import org.apache.maven.model.Resource;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.MavenProject;
-import org.codehaus.mojo.gwt.AbstractGwtModuleMojo;
 import org.codehaus.mojo.gwt.ClasspathBuilder;
 import org.codehaus.mojo.gwt.ClasspathBuilderException;
 import org.codehaus.mojo.gwt.GwtModule;
 import org.codehaus.mojo.gwt.GwtModuleReader;
-import org.codehaus.plexus.util.DirectoryScanner;
-import org.codehaus.plexus.util.ReaderFactory;
-import org.codehaus.plexus.util.xml.Xpp3Dom;
-import org.codehaus.plexus.util.xml.Xpp3DomBuilder;
 
 /**
  * @author <a href="mailto:olamy@apache.org">Olivier Lamy</a>
@@ -58,149 +42,54 @@ public class DefaultGwtModuleReader
 
     private Log log;
 
+    private Object session;
+
     public DefaultGwtModuleReader( MavenProject mavenProject, Log log, ClasspathBuilder classpathBuilder )
+    {
+        this( mavenProject, log, classpathBuilder, null );
+    }
+
+    /**
+     * @param session the Maven session the parsed modules are shared with
+     * @since 7.7
+     */
+    public DefaultGwtModuleReader( MavenProject mavenProject, Log log, ClasspathBuilder classpathBuilder,
+                                   Object session )
     {
         this.mavenProject = mavenProject;
         this.log = log;
         this.classpathBuilder = classpathBuilder;
+        this.session = session;
     }
 
-    @SuppressWarnings("unchecked")
     public List<String> getGwtModules()
     {
-        //Use a Set to avoid duplicate when user set src/main/java as <resource>
-        Set<String> mods = new HashSet<String>();
-
-        Collection<String> sourcePaths = (Collection<String>) mavenProject.getCompileSourceRoots();
-        for ( String sourcePath : sourcePaths )
-        {
-            File sourceDirectory = new File( sourcePath );
-            if ( sourceDirectory.exists() )
-            {
-                DirectoryScanner scanner = new DirectoryScanner();
-                scanner.setBasedir( sourceDirectory.getAbsolutePath() );
-                scanner.setIncludes( new String[] { "**/*" + GWT_MODULE_EXTENSION } );
-                scanner.scan();
-
-                mods.addAll( Arrays.asList( scanner.getIncludedFiles() ) );
-            }
-        }
-
-        Collection<Resource> resources = (Collection<Resource>) mavenProject.getResources();
-        for ( Resource resource : resources )
-        {
-            File resourceDirectoryFile = new File( resource.getDirectory() );
-            if ( !resourceDirectoryFile.exists() )
-            {
-                continue;
-            }
-            DirectoryScanner scanner = new DirectoryScanner();
-            scanner.setBasedir( resource.getDirectory() );
-            scanner.setIncludes( new String[] { "**/*" + GWT_MODULE_EXTENSION } );
-            scanner.scan();
-            mods.addAll( Arrays.asList( scanner.getIncludedFiles() ) );
-        }
-
-        if ( mods.isEmpty() )
-        {
-            log.warn( "GWT plugin is configured to detect modules, but none were found." );
-        }
-
-        List<String> modules = new ArrayList<String>( mods.size() );
-        for ( String fileName : mods )
-        {
-            String path = fileName.substring( 0, fileName.length() - GWT_MODULE_EXTENSION.length() );
-            modules.add( path.replace( File.separatorChar, '.' ) );
-        }
-        if ( modules.size() > 0 )
-        {
-            log.info( "auto discovered modules " + modules );
-        }
-        return modules;
+        return getModuleRegistry().getGwtModules();
     }
 
     public GwtModule readModule( String name )
         throws GwtModuleReaderException
     {
-        String modulePath = name.replace( '.', '/' ) + GWT_MODULE_EXTENSION;
-        Collection<String> sourceRoots = mavenProject.getCompileSourceRoots();
-        for ( String sourceRoot : sourceRoots )
-        {
-            File root = new File( sourceRoot );
-            File xml = new File( root, modulePath );
-            if ( xml.exists() )
-            {
-                log.debug( "GWT module " + name + " found in " + root );
-                return readModule( name, xml );
-            }
-        }
-        Collection<Resource> resources = (Collection<Resource>) mavenProject.getResources();
-        for ( Resource resource : resources )
-        {
-            File root = new File( resource.getDirectory() );
-            File xml = new File( root, modulePath );
-            if ( xml.exists() )
-            {
-                log.debug( "GWT module " + name + " found in " + root );
-                return readModule( name, xml );
-            }
-        }
-
-        try
-        {
-            Collection<File> classpath = getClasspath( Artifact.SCOPE_COMPILE );
-            URL[] urls = new URL[classpath.size()];
-            int i = 0;
-            for ( File file : classpath )
-            {
-                urls[i++] = file.toURI().toURL();
-            }
-            InputStream stream = new URLClassLoader( urls ).getResourceAsStream( modulePath );
-            if ( stream != null )
-            {
-                return readModule( name, stream );
-            }
-        }
-        catch ( MalformedURLException e )
-        {
-            // ignored;
-        }
-        catch ( ClasspathBuilderException e )
-        {
-            throw new GwtModuleReaderException( e.getMessage(), e );
-        }
-
-        throw new GwtModuleReaderException( "GWT Module " + name + " not found in project sources or resources." );
-    }
-
-    private GwtModule readModule( String name, File file )
-        throws GwtModuleReaderException
-
-    {
-        try
-        {
-            return readModule( name, new FileInputStream( file ) );
-        }
-        catch ( FileNotFoundException e )
-        {
-            throw new GwtModuleReaderException( "Failed to read module file " + file );
-        }
+        return getModuleRegistry().readModule( name );
     }
 
-    private GwtModule readModule( String name, InputStream xml )
-        throws GwtModuleReaderException
+    private GwtModuleRegistry getModuleRegistry()
     {
-        try
-        {
-            Xpp3Dom dom = Xpp3DomBuilder.build( ReaderFactory.newXmlReader( xml ) );
-            return new GwtModule( name, dom, this );
-        }
-        catch ( Exception e )
+        return GwtModuleRegistry.get( session, mavenProject, log, "reader", new GwtModuleRegistry.ClasspathProvider()
         {
-            String error = "Failed to read module XML file " + xml;
-            log.error( error );
-            throw new GwtModuleReaderException( error, e );
-        }
+            public Collection<File> getClasspath()
+                throws GwtModuleReaderException
+            {
+                try
+                {
+                    return DefaultGwtModuleReader.this.getClasspath( Artifact.SCOPE_COMPILE );
+                }
+                catch ( ClasspathBuilderException e )
+                {
+                    throw new GwtModuleReaderException( e.getMessage(), e );
+                }
+            }
+        } );
     }
 
     public Collection<File> getClasspath( String scope )
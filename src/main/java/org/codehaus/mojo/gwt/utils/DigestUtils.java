@@ -0,0 +1,150 @@
+package org.codehaus.mojo.gwt.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * SHA-1 digests used as keys of the files the plugin caches between builds.
+ *
+ * @since 7.7
+ */
+public final class DigestUtils
+{
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final String FILE_SHA1 = "file-sha1:";
+
+    private DigestUtils()
+    {
+        // utility class
+    }
+
+    /**
+     * @return a new SHA-1 message digest
+     */
+    public static MessageDigest newDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance( "SHA-1" );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            // SHA-1 is required on every Java platform
+            throw new IllegalStateException( e );
+        }
+    }
+
+    /**
+     * Update the digest with the UTF-8 bytes of the text
+     */
+    public static void update( MessageDigest digest, String text )
+    {
+        try
+        {
+            digest.update( text.getBytes( "UTF-8" ) );
+        }
+        catch ( UnsupportedEncodingException e )
+        {
+            throw new IllegalStateException( e );
+        }
+    }
+
+    /**
+     * Update the digest with the content of the file
+     */
+    public static void update( MessageDigest digest, File file )
+        throws IOException
+    {
+        InputStream in = new FileInputStream( file );
+        try
+        {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ( ( read = in.read( buffer ) ) >= 0 )
+            {
+                digest.update( buffer, 0, read );
+            }
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+    }
+
+    /**
+     * @return hex-encoded SHA-1 of the UTF-8 bytes of the text
+     */
+    public static String sha1Hex( String text )
+    {
+        MessageDigest digest = newDigest();
+        update( digest, text );
+        return toHex( digest.digest() );
+    }
+
+    /**
+     * @return hex-encoded SHA-1 of the file content
+     */
+    public static String sha1Hex( File file )
+        throws IOException
+    {
+        MessageDigest digest = newDigest();
+        update( digest, file );
+        return toHex( digest.digest() );
+    }
+
+    /**
+     * @param cache where the hash is kept by path, size and last modification time, for the build
+     * @return hex-encoded SHA-1 of the file content
+     */
+    public static String sha1Hex( File file, Map<String, Object> cache )
+        throws IOException
+    {
+        String key = FILE_SHA1 + file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified();
+        String hash = (String) cache.get( key );
+        if ( hash == null )
+        {
+            hash = sha1Hex( file );
+            cache.put( key, hash );
+        }
+        return hash;
+    }
+
+    public static String toHex( byte[] bytes )
+    {
+        char[] chars = new char[bytes.length * 2];
+        for ( int i = 0; i < bytes.length; i++ )
+        {
+            chars[2 * i] = HEX[( bytes[i] >> 4 ) & 0xf];
+            chars[2 * i + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String( chars );
+    }
+}
@@ -0,0 +1,138 @@
+package org.codehaus.mojo.gwt.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Content hashes of the inputs and output of generated sources, persisted between builds so that a source is only
+ * generated again when its input changed or its output has been modified or deleted. Unlike timestamps, hashes survive
+ * a checkout or a copy of the sources.
+ *
+ * @since 7.7
+ */
+public class GenerationState
+{
+    private final File file;
+
+    private final Properties hashes = new Properties();
+
+    private boolean modified;
+
+    /**
+     * @param file the state file, loaded if it exists
+     */
+    public GenerationState( File file )
+    {
+        this.file = file;
+        if ( file.isFile() )
+        {
+            InputStream in = null;
+            try
+            {
+                in = new FileInputStream( file );
+                hashes.load( in );
+            }
+            catch ( IOException e )
+            {
+                // start from scratch
+                hashes.clear();
+            }
+            finally
+            {
+                IOUtil.close( in );
+            }
+        }
+    }
+
+    /**
+     * @param key identifies the generated source
+     * @param inputHash hash of everything the generation depends on, <code>null</code> if unknown
+     * @param output the generated source
+     * @return <code>true</code> if the source has been generated from the same input and has not been modified since
+     */
+    public boolean isUpToDate( String key, String inputHash, File output )
+    {
+        String recorded = hashes.getProperty( key );
+        if ( inputHash == null || recorded == null || !output.isFile() )
+        {
+            return false;
+        }
+        try
+        {
+            return recorded.equals( inputHash + " " + DigestUtils.sha1Hex( output ) );
+        }
+        catch ( IOException e )
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Record the source has been generated from the input
+     */
+    public void generated( String key, String inputHash, File output )
+        throws IOException
+    {
+        if ( inputHash == null || !output.isFile() )
+        {
+            forget( key );
+            return;
+        }
+        hashes.setProperty( key, inputHash + " " + DigestUtils.sha1Hex( output ) );
+        modified = true;
+    }
+
+    public void forget( String key )
+    {
+        modified |= hashes.remove( key ) != null;
+    }
+
+    /**
+     * Write the state file if some hashes changed
+     */
+    public void save()
+        throws IOException
+    {
+        if ( !modified )
+        {
+            return;
+        }
+        file.getParentFile().mkdirs();
+        OutputStream out = new FileOutputStream( file );
+        try
+        {
+            hashes.store( out, null );
+        }
+        finally
+        {
+            IOUtil.close( out );
+        }
+        modified = false;
+    }
+}
@@ -0,0 +1,342 @@
+package org.codehaus.mojo.gwt.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipFile;
+
+import org.apache.maven.model.Resource;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.mojo.gwt.GwtModule;
+import org.codehaus.mojo.gwt.GwtModuleReader;
+import org.codehaus.mojo.gwt.ModuleDescriptor;
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.ReaderFactory;
+
+/**
+ * The GWT modules of a project, shared by the mojos of the build. Each module descriptor is parsed once and the same
+ * {@link GwtModule} instance is returned to every caller, so the inherited modules are resolved once too.
+ * <p>
+ * Modules are looked up in the project source roots and resources, then in the {@link ClasspathIndex} of the
+ * classpath given by the first mojo needing it, no class loader is created. The mojos building their classpath another
+ * way, as with the generator dependencies, use another registry.
+ *
+ * @since 7.7
+ */
+public class GwtModuleRegistry
+    implements GwtModuleReader
+{
+    private static final String REGISTRY = "module-registry:";
+
+    /**
+     * Provides the classpath where the modules not in the project are searched
+     */
+    public interface ClasspathProvider
+    {
+        Collection<File> getClasspath()
+            throws GwtModuleReaderException;
+    }
+
+    private final MavenProject project;
+
+    private final Log log;
+
+    private final Map<String, Entry> modules = new ConcurrentHashMap<String, Entry>();
+
+    private final Map<String, Object> cache;
+
+    private ClasspathProvider classpathProvider;
+
+    private File indexDirectory;
+
+    private ClasspathIndex classpath;
+
+    private ModuleDiscovery discovery;
+
+    GwtModuleRegistry( MavenProject project, Log log, Map<String, Object> cache )
+    {
+        this.project = project;
+        this.log = log;
+        this.cache = cache;
+    }
+
+    /**
+     * @param session the Maven session, <code>null</code> when not run by Maven
+     * @param classpathKind how the classpath of the provider is built, the callers with the same kind share the
+     *            registry
+     * @param classpathProvider where modules are searched when not in the project, used when no mojo of the project
+     *            provided one for this kind yet
+     * @return the registry of the project for the session and classpath kind
+     */
+    public static GwtModuleRegistry get( Object session, MavenProject project, Log log, String classpathKind,
+                                         ClasspathProvider classpathProvider )
+    {
+        return get( session, project, log, classpathKind, classpathProvider, ClasspathIndex.DEFAULT_DIRECTORY );
+    }
+
+    /**
+     * @param session the Maven session, <code>null</code> when not run by Maven
+     * @param classpathKind how the classpath of the provider is built, the callers with the same kind share the
+     *            registry
+     * @param classpathProvider where modules are searched when not in the project, used when no mojo of the project
+     *            provided one for this kind yet
+     * @param indexDirectory where the entries of the classpath jars are stored between builds, <code>null</code> to
+     *            only keep them for the build
+     * @return the registry of the project for the session and classpath kind
+     */
+    public static GwtModuleRegistry get( Object session, MavenProject project, Log log, String classpathKind,
+                                         ClasspathProvider classpathProvider, File indexDirectory )
+    {
+        Map<String, Object> cache = SessionCache.get( session );
+        String key = REGISTRY + project.getId() + ":" + project.getBasedir() + ":" + classpathKind;
+        GwtModuleRegistry registry;
+        synchronized ( cache )
+        {
+            registry = (GwtModuleRegistry) cache.get( key );
+            if ( registry == null )
+            {
+                registry = new GwtModuleRegistry( project, log, cache );
+                cache.put( key, registry );
+            }
+        }
+        registry.setClasspathProvider( classpathProvider, indexDirectory );
+        return registry;
+    }
+
+    private synchronized void setClasspathProvider( ClasspathProvider classpathProvider, File indexDirectory )
+    {
+        if ( this.classpathProvider == null )
+        {
+            this.classpathProvider = classpathProvider;
+            this.indexDirectory = indexDirectory;
+        }
+    }
+
+    private synchronized ClasspathIndex getClasspath()
+        throws GwtModuleReaderException
+    {
+        if ( classpath == null )
+        {
+            Collection<File> files =
+                classpathProvider == null ? Collections.<File>emptyList() : classpathProvider.getClasspath();
+            classpath = new ClasspathIndex( files, cache, indexDirectory );
+        }
+        return classpath;
+    }
+
+    /**
+     * Find the modules in the project source roots and resources
+     */
+    public List<String> getGwtModules()
+    {
+        Set<String> mods = getModuleDiscovery().discover( getProjectRoots() );
+
+        if ( mods.isEmpty() )
+        {
+            log.warn( "GWT plugin is configured to detect modules, but none were found." );
+        }
+
+        List<String> names = new ArrayList<String>( mods.size() );
+        for ( String fileName : mods )
+        {
+            String path =
+                fileName.substring( 0, fileName.length() - DefaultGwtModuleReader.GWT_MODULE_EXTENSION.length() );
+            names.add( path.replace( '/', '.' ) );
+        }
+        if ( names.size() > 0 )
+        {
+            log.info( "auto discovered modules " + names );
+        }
+        return names;
+    }
+
+    private synchronized ModuleDiscovery getModuleDiscovery()
+    {
+        if ( discovery == null )
+        {
+            List<File> excludes = new ArrayList<File>();
+            File journal = null;
+            if ( project.getBuild() != null && project.getBuild().getDirectory() != null )
+            {
+                File buildDirectory = new File( project.getBuild().getDirectory() );
+                excludes.add( buildDirectory );
+                journal = new File( buildDirectory, "gwt-module-journal.properties" );
+            }
+            discovery = new ModuleDiscovery( excludes, journal, cache );
+        }
+        return discovery;
+    }
+
+    public GwtModule readModule( String name )
+        throws GwtModuleReaderException
+    {
+        Entry entry = modules.get( name );
+        if ( entry != null && entry.isCurrent() )
+        {
+            return entry.module;
+        }
+        synchronized ( this )
+        {
+            entry = modules.get( name );
+            if ( entry == null || !entry.isCurrent() )
+            {
+                entry = load( name );
+                modules.put( name, entry );
+            }
+            return entry.module;
+        }
+    }
+
+    private Entry load( String name )
+        throws GwtModuleReaderException
+    {
+        String modulePath = name.replace( '.', '/' ) + DefaultGwtModuleReader.GWT_MODULE_EXTENSION;
+        for ( File root : getProjectRoots() )
+        {
+            File xml = new File( root, modulePath );
+            if ( xml.exists() )
+            {
+                log.debug( "GWT module " + name + " found in " + root );
+                GwtModule module = readModule( name, xml );
+                module.setSourceFile( xml );
+                module.setLocation( root );
+                return new Entry( module, xml );
+            }
+        }
+
+        File file = getClasspath().find( modulePath );
+        if ( file != null )
+        {
+            log.debug( "GWT module " + name + " found in " + file );
+            GwtModule module = file.isDirectory() ? readModule( name, new File( file, modulePath ) )
+                            : readModule( name, file, modulePath );
+            module.setLocation( file );
+            return new Entry( module, null );
+        }
+
+        throw new GwtModuleReaderException( "GWT Module " + name + " not found in project sources or resources." );
+    }
+
+    private List<File> getProjectRoots()
+    {
+        List<File> roots = new ArrayList<File>();
+        for ( String sourceRoot : (Collection<String>) project.getCompileSourceRoots() )
+        {
+            roots.add( new File( sourceRoot ) );
+        }
+        for ( Resource resource : (Collection<Resource>) project.getResources() )
+        {
+            roots.add( new File( resource.getDirectory() ) );
+        }
+        return roots;
+    }
+
+    private GwtModule readModule( String name, File file )
+        throws GwtModuleReaderException
+    {
+        InputStream in = null;
+        try
+        {
+            in = new FileInputStream( file );
+            return readModule( name, in, file.getPath() );
+        }
+        catch ( IOException e )
+        {
+            throw new GwtModuleReaderException( "Failed to read module file " + file );
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+    }
+
+    private GwtModule readModule( String name, File jar, String modulePath )
+        throws GwtModuleReaderException
+    {
+        try
+        {
+            ZipFile zip = new ZipFile( jar );
+            try
+            {
+                InputStream in = zip.getInputStream( zip.getEntry( modulePath ) );
+                return readModule( name, in, jar + "!/" + modulePath );
+            }
+            finally
+            {
+                zip.close();
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new GwtModuleReaderException( "Failed to read module file " + modulePath + " from " + jar );
+        }
+    }
+
+    private GwtModule readModule( String name, InputStream xml, String location )
+        throws GwtModuleReaderException
+    {
+        try
+        {
+            ModuleDescriptor descriptor = ModuleDescriptor.read( ReaderFactory.newXmlReader( xml ) );
+            return new GwtModule( name, descriptor, this );
+        }
+        catch ( Exception e )
+        {
+            String error = "Failed to read module XML file " + location;
+            log.error( error );
+            throw new GwtModuleReaderException( error, e );
+        }
+    }
+
+    /**
+     * A parsed module, and the project file it was read from as it may change during the build
+     */
+    private static class Entry
+    {
+        final GwtModule module;
+
+        final File file;
+
+        final long lastModified;
+
+        Entry( GwtModule module, File file )
+        {
+            this.module = module;
+            this.file = file;
+            this.lastModified = file != null ? file.lastModified() : 0;
+        }
+
+        boolean isCurrent()
+        {
+            return file == null || file.lastModified() == lastModified;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package org.codehaus.mojo.gwt.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.StringUtils;
+
+/**
+ * Find the GWT module descriptors under source and resource directories.
+ * <p>
+ * Directories are listed in parallel, a level of the trees at a time. Hidden and SCM directories and the excluded
+ * output directories are not entered. The content of each directory is recorded in a journal with its last
+ * modification time, so the next build only lists the directories where files were added or removed and stats the
+ * others. Results are kept for the build session.
+ *
+ * @since 7.7
+ */
+public class ModuleDiscovery
+{
+    private static final String DISCOVERY = "module-discovery:";
+
+    private static final Set<String> SKIPPED = new HashSet<String>( Arrays.asList( "CVS", "SCCS" ) );
+
+    private static final char SEPARATOR = '/';
+
+    private final Set<File> excludes;
+
+    private final File journalFile;
+
+    private final Map<String, Object> cache;
+
+    private final Properties journal = new Properties();
+
+    private final Map<String, String> updated = new ConcurrentHashMap<String, String>();
+
+    private final Set<String> found = Collections.newSetFromMap( new ConcurrentHashMap<String, Boolean>() );
+
+    /** directories modified after this time are listed, as the journal may have missed their last change */
+    private long journalTime;
+
+    private final AtomicInteger listed = new AtomicInteger();
+
+    /** one discovery at a time, not taken by the workers listing the directories */
+    private final Object discovering = new Object();
+
+    /**
+     * @param excludes directories not searched, such as the build output directory
+     * @param journalFile where the content of the directories is recorded, <code>null</code> to list them all
+     * @param cache where results are kept for the build
+     */
+    public ModuleDiscovery( Collection<File> excludes, File journalFile, Map<String, Object> cache )
+    {
+        this.excludes = new HashSet<File>();
+        for ( File exclude : excludes )
+        {
+            this.excludes.add( exclude.getAbsoluteFile() );
+        }
+        this.journalFile = journalFile;
+        this.cache = cache;
+    }
+
+    /**
+     * @return the module descriptors found, as '/' separated paths relative to their root
+     */
+    public Set<String> discover( Collection<File> roots )
+    {
+        synchronized ( discovering )
+        {
+            return doDiscover( roots );
+        }
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private Set<String> doDiscover( Collection<File> roots )
+    {
+        String key = DISCOVERY + roots + ":" + excludes;
+        Set<String> modules = (Set<String>) cache.get( key );
+        if ( modules != null )
+        {
+            return modules;
+        }
+        loadJournal();
+        modules = new TreeSet<String>();
+        ExecutorService executor =
+            Executors.newFixedThreadPool( Math.max( 1, Math.min( 8, Runtime.getRuntime().availableProcessors() ) ) );
+        try
+        {
+            List<Directory> level = new ArrayList<Directory>();
+            for ( File root : roots )
+            {
+                if ( root.isDirectory() && !excludes.contains( root.getAbsoluteFile() ) )
+                {
+                    level.add( new Directory( root.getAbsoluteFile(), "" ) );
+                }
+            }
+            while ( !level.isEmpty() )
+            {
+                List<Future<List<Directory>>> results = executor.invokeAll( level );
+                level = new ArrayList<Directory>();
+                for ( Future<List<Directory>> result : results )
+                {
+                    level.addAll( result.get() );
+                }
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( e );
+        }
+        catch ( ExecutionException e )
+        {
+            throw new IllegalStateException( e.getCause() );
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+        modules.addAll( found );
+        storeJournal();
+        modules = Collections.unmodifiableSet( modules );
+        cache.put( key, modules );
+        return modules;
+    }
+
+    /**
+     * @return the number of directories listed by the last discovery, the others were known from the journal
+     */
+    public int getListedDirectories()
+    {
+        return listed.get();
+    }
+
+    private void loadJournal()
+    {
+        journal.clear();
+        updated.clear();
+        found.clear();
+        listed.set( 0 );
+        if ( journalFile == null || !journalFile.isFile() )
+        {
+            return;
+        }
+        // file system timestamps may be as coarse as 2 seconds
+        journalTime = journalFile.lastModified() - 2000;
+        InputStream in = null;
+        try
+        {
+            in = new FileInputStream( journalFile );
+            journal.load( in );
+        }
+        catch ( IOException e )
+        {
+            journal.clear();
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+    }
+
+    private void storeJournal()
+    {
+        if ( journalFile == null )
+        {
+            return;
+        }
+        Properties content = new Properties();
+        content.putAll( updated );
+        journalFile.getParentFile().mkdirs();
+        OutputStream out = null;
+        try
+        {
+            out = new FileOutputStream( journalFile );
+            content.store( out, "GWT module discovery journal" );
+        }
+        catch ( IOException e )
+        {
+            // only a cache
+        }
+        finally
+        {
+            IOUtil.close( out );
+        }
+    }
+
+    /**
+     * A directory to search, with its path relative to the root
+     */
+    private class Directory
+        implements Callable<List<Directory>>
+    {
+        final File file;
+
+        final String relative;
+
+        Directory( File file, String relative )
+        {
+            this.file = file;
+            this.relative = relative;
+        }
+
+        public List<Directory> call()
+        {
+            String key = file.getPath();
+            long lastModified = file.lastModified();
+            // mtime|subdirectories|modules, names separated by '/'
+            String content = journal.getProperty( key );
+            if ( content == null || lastModified >= journalTime || !content.startsWith( lastModified + "|" ) )
+            {
+                content = list( lastModified );
+                listed.incrementAndGet();
+            }
+            updated.put( key, content );
+            String[] parts = content.split( "\\|", -1 );
+            for ( String module : StringUtils.split( parts[2], String.valueOf( SEPARATOR ) ) )
+            {
+                found.add( relative + module );
+            }
+            List<Directory> children = new ArrayList<Directory>();
+            for ( String name : StringUtils.split( parts[1], String.valueOf( SEPARATOR ) ) )
+            {
+                children.add( new Directory( new File( file, name ), relative + name + SEPARATOR ) );
+            }
+            return children;
+        }
+
+        private String list( long lastModified )
+        {
+            StringBuilder directories = new StringBuilder();
+            StringBuilder modules = new StringBuilder();
+            File[] files = file.listFiles();
+            if ( files != null )
+            {
+                for ( File child : files )
+                {
+                    String name = child.getName();
+                    if ( child.isDirectory() )
+                    {
+                        if ( !name.startsWith( "." ) && !SKIPPED.contains( name )
+                            && !excludes.contains( child.getAbsoluteFile() ) )
+                        {
+                            directories.append( name ).append( SEPARATOR );
+                        }
+                    }
+                    else if ( name.endsWith( DefaultGwtModuleReader.GWT_MODULE_EXTENSION ) )
+                    {
+                        modules.append( name ).append( SEPARATOR );
+                    }
+                }
+            }
+            return lastModified + "|" + directories + "|" + modules;
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package org.codehaus.mojo.gwt.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.factory.ArtifactFactory;
+import org.apache.maven.artifact.metadata.ArtifactMetadataSource;
+import org.apache.maven.artifact.metadata.ResolutionGroup;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.resolver.ArtifactNotFoundException;
+import org.apache.maven.artifact.resolver.ArtifactResolutionException;
+import org.apache.maven.artifact.resolver.ArtifactResolver;
+import org.apache.maven.artifact.resolver.filter.AndArtifactFilter;
+import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Download independent artifacts at the same time rather than one after the other, which makes a difference when the
+ * local repository is empty.
+ * <p>
+ * The legacy {@link ArtifactResolver} still computes the dependency graph : {@link #prefetch(Collection)} only fills
+ * the local repository beforehand, so that the resolved artifacts and their order don't change.
+ *
+ * @since 7.7
+ */
+public class ParallelArtifactResolver
+{
+    private final ArtifactResolver resolver;
+
+    private final ArtifactFactory artifactFactory;
+
+    private final ArtifactMetadataSource metadataSource;
+
+    private final ArtifactRepository localRepository;
+
+    private final List<ArtifactRepository> remoteRepositories;
+
+    private final int threads;
+
+    private final Log log;
+
+    /**
+     * @param threads maximum number of concurrent downloads, 1 or less to resolve artifacts one at a time
+     */
+    public ParallelArtifactResolver( ArtifactResolver resolver, ArtifactFactory artifactFactory,
+                                     ArtifactMetadataSource metadataSource, ArtifactRepository localRepository,
+                                     List<ArtifactRepository> remoteRepositories, int threads, Log log )
+    {
+        this.resolver = resolver;
+        this.artifactFactory = artifactFactory;
+        this.metadataSource = metadataSource;
+        this.localRepository = localRepository;
+        this.remoteRepositories = remoteRepositories;
+        this.threads = threads;
+        this.log = log;
+    }
+
+    /**
+     * Resolve the files of the artifacts. When several artifacts fail, the exception is the one of the first in the
+     * list, as if they were resolved in order.
+     */
+    public void resolve( List<Artifact> artifacts )
+        throws ArtifactResolutionException, ArtifactNotFoundException
+    {
+        if ( threads <= 1 || artifacts.size() <= 1 )
+        {
+            for ( Artifact artifact : artifacts )
+            {
+                resolver.resolve( artifact, remoteRepositories, localRepository );
+            }
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool( Math.min( threads, artifacts.size() ) );
+        try
+        {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>( artifacts.size() );
+            for ( final Artifact artifact : artifacts )
+            {
+                futures.add( executor.submit( new Callable<Void>()
+                {
+                    public Void call()
+                        throws Exception
+                    {
+                        resolver.resolve( artifact, remoteRepositories, localRepository );
+                        return null;
+                    }
+                } ) );
+            }
+            for ( int i = 0; i < futures.size(); i++ )
+            {
+                try
+                {
+                    futures.get( i ).get();
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                    throw new ArtifactResolutionException( "Interrupted", artifacts.get( i ), e );
+                }
+                catch ( ExecutionException e )
+                {
+                    Throwable cause = e.getCause();
+                    if ( cause instanceof ArtifactResolutionException )
+                    {
+                        throw (ArtifactResolutionException) cause;
+                    }
+                    if ( cause instanceof ArtifactNotFoundException )
+                    {
+                        throw (ArtifactNotFoundException) cause;
+                    }
+                    if ( cause instanceof Error )
+                    {
+                        throw (Error) cause;
+                    }
+                    throw new ArtifactResolutionException( cause.getMessage(), artifacts.get( i ), cause );
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Download the artifacts and their dependencies, one level of the dependency tree at a time. Dependencies with a
+     * version range are left to the transitive resolution, as are the ones that fail : this resolution reports them.
+     *
+     * @param artifacts the direct dependencies, with their exclusions as dependency filter
+     */
+    public void prefetch( Collection<Artifact> artifacts )
+    {
+        if ( threads <= 1 )
+        {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Set<String> seen = new HashSet<String>();
+        List<Node> level = new ArrayList<Node>();
+        for ( Artifact artifact : artifacts )
+        {
+            addNode( level, seen, artifact, null, true );
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool( threads );
+        try
+        {
+            while ( !level.isEmpty() )
+            {
+                List<Future<ResolutionGroup>> futures = new ArrayList<Future<ResolutionGroup>>( level.size() );
+                for ( final Node node : level )
+                {
+                    futures.add( executor.submit( new Callable<ResolutionGroup>()
+                    {
+                        public ResolutionGroup call()
+                            throws Exception
+                        {
+                            return fetch( node.artifact );
+                        }
+                    } ) );
+                }
+                List<Node> next = new ArrayList<Node>();
+                for ( int i = 0; i < level.size(); i++ )
+                {
+                    ResolutionGroup group = futures.get( i ).get();
+                    if ( group != null )
+                    {
+                        for ( Artifact dependency : group.getArtifacts() )
+                        {
+                            addNode( next, seen, dependency, level.get( i ).filter, false );
+                        }
+                    }
+                }
+                level = next;
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch ( ExecutionException e )
+        {
+            log.debug( "Failed to download dependencies : " + e.getCause() );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        log.debug( "Downloaded " + seen.size() + " artifacts in " + ( System.currentTimeMillis() - start ) + " ms" );
+    }
+
+    /**
+     * @return the dependencies of the artifact, <code>null</code> if they are unknown
+     */
+    private ResolutionGroup fetch( Artifact artifact )
+    {
+        try
+        {
+            resolver.resolve( artifact, remoteRepositories, localRepository );
+            return metadataSource.retrieve( artifact, localRepository, remoteRepositories );
+        }
+        catch ( Exception e )
+        {
+            log.debug( "Failed to download " + artifact + " : " + e.getMessage() );
+            return null;
+        }
+    }
+
+    private void addNode( List<Node> level, Set<String> seen, Artifact artifact, ArtifactFilter parentFilter,
+                          boolean direct )
+    {
+        if ( artifact.getVersion() == null || ( parentFilter != null && !parentFilter.include( artifact ) ) )
+        {
+            return;
+        }
+        String scope = artifact.getScope();
+        if ( Artifact.SCOPE_SYSTEM.equals( scope ) )
+        {
+            return;
+        }
+        // like the transitive resolution, don't follow test, provided and optional dependencies of dependencies
+        if ( !direct && ( Artifact.SCOPE_TEST.equals( scope ) || Artifact.SCOPE_PROVIDED.equals( scope )
+            || artifact.isOptional() ) )
+        {
+            return;
+        }
+        if ( !seen.add( artifact.getId() ) )
+        {
+            return;
+        }
+        // the resolution sets the file, don't change the caller artifacts
+        Artifact copy =
+            artifactFactory.createArtifactWithClassifier( artifact.getGroupId(), artifact.getArtifactId(),
+                                                          artifact.getVersion(), artifact.getType(),
+                                                          artifact.getClassifier() );
+        ArtifactFilter filter = parentFilter;
+        if ( artifact.getDependencyFilter() != null )
+        {
+            AndArtifactFilter and = new AndArtifactFilter();
+            if ( parentFilter != null )
+            {
+                and.add( parentFilter );
+            }
+            and.add( artifact.getDependencyFilter() );
+            filter = and;
+        }
+        level.add( new Node( copy, filter ) );
+    }
+
+    private static class Node
+    {
+        final Artifact artifact;
+
+        /**
+         * exclusions of the artifact and of its ancestors
+         */
+        final ArtifactFilter filter;
+
+        Node( Artifact artifact, ArtifactFilter filter )
+        {
+            this.artifact = artifact;
+            this.filter = filter;
+        }
+    }
+}
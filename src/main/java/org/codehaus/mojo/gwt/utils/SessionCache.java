@@ -0,0 +1,57 @@
+package org.codehaus.mojo.gwt.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Values computed once per Maven session and shared by all the mojo executions of the build, including the ones run
+ * in parallel. The cache of a session is released with the session.
+ *
+ * @since 7.7
+ */
+public final class SessionCache
+{
+    private static final Map<Object, ConcurrentMap<String, Object>> caches =
+        new WeakHashMap<Object, ConcurrentMap<String, Object>>();
+
+    private SessionCache()
+    {
+        // utility class
+    }
+
+    /**
+     * @param session the Maven session, <code>null</code> when not run by Maven
+     * @return the values cached for the session
+     */
+    public static synchronized ConcurrentMap<String, Object> get( Object session )
+    {
+        ConcurrentMap<String, Object> cache = caches.get( session );
+        if ( cache == null )
+        {
+            cache = new ConcurrentHashMap<String, Object>();
+            caches.put( session, cache );
+        }
+        return cache;
+    }
+}
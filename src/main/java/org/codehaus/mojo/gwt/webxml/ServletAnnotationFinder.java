@@ -81,6 +81,10 @@ public class ServletAnnotationFinder
                         if (name.equals("com.google.gwt.user.server.rpc.RemoteServiceServlet")) {
                                 return true;
                         }
+                        if (name.startsWith("java.")) {
+                                // JDK classes are no servlets, and may use a class file format unknown to ASM
+                                return false;
+                        }
                         MetadataReader r = getMetadataReader(classMetadata.getSuperClassName(), factory, resourceResolver);
                         return extendsRemoteServlet(r.getClassMetadata(), factory, resourceResolver);
                 }
@@ -0,0 +1,109 @@
+package org.codehaus.mojo.gwt;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.model.Resource;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+
+public class ClasspathBuilderTest
+    extends TestCase
+{
+    private ClasspathBuilder builder;
+
+    private MavenProject project;
+
+    private Set<Artifact> artifacts;
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        builder = new ClasspathBuilder();
+        builder.enableLogging( new ConsoleLogger( Logger.LEVEL_WARN, "test" ) );
+        project = new MavenProject();
+        project.getBuild().setOutputDirectory( "target/classes" );
+        project.addCompileSourceRoot( "src/main/java" );
+        artifacts = new HashSet<Artifact>();
+    }
+
+    public void testSameListWhileProjectUnchanged()
+        throws Exception
+    {
+        Collection<File> classpath = builder.buildClasspathList( project, Artifact.SCOPE_COMPILE, artifacts, false );
+        assertSame( classpath, builder.buildClasspathList( project, Artifact.SCOPE_COMPILE, artifacts, false ) );
+        assertNotSame( classpath, builder.buildClasspathList( project, Artifact.SCOPE_COMPILE, artifacts, true ) );
+        try
+        {
+            classpath.clear();
+            fail( "classpath must not be modifiable" );
+        }
+        catch ( UnsupportedOperationException e )
+        {
+            // expected
+        }
+    }
+
+    public void testRebuiltWhenResourceAdded()
+        throws Exception
+    {
+        Collection<File> classpath = builder.buildClasspathList( project, Artifact.SCOPE_COMPILE, artifacts, true );
+        Resource resource = new Resource();
+        resource.setDirectory( "target/generated-resources/gwt" );
+        project.addResource( resource );
+
+        Collection<File> updated = builder.buildClasspathList( project, Artifact.SCOPE_COMPILE, artifacts, true );
+        assertEquals( classpath.size() + 1, updated.size() );
+    }
+
+    public void testRebuiltWhenSourceRootAdded()
+        throws Exception
+    {
+        Collection<File> classpath = builder.buildClasspathList( project, Artifact.SCOPE_COMPILE, artifacts, false );
+        project.addCompileSourceRoot( "target/generated-sources/gwt" );
+
+        Collection<File> updated = builder.buildClasspathList( project, Artifact.SCOPE_COMPILE, artifacts, false );
+        assertEquals( classpath.size() + 1, updated.size() );
+    }
+
+    public void testProjectNotRetained()
+        throws Exception
+    {
+        builder.buildClasspathList( project, Artifact.SCOPE_COMPILE, artifacts, false );
+        WeakReference<MavenProject> reference = new WeakReference<MavenProject>( project );
+        project = null;
+        for ( int i = 0; i < 50 && reference.get() != null; i++ )
+        {
+            System.gc();
+            Thread.sleep( 20 );
+        }
+        assertNull( "the builder must not retain the projects", reference.get() );
+    }
+}
@@ -0,0 +1,91 @@
+package org.codehaus.mojo.gwt;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+import org.codehaus.plexus.util.xml.Xpp3DomBuilder;
+
+public class ModuleDescriptorTest
+    extends TestCase
+{
+    private static final String XML = "<?xml version='1.0' encoding='UTF-8'?>\n"
+        + "<!DOCTYPE module PUBLIC '-//Google Inc.//DTD Google Web Toolkit 2.5.1//EN' "
+        + "'http://gwtproject.org/doctype/2.5.1/gwt-module.dtd'>\n"
+        + "<module rename-to='app'>\n"
+        + "  <inherits name='com.google.gwt.user.User'/>\n"
+        + "  <inherits name='org.lib.Lib'/>\n"
+        + "  <source path='client'><exclude name='**/Test*'/></source>\n"
+        + "  <source path='shared'/>\n"
+        + "  <super-source/>\n"
+        + "  <public path='resources'/>\n"
+        + "  <entry-point class='com.example.client.App'/>\n"
+        + "  <servlet path='/rpc' class='com.example.server.RpcImpl'/>\n"
+        + "  <replace-with class='com.example.client.Impl'>\n"
+        + "    <when-type-is class='com.example.client.Api'/>\n"
+        + "    <any><when-property-is name='user.agent' value='ie8'/></any>\n"
+        + "  </replace-with>\n"
+        + "  <generate-with class='com.example.rebind.Generator'><when-type-assignable class='x.Y'/></generate-with>\n"
+        + "  <set-property name='user.agent' value='gecko1_8, safari'/>\n"
+        + "  <extend-property name='locale' values='fr,de'/>\n"
+        + "</module>";
+
+    public void testRead()
+        throws Exception
+    {
+        ModuleDescriptor descriptor = ModuleDescriptor.read( new StringReader( XML ) );
+        assertEquals( "app", descriptor.getRenameTo() );
+        assertEquals( Arrays.asList( "com.google.gwt.user.User", "org.lib.Lib" ), descriptor.getInherits() );
+        assertEquals( Arrays.asList( "client", "shared" ), descriptor.getSources() );
+        assertEquals( Collections.singletonList( "" ), descriptor.getSuperSources() );
+        assertEquals( Collections.singletonList( "resources" ), descriptor.getPublicPaths() );
+        assertEquals( Collections.singletonList( "com.example.client.App" ), descriptor.getEntryPoints() );
+        assertEquals( Collections.singletonMap( "/rpc", "com.example.server.RpcImpl" ), descriptor.getServlets() );
+        assertEquals( Arrays.asList( "gecko1_8", "safari" ), descriptor.getProperties().get( "user.agent" ) );
+        assertEquals( Arrays.asList( "fr", "de" ), descriptor.getProperties().get( "locale" ) );
+    }
+
+    public void testSameAsDom()
+        throws Exception
+    {
+        GwtModule parsed = new GwtModule( "com.example.App", ModuleDescriptor.read( new StringReader( XML ) ), null );
+        GwtModule dom = new GwtModule( "com.example.App", Xpp3DomBuilder.build( new StringReader( XML ) ), null );
+        assertEquals( dom.getPath(), parsed.getPath() );
+        assertEquals( Arrays.asList( dom.getSources() ), Arrays.asList( parsed.getSources() ) );
+        assertEquals( Arrays.asList( dom.getSuperSources() ), Arrays.asList( parsed.getSuperSources() ) );
+        assertEquals( dom.getPublic(), parsed.getPublic() );
+        assertEquals( dom.getDescriptor().getInherits(), parsed.getDescriptor().getInherits() );
+    }
+
+    public void testDefaults()
+        throws Exception
+    {
+        GwtModule module = new GwtModule( "com.example.App", ModuleDescriptor.read( new StringReader( "<module/>" ) ),
+                                          null );
+        assertEquals( "com.example.App", module.getPath() );
+        assertEquals( Collections.singletonList( "client" ), Arrays.asList( module.getSources() ) );
+        assertEquals( 0, module.getSuperSources().length );
+        assertEquals( "public", module.getPublic() );
+    }
+}
@@ -0,0 +1,168 @@
+package org.codehaus.mojo.gwt;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.MavenProjectBuilder;
+import org.apache.maven.project.ProjectBuildingException;
+import org.codehaus.mojo.gwt.utils.SessionCache;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.ReflectionUtils;
+
+public class SdkClasspathCacheTest
+    extends TestCase
+{
+    private File directory = new File( "target/test-sdk-classpath" ).getAbsoluteFile();
+
+    private File cacheDirectory = new File( directory, "cache" );
+
+    private File client = new File( directory, "vaadin-client.jar" );
+
+    private File shared = new File( directory, "vaadin-shared.jar" );
+
+    private int resolutions;
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        FileUtils.deleteDirectory( directory );
+        cacheDirectory.mkdirs();
+        FileUtils.fileWrite( client.getPath(), "client" );
+        FileUtils.fileWrite( shared.getPath(), "shared" );
+        // no Maven session in the tests
+        SessionCache.get( null ).clear();
+    }
+
+    /**
+     * @return a mojo which fails to resolve the SDK and counts the attempts
+     */
+    private AbstractGwtMojo mojo( String version )
+        throws Exception
+    {
+        AbstractGwtMojo mojo = new AbstractGwtMojo()
+        {
+            public void execute()
+            {
+                // not run
+            }
+        };
+        MavenProject project = new MavenProject();
+        Artifact artifact =
+            new DefaultArtifact( "com.vaadin", "vaadin-client", VersionRange.createFromVersion( version ), "compile",
+                                 "jar", null, new DefaultArtifactHandler( "jar" ) );
+        project.setArtifacts( Collections.singleton( artifact ) );
+        ReflectionUtils.setVariableValueInObject( mojo, "project", project );
+        ReflectionUtils.setVariableValueInObject( mojo, "sdkClasspathCache", cacheDirectory );
+        MavenProjectBuilder projectBuilder =
+            (MavenProjectBuilder) Proxy.newProxyInstance( getClass().getClassLoader(),
+                                                          new Class<?>[] { MavenProjectBuilder.class },
+                                                          new FailingResolution() );
+        ReflectionUtils.setVariableValueInObject( mojo, "projectBuilder", projectBuilder );
+        return mojo;
+    }
+
+    private class FailingResolution
+        implements InvocationHandler
+    {
+        public Object invoke( Object proxy, Method method, Object[] args )
+            throws Throwable
+        {
+            resolutions++;
+            throw new ProjectBuildingException( "test", "offline", (Throwable) null );
+        }
+    }
+
+    private void writeCache( String version, File... files )
+        throws Exception
+    {
+        StringBuilder lines = new StringBuilder();
+        for ( File file : files )
+        {
+            lines.append( file.getAbsolutePath() ).append( '\n' );
+        }
+        FileUtils.fileWrite( new File( cacheDirectory, "com.vaadin_vaadin-client_" + version + ".classpath" ).getPath(),
+                             "UTF-8", lines.toString() );
+    }
+
+    private void assertResolved( AbstractGwtMojo mojo )
+    {
+        try
+        {
+            mojo.getGwtUserJar();
+            fail( "resolved from the cache" );
+        }
+        catch ( MojoExecutionException e )
+        {
+            assertEquals( 1, resolutions );
+        }
+    }
+
+    public void testClasspathOfPreviousBuild()
+        throws Exception
+    {
+        writeCache( "7.7.0", client, shared );
+        List<File> expected = Arrays.asList( client, shared );
+        assertEquals( expected, mojo( "7.7.0" ).getGwtUserJar() );
+        assertEquals( 0, resolutions );
+
+        // kept for the session, even if the file changes
+        FileUtils.forceDelete( cacheDirectory );
+        assertEquals( expected, mojo( "7.7.0" ).getGwtUserJar() );
+        assertEquals( 0, resolutions );
+    }
+
+    public void testFileRemovedFromRepository()
+        throws Exception
+    {
+        writeCache( "7.7.0", client, shared );
+        shared.delete();
+        assertResolved( mojo( "7.7.0" ) );
+    }
+
+    public void testSnapshotNotCachedOnDisk()
+        throws Exception
+    {
+        writeCache( "7.7-SNAPSHOT", client, shared );
+        assertResolved( mojo( "7.7-SNAPSHOT" ) );
+    }
+
+    public void testOtherVersion()
+        throws Exception
+    {
+        writeCache( "7.7.0", client, shared );
+        assertResolved( mojo( "7.7.1" ) );
+    }
+}
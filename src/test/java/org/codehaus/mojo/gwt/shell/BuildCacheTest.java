@@ -0,0 +1,128 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.codehaus.plexus.util.FileUtils;
+
+public class BuildCacheTest
+    extends TestCase
+{
+    private File directory = new File( "target/test-build-cache" );
+
+    private File store = new File( directory, "store" );
+
+    private String key( char c )
+    {
+        StringBuilder key = new StringBuilder();
+        for ( int i = 0; i < 40; i++ )
+        {
+            key.append( c );
+        }
+        return key.toString();
+    }
+
+    private Map<String, File> outputs( String workspace )
+    {
+        Map<String, File> outputs = new LinkedHashMap<String, File>();
+        outputs.put( "war", new File( directory, workspace + "/war/app" ) );
+        outputs.put( "deploy", new File( directory, workspace + "/war/WEB-INF/deploy/app" ) );
+        return outputs;
+    }
+
+    private void write( File file, String content )
+        throws Exception
+    {
+        file.getParentFile().mkdirs();
+        FileUtils.fileWrite( file.getPath(), "UTF-8", content );
+    }
+
+    public void testStoreAndRestore()
+        throws Exception
+    {
+        FileUtils.deleteDirectory( directory );
+        write( new File( directory, "one/war/app/app.nocache.js" ), "nocache" );
+        write( new File( directory, "one/war/app/deferredjs/1.cache.js" ), "fragment" );
+        write( new File( directory, "two/war/app/old.cache.js" ), "stale" );
+
+        BuildCache cache = new BuildCache( store, 1024 * 1024, new SystemStreamLog() );
+        assertFalse( cache.restore( key( 'a' ), outputs( "two" ) ) );
+        assertTrue( cache.put( key( 'a' ), outputs( "one" ) ) );
+        assertFalse( cache.put( key( 'b' ), outputs( "none" ) ) );
+        assertNull( cache.get( key( 'b' ) ) );
+
+        assertTrue( cache.restore( key( 'a' ), outputs( "two" ) ) );
+        assertEquals( "nocache", FileUtils.fileRead( new File( directory, "two/war/app/app.nocache.js" ) ) );
+        assertEquals( "fragment", FileUtils.fileRead( new File( directory, "two/war/app/deferredjs/1.cache.js" ) ) );
+        assertFalse( new File( directory, "two/war/app/old.cache.js" ).exists() );
+    }
+
+    public void testSharedCache()
+        throws Exception
+    {
+        FileUtils.deleteDirectory( directory );
+        write( new File( directory, "one/war/app/app.nocache.js" ), "nocache" );
+        File shared = new File( directory, "shared" );
+
+        // developers only read
+        BuildCache cache = new BuildCache( new File( directory, "developer" ), 1024 * 1024,
+                                           BuildCache.createBackend( shared.getPath() ), false, new SystemStreamLog() );
+        cache.put( key( 'a' ), outputs( "one" ) );
+        assertFalse( new File( shared, "aa/" + key( 'a' ) + ".zip" ).exists() );
+
+        // continuous integration writes
+        cache = new BuildCache( new File( directory, "ci" ), 1024 * 1024,
+                                BuildCache.createBackend( shared.toURI().toString() ), true, new SystemStreamLog() );
+        cache.put( key( 'a' ), outputs( "one" ) );
+        assertTrue( new File( shared, "aa/" + key( 'a' ) + ".zip" ).isFile() );
+
+        // an other machine
+        cache = new BuildCache( new File( directory, "other" ), 1024 * 1024, new FileBuildCacheBackend( shared ),
+                                false, new SystemStreamLog() );
+        assertTrue( cache.restore( key( 'a' ), outputs( "two" ) ) );
+        assertEquals( "nocache", FileUtils.fileRead( new File( directory, "two/war/app/app.nocache.js" ) ) );
+        assertNotNull( cache.get( key( 'a' ) ) );
+        assertFalse( cache.restore( key( 'b' ), outputs( "two" ) ) );
+    }
+
+    public void testEviction()
+        throws Exception
+    {
+        FileUtils.deleteDirectory( directory );
+        write( new File( directory, "one/war/app/app.nocache.js" ), "nocache" );
+        BuildCache cache = new BuildCache( store, 1024 * 1024, new SystemStreamLog() );
+        cache.put( key( 'a' ), outputs( "one" ) );
+        cache.put( key( 'b' ), outputs( "one" ) );
+        File a = cache.get( key( 'a' ) );
+        a.setLastModified( System.currentTimeMillis() - 60000 );
+
+        // the store can only hold one entry
+        cache = new BuildCache( store, a.length(), new SystemStreamLog() );
+        cache.evict();
+        assertNull( cache.get( key( 'a' ) ) );
+        assertNotNull( cache.get( key( 'b' ) ) );
+    }
+}
@@ -0,0 +1,109 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+import org.codehaus.plexus.util.FileUtils;
+
+public class BuildLockTest
+    extends TestCase
+{
+    private File directory = new File( "target/test-build-lock" );
+
+    public void testSingleOwner()
+        throws Exception
+    {
+        FileUtils.deleteDirectory( directory );
+        File file = new File( directory, "a.lock" );
+
+        BuildLock lock = BuildLock.tryAcquire( file );
+        assertNotNull( lock );
+        assertNull( lock.getStaleOwner() );
+        assertNotNull( BuildLock.getOwner( file ) );
+        assertNull( BuildLock.tryAcquire( file ) );
+        assertNull( BuildLock.acquire( file, 0 ) );
+
+        lock.release();
+        assertNull( BuildLock.getOwner( file ) );
+        lock = BuildLock.tryAcquire( file );
+        assertNotNull( lock );
+        assertNull( lock.getStaleOwner() );
+        lock.release();
+    }
+
+    public void testStaleLock()
+        throws Exception
+    {
+        FileUtils.deleteDirectory( directory );
+        File file = new File( directory, "a.lock" );
+        file.getParentFile().mkdirs();
+        // left by a crashed build, no longer locked
+        FileUtils.fileWrite( file.getPath(), "UTF-8", "1234@agent" );
+
+        BuildLock lock = BuildLock.acquire( file, 0 );
+        assertNotNull( lock );
+        assertEquals( "1234@agent", lock.getStaleOwner() );
+        lock.release();
+    }
+
+    public void testClean()
+        throws Exception
+    {
+        FileUtils.deleteDirectory( directory );
+        File old = new File( directory, "old.lock" );
+        File held = new File( directory, "held.lock" );
+        File recent = new File( directory, "recent.lock" );
+        BuildLock.tryAcquire( old ).release();
+        BuildLock lock = BuildLock.tryAcquire( held );
+        BuildLock.tryAcquire( recent ).release();
+        long time = System.currentTimeMillis() - 120000;
+        old.setLastModified( time );
+        held.setLastModified( time );
+
+        BuildLock.clean( directory, 60000 );
+        assertFalse( old.exists() );
+        assertTrue( held.exists() );
+        assertTrue( recent.exists() );
+        lock.release();
+    }
+
+    public void testLockedFileRemoved()
+        throws Exception
+    {
+        FileUtils.deleteDirectory( directory );
+        File file = new File( directory, "a.lock" );
+        BuildLock lock = BuildLock.tryAcquire( file );
+        String owner = BuildLock.getOwner( file );
+        assertTrue( BuildLock.isLockedFile( file, owner ) );
+
+        // removed by clean once unlocked, while a build had it open
+        assertTrue( file.delete() );
+        assertFalse( BuildLock.isLockedFile( file, owner ) );
+        BuildLock other = BuildLock.tryAcquire( file );
+        assertNotNull( other );
+        FileUtils.fileWrite( file.getPath(), "UTF-8", "another build" );
+        assertFalse( BuildLock.isLockedFile( file, owner ) );
+        other.release();
+        lock.release();
+    }
+}
@@ -0,0 +1,117 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.codehaus.plexus.util.FileUtils;
+
+public class ClassDataSharingTest
+    extends TestCase
+{
+    private File directory = new File( "target/test-class-data-sharing" ).getAbsoluteFile();
+
+    private File archives = new File( directory, "archives" );
+
+    private String java = new File( directory, "jdk/bin/java" ).getPath();
+
+    private File a = new File( directory, "a.jar" );
+
+    private File b = new File( directory, "b.jar" );
+
+    private File classes = new File( directory, "classes" );
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        FileUtils.deleteDirectory( directory );
+        classes.mkdirs();
+        archives.mkdirs();
+        new File( java ).getParentFile().mkdirs();
+        FileUtils.fileWrite( java, "java" );
+        FileUtils.fileWrite( a.getPath(), "a" );
+        FileUtils.fileWrite( b.getPath(), "b" );
+    }
+
+    private File archive( int javaVersion, File... classpath )
+    {
+        return ClassDataSharing.create( archives, java, javaVersion, Arrays.asList( classpath ),
+                                        new SystemStreamLog() ).getArchive();
+    }
+
+    public void testUnsupported()
+    {
+        assertNull( ClassDataSharing.create( archives, java, 8, Arrays.asList( a ), new SystemStreamLog() ) );
+        assertNull( ClassDataSharing.create( archives, java, 11, Arrays.asList( classes, a ),
+                                             new SystemStreamLog() ) );
+    }
+
+    public void testKey()
+        throws Exception
+    {
+        File archive = archive( 11, a, b, classes );
+        assertEquals( archive, archive( 11, a, b, classes ) );
+        // only the jars before the first directory are archived
+        assertEquals( archive, archive( 11, a, b, classes, new File( directory, "c.jar" ) ) );
+        assertFalse( archive.equals( archive( 11, a, classes, b ) ) );
+        assertFalse( archive.equals( archive( 17, a, b, classes ) ) );
+
+        // a jar rebuilt in place
+        FileUtils.fileWrite( b.getPath(), "b2" );
+        assertFalse( archive.equals( archive( 11, a, b, classes ) ) );
+    }
+
+    public void testJvmArguments()
+        throws Exception
+    {
+        ClassDataSharing sharing = ClassDataSharing.create( archives, java, 11, Arrays.asList( a ),
+                                                            new SystemStreamLog() );
+        List<String> arguments = sharing.getJvmArguments();
+        assertEquals( 1, arguments.size() );
+        assertTrue( arguments.get( 0 ).startsWith( "-XX:DumpLoadedClassList=" ) );
+        File classList = new File( arguments.get( 0 ).substring( "-XX:DumpLoadedClassList=".length() ) );
+        assertTrue( classList.exists() );
+        // a failed fork doesn't dump the archive
+        sharing.completed( false );
+        assertFalse( classList.exists() );
+        assertFalse( sharing.getArchive().exists() );
+
+        FileUtils.fileWrite( sharing.getArchive().getPath(), "archive" );
+        assertEquals( Arrays.asList( "-XX:SharedArchiveFile=" + sharing.getArchive().getAbsolutePath(),
+                                     "-Xshare:auto" ), sharing.getJvmArguments() );
+    }
+
+    public void testFailedDumpNotRetried()
+        throws Exception
+    {
+        ClassDataSharing sharing = ClassDataSharing.create( archives, java, 11, Arrays.asList( a ),
+                                                            new SystemStreamLog() );
+        String name = sharing.getArchive().getName();
+        FileUtils.fileWrite( new File( archives, name.replace( ".jsa", ".failed" ) ).getPath(), "" );
+        assertEquals( Collections.emptyList(), sharing.getJvmArguments() );
+    }
+}
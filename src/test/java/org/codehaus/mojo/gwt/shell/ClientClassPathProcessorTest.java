@@ -0,0 +1,116 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.codehaus.mojo.gwt.GwtModule;
+import org.codehaus.mojo.gwt.GwtModuleReader;
+import org.codehaus.mojo.gwt.utils.GwtModuleReaderException;
+import org.codehaus.plexus.util.xml.Xpp3DomBuilder;
+
+public class ClientClassPathProcessorTest
+    extends TestCase
+{
+    private File directory = new File( "target/test-classpath-processor" );
+
+    private GwtModuleReader reader = new GwtModuleReader()
+    {
+        public GwtModule readModule( String name )
+            throws GwtModuleReaderException
+        {
+            if ( "com.example.Shared".equals( name ) )
+            {
+                return module( name, "<module><source path='shared'/></module>" );
+            }
+            throw new GwtModuleReaderException( name );
+        }
+
+        public List<String> getGwtModules()
+        {
+            return Collections.emptyList();
+        }
+    };
+
+    private GwtModule module( String name, String xml )
+        throws GwtModuleReaderException
+    {
+        try
+        {
+            return new GwtModule( name, Xpp3DomBuilder.build( new StringReader( xml ) ), reader );
+        }
+        catch ( Exception e )
+        {
+            throw new GwtModuleReaderException( e.getMessage(), e );
+        }
+    }
+
+    private File jar( String name, String... entries )
+        throws Exception
+    {
+        directory.mkdirs();
+        File jar = new File( directory, name );
+        ZipOutputStream out = new ZipOutputStream( new FileOutputStream( jar ) );
+        for ( String entry : entries )
+        {
+            out.putNextEntry( new ZipEntry( entry ) );
+            out.closeEntry();
+        }
+        out.close();
+        return jar;
+    }
+
+    public void testRemoveJarsUnusedByModules()
+        throws Exception
+    {
+        File shared = jar( "shared.jar", "com/example/shared/Bean.java", "com/example/shared/Bean.class" );
+        File driver = jar( "driver.jar", "org/db/Driver.class" );
+        File widgets = jar( "widgets.jar", "org/widgets/Widgets.gwt.xml", "org/widgets/client/Button.java" );
+        File gwt = jar( "gwt-servlet.jar", "com/google/gwt/user/User.gwt.xml" );
+        File kept = jar( "generator-lib.jar", "org/lib/Lib.class" );
+        File sdk = jar( "compiler.jar", "org/compiler/Main.class" );
+        File classes = new File( directory, "classes" );
+
+        GwtModule app = module( "com.example.App",
+                                "<module><inherits name='com.google.gwt.user.User'/>"
+                                    + "<inherits name='com.example.Shared'/></module>" );
+        ClientClassPathProcessor processor =
+            new ClientClassPathProcessor( Arrays.asList( classes, shared, driver, widgets, gwt, kept ),
+                                          Collections.singletonList( app ), Collections.singletonList( "generator-*" ),
+                                          new HashMap<String, Object>(), new File( directory, "index" ),
+                                          new SystemStreamLog() );
+
+        List<File> classpath = new ArrayList<File>( Arrays.asList( classes, shared, driver, widgets, gwt, kept, sdk ) );
+        processor.postProcessClassPath( classpath );
+        assertEquals( Arrays.asList( classes, shared, gwt, kept, sdk ), classpath );
+    }
+}
@@ -0,0 +1,222 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.JarInputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.codehaus.mojo.gwt.GwtModule;
+import org.codehaus.mojo.gwt.GwtModuleReader;
+import org.codehaus.mojo.gwt.utils.GwtModuleReaderException;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.xml.Xpp3DomBuilder;
+
+public class ClientJarViewsTest
+    extends TestCase
+{
+    private File directory = new File( "target/test-client-views" );
+
+    private GwtModuleReader reader = new GwtModuleReader()
+    {
+        public GwtModule readModule( String name )
+            throws GwtModuleReaderException
+        {
+            if ( "com.example.Shared".equals( name ) )
+            {
+                return module( name, "<module><source path='shared'/></module>" );
+            }
+            throw new GwtModuleReaderException( name );
+        }
+
+        public List<String> getGwtModules()
+        {
+            return Collections.emptyList();
+        }
+    };
+
+    private GwtModule module( String name, String xml )
+        throws GwtModuleReaderException
+    {
+        try
+        {
+            return new GwtModule( name, Xpp3DomBuilder.build( new StringReader( xml ) ), reader );
+        }
+        catch ( Exception e )
+        {
+            throw new GwtModuleReaderException( e.getMessage(), e );
+        }
+    }
+
+    private File jar( String name, String... entries )
+        throws Exception
+    {
+        directory.mkdirs();
+        File jar = new File( directory, name );
+        ZipOutputStream out = new ZipOutputStream( new FileOutputStream( jar ) );
+        for ( String entry : entries )
+        {
+            out.putNextEntry( new ZipEntry( entry ) );
+            out.write( entry.getBytes( "UTF-8" ) );
+            out.closeEntry();
+        }
+        out.close();
+        return jar;
+    }
+
+    private List<String> entries( File jar )
+        throws Exception
+    {
+        TreeSet<String> names = new TreeSet<String>();
+        ZipFile zip = new ZipFile( jar );
+        try
+        {
+            for ( Enumeration<? extends ZipEntry> e = zip.entries(); e.hasMoreElements(); )
+            {
+                names.add( e.nextElement().getName() );
+            }
+        }
+        finally
+        {
+            zip.close();
+        }
+        return new ArrayList<String>( names );
+    }
+
+    public void testReplaceJarsWithClientViews()
+        throws Exception
+    {
+        File shared = jar( "shared.jar", "com/example/shared/Bean.java", "com/example/shared/Bean.class",
+                           "com/example/server/Dao.java", "com/example/server/Dao.class", "test-data.xml",
+                           "other/Other.gwt.xml" );
+        File gwt = jar( "gwt-user.jar", "com/google/gwt/user/User.gwt.xml", "com/google/gwt/user/Window.java" );
+        File views = new File( directory, "views" );
+
+        GwtModule app = module( "com.example.App", "<module><inherits name='com.example.Shared'/></module>" );
+        ClientJarViews processor =
+            new ClientJarViews( Arrays.asList( shared, gwt ), Collections.singletonList( app ), views,
+                                new HashMap<String, Object>(), new SystemStreamLog() );
+
+        List<File> classpath = new ArrayList<File>( Arrays.asList( shared, gwt ) );
+        processor.postProcessClassPath( classpath );
+        assertEquals( gwt, classpath.get( 1 ) );
+        File view = classpath.get( 0 );
+        assertTrue( view.getPath().startsWith( views.getPath() ) );
+        assertEquals( Arrays.asList( "com/example/server/Dao.class", "com/example/shared/Bean.class",
+                                     "com/example/shared/Bean.java", "other/Other.gwt.xml" ), entries( view ) );
+
+        // reused by the next build
+        long modified = view.lastModified();
+        classpath = new ArrayList<File>( Arrays.asList( shared ) );
+        processor.postProcessClassPath( classpath );
+        assertEquals( view, classpath.get( 0 ) );
+        assertEquals( modified, view.lastModified() );
+    }
+
+    public void testManifestCopied()
+        throws Exception
+    {
+        directory.mkdirs();
+        File jar = new File( directory, "manifest.jar" );
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put( Attributes.Name.MANIFEST_VERSION, "1.0" );
+        manifest.getMainAttributes().put( Attributes.Name.IMPLEMENTATION_VERSION, "1.2" );
+        manifest.getMainAttributes().put( Attributes.Name.CLASS_PATH, "lib/other.jar" );
+        ZipOutputStream out = new ZipOutputStream( new FileOutputStream( jar ) );
+        out.putNextEntry( new ZipEntry( "com/example/shared/Bean.class" ) );
+        out.closeEntry();
+        out.putNextEntry( new ZipEntry( JarFile.MANIFEST_NAME ) );
+        manifest.write( out );
+        out.closeEntry();
+        out.close();
+
+        GwtModule app = module( "com.example.App", "<module><inherits name='com.example.Shared'/></module>" );
+        List<File> classpath = new ArrayList<File>( Arrays.asList( jar ) );
+        new ClientJarViews( classpath, Collections.singletonList( app ), new File( directory, "views" ),
+                            new HashMap<String, Object>(), new SystemStreamLog() ).postProcessClassPath( classpath );
+        assertFalse( jar.equals( classpath.get( 0 ) ) );
+
+        // read as the first entry
+        JarInputStream in = new JarInputStream( new FileInputStream( classpath.get( 0 ) ) );
+        try
+        {
+            Attributes attributes = in.getManifest().getMainAttributes();
+            assertEquals( "1.2", attributes.getValue( Attributes.Name.IMPLEMENTATION_VERSION ) );
+            // relative to the original jar
+            assertNull( attributes.getValue( Attributes.Name.CLASS_PATH ) );
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    public void testEvictLeastRecentlyUsed()
+        throws Exception
+    {
+        File views = new File( directory, "evicted" );
+        FileUtils.deleteDirectory( views );
+        File shared = jar( "shared.jar", "com/example/shared/Bean.java" );
+        File other = jar( "other.jar", "com/example/shared/Other.java" );
+        File gwt = jar( "gwt-user.jar", "com/google/gwt/user/User.gwt.xml" );
+        GwtModule app = module( "com.example.App", "<module><inherits name='com.example.Shared'/></module>" );
+        ClientJarViews processor =
+            new ClientJarViews( Arrays.asList( shared, other, gwt ), Collections.singletonList( app ), views,
+                                new HashMap<String, Object>(), new SystemStreamLog() );
+
+        List<File> classpath = new ArrayList<File>( Arrays.asList( shared, other, gwt ) );
+        processor.postProcessClassPath( classpath );
+        File sharedView = classpath.get( 0 );
+        File otherView = classpath.get( 1 );
+        assertEquals( gwt, classpath.get( 2 ) );
+        long now = System.currentTimeMillis();
+        sharedView.setLastModified( now - 3 * 60 * 60 * 1000 );
+        otherView.setLastModified( now - 2 * 60 * 60 * 1000 );
+
+        // the shared view is used again
+        classpath = new ArrayList<File>( Arrays.asList( shared ) );
+        processor.postProcessClassPath( classpath );
+        assertEquals( sharedView, classpath.get( 0 ) );
+
+        processor.evict( sharedView.length() );
+        assertTrue( sharedView.isFile() );
+        assertFalse( otherView.exists() );
+        processor.evict( 0 );
+        assertFalse( sharedView.exists() );
+    }
+}
@@ -0,0 +1,93 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+import org.codehaus.plexus.util.FileUtils;
+
+public class CompileFingerprintTest
+    extends TestCase
+{
+    private File directory = new File( "target/test-compile-fingerprint" );
+
+    private CompileFingerprint fingerprint( CompileFingerprint previous, String arguments )
+        throws Exception
+    {
+        CompileFingerprint fingerprint = new CompileFingerprint( previous );
+        fingerprint.addValue( "arguments", arguments );
+        fingerprint.addDirectory( "src/", new File( directory, "src" ) );
+        return fingerprint;
+    }
+
+    public void testChangedInputs()
+        throws Exception
+    {
+        FileUtils.deleteDirectory( directory );
+        File source = new File( directory, "src/com/example/client/App.java" );
+        source.getParentFile().mkdirs();
+        FileUtils.fileWrite( source.getPath(), "UTF-8", "class App {}" );
+        FileUtils.fileWrite( new File( directory, "src/com/example/.hidden" ).getPath(), "UTF-8", "ignored" );
+
+        CompileFingerprint first = fingerprint( null, "-style OBF" );
+        assertEquals( Arrays.asList( "arguments", "src/com/example/client/App.java" ),
+                      Arrays.asList( first.getHashes().keySet().toArray() ) );
+        File file = new File( directory, "fingerprint.properties" );
+        first.store( file );
+        CompileFingerprint previous = CompileFingerprint.load( file );
+        assertEquals( first.getHashes(), previous.getHashes() );
+        assertEquals( first.getHash(), previous.getHash() );
+
+        // nothing changed
+        assertEquals( Collections.emptyList(), fingerprint( previous, "-style OBF" ).getChangedInputs( previous ) );
+
+        // a flag and a source changed, a source added
+        FileUtils.fileWrite( source.getPath(), "UTF-8", "class App { int i; }" );
+        FileUtils.fileWrite( new File( directory, "src/com/example/client/Other.java" ).getPath(), "UTF-8",
+                             "class Other {}" );
+        CompileFingerprint next = fingerprint( previous, "-style PRETTY" );
+        assertEquals( Arrays.asList( "arguments", "src/com/example/client/App.java",
+                                     "src/com/example/client/Other.java" ), next.getChangedInputs( previous ) );
+        assertFalse( next.getHash().equals( previous.getHash() ) );
+
+        // a source removed
+        assertTrue( previous.getChangedInputs( next ).contains( "src/com/example/client/Other.java" ) );
+    }
+
+    public void testHashWithoutWorkspace()
+    {
+        CompileFingerprint one = new CompileFingerprint( null );
+        one.addValue( CompileFingerprint.ARGUMENTS, "-war /work/one/target/app" );
+        CompileFingerprint two = new CompileFingerprint( null );
+        two.addValue( CompileFingerprint.ARGUMENTS, "-war /work/two/target/app" );
+        assertFalse( one.getHash().equals( two.getHash() ) );
+        assertEquals( one.getHash( Collections.singletonMap( "/work/one", "${basedir}" ) ),
+                      two.getHash( Collections.singletonMap( "/work/two", "${basedir}" ) ) );
+    }
+
+    public void testMissingFile()
+    {
+        assertNull( CompileFingerprint.load( new File( directory, "missing.properties" ) ) );
+    }
+}
@@ -0,0 +1,140 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class CompilerTimelineTest
+    extends TestCase
+{
+    private File file = new File( "target/test-timeline/gwt-compile-timeline.json" );
+
+    private long time;
+
+    @SuppressWarnings( "unchecked" )
+    public void testTimeline()
+        throws Exception
+    {
+        file.delete();
+        CompilerTimeline timeline = new CompilerTimeline( file, 2, new SystemStreamLog() )
+        {
+            @Override
+            protected long now()
+            {
+                return time;
+            }
+        };
+        time = 1000;
+        timeline.started();
+        line( timeline, 1100, "Compiling module com.example.AppWidgetset" );
+        line( timeline, 1200, "   Computing all possible rebind results for 'com.example.Foo'" );
+        line( timeline, 3000, "   Compiling 3 permutations" );
+        line( timeline, 3000, "      Compiling permutation 0..." );
+        line( timeline, 3000, "      Compiling permutation 1..." );
+        line( timeline, 5000, "      Compiling permutation 2..." );
+        line( timeline, 7000, "   Compile of permutations succeeded" );
+        line( timeline, 7000, "   Compilation succeeded -- 5.900s" );
+        line( timeline, 7100, "Linking into /tmp/war/com.example.AppWidgetset" );
+        line( timeline, 7500, "   Link succeeded" );
+        line( timeline, 7500, "   Persistent unit cache took 42 ms" );
+        time = 7600;
+        timeline.finished( true );
+
+        Map<String, Object> json = new ObjectMapper().readValue( file, Map.class );
+        assertEquals( 6600, ( (Number) json.get( "wallTime" ) ).intValue() );
+        assertEquals( Boolean.TRUE, json.get( "success" ) );
+        List<Map<String, Object>> modules = (List<Map<String, Object>>) json.get( "modules" );
+        assertEquals( 1, modules.size() );
+        Map<String, Object> module = modules.get( 0 );
+        assertEquals( "com.example.AppWidgetset", module.get( "name" ) );
+        assertEquals( 3, ( (Number) module.get( "permutationCount" ) ).intValue() );
+
+        List<Map<String, Object>> phases = (List<Map<String, Object>>) module.get( "phases" );
+        assertEquals( 3, phases.size() );
+        assertPhase( phases.get( 0 ), CompilerTimeline.PRECOMPILE, 100, 1900 );
+        assertPhase( phases.get( 1 ), CompilerTimeline.PERMUTATIONS_PHASE, 2000, 4000 );
+        assertPhase( phases.get( 2 ), CompilerTimeline.LINK_PHASE, 6100, 400 );
+
+        // 2 local workers : permutation 0 is considered done when permutation 2 starts
+        List<Map<String, Object>> permutations = (List<Map<String, Object>>) module.get( "permutations" );
+        assertEquals( 3, permutations.size() );
+        assertEquals( 2000, ( (Number) permutations.get( 0 ).get( "duration" ) ).intValue() );
+        assertEquals( 4000, ( (Number) permutations.get( 1 ).get( "duration" ) ).intValue() );
+        assertEquals( 2000, ( (Number) permutations.get( 2 ).get( "duration" ) ).intValue() );
+
+        Map<String, Object> reported = (Map<String, Object>) module.get( "reported" );
+        assertEquals( 5900, ( (Number) reported.get( "compilation" ) ).intValue() );
+        assertEquals( 42, ( (Number) reported.get( "Persistent unit cache" ) ).intValue() );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    public void testLocalWorkersOfTheCommand()
+        throws Exception
+    {
+        file.delete();
+        JavaCommand command = new JavaCommand().setParallelism( "-localWorkers", 2 );
+        CompilerTimeline timeline = new CompilerTimeline( file, command, new SystemStreamLog() )
+        {
+            @Override
+            protected long now()
+            {
+                return time;
+            }
+        };
+        // resized from the history of the previous compilation
+        command.setParallelism( "-localWorkers", 1 );
+        time = 0;
+        timeline.started();
+        line( timeline, 0, "Compiling module com.example.AppWidgetset" );
+        line( timeline, 1000, "   Compiling 2 permutations" );
+        line( timeline, 1000, "      Compiling permutation 0..." );
+        line( timeline, 3000, "      Compiling permutation 1..." );
+        line( timeline, 4000, "   Compile of permutations succeeded" );
+        timeline.finished( true );
+
+        // a single local worker : permutation 0 is done when permutation 1 starts
+        Map<String, Object> json = new ObjectMapper().readValue( file, Map.class );
+        Map<String, Object> module = ( (List<Map<String, Object>>) json.get( "modules" ) ).get( 0 );
+        List<Map<String, Object>> permutations = (List<Map<String, Object>>) module.get( "permutations" );
+        assertEquals( 2000, ( (Number) permutations.get( 0 ).get( "duration" ) ).intValue() );
+        assertEquals( 1000, ( (Number) permutations.get( 1 ).get( "duration" ) ).intValue() );
+    }
+
+    private void line( CompilerTimeline timeline, long at, String line )
+    {
+        time = at;
+        timeline.consumeLine( line );
+    }
+
+    private static void assertPhase( Map<String, Object> phase, String name, int start, int duration )
+    {
+        assertEquals( name, phase.get( "name" ) );
+        assertEquals( start, ( (Number) phase.get( "start" ) ).intValue() );
+        assertEquals( duration, ( (Number) phase.get( "duration" ) ).intValue() );
+    }
+}
@@ -0,0 +1,190 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.StringUtils;
+import org.codehaus.plexus.util.cli.StreamConsumer;
+
+/**
+ * Run the batch against the GWT SDK of the test classpath, in a worker JVM that traps its System.exit
+ */
+public class CssInterfaceBatchTest
+    extends TestCase
+{
+    private static final String GENERATOR = "com.google.gwt.resources.css.InterfaceGenerator";
+
+    private File directory = new File( "target/test-css-batch" ).getAbsoluteFile();
+
+    private File resultDir = new File( directory, "result" );
+
+    private List<String> out = new ArrayList<String>();
+
+    private List<String> err = new ArrayList<String>();
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        FileUtils.deleteDirectory( directory );
+        directory.mkdirs();
+        FileUtils.fileWrite( new File( directory, "a.css" ).getPath(), "UTF-8", ".main { color: red; }" );
+        FileUtils.fileWrite( new File( directory, "b.css" ).getPath(), "UTF-8",
+                             ".other-thing { margin: 0; }\n.main { color: blue; }" );
+    }
+
+    /**
+     * @return <code>false</code> if the JVM can't trap System.exit, and the tools are forked instead of run by a worker
+     */
+    private boolean isWorkerSupported()
+    {
+        // the security manager is permanently disabled from JDK 24
+        if ( JavaVersion.current() >= 24 )
+        {
+            System.err.println( "Skipped " + getName() + " : worker JVMs are not supported by Java "
+                + JavaVersion.current() );
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the jar of the class in the test classpath
+     */
+    private static File getJar( String className )
+        throws Exception
+    {
+        Class<?> type = Class.forName( className, false, CssInterfaceBatchTest.class.getClassLoader() );
+        return new File( type.getProtectionDomain().getCodeSource().getLocation().toURI() );
+    }
+
+    /**
+     * @param sdk whether the GWT SDK is in the classpath
+     */
+    private Integer execute( boolean sdk, String mainClass, String... args )
+        throws Exception
+    {
+        JavaCommand command = new JavaCommand().setMainClass( mainClass );
+        command.setLog( new SystemStreamLog()
+        {
+            @Override
+            public void error( CharSequence content )
+            {
+                err.add( content.toString() );
+            }
+        } );
+        command.setOut( new StreamConsumer()
+        {
+            public void consumeLine( String line )
+            {
+                out.add( line );
+            }
+        } );
+        for ( String arg : args )
+        {
+            command.arg( arg );
+        }
+        List<File> classpath = new ArrayList<File>();
+        classpath.add( new File( "target/classes" ).getAbsoluteFile() );
+        if ( sdk )
+        {
+            classpath.add( getJar( GENERATOR ) );
+            classpath.add( getJar( "com.google.gwt.dev.util.log.PrintWriterTreeLogger" ) );
+        }
+        String java = new File( System.getProperty( "java.home" ), "bin/java" ).getPath();
+        Integer status = WorkerPool.getInstance().execute( command, java, classpath,
+                                                           Arrays.asList( "-classpath",
+                                                                          LaunchClasspath.join( classpath ) ) );
+        assertNotNull( "forked instead of run by a worker", status );
+        return status;
+    }
+
+    private String css( String name )
+    {
+        return new File( directory, name + ".css" ).getPath();
+    }
+
+    private String generated( String type )
+        throws Exception
+    {
+        return FileUtils.fileRead( new File( resultDir, "org.example." + type + ".java" ), "UTF-8" );
+    }
+
+    public void testSameAsGenerator()
+        throws Exception
+    {
+        if ( !isWorkerSupported() )
+        {
+            return;
+        }
+        assertEquals( 0, execute( true, CssInterfaceBatch.class.getName(), resultDir.getPath(), "org.example.A",
+                                  css( "a" ), "org.example.B", css( "b" ) ).intValue() );
+        assertFalse( new File( resultDir, CssInterfaceBatch.UNSUPPORTED ).exists() );
+        assertTrue( generated( "B" ).contains( "@ClassName(\"other-thing\")" ) );
+
+        // what CSSMojo writes from the output of the GWT tool run for a single stylesheet
+        for ( String type : new String[] { "A", "B" } )
+        {
+            out.clear();
+            assertEquals( 0, execute( true, GENERATOR, "-standalone", "-typeName", "org.example." + type, "-css",
+                                      css( type.toLowerCase() ) ).intValue() );
+            assertEquals( StringUtils.join( out.iterator(), "\n" ), generated( type ) );
+        }
+    }
+
+    public void testFailureReported()
+        throws Exception
+    {
+        if ( !isWorkerSupported() )
+        {
+            return;
+        }
+        assertEquals( 1, execute( true, CssInterfaceBatch.class.getName(), resultDir.getPath(), "org.example.Missing",
+                                  css( "missing" ), "org.example.A", css( "a" ) ).intValue() );
+        // the other stylesheets are still generated
+        assertTrue( generated( "A" ).contains( "String main();" ) );
+        assertFalse( new File( resultDir, "org.example.Missing.java" ).exists() );
+        assertTrue( err.contains( "Failed to generate org.example.Missing from " + css( "missing" ) ) );
+        // the generator log is only printed on failure
+        assertTrue( err.contains( "   [ERROR] Unable to parse CSS" ) );
+    }
+
+    public void testUnsupported()
+        throws Exception
+    {
+        if ( !isWorkerSupported() )
+        {
+            return;
+        }
+        // CSSMojo then generates the interfaces one at a time with the GWT tool
+        assertEquals( 0, execute( false, CssInterfaceBatch.class.getName(), resultDir.getPath(), "org.example.A",
+                                  css( "a" ) ).intValue() );
+        assertTrue( new File( resultDir, CssInterfaceBatch.UNSUPPORTED ).exists() );
+        assertFalse( new File( resultDir, "org.example.A.java" ).exists() );
+    }
+}
@@ -0,0 +1,106 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+
+public class ForkGovernorTest
+    extends TestCase
+{
+    public void testResourcesAreSplitBetweenForks()
+        throws Exception
+    {
+        ForkGovernor governor = new ForkGovernor( 2, 16, 8192 );
+        ForkGovernor.Lease first = governor.acquire( 16, 6000, new SystemStreamLog() );
+        assertEquals( 8, first.getCpus() );
+        // alone, it keeps its -Xmx
+        assertEquals( 6000, first.getHeap() );
+        assertFalse( first.isHeapLimited() );
+
+        ForkGovernor.Lease second = governor.acquire( 4, 512, new SystemStreamLog() );
+        assertEquals( 4, second.getCpus() );
+        assertEquals( 512, second.getHeap() );
+        second.release();
+
+        // what is left over by the first fork
+        ForkGovernor.Lease third = governor.acquire( 16, 6000, new SystemStreamLog() );
+        assertEquals( 8, third.getCpus() );
+        assertEquals( 2192, third.getHeap() );
+        assertTrue( third.isHeapLimited() );
+        first.release();
+        third.release();
+    }
+
+    public void testForkAloneNotLimited()
+        throws Exception
+    {
+        ForkGovernor governor = new ForkGovernor( 4, 8, 1024 );
+        ForkGovernor.Lease lease = governor.acquire( 2, 4096, new SystemStreamLog() );
+        assertEquals( 4096, lease.getHeap() );
+        assertFalse( lease.isHeapLimited() );
+        lease.release();
+
+        // without -Xmx, the JVM default is kept
+        lease = governor.acquire( 2, 0, new SystemStreamLog() );
+        assertFalse( lease.isHeapLimited() );
+        lease.release();
+    }
+
+    public void testForkWaitsForAFreeSlot()
+        throws Exception
+    {
+        final ForkGovernor governor = new ForkGovernor( 1, 4, 0 );
+        final ForkGovernor.Lease first = governor.acquire( 4, 512, new SystemStreamLog() );
+        final ForkGovernor.Lease[] second = new ForkGovernor.Lease[1];
+        Thread thread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    second[0] = governor.acquire( 4, 512, new SystemStreamLog() );
+                }
+                catch ( InterruptedException e )
+                {
+                    // test fails
+                }
+            }
+        };
+        thread.start();
+        thread.join( 200 );
+        assertNull( second[0] );
+        first.release();
+        thread.join( 5000 );
+        assertEquals( 4, second[0].getCpus() );
+    }
+
+    public void testMaxHeap()
+    {
+        assertEquals( 512, JavaCommand.getMaxHeap( Arrays.asList( "-Xss1m", "-Xmx512m" ) ) );
+        assertEquals( 2048, JavaCommand.getMaxHeap( Arrays.asList( "-Xmx512m", "-Xmx2G" ) ) );
+        assertEquals( 0, JavaCommand.getMaxHeap( Collections.<String> emptyList() ) );
+    }
+}
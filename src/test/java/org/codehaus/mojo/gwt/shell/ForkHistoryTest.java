@@ -0,0 +1,87 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+public class ForkHistoryTest
+    extends TestCase
+{
+    private static ForkHistory.Record record( int maxHeap, int liveHeap, long gcTime, long duration, int workers )
+    {
+        ForkHistory.Record record = new ForkHistory.Record();
+        record.maxHeap = maxHeap;
+        record.peakHeap = maxHeap;
+        record.liveHeap = liveHeap;
+        record.gcTime = gcTime;
+        record.duration = duration;
+        record.workers = workers;
+        record.permutations = 6;
+        return record;
+    }
+
+    public void testHistoryIsPersisted()
+        throws Exception
+    {
+        File file = new File( "target/test-history/history.properties" );
+        file.delete();
+        ForkHistory history = new ForkHistory( file );
+        assertNull( history.get( "g:a:Module" ) );
+        history.put( "g:a:Module", record( 512, 300, 1000, 60000, 4 ) );
+        ForkHistory.Record record = new ForkHistory( file ).get( "g:a:Module" );
+        assertEquals( 300, record.liveHeap );
+        assertEquals( 6, record.permutations );
+    }
+
+    public void testHeapFollowsLiveHeap()
+    {
+        assertEquals( 640, record( 2048, 300, 1000, 60000, 4 ).recommendHeap( 4096 ) );
+        assertEquals( ForkHistory.MIN_HEAP, record( 2048, 50, 1000, 60000, 4 ).recommendHeap( 4096 ) );
+    }
+
+    public void testHeapFollowsPeakHeap()
+    {
+        ForkHistory.Record record = record( 2048, 0, 1000, 60000, 4 );
+        record.peakHeap = 800;
+        assertEquals( 1024, record.recommendHeap( 4096 ) );
+        // no sample
+        record.peakHeap = 0;
+        assertEquals( 2048, record.recommendHeap( 4096 ) );
+    }
+
+    public void testHeapGrowsUnderGcPressure()
+    {
+        assertEquals( 768, record( 512, 300, 20000, 60000, 4 ).recommendHeap( 4096 ) );
+        assertEquals( 600, record( 512, 300, 20000, 60000, 4 ).recommendHeap( 600 ) );
+
+        ForkHistory.Record outOfMemory = record( 512, 300, 1000, 60000, 4 );
+        outOfMemory.outOfMemory = true;
+        assertEquals( 1024, outOfMemory.recommendHeap( 4096 ) );
+    }
+
+    public void testWorkers()
+    {
+        assertEquals( 6, record( 512, 300, 1000, 60000, 4 ).recommendWorkers( 16, 4096 ) );
+        // the heap can't grow anymore
+        assertEquals( 2, record( 4096, 3000, 20000, 60000, 4 ).recommendWorkers( 16, 4096 ) );
+    }
+}
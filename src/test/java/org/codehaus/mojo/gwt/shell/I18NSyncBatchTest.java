@@ -0,0 +1,166 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.cli.StreamConsumer;
+
+/**
+ * Run the batch against the GWT SDK of the test classpath, in a worker JVM that traps its System.exit
+ */
+public class I18NSyncBatchTest
+    extends TestCase
+{
+    private File directory = new File( "target/test-i18n-batch" ).getAbsoluteFile();
+
+    private File sources = new File( directory, "src" );
+
+    private File generateDirectory = new File( directory, "generated" );
+
+    private List<String> out = new ArrayList<String>();
+
+    private List<String> err = new ArrayList<String>();
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        FileUtils.deleteDirectory( directory );
+        File bundles = new File( sources, "org/example" );
+        bundles.mkdirs();
+        FileUtils.fileWrite( new File( bundles, "Lookup.properties" ).getPath(), "UTF-8", "a=A\n" );
+        FileUtils.fileWrite( new File( bundles, "Labels.properties" ).getPath(), "UTF-8", "title=Hello\nok=OK\n" );
+        FileUtils.fileWrite( new File( bundles, "Messages.properties" ).getPath(), "UTF-8", "greeting=Hello {0}\n" );
+        // as I18NMojo does, I18NSync requires the target package to exist
+        new File( generateDirectory, "org/example" ).mkdirs();
+    }
+
+    /**
+     * @return <code>false</code> if the JVM can't trap System.exit, and the tools are forked instead of run by a worker
+     */
+    private boolean isWorkerSupported()
+    {
+        // the security manager is permanently disabled from JDK 24
+        if ( JavaVersion.current() >= 24 )
+        {
+            System.err.println( "Skipped " + getName() + " : worker JVMs are not supported by Java "
+                + JavaVersion.current() );
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the jar of the class in the test classpath
+     */
+    private static File getJar( String className )
+        throws Exception
+    {
+        Class<?> type = Class.forName( className, false, I18NSyncBatchTest.class.getClassLoader() );
+        return new File( type.getProtectionDomain().getCodeSource().getLocation().toURI() );
+    }
+
+    private Integer execute( String... bundles )
+        throws Exception
+    {
+        JavaCommand command = new JavaCommand().setMainClass( I18NSyncBatch.class.getName() );
+        command.setLog( new SystemStreamLog()
+        {
+            @Override
+            public void error( CharSequence content )
+            {
+                err.add( content.toString() );
+            }
+        } );
+        command.setOut( new StreamConsumer()
+        {
+            public void consumeLine( String line )
+            {
+                out.add( line );
+            }
+        } );
+        command.arg( "-out", generateDirectory.getPath() ).arg( "-threads", "2" );
+        for ( int i = 0; i < bundles.length; i += 2 )
+        {
+            command.arg( bundles[i], bundles[i + 1] );
+        }
+        String java = new File( System.getProperty( "java.home" ), "bin/java" ).getPath();
+        // the bundles are looked up in the classpath, as the project resources are by I18NMojo
+        List<File> classpath = Arrays.asList( sources, new File( "target/classes" ).getAbsoluteFile(),
+                                              getJar( "com.google.gwt.i18n.tools.I18NSync" ),
+                                              getJar( "com.google.gwt.dev.util.log.PrintWriterTreeLogger" ) );
+        Integer status = WorkerPool.getInstance().execute( command, java, classpath,
+                                                           Arrays.asList( "-classpath",
+                                                                          LaunchClasspath.join( classpath ) ) );
+        assertNotNull( "forked instead of run by a worker", status );
+        return status;
+    }
+
+    private String generated( String className )
+        throws Exception
+    {
+        return FileUtils.fileRead( new File( generateDirectory, className.replace( '.', '/' ) + ".java" ), "UTF-8" );
+    }
+
+    public void testAllBundlesInOneRun()
+        throws Exception
+    {
+        if ( !isWorkerSupported() )
+        {
+            return;
+        }
+        assertEquals( 0, execute( I18NSyncBatch.CONSTANTS_WITH_LOOKUP, "org.example.Lookup", I18NSyncBatch.CONSTANTS,
+                                  "org.example.Labels", I18NSyncBatch.MESSAGES, "org.example.Messages" ).intValue() );
+        assertTrue( generated( "org.example.Lookup" ).contains(
+            "public interface Lookup extends com.google.gwt.i18n.client.ConstantsWithLookup" ) );
+        String labels = generated( "org.example.Labels" );
+        assertTrue( labels.contains( "public interface Labels extends com.google.gwt.i18n.client.Constants " ) );
+        assertTrue( labels.contains( "String title();" ) );
+        assertTrue( labels.contains( "String ok();" ) );
+        String messages = generated( "org.example.Messages" );
+        assertTrue( messages.contains( "public interface Messages extends com.google.gwt.i18n.client.Messages" ) );
+        assertTrue( messages.contains( "String greeting(String arg0);" ) );
+        assertEquals( Arrays.asList( "Generated org.example.Lookup", "Generated org.example.Labels",
+                                     "Generated org.example.Messages" ), out );
+    }
+
+    public void testFailureReported()
+        throws Exception
+    {
+        if ( !isWorkerSupported() )
+        {
+            return;
+        }
+        assertEquals( 1, execute( I18NSyncBatch.CONSTANTS, "org.example.Missing", I18NSyncBatch.MESSAGES,
+                                  "org.example.Messages" ).intValue() );
+        // the other bundles are still generated
+        assertTrue( generated( "org.example.Messages" ).contains( "String greeting(String arg0);" ) );
+        assertFalse( new File( generateDirectory, "org/example/Missing.java" ).exists() );
+        assertTrue( err.contains( "Failed to generate org.example.Missing" ) );
+    }
+}
@@ -0,0 +1,148 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.codehaus.plexus.util.cli.StreamConsumer;
+
+public class InProcessRunnerTest
+    extends TestCase
+{
+    private List<String> out = new ArrayList<String>();
+
+    private List<String> err = new ArrayList<String>();
+
+    /**
+     * The tool run in the Maven JVM
+     */
+    public static class Tool
+    {
+        public static void main( String[] args )
+            throws Exception
+        {
+            System.out.println( "out " + args[0] + " " + System.getProperty( "tool.property" ) );
+            System.err.println( "err " + args[0] );
+            if ( args.length > 1 )
+            {
+                // from another thread of the tool
+                Thread thread = new Thread()
+                {
+                    @Override
+                    public void run()
+                    {
+                        System.out.println( "thread" );
+                    }
+                };
+                thread.start();
+                thread.join();
+                System.exit( Integer.parseInt( args[1] ) );
+            }
+        }
+    }
+
+    private JavaCommand command( String... args )
+    {
+        JavaCommand command = new JavaCommand().setMainClass( Tool.class.getName() );
+        command.setLog( new SystemStreamLog()
+        {
+            @Override
+            public void error( CharSequence content )
+            {
+                err.add( content.toString() );
+            }
+        } );
+        command.setOut( new StreamConsumer()
+        {
+            public void consumeLine( String line )
+            {
+                out.add( line );
+            }
+        } );
+        for ( String arg : args )
+        {
+            command.arg( arg );
+        }
+        return command;
+    }
+
+    private List<File> classpath()
+    {
+        return Collections.singletonList( new File( "target/test-classes" ).getAbsoluteFile() );
+    }
+
+    public void testExitTrappedAndOutputRouted()
+        throws Exception
+    {
+        Integer status = InProcessRunner.getInstance().execute( command( "a", "3" ), classpath() );
+        if ( status == null )
+        {
+            // the JVM doesn't allow to trap System.exit, the tool is forked
+            return;
+        }
+        assertEquals( 3, status.intValue() );
+        assertEquals( "out a null", out.get( 0 ) );
+        assertTrue( out.contains( "thread" ) );
+        assertEquals( Collections.singletonList( "err a" ), err );
+    }
+
+    public void testNormalEnd()
+        throws Exception
+    {
+        Integer status = InProcessRunner.getInstance().execute( command( "b" ), classpath() );
+        if ( status == null )
+        {
+            return;
+        }
+        assertEquals( 0, status.intValue() );
+        assertEquals( Collections.singletonList( "out b null" ), out );
+    }
+
+    public void testSystemPropertiesForked()
+        throws Exception
+    {
+        JavaCommand command = command( "c" ).systemProperty( "tool.property", "set" );
+        assertNull( InProcessRunner.getInstance().execute( command, classpath() ) );
+        assertTrue( out.isEmpty() );
+
+        // already set in the Maven JVM
+        System.setProperty( "tool.property", "set" );
+        try
+        {
+            command = command( "c" ).setJvmArgs( Arrays.asList( "-Dtool.property=set" ) );
+            Integer status = InProcessRunner.getInstance().execute( command, classpath() );
+            if ( status != null )
+            {
+                assertEquals( Collections.singletonList( "out c set" ), out );
+            }
+        }
+        finally
+        {
+            System.clearProperty( "tool.property" );
+        }
+    }
+}
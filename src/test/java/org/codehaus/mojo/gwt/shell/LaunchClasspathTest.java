@@ -0,0 +1,98 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+
+import junit.framework.TestCase;
+
+import org.codehaus.plexus.util.FileUtils;
+
+public class LaunchClasspathTest
+    extends TestCase
+{
+    private File directory = new File( "target/test-classpath" );
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        FileUtils.deleteDirectory( directory );
+    }
+
+    public void testDedupeKeepsFirstOccurrence()
+    {
+        File a = new File( "a.jar" );
+        File b = new File( "b.jar" );
+        List<File> classpath = LaunchClasspath.dedupe( Arrays.asList( a, b, a.getAbsoluteFile(), b ) );
+        assertEquals( Arrays.asList( a.getAbsoluteFile(), b.getAbsoluteFile() ), classpath );
+    }
+
+    public void testInline()
+        throws Exception
+    {
+        List<File> classpath = Arrays.asList( new File( "a.jar" ).getAbsoluteFile() );
+        List<String> arguments = LaunchClasspath.arguments( classpath, LaunchClasspath.AUTO, 8, directory );
+        assertEquals( Arrays.asList( "-classpath", classpath.get( 0 ).getAbsolutePath() ), arguments );
+    }
+
+    public void testArgumentFileIsReused()
+        throws Exception
+    {
+        List<File> classpath = Arrays.asList( new File( "a b.jar" ).getAbsoluteFile() );
+        List<String> arguments = LaunchClasspath.arguments( classpath, LaunchClasspath.ARGFILE, 11, directory );
+        assertEquals( 1, arguments.size() );
+        File argfile = new File( arguments.get( 0 ).substring( 1 ) );
+        assertEquals( "-classpath\n" + LaunchClasspath.quote( LaunchClasspath.join( classpath ) ) + "\n",
+                      FileUtils.fileRead( argfile, "UTF-8" ) );
+        assertEquals( arguments, LaunchClasspath.arguments( classpath, LaunchClasspath.AUTO, 11, directory ) );
+    }
+
+    public void testQuote()
+    {
+        assertEquals( "\"C:\\\\lib\\\\a \\\"b\\\".jar\"", LaunchClasspath.quote( "C:\\lib\\a \"b\".jar" ) );
+    }
+
+    public void testPathingJar()
+        throws Exception
+    {
+        File classes = new File( "target/classes" ).getAbsoluteFile();
+        File jar = new File( "a.jar" ).getAbsoluteFile();
+        List<String> arguments =
+            LaunchClasspath.arguments( Arrays.asList( classes, jar ), LaunchClasspath.JAR, 8, directory );
+        assertEquals( "-classpath", arguments.get( 0 ) );
+        JarFile pathingJar = new JarFile( arguments.get( 1 ) );
+        try
+        {
+            String classPath = pathingJar.getManifest().getMainAttributes().getValue( Attributes.Name.CLASS_PATH );
+            assertEquals( LaunchClasspath.toClassPathUrl( classes ) + " " + LaunchClasspath.toClassPathUrl( jar ),
+                          classPath );
+            assertTrue( classPath.startsWith( "file:" ) );
+        }
+        finally
+        {
+            pathingJar.close();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.zip.GZIPInputStream;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.cli.StreamConsumer;
+
+public class LogForwarderTest
+    extends TestCase
+{
+    private File file = new File( "target/test-log/Compiler.log.gz" );
+
+    private List<String> console = new ArrayList<String>();
+
+    private StreamConsumer consumer = new StreamConsumer()
+    {
+        public void consumeLine( String line )
+        {
+            synchronized ( console )
+            {
+                console.add( line );
+            }
+        }
+    };
+
+    public void testFullOutputInFileAndFilteredConsole()
+        throws Exception
+    {
+        LogForwarder forwarder = new LogForwarder( file, 16, 5, new SystemStreamLog(), consumer, consumer );
+        StreamConsumer out = forwarder.getOut();
+        for ( int i = 0; i < 100; i++ )
+        {
+            out.consumeLine( "line " + i );
+        }
+        out.consumeLine( "      [TRACE] detail" );
+        out.consumeLine( "   [ERROR] failure" );
+        forwarder.getErr().consumeLine( "stderr" );
+        forwarder.close();
+
+        String content = IOUtil.toString( new InputStreamReader( new GZIPInputStream( new FileInputStream( file ) ),
+                                                                 "UTF-8" ) );
+        String[] lines = content.split( "\n" );
+        assertEquals( 103, lines.length );
+        assertEquals( "line 0", lines[0] );
+        assertEquals( "stderr", lines[102] );
+
+        assertFalse( console.contains( "      [TRACE] detail" ) );
+        assertTrue( console.contains( "   [ERROR] failure" ) );
+        assertTrue( console.contains( "stderr" ) );
+        // at most 5 lines per second, and no more than the ring buffer capacity
+        assertTrue( console.size() < 20 );
+    }
+
+    public void testProblemsNeverDropped()
+        throws Exception
+    {
+        final CountDownLatch release = new CountDownLatch( 1 );
+        StreamConsumer slow = new StreamConsumer()
+        {
+            public void consumeLine( String line )
+            {
+                try
+                {
+                    release.await();
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                }
+                consumer.consumeLine( line );
+            }
+        };
+        LogForwarder forwarder = new LogForwarder( file, 4, 0, new SystemStreamLog(), slow, slow );
+        StreamConsumer out = forwarder.getOut();
+        for ( int i = 0; i < 6; i++ )
+        {
+            out.consumeLine( "   [ERROR] failure " + i );
+            for ( int j = 0; j < 20; j++ )
+            {
+                out.consumeLine( "   [INFO] flood " + j );
+            }
+        }
+        forwarder.getErr().consumeLine( "stderr" );
+        release.countDown();
+        forwarder.close();
+
+        for ( int i = 0; i < 6; i++ )
+        {
+            assertTrue( console.contains( "   [ERROR] failure " + i ) );
+        }
+        assertTrue( console.contains( "stderr" ) );
+        // the console couldn't keep up, lines were dropped
+        assertTrue( console.size() < 6 * 21 );
+    }
+
+    public void testLogFilePerCommand()
+    {
+        File directory = new File( "target/gwt-log" );
+        JavaCommand command = new JavaCommand().setMainClass( "com.google.gwt.dev.Compiler" ).setLogDirectory( directory );
+        assertEquals( new File( directory, "Compiler.log.gz" ), command.getLogFile() );
+        command.setLogQualifier( "org.example.App_org.example.Admin" );
+        assertEquals( new File( directory, "Compiler-org.example.App_org.example.Admin.log.gz" ), command.getLogFile() );
+        command.setLogQualifier( "themes/my theme" );
+        assertEquals( new File( directory, "Compiler-themes_my_theme.log.gz" ), command.getLogFile() );
+
+        StringBuilder modules = new StringBuilder();
+        for ( int i = 0; i < 20; i++ )
+        {
+            modules.append( "org.example.Module" ).append( i ).append( '_' );
+        }
+        command.setLogQualifier( modules.toString() );
+        String name = command.getLogFile().getName();
+        assertTrue( name.length() < 150 );
+        command.setLogQualifier( modules.append( "org.example.Other" ).toString() );
+        assertFalse( name.equals( command.getLogFile().getName() ) );
+    }
+}
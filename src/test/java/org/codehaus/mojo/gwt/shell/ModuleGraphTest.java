@@ -0,0 +1,129 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.codehaus.mojo.gwt.GwtModule;
+import org.codehaus.mojo.gwt.GwtModuleReader;
+import org.codehaus.mojo.gwt.utils.GwtModuleReaderException;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.xml.Xpp3DomBuilder;
+
+public class ModuleGraphTest
+    extends TestCase
+{
+    private File directory = new File( "target/test-module-graph" );
+
+    private File jar = new File( directory, "lib.jar" );
+
+    private File sources = new File( directory, "src" ).getAbsoluteFile();
+
+    private GwtModuleReader reader = new GwtModuleReader()
+    {
+        public GwtModule readModule( String name )
+            throws GwtModuleReaderException
+        {
+            if ( "org.lib.Lib".equals( name ) )
+            {
+                return module( name, "<module><super-source/></module>", jar );
+            }
+            throw new GwtModuleReaderException( name );
+        }
+
+        public List<String> getGwtModules()
+        {
+            return Collections.emptyList();
+        }
+    };
+
+    private GwtModule module( String name, String xml, File location )
+        throws GwtModuleReaderException
+    {
+        try
+        {
+            GwtModule module = new GwtModule( name, Xpp3DomBuilder.build( new StringReader( xml ) ), reader );
+            module.setLocation( location );
+            return module;
+        }
+        catch ( Exception e )
+        {
+            throw new GwtModuleReaderException( e.getMessage(), e );
+        }
+    }
+
+    public void testDependencyUpgrade()
+        throws Exception
+    {
+        new File( sources, "com/example/client" ).mkdirs();
+        new File( sources, "com/example/public" ).mkdirs();
+        FileUtils.fileWrite( jar.getPath(), "UTF-8", "1.0" );
+        String xml = "<module><inherits name='org.lib.Lib'/></module>";
+
+        ModuleGraph graph = ModuleGraph.build( module( "com.example.App", xml, sources ), new HashMap<String, Object>() );
+        File file = new File( directory, "graph/com.example.App.properties" );
+        graph.store( file );
+        ModuleGraph previous = ModuleGraph.load( file );
+        assertEquals( Arrays.asList( "com.example.App", "org.lib.Lib" ),
+                      Arrays.asList( previous.getModules().toArray() ) );
+        assertTrue( graph.getChanges( previous ).isEmpty() );
+        assertEquals( Arrays.asList( new File( sources, "com/example/client" ) ), previous.getSourceDirectories( Collections.<File>emptyList() ) );
+        assertEquals( Arrays.asList( new File( sources, "com/example/public" ) ), previous.getPublicDirectories( Collections.<File>emptyList() ) );
+        assertEquals( Arrays.asList( "com/example/App.gwt.xml", "com/example/client", "com/example/public", "org/lib",
+                                     "org/lib/Lib.gwt.xml", "org/lib/client", "org/lib/public" ),
+                      Arrays.asList( previous.getClientPaths().toArray() ) );
+        assertEquals( Collections.singleton( sources ), previous.getDirectories() );
+
+        FileUtils.fileWrite( jar.getPath(), "UTF-8", "2.0" );
+        graph = ModuleGraph.build( module( "com.example.App", xml, sources ), new HashMap<String, Object>() );
+        List<String> changes = graph.getChanges( previous );
+        assertEquals( 1, changes.size() );
+        assertTrue( changes.get( 0 ).startsWith( "module org.lib.Lib jar " ) );
+
+        graph = ModuleGraph.build( module( "com.example.App", "<module/>", sources ), new HashMap<String, Object>() );
+        assertEquals( Collections.singletonList( "module org.lib.Lib removed" ), graph.getChanges( previous ) );
+    }
+
+    public void testSourcesInOtherRoots()
+        throws Exception
+    {
+        // descriptor in the resources, sources and public resources in other roots
+        File resources = new File( directory, "resources" ).getAbsoluteFile();
+        File java = new File( directory, "java" ).getAbsoluteFile();
+        File webapp = new File( directory, "webapp" ).getAbsoluteFile();
+        new File( resources, "com/example" ).mkdirs();
+        new File( java, "com/example/client" ).mkdirs();
+        new File( webapp, "com/example/public" ).mkdirs();
+
+        ModuleGraph graph =
+            ModuleGraph.build( module( "com.example.App", "<module/>", resources ), new HashMap<String, Object>() );
+        List<File> roots = Arrays.asList( java, resources, webapp );
+        assertTrue( graph.getSourceDirectories( Collections.<File>emptyList() ).isEmpty() );
+        assertEquals( Arrays.asList( new File( java, "com/example/client" ) ), graph.getSourceDirectories( roots ) );
+        assertEquals( Arrays.asList( new File( webapp, "com/example/public" ) ), graph.getPublicDirectories( roots ) );
+    }
+}
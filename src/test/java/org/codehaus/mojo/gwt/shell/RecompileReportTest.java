@@ -0,0 +1,92 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.codehaus.plexus.util.FileUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class RecompileReportTest
+    extends TestCase
+{
+    private File directory = new File( "target/test-recompile-report" );
+
+    public void testCompare()
+        throws Exception
+    {
+        FileUtils.deleteDirectory( directory );
+        directory.mkdirs();
+        File jar = new File( directory, "lib.jar" );
+        File source = new File( directory, "App.java" );
+        FileUtils.fileWrite( jar.getPath(), "UTF-8", "1.0" );
+        FileUtils.fileWrite( source.getPath(), "UTF-8", "class App {}" );
+
+        CompileFingerprint previous = new CompileFingerprint( null );
+        previous.addValue( CompileFingerprint.MODULE + "com.example.App", "src" );
+        previous.addValue( CompileFingerprint.MODULE + "org.lib.Lib", "lib.jar" );
+        previous.addValue( CompileFingerprint.ARGUMENTS, "-style OBF -draftCompile" );
+        previous.addFile( CompileFingerprint.JAR + "lib.jar", jar );
+        previous.addFile( CompileFingerprint.FILE + "App.java", source );
+        File file = new File( directory, "fingerprint.properties" );
+        previous.store( file );
+        previous = CompileFingerprint.load( file );
+        assertEquals( "-style OBF -draftCompile", previous.getValue( CompileFingerprint.ARGUMENTS ) );
+
+        FileUtils.fileWrite( jar.getPath(), "UTF-8", "2.0" );
+        CompileFingerprint current = new CompileFingerprint( previous );
+        current.addValue( CompileFingerprint.MODULE + "com.example.App", "src" );
+        current.addValue( CompileFingerprint.MODULE + "org.other.Other", "other.jar" );
+        current.addValue( CompileFingerprint.ARGUMENTS, "-style PRETTY -draftCompile" );
+        current.addFile( CompileFingerprint.JAR + "lib.jar", jar );
+        current.addFile( CompileFingerprint.FILE + "App.java", source );
+
+        RecompileReport report = RecompileReport.compare( "com.example.App", previous, current );
+        List<String> lines = report.getLines();
+        assertEquals( "com.example.App compiled : inputs changed", lines.get( 0 ) );
+        assertTrue( lines.contains( "  inherited module added : org.other.Other" ) );
+        assertTrue( lines.contains( "  inherited module removed : org.lib.Lib" ) );
+        assertTrue( lines.contains( "  arguments changed : removed [OBF], added [PRETTY]" ) );
+        assertEquals( 5, lines.size() );
+
+        report.write( directory );
+        assertTrue( new File( directory, "com.example.App.txt" ).isFile() );
+        Map<?, ?> json = new ObjectMapper().readValue( new File( directory, "com.example.App.json" ), Map.class );
+        List<?> jars = (List<?>) json.get( "jars" );
+        assertEquals( 1, jars.size() );
+        Map<?, ?> change = (Map<?, ?>) jars.get( 0 );
+        assertEquals( "lib.jar", change.get( "name" ) );
+        assertEquals( previous.getHashes().get( CompileFingerprint.JAR + "lib.jar" ), change.get( "old" ) );
+        assertEquals( current.getHashes().get( CompileFingerprint.JAR + "lib.jar" ), change.get( "new" ) );
+        assertEquals( Arrays.asList(), ( (Map<?, ?>) json.get( "files" ) ).get( "changed" ) );
+        assertEquals( RecompileReport.COMPILED, json.get( "outcome" ) );
+
+        // found in the build cache once the report was made
+        report.setOutcome( RecompileReport.RESTORED );
+        assertEquals( "com.example.App restored from the build cache : inputs changed", report.getLines().get( 0 ) );
+        assertEquals( RecompileReport.RESTORED, report.toJson().get( "outcome" ) );
+    }
+}
@@ -0,0 +1,186 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.cli.StreamConsumer;
+
+public class WorkerPoolTest
+    extends TestCase
+{
+    private List<String> out = new ArrayList<String>();
+
+    private List<String> err = new ArrayList<String>();
+
+    private String java = new File( System.getProperty( "java.home" ), "bin/java" ).getPath();
+
+    /**
+     * The tool run in the worker JVM
+     */
+    public static class Tool
+    {
+        private static int runs;
+
+        public static void main( String[] args )
+            throws Exception
+        {
+            runs++;
+            System.out.println( "out " + args[0] + " " + System.getProperty( "tool.property" ) );
+            System.out.println( "run " + runs + " in " + ManagementFactory.getRuntimeMXBean().getName() );
+            System.err.println( "err " + args[0] );
+            if ( args.length > 1 )
+            {
+                // from another thread of the tool
+                Thread thread = new Thread()
+                {
+                    @Override
+                    public void run()
+                    {
+                        System.out.println( "thread" );
+                    }
+                };
+                thread.start();
+                thread.join();
+                System.exit( Integer.parseInt( args[1] ) );
+            }
+        }
+    }
+
+    private JavaCommand command( String... args )
+    {
+        JavaCommand command = new JavaCommand().setMainClass( Tool.class.getName() );
+        command.setLog( new SystemStreamLog()
+        {
+            @Override
+            public void error( CharSequence content )
+            {
+                err.add( content.toString() );
+            }
+        } );
+        command.setOut( new StreamConsumer()
+        {
+            public void consumeLine( String line )
+            {
+                out.add( line );
+            }
+        } );
+        for ( String arg : args )
+        {
+            command.arg( arg );
+        }
+        return command;
+    }
+
+    private Integer execute( JavaCommand command )
+        throws Exception
+    {
+        List<File> classpath =
+            Arrays.asList( new File( "target/test-classes" ).getAbsoluteFile(),
+                           new File( "target/classes" ).getAbsoluteFile() );
+        return WorkerPool.getInstance().execute( command, java, classpath,
+                                                 Arrays.asList( "-classpath", LaunchClasspath.join( classpath ) ) );
+    }
+
+    /**
+     * @return <code>false</code> if the JVM can't trap System.exit, and the tools are forked instead of run by a worker
+     */
+    private boolean isWorkerSupported()
+    {
+        // the security manager is permanently disabled from JDK 24
+        if ( JavaVersion.of( java ) >= 24 )
+        {
+            System.err.println( "Skipped " + getName() + " : worker JVMs are not supported by Java "
+                + JavaVersion.of( java ) );
+            return false;
+        }
+        return true;
+    }
+
+    public void testExitStatusAndFrames()
+        throws Exception
+    {
+        if ( !isWorkerSupported() )
+        {
+            return;
+        }
+        Integer status = execute( command( "a", "3" ).systemProperty( "tool.property", "set" ) );
+        assertNotNull( "forked instead of run by a worker", status );
+        assertEquals( 3, status.intValue() );
+        assertEquals( "out a set", out.get( 0 ) );
+        assertTrue( out.contains( "thread" ) );
+        // the JVM itself may warn on its unframed standard error
+        assertTrue( err.contains( "err a" ) );
+        assertFalse( out.contains( "err a" ) );
+    }
+
+    public void testWorkerReused()
+        throws Exception
+    {
+        if ( !isWorkerSupported() )
+        {
+            return;
+        }
+        Integer status = execute( command( "b" ).systemProperty( "tool.property", "set" ) );
+        assertNotNull( "forked instead of run by a worker", status );
+        assertEquals( 0, status.intValue() );
+        String first = out.get( 1 );
+        assertEquals( 0, execute( command( "c", "0" ) ).intValue() );
+        String second = out.get( 3 );
+
+        // the same JVM, that already ran the tool
+        int runs = Integer.parseInt( first.split( " " )[1] );
+        assertEquals( "run " + ( runs + 1 ) + first.substring( first.indexOf( " in " ) ), second );
+        // the properties of a request don't leak into the next one
+        assertEquals( "out c null", out.get( 2 ) );
+    }
+
+    public void testJarRebuiltInPlace()
+        throws Exception
+    {
+        if ( !isWorkerSupported() )
+        {
+            return;
+        }
+        File directory = new File( "target/test-worker-pool" ).getAbsoluteFile();
+        directory.mkdirs();
+        File jar = new File( directory, "tool.jar" );
+        FileUtils.fileWrite( jar.getPath(), "v1" );
+        List<File> classpath = Arrays.asList( new File( "target/test-classes" ).getAbsoluteFile(),
+                                              new File( "target/classes" ).getAbsoluteFile(), jar );
+        List<String> arguments = Arrays.asList( "-classpath", LaunchClasspath.join( classpath ) );
+
+        assertEquals( 0, WorkerPool.getInstance().execute( command( "d" ), java, classpath, arguments ).intValue() );
+        FileUtils.fileWrite( jar.getPath(), "version 2" );
+        assertEquals( 0, WorkerPool.getInstance().execute( command( "e" ), java, classpath, arguments ).intValue() );
+
+        // a new worker loads the rebuilt jar
+        assertEquals( "run 1", out.get( 3 ).substring( 0, out.get( 3 ).indexOf( " in " ) ) );
+        assertFalse( out.get( 1 ).equals( out.get( 3 ) ) );
+    }
+}
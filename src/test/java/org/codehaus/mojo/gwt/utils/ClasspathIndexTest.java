@@ -0,0 +1,181 @@
+package org.codehaus.mojo.gwt.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.codehaus.plexus.util.FileUtils;
+
+import junit.framework.TestCase;
+
+public class ClasspathIndexTest
+    extends TestCase
+{
+    private File directory = new File( "target/test-classpath-index" );
+
+    private File jar( String name, String comment, String... entries )
+        throws Exception
+    {
+        directory.mkdirs();
+        File jar = new File( directory, name );
+        ZipOutputStream out = new ZipOutputStream( new FileOutputStream( jar ) );
+        for ( String entry : entries )
+        {
+            out.putNextEntry( new ZipEntry( entry ) );
+            out.write( entry.getBytes( "UTF-8" ) );
+            out.closeEntry();
+        }
+        if ( comment != null )
+        {
+            out.setComment( comment );
+        }
+        out.close();
+        return jar;
+    }
+
+    public void testReadCentralDirectory()
+        throws Exception
+    {
+        File jar = jar( "a.jar", "a comment", "org/", "org/a/A.gwt.xml", "org/a/client/Ete.java" );
+        assertEquals( Arrays.asList( "org/a/A.gwt.xml", "org/a/client/Ete.java" ),
+                      ClasspathIndex.readEntries( jar ) );
+    }
+
+    public void testFindInClasspathOrder()
+        throws Exception
+    {
+        File a = jar( "a.jar", null, "org/a/A.gwt.xml", "org/shared/Shared.gwt.xml" );
+        File b = jar( "b.jar", null, "org/b/B.gwt.xml", "org/shared/Shared.gwt.xml" );
+        File classes = new File( directory, "classes" );
+        new File( classes, "org/b" ).mkdirs();
+        new File( classes, "org/b/B.gwt.xml" ).createNewFile();
+        new File( classes, "org/a" ).mkdirs();
+        new File( classes, "org/a/A.gwt.xml" ).createNewFile();
+        File stored = new File( directory, "index" );
+
+        ClasspathIndex index =
+            new ClasspathIndex( Arrays.asList( a, classes, b ), new HashMap<String, Object>(), stored );
+        assertEquals( a, index.find( "org/a/A.gwt.xml" ) );
+        assertEquals( classes, index.find( "org/b/B.gwt.xml" ) );
+        assertEquals( a, index.find( "org/shared/Shared.gwt.xml" ) );
+        assertNull( index.find( "org/c/C.gwt.xml" ) );
+
+        // read from disk by the next build
+        assertEquals( 2, stored.list().length );
+        new ClasspathIndex( Arrays.asList( b ), new HashMap<String, Object>(), stored );
+        assertEquals( ClasspathIndex.readEntries( b ),
+                      ClasspathIndex.getEntries( b, new HashMap<String, Object>(), stored ) );
+    }
+
+    /**
+     * Replace bytes in the jar, at every occurrence of a pattern
+     */
+    private void patch( File jar, byte[] pattern, byte[] replacement )
+        throws Exception
+    {
+        byte[] bytes = FileUtils.fileRead( jar.getPath(), "ISO-8859-1" ).getBytes( "ISO-8859-1" );
+        for ( int i = 0; i + pattern.length <= bytes.length; i++ )
+        {
+            boolean match = true;
+            for ( int j = 0; j < pattern.length && match; j++ )
+            {
+                match = bytes[i + j] == pattern[j];
+            }
+            if ( match )
+            {
+                System.arraycopy( replacement, 0, bytes, i, replacement.length );
+            }
+        }
+        FileOutputStream out = new FileOutputStream( jar );
+        out.write( bytes );
+        out.close();
+    }
+
+    public void testNamesWithoutEncodingFlag()
+        throws Exception
+    {
+        // an ASCII name is written without the UTF-8 flag, then made non-ASCII
+        File jar = jar( "legacy.jar", null, "org/a/client/XXte.java", "org/a/A.gwt.xml" );
+        patch( jar, "XX".getBytes( "UTF-8" ), new byte[] { (byte) 0xc3, (byte) 0xa9 } );
+
+        // decoded as the JDK does
+        ZipFile zip = new ZipFile( jar );
+        try
+        {
+            for ( String name : ClasspathIndex.readEntries( jar ) )
+            {
+                assertNotNull( name, zip.getEntry( name ) );
+            }
+        }
+        finally
+        {
+            zip.close();
+        }
+        assertEquals( 2, ClasspathIndex.readEntries( jar ).size() );
+    }
+
+    public void testCorruptCentralDirectory()
+        throws Exception
+    {
+        File jar = jar( "corrupt.jar", null, "org/a/A.gwt.xml" );
+        // central directory record with a name length running past the end of the directory
+        byte[] central = new byte[] { 0x50, 0x4b, 0x01, 0x02 };
+        byte[] bytes = FileUtils.fileRead( jar.getPath(), "ISO-8859-1" ).getBytes( "ISO-8859-1" );
+        int record = new String( bytes, "ISO-8859-1" ).indexOf( new String( central, "ISO-8859-1" ) );
+        bytes[record + 28] = (byte) 0xff;
+        bytes[record + 29] = (byte) 0x7f;
+        FileOutputStream out = new FileOutputStream( jar );
+        out.write( bytes );
+        out.close();
+
+        assertEquals( Collections.emptyList(),
+                      ClasspathIndex.getEntries( jar, new HashMap<String, Object>(), null ) );
+    }
+
+    public void testEvictLeastRecentlyUsed()
+        throws Exception
+    {
+        File stored = new File( directory, "evicted" );
+        FileUtils.deleteDirectory( stored );
+        stored.mkdirs();
+        long now = System.currentTimeMillis();
+        for ( int i = 0; i < 4; i++ )
+        {
+            File index = new File( stored, i + ".idx" );
+            FileUtils.fileWrite( index.getPath(), "UTF-8", "0123456789" );
+            index.setLastModified( now - 60000 * ( 4 - i ) );
+        }
+        File tmp = new File( stored, "4.idx123.tmp" );
+        FileUtils.fileWrite( tmp.getPath(), "UTF-8", "0123456789" );
+
+        ClasspathIndex.evict( stored, 25 );
+        assertEquals( Arrays.asList( false, false, true, true, true ),
+                      Arrays.asList( new File( stored, "0.idx" ).exists(), new File( stored, "1.idx" ).exists(),
+                                     new File( stored, "2.idx" ).exists(), new File( stored, "3.idx" ).exists(),
+                                     tmp.exists() ) );
+    }
+}
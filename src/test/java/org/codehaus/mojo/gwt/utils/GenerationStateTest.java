@@ -0,0 +1,88 @@
+package org.codehaus.mojo.gwt.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+import org.codehaus.plexus.util.FileUtils;
+
+public class GenerationStateTest
+    extends TestCase
+{
+    private File directory = new File( "target/test-generation-state" );
+
+    private File stateFile = new File( directory, "state.hashes" );
+
+    private File output = new File( directory, "Labels.java" );
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        FileUtils.deleteDirectory( directory );
+        directory.mkdirs();
+        FileUtils.fileWrite( output.getPath(), "UTF-8", "interface Labels {}" );
+    }
+
+    public void testUpToDateAcrossBuilds()
+        throws Exception
+    {
+        GenerationState state = new GenerationState( stateFile );
+        assertFalse( state.isUpToDate( "Labels", "a", output ) );
+        state.generated( "Labels", "a", output );
+        state.save();
+
+        state = new GenerationState( stateFile );
+        assertTrue( state.isUpToDate( "Labels", "a", output ) );
+        // the input changed
+        assertFalse( state.isUpToDate( "Labels", "b", output ) );
+        assertFalse( state.isUpToDate( "Labels", null, output ) );
+    }
+
+    public void testOutputModifiedOrDeleted()
+        throws Exception
+    {
+        GenerationState state = new GenerationState( stateFile );
+        state.generated( "Labels", "a", output );
+        // a touch without change keeps it up to date, unlike a timestamp
+        output.setLastModified( output.lastModified() + 10000 );
+        assertTrue( state.isUpToDate( "Labels", "a", output ) );
+
+        FileUtils.fileWrite( output.getPath(), "UTF-8", "interface Labels { String hello(); }" );
+        assertFalse( state.isUpToDate( "Labels", "a", output ) );
+
+        output.delete();
+        assertFalse( state.isUpToDate( "Labels", "a", output ) );
+    }
+
+    public void testForget()
+        throws Exception
+    {
+        GenerationState state = new GenerationState( stateFile );
+        state.generated( "Labels", "a", output );
+        state.save();
+        state.forget( "Labels" );
+        state.save();
+
+        assertFalse( new GenerationState( stateFile ).isUpToDate( "Labels", "a", output ) );
+    }
+}
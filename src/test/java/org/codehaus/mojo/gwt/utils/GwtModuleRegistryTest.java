@@ -0,0 +1,130 @@
+package org.codehaus.mojo.gwt.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.mojo.gwt.GwtModule;
+import org.codehaus.plexus.util.FileUtils;
+
+public class GwtModuleRegistryTest
+    extends TestCase
+{
+    private File directory = new File( "target/test-module-registry" );
+
+    private AtomicInteger classpathRequests = new AtomicInteger();
+
+    private GwtModuleRegistry.ClasspathProvider provider( final File jar )
+    {
+        return new GwtModuleRegistry.ClasspathProvider()
+        {
+            public Collection<File> getClasspath()
+            {
+                classpathRequests.incrementAndGet();
+                return Collections.singletonList( jar );
+            }
+        };
+    }
+
+    public void testModulesParsedOncePerSession()
+        throws Exception
+    {
+        File sources = new File( directory, "src" ).getAbsoluteFile();
+        new File( sources, "com/example" ).mkdirs();
+        FileUtils.fileWrite( new File( sources, "com/example/App.gwt.xml" ).getPath(), "UTF-8",
+                             "<module><inherits name='org.lib.Lib'/></module>" );
+        File jar = new File( directory, "lib.jar" );
+        File index = new File( directory, "index" );
+        ZipOutputStream out = new ZipOutputStream( new FileOutputStream( jar ) );
+        out.putNextEntry( new ZipEntry( "org/lib/Lib.gwt.xml" ) );
+        out.write( "<module><source path='shared'/></module>".getBytes( "UTF-8" ) );
+        out.closeEntry();
+        out.close();
+
+        MavenProject project = new MavenProject();
+        project.addCompileSourceRoot( sources.getAbsolutePath() );
+        Object session = new Object();
+
+        GwtModuleRegistry registry =
+            GwtModuleRegistry.get( session, project, new SystemStreamLog(), "mojo", provider( jar ), index );
+        GwtModule app = registry.readModule( "com.example.App" );
+        assertEquals( new File( sources, "com/example/App.gwt.xml" ), app.getSourceFile() );
+        GwtModule lib = app.getInherits().iterator().next();
+        assertEquals( "org.lib.Lib", lib.getName() );
+        assertEquals( "shared", lib.getSources()[0] );
+
+        // another mojo of the same build
+        GwtModuleRegistry other =
+            GwtModuleRegistry.get( session, project, new SystemStreamLog(), "mojo", provider( jar ), index );
+        assertSame( registry, other );
+        assertSame( app, other.readModule( "com.example.App" ) );
+        assertSame( lib, other.readModule( "org.lib.Lib" ) );
+        assertEquals( 1, classpathRequests.get() );
+
+        // a mojo with another classpath
+        GwtModuleRegistry generator =
+            GwtModuleRegistry.get( session, project, new SystemStreamLog(), "mojo-generator", provider( jar ), index );
+        assertNotSame( registry, generator );
+        assertEquals( "org.lib.Lib", generator.readModule( "org.lib.Lib" ).getName() );
+        assertEquals( 2, classpathRequests.get() );
+
+        try
+        {
+            registry.readModule( "org.missing.Missing" );
+            fail();
+        }
+        catch ( GwtModuleReaderException e )
+        {
+            // expected
+        }
+    }
+
+    public void testCyclicInherits()
+        throws Exception
+    {
+        File sources = new File( directory, "cyclic" ).getAbsoluteFile();
+        new File( sources, "com/example" ).mkdirs();
+        FileUtils.fileWrite( new File( sources, "com/example/A.gwt.xml" ).getPath(), "UTF-8",
+                             "<module><inherits name='com.example.B'/></module>" );
+        FileUtils.fileWrite( new File( sources, "com/example/B.gwt.xml" ).getPath(), "UTF-8",
+                             "<module><inherits name='com.example.A'/></module>" );
+        MavenProject project = new MavenProject();
+        project.addCompileSourceRoot( sources.getAbsolutePath() );
+        GwtModuleRegistry registry =
+            GwtModuleRegistry.get( new Object(), project, new SystemStreamLog(), "mojo", provider( null ), null );
+
+        GwtModule a = registry.readModule( "com.example.A" );
+        GwtModule b = registry.readModule( "com.example.B" );
+        assertEquals( new HashSet<GwtModule>( Arrays.asList( a, b ) ), a.getInherits() );
+        assertEquals( new HashSet<GwtModule>( Arrays.asList( a, b ) ), b.getInherits() );
+    }
+}
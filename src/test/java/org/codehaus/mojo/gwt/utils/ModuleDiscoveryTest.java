@@ -0,0 +1,96 @@
+package org.codehaus.mojo.gwt.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+
+import org.codehaus.plexus.util.FileUtils;
+
+public class ModuleDiscoveryTest
+    extends TestCase
+{
+    private File directory = new File( "target/test-module-discovery" );
+
+    private File file( String path )
+        throws Exception
+    {
+        File file = new File( directory, path );
+        file.getParentFile().mkdirs();
+        file.createNewFile();
+        return file;
+    }
+
+    private void age( File dir, long time )
+    {
+        for ( File child : dir.listFiles() )
+        {
+            if ( child.isDirectory() )
+            {
+                age( child, time );
+            }
+        }
+        dir.setLastModified( time );
+    }
+
+    public void testDiscoverAndJournal()
+        throws Exception
+    {
+        FileUtils.deleteDirectory( directory );
+        file( "src/com/example/App.gwt.xml" );
+        file( "src/com/example/client/App.java" );
+        file( "src/com/example/lib/Lib.gwt.xml" );
+        file( "src/.svn/Hidden.gwt.xml" );
+        file( "res/com/example/Resource.gwt.xml" );
+        file( "res/target/Copy.gwt.xml" );
+        File src = new File( directory, "src" );
+        File res = new File( directory, "res" );
+        age( directory, System.currentTimeMillis() - 60000 );
+        List<File> roots = Arrays.asList( src, res );
+        List<File> excludes = Collections.singletonList( new File( res, "target" ) );
+        File journal = new File( directory, "journal.properties" );
+
+        ModuleDiscovery discovery = new ModuleDiscovery( excludes, journal, new HashMap<String, Object>() );
+        Set<String> expected = new TreeSet<String>( Arrays.asList( "com/example/App.gwt.xml",
+                                                                   "com/example/lib/Lib.gwt.xml",
+                                                                   "com/example/Resource.gwt.xml" ) );
+        assertEquals( expected, discovery.discover( roots ) );
+        assertEquals( 8, discovery.getListedDirectories() );
+
+        // next build, nothing changed
+        discovery = new ModuleDiscovery( excludes, journal, new HashMap<String, Object>() );
+        assertEquals( expected, discovery.discover( roots ) );
+        assertEquals( 0, discovery.getListedDirectories() );
+
+        // a module added
+        file( "src/com/example/lib/Other.gwt.xml" );
+        discovery = new ModuleDiscovery( excludes, journal, new HashMap<String, Object>() );
+        expected.add( "com/example/lib/Other.gwt.xml" );
+        assertEquals( expected, discovery.discover( roots ) );
+        assertEquals( 1, discovery.getListedDirectories() );
+    }
+}
@@ -0,0 +1,110 @@
+package org.codehaus.mojo.gwt.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.resolver.ArtifactNotFoundException;
+import org.apache.maven.artifact.resolver.ArtifactResolver;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+
+public class ParallelArtifactResolverTest
+    extends TestCase
+{
+    private ParallelArtifactResolver newResolver( int threads )
+    {
+        ArtifactResolver resolver =
+            (ArtifactResolver) Proxy.newProxyInstance( getClass().getClassLoader(),
+                                                       new Class<?>[] { ArtifactResolver.class }, new FakeResolver() );
+        return new ParallelArtifactResolver( resolver, null, null, null, Collections.<ArtifactRepository> emptyList(),
+                                             threads, new SystemStreamLog() );
+    }
+
+    private static Artifact artifact( String artifactId )
+    {
+        return new DefaultArtifact( "g", artifactId, "1.0", "compile", "jar", "sources", new DefaultArtifactHandler() );
+    }
+
+    public void testResolve()
+        throws Exception
+    {
+        List<Artifact> artifacts = new ArrayList<Artifact>();
+        for ( int i = 5; i > 0; i-- )
+        {
+            artifacts.add( artifact( "a-" + i ) );
+        }
+        newResolver( 4 ).resolve( artifacts );
+        for ( int i = 0; i < artifacts.size(); i++ )
+        {
+            assertEquals( new File( "a-" + ( 5 - i ) + ".jar" ), artifacts.get( i ).getFile() );
+        }
+    }
+
+    public void testFirstFailureInListOrder()
+        throws Exception
+    {
+        List<Artifact> artifacts = new ArrayList<Artifact>();
+        artifacts.add( artifact( "a-1" ) );
+        artifacts.add( artifact( "missing-5" ) );
+        artifacts.add( artifact( "missing-1" ) );
+        try
+        {
+            newResolver( 4 ).resolve( artifacts );
+            fail( "missing artifacts must fail" );
+        }
+        catch ( ArtifactNotFoundException e )
+        {
+            assertEquals( "missing-5", e.getArtifactId() );
+        }
+    }
+
+    /**
+     * resolves "a-N" artifacts after N * 10 ms, fails for artifacts named "missing-N"
+     */
+    private static class FakeResolver
+        implements InvocationHandler
+    {
+        public Object invoke( Object proxy, Method method, Object[] args )
+            throws Throwable
+        {
+            Artifact artifact = (Artifact) args[0];
+            String[] name = artifact.getArtifactId().split( "-" );
+            Thread.sleep( Integer.parseInt( name[1] ) * 10 );
+            if ( "missing".equals( name[0] ) )
+            {
+                throw new ArtifactNotFoundException( "not found", artifact );
+            }
+            artifact.setFile( new File( artifact.getArtifactId() + ".jar" ) );
+            return null;
+        }
+    }
+}